@@ -0,0 +1,85 @@
+
+/*
+ * Janino - An embedded Java[TM] compiler
+ *
+ * Copyright (c) 2001-2010 Arno Unkrig. All rights reserved.
+ * Copyright (c) 2015-2016 TIBCO Software Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.codehaus.commons.compiler.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.codehaus.commons.compiler.CompilerFactoryFactory;
+import org.codehaus.commons.compiler.ICompilerFactory;
+import org.codehaus.commons.compiler.IExpressionEvaluator;
+import org.codehaus.commons.compiler.IScriptEvaluator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the complete "cooking" of an expression and of a script, i.e. scanning, parsing, compiling and loading,
+ * for each implementation of the {@code org.codehaus.commons.compiler} API.
+ */
+@BenchmarkMode(Mode.AverageTime) @OutputTimeUnit(TimeUnit.MICROSECONDS) @Fork(1) @Warmup(iterations = 5)
+@Measurement(iterations = 5) @State(Scope.Benchmark) public
+class CookBenchmark {
+
+    /**
+     * The class name of the {@link ICompilerFactory} under test.
+     */
+    @Param({ "org.codehaus.janino.CompilerFactory", "org.codehaus.commons.compiler.jdk.CompilerFactory" })
+    public String compilerFactory;
+
+    private ICompilerFactory cf;
+
+    @Setup public void
+    setUp() throws Exception {
+        this.cf = CompilerFactoryFactory.getCompilerFactory(this.compilerFactory);
+    }
+
+    @Benchmark public IExpressionEvaluator
+    cookExpression() throws Exception {
+        IExpressionEvaluator ee = this.cf.newExpressionEvaluator();
+        ee.setParameters(new String[] { "a", "b" }, new Class<?>[] { int.class, int.class });
+        ee.setExpressionType(int.class);
+        ee.cook(Expressions.EXPRESSION);
+        return ee;
+    }
+
+    @Benchmark public IScriptEvaluator
+    cookScript() throws Exception {
+        IScriptEvaluator se = this.cf.newScriptEvaluator();
+        se.setParameters(new String[] { "n" }, new Class<?>[] { int.class });
+        se.setReturnType(long.class);
+        se.cook(Expressions.SCRIPT);
+        return se;
+    }
+}
@@ -0,0 +1,95 @@
+
+/*
+ * Janino - An embedded Java[TM] compiler
+ *
+ * Copyright (c) 2001-2010 Arno Unkrig. All rights reserved.
+ * Copyright (c) 2015-2016 TIBCO Software Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.codehaus.commons.compiler.benchmarks;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.TimeUnit;
+
+import org.codehaus.commons.compiler.CompilerFactoryFactory;
+import org.codehaus.commons.compiler.ICompilerFactory;
+import org.codehaus.commons.compiler.IExpressionEvaluator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the evaluation of a cooked expression, both through a "fast evaluator" (see {@link
+ * IExpressionEvaluator#createFastEvaluator(String, Class, String[])}) and through {@link
+ * IExpressionEvaluator#evaluate(Object[])}, which uses reflection.
+ */
+@BenchmarkMode(Mode.AverageTime) @OutputTimeUnit(TimeUnit.NANOSECONDS) @Fork(1) @Warmup(iterations = 5)
+@Measurement(iterations = 5) @State(Scope.Benchmark) public
+class EvaluateBenchmark {
+
+    /**
+     * The class name of the {@link org.codehaus.commons.compiler.ICompilerFactory} under test.
+     */
+    @Param({ "org.codehaus.janino.CompilerFactory", "org.codehaus.commons.compiler.jdk.CompilerFactory" })
+    public String compilerFactory;
+
+    /**
+     * Varied by the benchmark methods, so that the JIT cannot fold the evaluation.
+     */
+    private int a = 3, b = 4;
+
+    private IntBinaryOperator    fastEvaluator;
+    private IExpressionEvaluator expressionEvaluator;
+
+    @Setup public void
+    setUp() throws Exception {
+        ICompilerFactory cf = CompilerFactoryFactory.getCompilerFactory(this.compilerFactory);
+
+        this.fastEvaluator = (IntBinaryOperator) cf.newExpressionEvaluator().createFastEvaluator(
+            Expressions.EXPRESSION,   // expression
+            IntBinaryOperator.class,  // interfaceToImplement
+            new String[] { "a", "b" } // parameterNames
+        );
+
+        this.expressionEvaluator = cf.newExpressionEvaluator();
+        this.expressionEvaluator.setParameters(new String[] { "a", "b" }, new Class<?>[] { int.class, int.class });
+        this.expressionEvaluator.setExpressionType(int.class);
+        this.expressionEvaluator.cook(Expressions.EXPRESSION);
+    }
+
+    @Benchmark public int
+    evaluateFast() {
+        return this.fastEvaluator.applyAsInt(this.a++, this.b);
+    }
+
+    @Benchmark public Object
+    evaluateReflectively() throws InvocationTargetException {
+        return this.expressionEvaluator.evaluate(new Object[] { this.a++, this.b });
+    }
+}
@@ -0,0 +1,120 @@
+
+/*
+ * Janino - An embedded Java[TM] compiler
+ *
+ * Copyright (c) 2001-2010 Arno Unkrig. All rights reserved.
+ * Copyright (c) 2015-2016 TIBCO Software Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.codehaus.janino.benchmarks;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.codehaus.commons.compiler.CompileException;
+import org.codehaus.janino.ClassLoaderIClassLoader;
+import org.codehaus.janino.IClassLoader;
+import org.codehaus.janino.Java.CompilationUnit;
+import org.codehaus.janino.Parser;
+import org.codehaus.janino.Scanner;
+import org.codehaus.janino.UnitCompiler;
+import org.codehaus.janino.util.ClassFile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the compilation of one very large, switch-heavy method, i.e. a state machine as code generators typically
+ * produce it. The time should grow linearly with the number of states; with more than about 300 states, the method
+ * exceeds 32 KB, so that the branches across the method must be widened.
+ */
+@BenchmarkMode(Mode.AverageTime) @OutputTimeUnit(TimeUnit.MILLISECONDS) @Fork(1) @Warmup(iterations = 5)
+@Measurement(iterations = 5) @State(Scope.Thread) public
+class LargeMethodBenchmark {
+
+    /**
+     * The number of states of the state machine.
+     */
+    @Param({ "100", "300", "700" }) public int states;
+
+    private IClassLoader    iClassLoader;
+    private String          source;
+    private CompilationUnit compilationUnit;
+
+    @Setup(Level.Trial) public void
+    setUp() {
+        this.iClassLoader = new ClassLoaderIClassLoader(LargeMethodBenchmark.class.getClassLoader());
+        this.source       = LargeMethodBenchmark.stateMachine(this.states);
+    }
+
+    @Setup(Level.Invocation) public void
+    parse() throws CompileException, IOException {
+        this.compilationUnit = new Parser(new Scanner(null, new StringReader(this.source))).parseCompilationUnit();
+    }
+
+    @Benchmark public ClassFile[]
+    compileUnit() throws CompileException {
+        return new UnitCompiler(this.compilationUnit, this.iClassLoader).compileUnit(true, true, true);
+    }
+
+    /**
+     * @return A compilation unit with a method that implements a state machine with the given number of states, each
+     *         of which executes a nested {@code switch} statement
+     */
+    private static String
+    stateMachine(int states) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("public class StateMachine {\n");
+        sb.append("    public static int run(int steps) {\n");
+        sb.append("        int state = 0, acc = 0;\n");
+        sb.append("        for (int step = 0; step < steps; step++) {\n");
+        sb.append("            switch (state) {\n");
+        for (int i = 0; i < states; i++) {
+            sb.append("            case ").append(i).append(":\n");
+            sb.append("                switch (acc & 3) {\n");
+            sb.append("                case 0:  acc += ").append(i).append("; break;\n");
+            sb.append("                case 1:  acc ^= ").append(i).append("; break;\n");
+            sb.append("                default: acc--;\n");
+            sb.append("                }\n");
+            sb.append("                state = acc > ").append(i * 7).append(" ? ");
+            sb.append((i * 31 + 7) % states).append(" : ").append((i + 1) % states).append(";\n");
+            sb.append("                break;\n");
+        }
+        sb.append("            default:\n");
+        sb.append("                return -1;\n");
+        sb.append("            }\n");
+        sb.append("        }\n");
+        sb.append("        return acc;\n");
+        sb.append("    }\n");
+        sb.append("}\n");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,131 @@
+
+/*
+ * Janino - An embedded Java[TM] compiler
+ *
+ * Copyright (c) 2001-2010 Arno Unkrig. All rights reserved.
+ * Copyright (c) 2015-2016 TIBCO Software Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.codehaus.janino.benchmarks;
+
+/**
+ * The Java source code that the phase benchmarks process.
+ */
+final
+class Sources {
+
+    private Sources() {}
+
+    /**
+     * The name of the top-level class that {@link #COMPILATION_UNIT} declares.
+     */
+    static final String CLASS_NAME = "pkg.Sample";
+
+    /**
+     * A compilation unit of moderate size that exercises the commonly used language elements: Fields, constructors,
+     * loops, {@code switch}, {@code try}, string concatenation, arrays, a member class and an anonymous class.
+     */
+    static final String COMPILATION_UNIT = (
+        ""
+        + "package pkg;\n"
+        + "\n"
+        + "import java.util.ArrayList;\n"
+        + "import java.util.Iterator;\n"
+        + "import java.util.List;\n"
+        + "\n"
+        + "public class Sample {\n"
+        + "\n"
+        + "    private final List<String> names = new ArrayList<String>();\n"
+        + "    private int                count;\n"
+        + "\n"
+        + "    public Sample(String[] names) {\n"
+        + "        for (int i = 0; i < names.length; i++) this.names.add(names[i]);\n"
+        + "        this.count = names.length;\n"
+        + "    }\n"
+        + "\n"
+        + "    public String join(String separator) {\n"
+        + "        StringBuilder sb = new StringBuilder();\n"
+        + "        for (Iterator<String> it = this.names.iterator(); it.hasNext();) {\n"
+        + "            sb.append(it.next());\n"
+        + "            if (it.hasNext()) sb.append(separator);\n"
+        + "        }\n"
+        + "        return sb.toString();\n"
+        + "    }\n"
+        + "\n"
+        + "    public static long fibonacci(int n) {\n"
+        + "        long a = 0, b = 1;\n"
+        + "        while (n-- > 0) {\n"
+        + "            long t = a + b;\n"
+        + "            a = b;\n"
+        + "            b = t;\n"
+        + "        }\n"
+        + "        return a;\n"
+        + "    }\n"
+        + "\n"
+        + "    public static String classify(int x) {\n"
+        + "        switch (x % 4) {\n"
+        + "        case 0:  return \"zero\";\n"
+        + "        case 1:  return \"one\";\n"
+        + "        case 2:  return \"two\";\n"
+        + "        default: return \"other: \" + x;\n"
+        + "        }\n"
+        + "    }\n"
+        + "\n"
+        + "    public static int parse(String s, int defaultValue) {\n"
+        + "        try {\n"
+        + "            return Integer.parseInt(s.trim());\n"
+        + "        } catch (NumberFormatException nfe) {\n"
+        + "            return defaultValue;\n"
+        + "        } finally {\n"
+        + "            s = null;\n"
+        + "        }\n"
+        + "    }\n"
+        + "\n"
+        + "    public static double[] matrixProduct(double[][] m, double[] v) {\n"
+        + "        double[] result = new double[m.length];\n"
+        + "        for (int i = 0; i < m.length; i++) {\n"
+        + "            double sum = 0;\n"
+        + "            for (int j = 0; j < v.length; j++) sum += m[i][j] * v[j];\n"
+        + "            result[i] = sum;\n"
+        + "        }\n"
+        + "        return result;\n"
+        + "    }\n"
+        + "\n"
+        + "    public Runnable counter() {\n"
+        + "        return new Runnable() {\n"
+        + "            @Override public void run() { Sample.this.count++; }\n"
+        + "        };\n"
+        + "    }\n"
+        + "\n"
+        + "    public static class Point {\n"
+        + "        public final int x, y;\n"
+        + "        public Point(int x, int y) { this.x = x; this.y = y; }\n"
+        + "        @Override public String toString() { return \"(\" + this.x + \", \" + this.y + \")\"; }\n"
+        + "        @Override public int hashCode() { return 31 * this.x + this.y; }\n"
+        + "        @Override public boolean equals(Object o) {\n"
+        + "            if (!(o instanceof Point)) return false;\n"
+        + "            Point that = (Point) o;\n"
+        + "            return this.x == that.x && this.y == that.y;\n"
+        + "        }\n"
+        + "    }\n"
+        + "}\n"
+    );
+}
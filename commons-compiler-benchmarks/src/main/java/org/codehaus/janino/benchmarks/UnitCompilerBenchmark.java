@@ -0,0 +1,93 @@
+
+/*
+ * Janino - An embedded Java[TM] compiler
+ *
+ * Copyright (c) 2001-2010 Arno Unkrig. All rights reserved.
+ * Copyright (c) 2015-2016 TIBCO Software Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.codehaus.janino.benchmarks;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.codehaus.commons.compiler.CompileException;
+import org.codehaus.janino.ClassLoaderIClassLoader;
+import org.codehaus.janino.IClassLoader;
+import org.codehaus.janino.Java.CompilationUnit;
+import org.codehaus.janino.Parser;
+import org.codehaus.janino.Scanner;
+import org.codehaus.janino.UnitCompiler;
+import org.codehaus.janino.util.ClassFile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link UnitCompiler#compileUnit(boolean, boolean, boolean)}, i.e. the generation of {@link ClassFile}s
+ * from a parsed compilation unit.
+ * <p>
+ *   Because the {@link UnitCompiler} annotates the syntax tree as it goes, each invocation compiles a freshly parsed
+ *   compilation unit; the parsing is not measured. The {@link IClassLoader} is shared by all invocations, so the
+ *   loading of the JRE classes is not measured either.
+ * </p>
+ */
+@BenchmarkMode(Mode.AverageTime) @OutputTimeUnit(TimeUnit.MICROSECONDS) @Fork(1) @Warmup(iterations = 5)
+@Measurement(iterations = 5) @State(Scope.Thread) public
+class UnitCompilerBenchmark {
+
+    /**
+     * The version of the generated class files; see {@link UnitCompiler#setTargetVersion(int)}.
+     */
+    @Param({ "6", "8" }) public int targetVersion;
+
+    private IClassLoader    iClassLoader;
+    private CompilationUnit compilationUnit;
+
+    @Setup(Level.Trial) public void
+    setUpIClassLoader() {
+        this.iClassLoader = new ClassLoaderIClassLoader(UnitCompilerBenchmark.class.getClassLoader());
+    }
+
+    @Setup(Level.Invocation) public void
+    parse() throws CompileException, IOException {
+        this.compilationUnit = (
+            new Parser(new Scanner(null, new StringReader(Sources.COMPILATION_UNIT))).parseCompilationUnit()
+        );
+    }
+
+    @Benchmark public ClassFile[]
+    compileUnit() throws CompileException {
+        UnitCompiler unitCompiler = new UnitCompiler(this.compilationUnit, this.iClassLoader);
+        unitCompiler.setTargetVersion(this.targetVersion);
+        return unitCompiler.compileUnit(true, true, true);
+    }
+}
@@ -74,7 +74,11 @@ class Cookable implements ICookable {
     @Override public final void
     cook(String s) throws CompileException { this.cook((String) null, s); }
 
-    @Override public final void
+    /**
+     * Wraps the string in a {@link StringReader} and invokes {@link #cook(String, Reader)}. Implementations may
+     * override this method to scan the string without the overhead of a {@link Reader}.
+     */
+    @Override public void
     cook(@Nullable String optionalFileName, String s) throws CompileException {
         try {
             this.cook(optionalFileName, new StringReader(s));
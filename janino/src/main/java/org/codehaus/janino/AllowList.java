@@ -0,0 +1,106 @@
+
+/*
+ * Janino - An embedded Java[TM] compiler
+ *
+ * Copyright (c) 2001-2010 Arno Unkrig. All rights reserved.
+ * Copyright (c) 2015-2016 TIBCO Software Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.codehaus.janino;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The classes, packages and members that compiled code may use, as enforced at compile time by {@link
+ * UnitCompiler#setAllowList(AllowList)} and {@link SimpleCompiler#setAllowList(AllowList)}.
+ * <p>
+ *   Unlike {@link org.codehaus.commons.compiler.Sandbox}, an allow list costs nothing at run time and does not
+ *   require a JVM-wide {@link SecurityManager}: References to members of types that are not on the list are reported
+ *   as compile errors, so the generated bytecode can only use what is allowed.
+ * </p>
+ * <p>
+ *   The list applies to the methods, constructors and fields of types that are loaded through the {@link
+ *   IClassLoader}, i.e. of types that are <em>not</em> declared in the compiled source code. The members of {@link
+ *   Object} and of array types are always allowed, and so are the references that the compiler generates itself (for
+ *   string concatenation, enhanced {@code for} statements, {@code assert} statements, class literals, etc.).
+ *   Constant fields (JLS7 4.12.4) are inlined and thus also always allowed.
+ * </p>
+ * <p>
+ *   A member is allowed iff its declaring class, or the class through which it is referenced (e.g. {@link
+ *   java.util.ArrayList} for {@code arrayList.isEmpty()}, which {@code AbstractCollection} declares), is on the list,
+ *   or is a member of a package on the list, or the member itself is on the list.
+ * </p>
+ * <p>
+ *   Class names are fully qualified and use "$" for nested classes, e.g. {@code "java.util.Map$Entry"}.
+ * </p>
+ */
+public
+class AllowList {
+
+    private final Set<String> classNames   = new TreeSet<String>();
+    private final Set<String> packageNames = new TreeSet<String>();
+    private final Set<String> memberNames  = new TreeSet<String>();
+
+    /**
+     * Allows all methods, constructors and fields of the given class, but not those of its nested classes.
+     */
+    public void
+    allowClass(String className) { this.classNames.add(className); }
+
+    /**
+     * Allows all methods, constructors and fields of the classes in the given package, but not those of the classes
+     * in its subpackages.
+     */
+    public void
+    allowPackage(String packageName) { this.packageNames.add(packageName); }
+
+    /**
+     * Allows all methods (regardless of their parameter types) or the field named <var>memberName</var> of the given
+     * class; {@code "<init>"} designates the class's constructors.
+     */
+    public void
+    allowMember(String className, String memberName) { this.memberNames.add(className + '.' + memberName); }
+
+    /**
+     * @param memberName The name of a method or field, or {@code "<init>"} for a constructor
+     * @return           Whether the given member of the given class is allowed
+     */
+    public boolean
+    isAllowed(String className, String memberName) {
+
+        if (this.classNames.contains(className)) return true;
+
+        int idx = className.lastIndexOf('.');
+        if (this.packageNames.contains(idx == -1 ? "" : className.substring(0, idx))) return true;
+
+        return this.memberNames.contains(className + '.' + memberName);
+    }
+
+    /**
+     * @return A representation of the allowed classes, packages and members that is equal for equal allow lists, and
+     *         is thus suitable as (part of) a cache key
+     */
+    @Override public String
+    toString() {
+        return "classes=" + this.classNames + ", packages=" + this.packageNames + ", members=" + this.memberNames;
+    }
+}
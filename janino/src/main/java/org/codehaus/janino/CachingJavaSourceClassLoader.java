@@ -31,10 +31,17 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
 
 import org.codehaus.commons.nullanalysis.Nullable;
+import org.codehaus.janino.Java.CompilationUnit;
+import org.codehaus.janino.Java.PackageMemberTypeDeclaration;
 import org.codehaus.janino.util.ClassFile;
 import org.codehaus.janino.util.resource.DirectoryResourceCreator;
 import org.codehaus.janino.util.resource.DirectoryResourceFinder;
@@ -52,6 +59,13 @@ import org.codehaus.janino.util.resource.ResourceFinder;
  *   (see {@link #CachingJavaSourceClassLoader(ClassLoader, ResourceFinder, String, ResourceFinder, ResourceCreator)}.
  * </p>
  * <p>
+ *   Along with the class files, the cache stores the dependencies of each compilation unit, i.e. the source files of
+ *   the types it references (including the types whose constants were inlined). A cached class file is only used if
+ *   neither its own source file nor any of the source files that it (transitively) depends on were modified since the
+ *   class file was written; otherwise the source file is recompiled. Thus, modifying a source file causes exactly the
+ *   modified compilation units and their transitive dependents to be recompiled.
+ * </p>
+ * <p>
  *   See {@link org.codehaus.janino.JavaSourceClassLoader#main(String[])} for an example how to use this class.
  * </p>
  * <p>
@@ -68,6 +82,19 @@ class CachingJavaSourceClassLoader extends JavaSourceClassLoader {
     private final ResourceCreator classFileCacheResourceCreator;
     private final ResourceFinder  sourceFinder;
 
+    /**
+     * Caches the contents of the dependencies resources that were read or written.
+     */
+    private final Map<String /*sourceResourceName*/, List<String> /*sourceResourceNames*/>
+    dependenciesCache = new HashMap<String, List<String>>();
+
+    /**
+     * The dependencies of the compilation units that were compiled by the current invocation of {@link
+     * #generateBytecodes(String)}.
+     */
+    private final Map<String /*sourceResourceName*/, Set<String> /*sourceResourceNames*/>
+    compiledDependencies = new HashMap<String, Set<String>>();
+
     /**
      * See {@link #CachingJavaSourceClassLoader(ClassLoader, ResourceFinder, String, ResourceFinder, ResourceCreator)}.
      *
@@ -145,11 +172,12 @@ class CachingJavaSourceClassLoader extends JavaSourceClassLoader {
             if (classFileResource != null) {
 
                 // Check whether a source file resource exists.
-                Resource sourceResource = this.sourceFinder.findResource(ClassFile.getSourceResourceName(className));
+                String   sourceResourceName = ClassFile.getSourceResourceName(className);
+                Resource sourceResource     = this.sourceFinder.findResource(sourceResourceName);
                 if (sourceResource == null) return null;
 
                 // Check whether the class file is up-to-date.
-                if (sourceResource.lastModified() < classFileResource.lastModified()) {
+                if (this.isUpToDate(sourceResourceName, classFileResource.lastModified(), new HashSet<String>())) {
 
                     // Yes, it is... read the bytecode from the file and define the class.
                     byte[] bytecode;
@@ -166,6 +194,7 @@ class CachingJavaSourceClassLoader extends JavaSourceClassLoader {
         }
 
         // Cache miss... generate the bytecode from source.
+        this.compiledDependencies.clear();
         Map<String /*name*/, byte[] /*bytecode*/> bytecodes = super.generateBytecodes(className);
         if (bytecodes == null) return null;
 
@@ -188,9 +217,125 @@ class CachingJavaSourceClassLoader extends JavaSourceClassLoader {
             }
         }
 
+        // Write the dependencies, AFTER the class files, so that a class file is never considered up-to-date with
+        // outdated dependencies.
+        for (Map.Entry<String, Set<String>> me : this.compiledDependencies.entrySet()) {
+            String       sourceResourceName = (String) me.getKey();
+            List<String> dependencies       = new ArrayList<String>((Set<String>) me.getValue());
+
+            StringBuilder sb = new StringBuilder();
+            for (String d : dependencies) sb.append(d).append('\n');
+
+            String dependenciesResourceName = CachingJavaSourceClassLoader.getDependenciesResourceName(
+                sourceResourceName
+            );
+            try {
+                CachingJavaSourceClassLoader.writeResource(
+                    this.classFileCacheResourceCreator,
+                    dependenciesResourceName,
+                    sb.toString().getBytes("UTF-8")
+                );
+            } catch (IOException ex) {
+                throw new ClassNotFoundException("Writing dependencies to \"" + dependenciesResourceName + "\"", ex);
+            }
+            this.dependenciesCache.put(sourceResourceName, dependencies);
+        }
+        this.compiledDependencies.clear();
+
         return bytecodes;
     }
 
+    /**
+     * Records the source files of the types that the just-compiled unit depends on.
+     */
+    @Override protected void
+    unitCompiled(UnitCompiler unitCompiler) {
+
+        // Determine the source file(s) that the compilation unit was parsed from.
+        CompilationUnit cu                  = unitCompiler.getCompilationUnit();
+        Set<String>     sourceResourceNames = new HashSet<String>();
+        for (PackageMemberTypeDeclaration pmtd : cu.getPackageMemberTypeDeclarations()) {
+            String sourceResourceName = ClassFile.getSourceResourceName(pmtd.getClassName());
+            if (this.sourceFinder.findResource(sourceResourceName) == null) continue;
+            sourceResourceNames.add(sourceResourceName);
+        }
+
+        Set<String> dependencies = new TreeSet<String>();
+        for (String fd : unitCompiler.getReferencedTypeDescriptors()) {
+            String sourceResourceName = ClassFile.getSourceResourceName(Descriptor.toClassName(fd));
+            if (sourceResourceNames.contains(sourceResourceName)) continue;
+            if (this.sourceFinder.findResource(sourceResourceName) != null) dependencies.add(sourceResourceName);
+        }
+
+        for (String sourceResourceName : sourceResourceNames) {
+            this.compiledDependencies.put(sourceResourceName, dependencies);
+        }
+    }
+
+    /**
+     * @param classFileLastModified The modification time of a cached class file that was generated from the source
+     *                              file with the given name, or from a source file that depends on it
+     * @param checked               The names of the source files that were already checked
+     * @return                      Whether neither the named source file nor the source files that it (transitively)
+     *                              depends on were modified after the class file was written
+     */
+    private boolean
+    isUpToDate(String sourceResourceName, long classFileLastModified, Set<String> checked) {
+
+        if (!checked.add(sourceResourceName)) return true;
+
+        Resource sourceResource = this.sourceFinder.findResource(sourceResourceName);
+        if (sourceResource == null || sourceResource.lastModified() >= classFileLastModified) return false;
+
+        // Caches that were written by older versions lack the dependencies; enforce recompilation in that case.
+        List<String> dependencies = this.readDependencies(sourceResourceName);
+        if (dependencies == null) return false;
+
+        for (String d : dependencies) {
+            if (!this.isUpToDate(d, classFileLastModified, checked)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return The names of the source files that the named source file depends on, or {@code null} iff the
+     *         dependencies are unknown
+     */
+    @Nullable private List<String>
+    readDependencies(String sourceResourceName) {
+
+        List<String> result = (List<String>) this.dependenciesCache.get(sourceResourceName);
+        if (result != null) return result;
+
+        Resource dependenciesResource = this.classFileCacheResourceFinder.findResource(
+            CachingJavaSourceClassLoader.getDependenciesResourceName(sourceResourceName)
+        );
+        if (dependenciesResource == null) return null;
+
+        String s;
+        try {
+            s = new String(CachingJavaSourceClassLoader.readResource(dependenciesResource), "UTF-8");
+        } catch (IOException ioe) {
+            return null;
+        }
+
+        result = new ArrayList<String>();
+        for (String line : s.split("\n")) {
+            if (line.length() > 0) result.add(line);
+        }
+
+        this.dependenciesCache.put(sourceResourceName, result);
+        return result;
+    }
+
+    /**
+     * @return E.g. "pkg1/pkg2/Outer.dependencies" for "pkg1/pkg2/Outer.java"
+     */
+    private static String
+    getDependenciesResourceName(String sourceResourceName) {
+        return sourceResourceName.substring(0, sourceResourceName.length() - 5) + ".dependencies";
+    }
+
     /**
      * Reads all bytes from the given resource.
      */
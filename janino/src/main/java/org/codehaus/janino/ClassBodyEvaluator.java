@@ -29,7 +29,8 @@ package org.codehaus.janino;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
-import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
 
 import org.codehaus.commons.compiler.CompileException;
 import org.codehaus.commons.compiler.CompilerFactoryFactory;
@@ -235,6 +236,21 @@ class ClassBodyEvaluator extends SimpleCompiler implements IClassBodyEvaluator {
         this.result = this.compileToClass(compilationUnit);
     }
 
+    @Override protected void
+    addToCookCacheKey(List<Object> key) {
+        super.addToCookCacheKey(key);
+        key.add(this.optionalDefaultImports == null ? null : Arrays.asList(this.optionalDefaultImports));
+        key.add(this.className);
+        key.add(this.optionalExtendedType);
+        key.add(Arrays.asList(this.implementedTypes));
+    }
+
+    @Override protected void
+    cookFromCache(ClassLoader classLoader) {
+        super.cookFromCache(classLoader);
+        this.result = this.loadGeneratedClass(classLoader);
+    }
+
     /**
      * Creates a {@link Java.CompilationUnit}, sets the default imports, and parses the import declarations.
      * <p>
@@ -253,7 +269,7 @@ class ClassBodyEvaluator extends SimpleCompiler implements IClassBodyEvaluator {
         // Set default imports.
         if (this.optionalDefaultImports != null) {
             for (String defaultImport : this.optionalDefaultImports) {
-                Scanner s       = new Scanner(null, new StringReader(defaultImport));
+                Scanner s       = new Scanner(null, defaultImport.toCharArray());
                 Parser  parser2 = new Parser(s);
                 cu.addImportDeclaration(parser2.parseImportDeclarationBody());
                 parser2.read(TokenType.END_OF_INPUT);
@@ -312,9 +328,18 @@ class ClassBodyEvaluator extends SimpleCompiler implements IClassBodyEvaluator {
         // Compile and load the compilation unit.
         ClassLoader cl = this.compileToClassLoader(compilationUnit);
 
+        return this.loadGeneratedClass(cl);
+    }
+
+    /**
+     * @return The class with the configured name, loaded through the given <var>classLoader</var>
+     */
+    protected final Class<?>
+    loadGeneratedClass(ClassLoader classLoader) {
+
         // Find the generated class by name.
         try {
-            return cl.loadClass(this.className);
+            return classLoader.loadClass(this.className);
         } catch (ClassNotFoundException ex) {
             throw new InternalCompilerException((
                 "SNO: Generated compilation unit does not declare class '"
@@ -31,6 +31,8 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Logger;
 
 import org.codehaus.commons.compiler.CompileException;
@@ -63,7 +65,8 @@ class ClassFileIClass extends IClass {
     private final IClassLoader iClassLoader;
     private final short        accessFlags;
 
-    private final Map<ClassFile.FieldInfo, IField> resolvedFields = new HashMap<ClassFile.FieldInfo, IField>();
+    private final ConcurrentMap<ClassFile.FieldInfo, IField>
+    resolvedFields = new ConcurrentHashMap<ClassFile.FieldInfo, IField>();
 
     /**
      * @param classFile Source of data
@@ -267,18 +270,28 @@ class ClassFileIClass extends IClass {
 
                     final ClassFile cf = ClassFileIClass.this.classFile;
 
-                    // SUPPRESS CHECKSTYLE LineLength:13
+                    // SUPPRESS CHECKSTYLE LineLength:11
                     @Override public Object visitBooleanElementValue(BooleanElementValue subject) { return this.getConstantValue(subject.constantValueIndex); }
                     @Override public Object visitByteElementValue(ByteElementValue subject)       { return this.getConstantValue(subject.constantValueIndex); }
                     @Override public Object visitCharElementValue(CharElementValue subject)       { return this.getConstantValue(subject.constantValueIndex); }
-                    @Override public Object visitClassElementValue(ClassElementValue subject)     { return this.getConstantValue(subject.constantValueIndex); }
                     @Override public Object visitDoubleElementValue(DoubleElementValue subject)   { return this.getConstantValue(subject.constantValueIndex); }
                     @Override public Object visitFloatElementValue(FloatElementValue subject)     { return this.getConstantValue(subject.constantValueIndex); }
                     @Override public Object visitIntElementValue(IntElementValue subject)         { return this.getConstantValue(subject.constantValueIndex); }
                     @Override public Object visitLongElementValue(LongElementValue subject)       { return this.getConstantValue(subject.constantValueIndex); }
                     @Override public Object visitShortElementValue(ShortElementValue subject)     { return this.getConstantValue(subject.constantValueIndex); }
-                    @Override public Object visitStringElementValue(StringElementValue subject)   { return this.getConstantValue(subject.constantValueIndex); }
+                    @Override public Object visitStringElementValue(StringElementValue subject)   { return this.cf.getConstantUtf8(subject.constantValueIndex); }
 
+                    @Override public Object
+                    visitClassElementValue(ClassElementValue subject) throws CompileException {
+
+                        // Notice: The constant is a CONSTANT_Utf8 that contains the field descriptor (JVMS 4.7.16.1).
+                        String descriptor = this.cf.getConstantUtf8(subject.constantValueIndex);
+                        try {
+                            return ClassFileIClass.this.resolveClass(descriptor);
+                        } catch (ClassNotFoundException cnfe) {
+                            throw new CompileException("Resolving class element value: " + cnfe.getMessage(), null);
+                        }
+                    }
                     @Override public Object
                     visitAnnotation(Annotation subject) {
                         throw new AssertionError("NYI");
@@ -414,7 +427,7 @@ class ClassFileIClass extends IClass {
         this.resolvedClasses.put(descriptor, result);
         return result;
     }
-    private final Map<String /*descriptor*/, IClass> resolvedClasses = new HashMap<String, IClass>();
+    private final Map<String /*descriptor*/, IClass> resolvedClasses = new ConcurrentHashMap<String, IClass>();
 
     private IClass[]
     resolveClasses(short[] ifs) throws CompileException {
@@ -454,15 +467,15 @@ class ClassFileIClass extends IClass {
         for (int i = 0; i < parameterTypes.length; ++i) parameterTypes[i] = this.resolveClass(md.parameterFds[i]);
 
         // Determine thrown exceptions.
-        IClass[]                  tes = null;
-        ClassFile.AttributeInfo[] ais = methodInfo.getAttributes();
-        for (ClassFile.AttributeInfo ai : ais) {
-            if (ai instanceof ClassFile.ExceptionsAttribute) {
-                ConstantClassInfo[] ccis = ((ClassFile.ExceptionsAttribute) ai).getExceptions(this.classFile);
-                tes = new IClass[ccis.length];
-                for (int i = 0; i < tes.length; ++i) {
-                    tes[i] = this.resolveClass(Descriptor.fromInternalForm(ccis[i].getName(this.classFile)));
-                }
+        // Notice: Don't use "methodInfo.getAttributes()", because that would decode the (potentially large) "Code"
+        // attribute.
+        IClass[]                      tes = null;
+        ClassFile.ExceptionsAttribute ea  = methodInfo.getExceptionsAttribute();
+        if (ea != null) {
+            ConstantClassInfo[] ccis = ea.getExceptions(this.classFile);
+            tes = new IClass[ccis.length];
+            for (int i = 0; i < tes.length; ++i) {
+                tes[i] = this.resolveClass(Descriptor.fromInternalForm(ccis[i].getName(this.classFile)));
             }
         }
         final IClass[] thrownExceptions = tes == null ? new IClass[0] : tes;
@@ -545,12 +558,14 @@ class ClassFileIClass extends IClass {
                 getAnnotations() { return iAnnotations; }
             };
         }
-        this.resolvedMethods.put(methodInfo, result);
-        return result;
+
+        // Another thread may have resolved the same method in the meantime; use the IInvocable that came first.
+        IInvocable prev = (IInvocable) this.resolvedMethods.putIfAbsent(methodInfo, result);
+        return prev != null ? prev : result;
     }
 
-    private final Map<ClassFile.MethodInfo, IInvocable>
-    resolvedMethods = new HashMap<ClassFile.MethodInfo, IInvocable>();
+    private final ConcurrentMap<ClassFile.MethodInfo, IInvocable>
+    resolvedMethods = new ConcurrentHashMap<ClassFile.MethodInfo, IInvocable>();
 
     private IField
     resolveField(final ClassFile.FieldInfo fieldInfo) throws ClassNotFoundException {
@@ -568,13 +583,7 @@ class ClassFileIClass extends IClass {
         // attribute, we assume that it has a constant value. Notice that this assumption is not always correct,
         // because typical Java compilers do not generate a "ConstantValue" attribute for fields like
         // "int RED = 0", because "0" is the default value for an integer field.
-        ClassFile.ConstantValueAttribute cva = null;
-        for (ClassFile.AttributeInfo ai : fieldInfo.getAttributes()) {
-            if (ai instanceof ClassFile.ConstantValueAttribute) {
-                cva = (ClassFile.ConstantValueAttribute) ai;
-                break;
-            }
-        }
+        ClassFile.ConstantValueAttribute cva = fieldInfo.getConstantValueAttribute();
 
         final Object optionalConstantValue = (
             cva == null
@@ -599,8 +608,9 @@ class ClassFileIClass extends IClass {
             @Override public Access        getAccess()        { return access; }
             @Override public IAnnotation[] getAnnotations()   { return iAnnotations; }
         };
-        this.resolvedFields.put(fieldInfo, result);
-        return result;
+
+        IField prev = (IField) this.resolvedFields.putIfAbsent(fieldInfo, result);
+        return prev != null ? prev : result;
     }
 
     private static Access
@@ -26,6 +26,9 @@
 
 package org.codehaus.janino;
 
+import java.lang.ref.SoftReference;
+import java.util.Map;
+import java.util.WeakHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -43,10 +46,16 @@ class ClassLoaderIClassLoader extends IClassLoader {
      * @param classLoader The delegate that loads the classes
      */
     public
-    ClassLoaderIClassLoader(ClassLoader classLoader) {
-        super(
-            null   // optionalParentIClassLoader
-        );
+    ClassLoaderIClassLoader(ClassLoader classLoader) { this(classLoader, null); }
+
+    /**
+     * @param classLoader                The delegate that loads the classes
+     * @param optionalParentIClassLoader Is asked first for each type; see e.g. {@link
+     *                                   SharedIClassRepository#newTenantIClassLoader(ClassLoader)}
+     */
+    public
+    ClassLoaderIClassLoader(ClassLoader classLoader, @Nullable IClassLoader optionalParentIClassLoader) {
+        super(optionalParentIClassLoader);
         this.classLoader = classLoader;
 
         super.postConstruct();
@@ -61,12 +70,76 @@ class ClassLoaderIClassLoader extends IClassLoader {
     public
     ClassLoaderIClassLoader() { this(Thread.currentThread().getContextClassLoader()); }
 
+    /**
+     * Returns a {@link ClassLoaderIClassLoader} for the given <var>classLoader</var> that is shared by all callers
+     * that pass the same <var>classLoader</var>. Because {@link IClassLoader#loadIClass(String)} is thread-safe, the
+     * returned object may be used by multiple compilations concurrently, and the bootstrapping of the commonly used
+     * types and methods (see {@link IClassLoader#postConstruct()}) happens only once per <var>classLoader</var>.
+     * <p>
+     *   The cache holds its keys weakly and its values softly. However, each value references its own key (through
+     *   {@link #getClassLoader()} and the {@link IClass}es loaded through it), so an entry, and with it the
+     *   <var>classLoader</var>, lives until the garbage collector clears the soft value under memory pressure. To
+     *   release a class loader immediately (e.g. on a webapp redeployment), invoke {@link #release(ClassLoader)}.
+     * </p>
+     */
+    public static ClassLoaderIClassLoader
+    getShared(ClassLoader classLoader) {
+
+        synchronized (ClassLoaderIClassLoader.SHARED) {
+            SoftReference<ClassLoaderIClassLoader> ref = (
+                (SoftReference<ClassLoaderIClassLoader>) ClassLoaderIClassLoader.SHARED.get(classLoader)
+            );
+            if (ref != null) {
+                ClassLoaderIClassLoader result = (ClassLoaderIClassLoader) ref.get();
+                if (result != null) return result;
+            }
+        }
+
+        // Notice: Construct the new loader outside of the lock, because "postConstruct()" is relatively expensive.
+        ClassLoaderIClassLoader result = new ClassLoaderIClassLoader(classLoader);
+
+        synchronized (ClassLoaderIClassLoader.SHARED) {
+            SoftReference<ClassLoaderIClassLoader> ref = (
+                (SoftReference<ClassLoaderIClassLoader>) ClassLoaderIClassLoader.SHARED.get(classLoader)
+            );
+            if (ref != null) {
+                ClassLoaderIClassLoader other = (ClassLoaderIClassLoader) ref.get();
+                if (other != null) return other;
+            }
+            ClassLoaderIClassLoader.SHARED.put(classLoader, new SoftReference<ClassLoaderIClassLoader>(result));
+        }
+
+        return result;
+    }
+
+    /**
+     * Removes the {@link #getShared(ClassLoader) shared} {@link ClassLoaderIClassLoader} of the given
+     * <var>classLoader</var> (if any) from the cache, so that the <var>classLoader</var> can be garbage-collected as
+     * soon as it is no longer referenced elsewhere. The next {@link #getShared(ClassLoader)} with the same
+     * <var>classLoader</var> creates a new {@link ClassLoaderIClassLoader}.
+     */
+    public static void
+    release(ClassLoader classLoader) {
+        synchronized (ClassLoaderIClassLoader.SHARED) {
+            ClassLoaderIClassLoader.SHARED.remove(classLoader);
+        }
+    }
+
+    private static final Map<ClassLoader, SoftReference<ClassLoaderIClassLoader>>
+    SHARED = new WeakHashMap<ClassLoader, SoftReference<ClassLoaderIClassLoader>>();
+
     /**
      * @return The delegate {@link ClassLoader}
      */
     public ClassLoader
     getClassLoader() { return this.classLoader; }
 
+    /**
+     * {@link Class#forName(String, boolean, ClassLoader)} is thread-safe, thus types can be loaded concurrently.
+     */
+    @Override protected boolean
+    isConcurrent() { return true; }
+
     @Override @Nullable protected IClass
     findIClass(String descriptor) throws ClassNotFoundException {
         ClassLoaderIClassLoader.LOGGER.entering(null, "findIClass", descriptor);
@@ -33,6 +33,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -40,6 +41,7 @@ import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import org.codehaus.commons.compiler.CompileException;
 import org.codehaus.commons.nullanalysis.Nullable;
 import org.codehaus.janino.Java.LocalVariableSlot;
 import org.codehaus.janino.util.ClassFile;
@@ -86,6 +88,41 @@ class CodeContext {
     private short                   nextLocalVariableSlot;
     private final List<Relocatable> relocatables = new ArrayList<Relocatable>();
 
+    /**
+     * The last {@link LineNumberOffset} before {@link #end}, or {@code null} if not known; saves a backwards search of
+     * the offsets for each write at the end of the code.
+     */
+    @Nullable private LineNumberOffset lastLineNumberOffset;
+
+    /**
+     * Whether {@link #removeCode(Offset, Offset)} was invoked since the last {@link #purgeRemovedCode()}.
+     */
+    private boolean codeRemoved;
+
+    /**
+     * While {@link #fixUp()} runs: The resizes that the {@link FixUp}s requested, as pairs of position (before the
+     * pass) and size (negative for removals); they are applied to the code in one sweep at the end of the pass.
+     */
+    @Nullable private List<int[]> pendingResizes;
+
+    /**
+     * While {@link #fixUp()} runs: The sum of the sizes of the {@link #pendingResizes}, by which the offsets that
+     * the pass has not yet reached must be shifted.
+     */
+    private int pendingShift;
+
+    /**
+     * While {@link #relocate()} runs: The sources of the {@link Branch}es that must be expanded, and by how many
+     * bytes.
+     */
+    private final Map<Offset, Integer> pendingExpansions = new IdentityHashMap<Offset, Integer>();
+
+    /**
+     * The body of the "StackMapTable" attribute, as computed by {@link #computeStackMapTable(String, boolean, boolean,
+     * String, StackMapTableGenerator.ClassHierarchy)}.
+     */
+    @Nullable private byte[] stackMapTable;
+
     /**
      * Creates an empty "Code" attribute.
      */
@@ -258,38 +295,15 @@ class CodeContext {
             if (ai != null) attributes.add(ai);
         }
 
-//        // Add "StackMapTable" attribute.
-//        attributes.add(new ClassFile.AttributeInfo(stackMapTableAttributeNameIndex) {
-//            @Override protected void
-//            storeBody(DataOutputStream dos) throws IOException {
-//                if (CodeContext.this.functionName.equals("eval0()Ljava/lang/Object;")) {
-//                    short occi = CodeContext.this.getClassFile().addConstantClassInfo("Ljava/lang/Object;");
-//                    short scci = CodeContext.this.getClassFile().addConstantClassInfo("Ljava/lang/String;");
-//                    dos.write(new byte[] {
-//
-//                        // xxx1:
-//                        0, 3,    // number_of_entries
-//                        66,      // entries[0]: 3: same_locals_1_stack_item_frame(stack=String)
-//                            7, (byte) (scci >> 8), (byte) scci,
-//                        78,      // entries[1]: 17: same_locals_1_stack_item_frame(stack=String)
-//                            7, (byte) (scci >> 8), (byte) scci,
-//                        -1,      // entries[2]: 19: full_frame(offsetDelta=1, locals=[], stack=[String, Object])
-//                            0, 1,                               // offset_delta
-//                            0, 0,                               // number_of_locals
-//                            0, 2,                               // number_of_stack_items
-//                            7, (byte) (scci >> 8), (byte) scci, // stack[0]: String
-//                            7, (byte) (occi >> 8), (byte) occi, // stack[1]: Object
-//
-////                        // xxx2:
-////                        0, 2,    // number_of_entries
-////                        15,      // entries[0]: 15: same_frame
-////                        64, 1,   // entries[1]: 16: same_locals_1_stack_item_frame(stack=int)
-//                    });
-//                } else {
-//                    dos.writeShort(0);
-//                }
-//            }
-//        });
+        // Add "StackMapTable" attribute.
+        final byte[] smt = this.stackMapTable;
+        if (stackMapTableAttributeNameIndex != 0 && smt != null) {
+            attributes.add(new ClassFile.AttributeInfo(stackMapTableAttributeNameIndex) {
+
+                @Override protected void
+                storeBody(DataOutputStream dos) throws IOException { dos.write(smt); }
+            });
+        }
 
         dos.writeShort(attributes.size());                     // attributes_count
         for (ClassFile.AttributeInfo attribute : attributes) { // attributes;
@@ -406,6 +420,50 @@ class CodeContext {
         }
     }
 
+    /**
+     * Computes the "StackMapTable" attribute (JVMS8 4.7.4), which class files of version 51 and later require. Must be
+     * invoked after {@link #fixUpAndRelocate()} and {@link #flowAnalysis(String)}.
+     *
+     * @param thisFd           The field descriptor of the class that declares the method
+     * @param isStatic         Whether the method has no "this" parameter
+     * @param isConstructor    Whether the method is an instance initialization method ({@code <init>})
+     * @param methodDescriptor The descriptor of the method (including any synthetic parameters)
+     */
+    void
+    computeStackMapTable(
+        String                                thisFd,
+        boolean                               isStatic,
+        boolean                               isConstructor,
+        String                                methodDescriptor,
+        StackMapTableGenerator.ClassHierarchy classHierarchy
+    ) throws CompileException {
+
+        StackMapTableGenerator smtg = new StackMapTableGenerator(
+            this.classFile,          // classFile
+            thisFd,                  // thisFd
+            this.code,               // code
+            this.end.offset,         // codeLength
+            0xffff & this.maxLocals, // maxLocals
+            classHierarchy           // classHierarchy
+        );
+        for (ExceptionTableEntry ete : this.exceptionTableEntries) {
+            smtg.addExceptionHandler(
+                ete.startPC.offset,   // startPc
+                ete.endPC.offset,     // endPc
+                ete.handlerPC.offset, // handlerPc
+                (                     // catchTypeFd
+                    ete.catchType == 0
+                    ? null
+                    : Descriptor.fromInternalForm(
+                        this.classFile.getConstantClassInfo(ete.catchType).getName(this.classFile)
+                    )
+                )
+            );
+        }
+
+        this.stackMapTable = smtg.generate(isStatic, isConstructor, methodDescriptor);
+    }
+
     /**
      * @param functionName
      * @param code
@@ -523,6 +581,7 @@ class CodeContext {
             case Opcode.SD_INVOKEINTERFACE:
                 --stackSize;
             case Opcode.SD_INVOKESTATIC: // SUPPRESS CHECKSTYLE FallThrough
+            case Opcode.SD_INVOKEDYNAMIC:
                 stackSize -= this.determineArgumentsSize(CodeContext.extract16BitValue(operandOffset, code));
                 break;
 
@@ -789,16 +848,42 @@ class CodeContext {
         return result;
     }
 
+    /**
+     * Performs the {@link PeepholeOptimizer#isEnabled(PeepholeOptimizer.Rewrite) enabled} rewrites of the
+     * <var>optimizer</var> on the code, and reports to it how often each was performed. Must be invoked after all code
+     * was written, and before {@link #fixUpAndRelocate()}.
+     * <p>
+     *   The code is rewritten in passes, until a pass finds nothing to rewrite, because one rewrite often enables
+     *   another; e.g. a branch that was redirected past a {@code GOTO} may leave that {@code GOTO} unreachable. Each
+     *   pass takes time linear in the size of the code.
+     * </p>
+     */
+    public void
+    optimize(PeepholeOptimizer optimizer) {
+
+        this.purgeRemovedCode();
+
+        int[] counts  = new int[PeepholeOptimizer.Rewrite.values().length];
+        int   oldSize = this.end.offset;
+        for (boolean changed = true; changed;) changed = new OptimizationPass(optimizer, counts).run();
+        optimizer.record(counts, oldSize - this.end.offset);
+    }
+
     /**
      * Fixes up all of the offsets and relocate() all relocatables.
      */
     public void
     fixUpAndRelocate() {
 
+        this.purgeRemovedCode();
+
         // We do this in a loop to allow relocatables to adjust the size
         // of things in the byte stream.  It is extremely unlikely, but possible
         // that a late relocatable will grow the size of the bytecode, and require
         // an earlier relocatable to switch from 32K mode to 64K mode branching
+        //
+        // Each pass takes time linear in the size of the code, because the code is resized in one sweep at the end of
+        // the pass, rather than once for each fix-up or branch expansion.
         do {
             this.fixUp();
         } while (!this.relocate());
@@ -809,10 +894,22 @@ class CodeContext {
      */
     private void
     fixUp() {
-        for (Offset o = this.beginning; o != this.end; o = o.next) {
-            assert o != null;
-            if (o instanceof FixUp) ((FixUp) o).fixUp();
+        List<int[]> resizes = (this.pendingResizes = new ArrayList<int[]>());
+        this.pendingShift = 0;
+        try {
+            for (Offset o = this.beginning;; o = o.next) {
+                assert o != null;
+
+                // Resolve the offset lazily, i.e. shift it by the resizes that the preceding fix-ups requested.
+                o.offset += this.pendingShift;
+                if (o == this.end) break;
+
+                if (o instanceof FixUp) ((FixUp) o).fixUp();
+            }
+        } finally {
+            this.pendingResizes = null;
         }
+        this.resize(resizes, this.end.offset - this.pendingShift);
     }
 
     /**
@@ -829,9 +926,765 @@ class CodeContext {
             // case for this to be O(n) instead of O(n**2).
             finished &= relocatable.relocate();
         }
+        if (this.pendingExpansions.isEmpty()) return finished;
+
+        // Expand the branches in one sweep over the offsets. The source of each branch stays in place; all offsets
+        // behind it are shifted.
+        List<int[]> resizes = new ArrayList<int[]>();
+        int         shift   = 0;
+        int         oldEnd  = this.end.offset;
+        for (Offset o = this.beginning;; o = o.next) {
+            assert o != null;
+            int position = o.offset;
+            o.offset += shift;
+            if (o == this.end) break;
+
+            Integer size = (Integer) this.pendingExpansions.get(o);
+            if (size != null) {
+                resizes.add(new int[] { position, size });
+                shift += size;
+            }
+        }
+        this.pendingExpansions.clear();
+        this.resize(resizes, oldEnd);
+
         return finished;
     }
 
+    /**
+     * Inserts NUL bytes into, or removes bytes from {@link #code}, in one sweep.
+     *
+     * @param resizes Pairs of position and size, ordered by position, where the positions refer to the code before
+     *                the resize. A positive size inserts NUL bytes at the position, and a negative size removes the
+     *                bytes <em>before</em> the position
+     * @param oldEnd  The size of the code before the resize
+     */
+    private void
+    resize(List<int[]> resizes, int oldEnd) {
+        if (resizes.isEmpty()) return;
+
+        int newEnd = oldEnd;
+        for (int[] r : resizes) newEnd += r[1];
+        if (newEnd > 0xffff) this.throwCodeTooLarge();
+
+        byte[] oldCode = this.code;
+        byte[] newCode = new byte[Math.max(oldCode.length, newEnd)];
+        int    src     = 0;
+        int    dst     = 0;
+        for (int[] r : resizes) {
+            int position = r[0], size = r[1];
+            if (size > 0) {
+                System.arraycopy(oldCode, src, newCode, dst, position - src);
+                dst += position - src + size;
+            } else {
+                System.arraycopy(oldCode, src, newCode, dst, position + size - src);
+                dst += position + size - src;
+            }
+            src = position;
+        }
+        System.arraycopy(oldCode, src, newCode, dst, oldEnd - src);
+        this.code = newCode;
+    }
+
+    /**
+     * One pass of {@link #optimize(PeepholeOptimizer)}. Analyzes the code once, and then rewrites it in one sweep.
+     */
+    private
+    class OptimizationPass {
+
+        private final PeepholeOptimizer optimizer;
+        private final int[]             counts;
+        private final byte[]            code = CodeContext.this.code;
+        private final int               size = CodeContext.this.end.offset;
+
+        // Per code position: The length of the instruction that starts there, or 0.
+        private final int[] lengths = new int[this.size + 1];
+
+        // Per code position: The branch instruction that starts there, or null.
+        private final Branch[] branches = new Branch[this.size + 1];
+
+        // The offsets of the TABLESWITCH and LOOKUPSWITCH instructions, by instruction position.
+        private final Map<Integer, List<OffsetBranch>> switches = new HashMap<Integer, List<OffsetBranch>>();
+
+        // Per code position: Whether a branch, a switch or an exception handler continues execution there.
+        private final boolean[] targets = new boolean[this.size + 1];
+
+        // Per code position: Whether a range that an exception handler protects starts or ends there.
+        private final boolean[] tryBoundaries = new boolean[this.size + 1];
+
+        // Per code position: Whether an exception handler protects the instruction that starts there.
+        private final boolean[] protectedCode = new boolean[this.size + 1];
+
+        // Per code position: Whether the instruction that starts there is reachable.
+        private final boolean[] reachable = new boolean[this.size + 1];
+
+        // The code to remove, as "{ moveFrom, at, size }" triples; see "CodeContext.removeBytes(List)".
+        private final List<int[]> removals = new ArrayList<int[]>();
+
+        private final Set<Relocatable> removedRelocatables = new HashSet<Relocatable>();
+
+        OptimizationPass(PeepholeOptimizer optimizer, int[] counts) {
+            this.optimizer = optimizer;
+            this.counts    = counts;
+        }
+
+        /**
+         * @return Whether the code was changed
+         */
+        boolean
+        run() {
+
+            if (this.size == 0 || !this.decode()) return false;
+
+            boolean changed = this.threadJumps();
+
+            this.findTargets();
+            this.findReachableCode();
+
+            for (int pc = 0; pc < this.size;) {
+                if (!this.reachable[pc]) {
+                    int from = pc;
+                    do {
+                        this.removeRelocatables(pc);
+                        pc += this.lengths[pc];
+                    } while (pc < this.size && !this.reachable[pc]);
+                    this.removals.add(new int[] { from, from, pc - from });
+                    this.count(PeepholeOptimizer.Rewrite.DEAD_CODE, pc);
+                    continue;
+                }
+
+                int next = this.rewrite(pc);
+                pc = next == -1 ? pc + this.lengths[pc] : next;
+            }
+
+            if (this.removals.isEmpty()) return changed;
+
+            CodeContext.this.relocatables.removeAll(this.removedRelocatables);
+            CodeContext.this.removeBytes(this.removals);
+            return true;
+        }
+
+        /**
+         * Determines the instruction boundaries, and finds the branches and switches.
+         *
+         * @return Whether the code is consistent; {@code false} e.g. if a branch does not point to an instruction
+         */
+        private boolean
+        decode() {
+
+            for (int pc = 0; pc < this.size; pc += this.lengths[pc]) {
+                int length = this.unpaddedInstructionLength(pc);
+                if (length <= 0 || pc + length > this.size) return false;
+                this.lengths[pc] = length;
+            }
+
+            for (Relocatable r : CodeContext.this.relocatables) {
+                if (r instanceof Branch) {
+                    Branch b = (Branch) r;
+                    if (!this.isInstruction(b.source.offset)) return false;
+                    if (!this.isInstruction(b.destination.offset)) return false;
+                    this.branches[b.source.offset] = b;
+                } else
+                if (r instanceof OffsetBranch) {
+                    OffsetBranch ob = (OffsetBranch) r;
+                    if (!this.isInstruction(ob.source.offset) || !this.isInstruction(ob.destination.offset)) {
+                        return false;
+                    }
+                    List<OffsetBranch> l = (List<OffsetBranch>) this.switches.get(ob.source.offset);
+                    if (l == null) this.switches.put(ob.source.offset, (l = new ArrayList<OffsetBranch>()));
+                    l.add(ob);
+                }
+            }
+
+            for (ExceptionTableEntry ete : CodeContext.this.exceptionTableEntries) {
+                if (
+                    !this.isInstruction(ete.startPC.offset)
+                    || !this.isInstruction(ete.handlerPC.offset)
+                    || ete.endPC.offset < ete.startPC.offset
+                    || ete.endPC.offset > this.size
+                ) return false;
+            }
+
+            return true;
+        }
+
+        /**
+         * Redirects branches to {@code GOTO}s to the destinations of the {@code GOTO}s.
+         *
+         * @return Whether any branch was redirected
+         */
+        private boolean
+        threadJumps() {
+
+            if (!this.optimizer.isEnabled(PeepholeOptimizer.Rewrite.JUMP_THREADING)) return false;
+
+            boolean result = false;
+            for (Relocatable r : CodeContext.this.relocatables) {
+                if (!(r instanceof Branch)) continue;
+
+                Branch b = (Branch) r;
+                if (b.opcode != Opcode.GOTO && !CodeContext.isConditionalBranch(b.opcode)) continue;
+
+                Offset destination = b.destination;
+                for (int hops = 0;; hops++) {
+                    Branch g = this.branches[destination.offset];
+                    if (g == null || g.opcode != Opcode.GOTO) break;
+
+                    // Give up on (probably) endless loops.
+                    if (hops == CodeContext.MAX_JUMP_THREADING_HOPS) {
+                        destination = b.destination;
+                        break;
+                    }
+                    destination = g.destination;
+                }
+
+                if (destination != b.destination) {
+                    b.destination = destination;
+                    this.count(PeepholeOptimizer.Rewrite.JUMP_THREADING, 0);
+                    result = true;
+                }
+            }
+            return result;
+        }
+
+        private void
+        findTargets() {
+
+            for (Relocatable r : CodeContext.this.relocatables) {
+                if (r instanceof Branch) {
+                    this.targets[((Branch) r).destination.offset] = true;
+                } else
+                if (r instanceof OffsetBranch) {
+                    this.targets[((OffsetBranch) r).source.offset]      = true;
+                    this.targets[((OffsetBranch) r).destination.offset] = true;
+                }
+            }
+
+            int[] depths = new int[this.size + 1];
+            for (ExceptionTableEntry ete : CodeContext.this.exceptionTableEntries) {
+                this.targets[ete.handlerPC.offset]     = true;
+                this.tryBoundaries[ete.startPC.offset] = true;
+                this.tryBoundaries[ete.endPC.offset]   = true;
+                depths[ete.startPC.offset]++;
+                depths[ete.endPC.offset]--;
+            }
+            for (int pc = 0, depth = 0; pc < this.size; pc++) {
+                depth                 += depths[pc];
+                this.protectedCode[pc] =  depth > 0;
+            }
+        }
+
+        /**
+         * Finds the code that is reachable from the beginning of the code, through branches, switches, exception
+         * handlers and "fall-through".
+         */
+        private void
+        findReachableCode() {
+
+            int[] worklist = new int[this.size];
+            int   n        = 0;
+
+            this.reachable[0] = true;
+            worklist[n++]     = 0;
+            for (;;) {
+                while (n > 0) {
+                    int pc = worklist[--n];
+
+                    int[] successors = this.successors(pc);
+                    for (int successor : successors) {
+                        if (successor < this.size && !this.reachable[successor]) {
+                            this.reachable[successor] = true;
+                            worklist[n++]             = successor;
+                        }
+                    }
+                }
+
+                // An exception handler is reachable iff any instruction that it protects is reachable.
+                int[] reachableCounts = new int[this.size + 1];
+                for (int pc = 0; pc < this.size; pc++) {
+                    reachableCounts[pc + 1] = reachableCounts[pc] + (this.reachable[pc] ? 1 : 0);
+                }
+                for (ExceptionTableEntry ete : CodeContext.this.exceptionTableEntries) {
+                    int handler = ete.handlerPC.offset;
+                    if (
+                        !this.reachable[handler]
+                        && reachableCounts[ete.endPC.offset] > reachableCounts[ete.startPC.offset]
+                    ) {
+                        this.reachable[handler] = true;
+                        worklist[n++]           = handler;
+                    }
+                }
+                if (n == 0) break;
+            }
+        }
+
+        private int[]
+        successors(int pc) {
+
+            byte   opcode = this.code[pc];
+            int    next   = pc + this.lengths[pc];
+            Branch b      = this.branches[pc];
+
+            if (b != null) {
+                return (
+                    b.opcode == Opcode.GOTO || b.opcode == Opcode.GOTO_W
+                    ? new int[] { b.destination.offset }
+                    : new int[] { b.destination.offset, next }
+                );
+            }
+
+            if (opcode == Opcode.TABLESWITCH || opcode == Opcode.LOOKUPSWITCH) {
+                List<OffsetBranch> l = (List<OffsetBranch>) this.switches.get(pc);
+                if (l == null) return new int[0];
+                int[] result = new int[l.size()];
+                for (int i = 0; i < result.length; i++) result[i] = ((OffsetBranch) l.get(i)).destination.offset;
+                return result;
+            }
+
+            if (opcode != Opcode.WIDE && (Opcode.OPCODE_PROPERTIES[0xff & opcode] & Opcode.NO_FALLTHROUGH) != 0) {
+                return new int[0];
+            }
+
+            return new int[] { next };
+        }
+
+        /**
+         * Rewrites the instruction at <var>pc</var>, and possibly the instruction after it.
+         *
+         * @return The position after the rewritten code, or -1 iff nothing was rewritten
+         */
+        private int
+        rewrite(int pc) {
+
+            final byte[] code   = this.code;
+            byte         opcode = code[pc];
+            int          length = this.lengths[pc];
+            int          next   = pc + length;
+            Branch       b      = this.branches[pc];
+
+            if (b != null && b.opcode == Opcode.GOTO) {
+                int destination = b.destination.offset;
+
+                // "GOTO L; L:" => "L:"
+                if (
+                    destination == next
+                    && this.isEnabled(PeepholeOptimizer.Rewrite.GOTO_NEXT)
+                    && this.remove(pc, pc, length)
+                ) {
+                    this.removedRelocatables.add(b);
+                    return this.count(PeepholeOptimizer.Rewrite.GOTO_NEXT, next);
+                }
+
+                // "GOTO L; ...; L: xRETURN" => "xRETURN; ...; L: xRETURN"
+                if (
+                    CodeContext.isReturn(code[destination])
+                    && !this.protectedCode[pc]
+                    && this.isEnabled(PeepholeOptimizer.Rewrite.GOTO_RETURN)
+                    && this.remove(pc + 1, pc + 1, length - 1)
+                ) {
+                    code[pc] = code[destination];
+                    this.removedRelocatables.add(b);
+                    return this.count(PeepholeOptimizer.Rewrite.GOTO_RETURN, next);
+                }
+
+                return -1;
+            }
+
+            // All other rewrites affect two subsequent instructions, so no branch may lead to the second one.
+            if (next == this.size || this.targets[next]) return -1;
+
+            int    nextLength = this.lengths[next];
+            int    after      = next + nextLength;
+            Branch nextBranch = this.branches[next];
+
+            // "IFxx L1; GOTO L2; L1:" => "IFnotxx L2; L1:"
+            if (
+                b != null
+                && CodeContext.isConditionalBranch(b.opcode)
+                && nextBranch != null
+                && nextBranch.opcode == Opcode.GOTO
+                && b.destination.offset == after
+                && this.isEnabled(PeepholeOptimizer.Rewrite.INVERTED_BRANCH)
+                && this.remove(next, next, nextLength)
+            ) {
+                b.opcode      = CodeContext.invertBranchOpcode((byte) b.opcode);
+                b.destination = nextBranch.destination;
+                code[pc]      = (byte) b.opcode;
+                this.removedRelocatables.add(nextBranch);
+                return this.count(PeepholeOptimizer.Rewrite.INVERTED_BRANCH, after);
+            }
+
+            // "ICONST_1; IFNE L" => "GOTO L", "ICONST_1; IFEQ L" => "", etc.
+            if (nextBranch != null && this.isEnabled(PeepholeOptimizer.Rewrite.CONSTANT_BRANCH)) {
+                int outcome = CodeContext.constantBranchOutcome(opcode, nextBranch.opcode);
+                if (outcome == 1 && this.remove(pc, pc, length)) {
+                    nextBranch.opcode = Opcode.GOTO;
+                    code[next]        = Opcode.GOTO;
+                    return this.count(PeepholeOptimizer.Rewrite.CONSTANT_BRANCH, after);
+                }
+                if (outcome == 0 && this.remove(pc, pc, length + nextLength)) {
+                    this.removedRelocatables.add(nextBranch);
+                    return this.count(PeepholeOptimizer.Rewrite.CONSTANT_BRANCH, after);
+                }
+            }
+
+            // "ICONST_1; I2L" => "LCONST_1", etc.
+            byte converted = CodeContext.convertedConstant(opcode, code[next]);
+            if (
+                converted != Opcode.NOP
+                && this.isEnabled(PeepholeOptimizer.Rewrite.CONSTANT_CONVERSION)
+                && this.remove(next, next, nextLength)
+            ) {
+                code[pc] = converted;
+                return this.count(PeepholeOptimizer.Rewrite.CONSTANT_CONVERSION, after);
+            }
+
+            // "INVOKESTATIC Integer.valueOf(int); INVOKEVIRTUAL Integer.intValue()" => "", etc.
+            if (
+                opcode == Opcode.INVOKESTATIC
+                && code[next] == Opcode.INVOKEVIRTUAL
+                && CodeContext.this.isBoxingRoundTrip(this.u16(pc + 1), this.u16(next + 1))
+                && this.isEnabled(PeepholeOptimizer.Rewrite.BOXING_ROUND_TRIP)
+                && this.remove(pc, pc, length + nextLength)
+            ) return this.count(PeepholeOptimizer.Rewrite.BOXING_ROUND_TRIP, after);
+
+            // "CHECKCAST T; CHECKCAST T" => "CHECKCAST T", "ACONST_NULL; CHECKCAST T" => "ACONST_NULL"
+            if (
+                code[next] == Opcode.CHECKCAST
+                && (
+                    opcode == Opcode.ACONST_NULL
+                    || (opcode == Opcode.CHECKCAST && this.u16(pc + 1) == this.u16(next + 1))
+                )
+                && this.isEnabled(PeepholeOptimizer.Rewrite.REDUNDANT_CHECKCAST)
+                && this.remove(next, next, nextLength)
+            ) return this.count(PeepholeOptimizer.Rewrite.REDUNDANT_CHECKCAST, after);
+
+            // "ISTORE 4; ILOAD 4" => "DUP; ISTORE 4", etc.
+            int store = CodeContext.localVariableAccess(code, pc, true);
+            if (
+                store != -1
+                && nextLength > 1
+                && store == CodeContext.localVariableAccess(code, next, false)
+                && this.isEnabled(PeepholeOptimizer.Rewrite.STORE_LOAD)
+                && this.remove(next, next + 1, nextLength - 1)
+            ) {
+                System.arraycopy(code, pc, code, pc + 1, length);
+                int kind = store >> 16;
+                code[pc] = kind == CodeContext.LONG || kind == CodeContext.DOUBLE ? Opcode.DUP2 : Opcode.DUP;
+                return this.count(PeepholeOptimizer.Rewrite.STORE_LOAD, after);
+            }
+
+            // "ILOAD 4; ISTORE 4" => "", etc.
+            int load = CodeContext.localVariableAccess(code, pc, false);
+            if (
+                load != -1
+                && load == CodeContext.localVariableAccess(code, next, true)
+                && this.isEnabled(PeepholeOptimizer.Rewrite.LOAD_STORE)
+                && this.remove(pc, pc, length + nextLength)
+            ) return this.count(PeepholeOptimizer.Rewrite.LOAD_STORE, after);
+
+            return -1;
+        }
+
+        /**
+         * Schedules the removal of the <var>size</var> bytes at <var>at</var>, unless that would change a range that
+         * an exception handler protects.
+         *
+         * @param moveFrom Offsets between <var>moveFrom</var> and <var>at</var> + <var>size</var> are moved to
+         *                 <var>at</var>
+         * @return Whether the removal was scheduled
+         */
+        private boolean
+        remove(int moveFrom, int at, int size) {
+            for (int pc = moveFrom; pc <= at + size; pc++) {
+                if (this.tryBoundaries[pc]) return false;
+            }
+            this.removals.add(new int[] { moveFrom, at, size });
+            return true;
+        }
+
+        /**
+         * Removes the branch or switch that starts at <var>pc</var>.
+         */
+        private void
+        removeRelocatables(int pc) {
+            Branch b = this.branches[pc];
+            if (b != null) this.removedRelocatables.add(b);
+
+            List<OffsetBranch> l = (List<OffsetBranch>) this.switches.get(pc);
+            if (l != null) this.removedRelocatables.addAll(l);
+        }
+
+        private boolean
+        isEnabled(PeepholeOptimizer.Rewrite rewrite) { return this.optimizer.isEnabled(rewrite); }
+
+        /**
+         * @return <var>result</var>
+         */
+        private int
+        count(PeepholeOptimizer.Rewrite rewrite, int result) {
+            this.counts[rewrite.ordinal()]++;
+            return result;
+        }
+
+        private boolean
+        isInstruction(int pc) { return pc >= 0 && pc < this.size && this.lengths[pc] != 0; }
+
+        private int
+        u16(int pc) { return ((0xff & this.code[pc]) << 8) | (0xff & this.code[pc + 1]); }
+
+        private int
+        s32(int pc) {
+            return (this.code[pc] << 24) | ((0xff & this.code[pc + 1]) << 16) | ((0xff & this.code[pc + 2]) << 8) | (
+                0xff & this.code[pc + 3]
+            );
+        }
+
+        /**
+         * Notice that the TABLESWITCH and LOOKUPSWITCH instructions are not yet padded, because the optimization
+         * takes place before {@link CodeContext#fixUp()}.
+         *
+         * @return The length of the instruction at <var>pc</var>, or -1 iff the opcode is invalid
+         */
+        private int
+        unpaddedInstructionLength(int pc) {
+            byte opcode = this.code[pc];
+
+            if (opcode == Opcode.WIDE) return pc + 1 < this.size && this.code[pc + 1] == Opcode.IINC ? 6 : 4;
+
+            if (opcode == Opcode.TABLESWITCH) {
+                return pc + 13 > this.size ? -1 : 13 + 4 * (this.s32(pc + 9) - this.s32(pc + 5) + 1);
+            }
+
+            if (opcode == Opcode.LOOKUPSWITCH) return pc + 9 > this.size ? -1 : 9 + 8 * this.s32(pc + 5);
+
+            short props = Opcode.OPCODE_PROPERTIES[0xff & opcode];
+            if (props == Opcode.INVALID_OPCODE) return -1;
+
+            int length = 1;
+            switch (props & Opcode.OP1_MASK) {
+
+            case 0:
+                break;
+
+            case Opcode.OP1_SB:
+            case Opcode.OP1_UB:
+            case Opcode.OP1_CP1:
+            case Opcode.OP1_LV1:
+                length += 1;
+                break;
+
+            case Opcode.OP1_SS:
+            case Opcode.OP1_CP2:
+            case Opcode.OP1_LV2:
+            case Opcode.OP1_BO2:
+            case Opcode.OP1_JSR:
+                length += 2;
+                break;
+
+            case Opcode.OP1_BO4:
+                length += 4;
+                break;
+
+            default:
+                return -1;
+            }
+            if ((props & Opcode.OP2_MASK) == Opcode.OP2_SB) length += 1;
+            if ((props & Opcode.OP2_MASK) == Opcode.OP2_SS) length += 2;
+            if ((props & Opcode.OP3_MASK) == Opcode.OP3_SB) length += 1;
+
+            return length;
+        }
+    }
+
+    /**
+     * Removes ranges of code, and adjusts all offsets, in one sweep. Drops the {@link FixUp}s within the removed code,
+     * and the exception table entries whose range became empty.
+     *
+     * @param removals "{ moveFrom, at, size }" triples, ordered by position: Removes the <var>size</var> bytes at
+     *                 <var>at</var>, and moves the offsets between <var>moveFrom</var> and <var>at</var> +
+     *                 <var>size</var> to <var>at</var>
+     */
+    private void
+    removeBytes(List<int[]> removals) {
+
+        int oldEnd = this.end.offset;
+        int shift  = 0;
+        int i      = 0;
+        for (Offset o = this.beginning;; o = o.next) {
+            assert o != null;
+
+            int position = o.offset;
+            for (; i < removals.size(); i++) {
+                int[] r = (int[]) removals.get(i);
+                if (position < r[1] + r[2]) break;
+                shift += r[2];
+            }
+
+            int[] r = i < removals.size() ? (int[]) removals.get(i) : null;
+            if (r != null && position > r[1] && o instanceof FixUp) {
+
+                // E.g. the padding of an unreachable TABLESWITCH instruction.
+                Offset p = o.prev, n = o.next;
+                assert p != null && n != null;
+                p.next = n;
+                n.prev = p;
+                continue;
+            }
+            o.offset = r != null && position >= r[0] ? r[1] - shift : position - shift;
+
+            if (o == this.end) break;
+        }
+
+        List<int[]> resizes = new ArrayList<int[]>();
+        for (int[] r : removals) resizes.add(new int[] { r[1] + r[2], -r[2] });
+        this.resize(resizes, oldEnd);
+
+        for (Iterator<ExceptionTableEntry> it = this.exceptionTableEntries.iterator(); it.hasNext();) {
+            ExceptionTableEntry ete = (ExceptionTableEntry) it.next();
+            if (ete.startPC.offset >= ete.endPC.offset) it.remove();
+        }
+    }
+
+    private static final int MAX_JUMP_THREADING_HOPS = 32;
+
+    private static boolean
+    isConditionalBranch(int opcode) {
+        int o = 0xff & opcode;
+        return (
+            (o >= (0xff & Opcode.IFEQ) && o <= (0xff & Opcode.IF_ACMPNE))
+            || opcode == Opcode.IFNULL
+            || opcode == Opcode.IFNONNULL
+        );
+    }
+
+    private static boolean
+    isReturn(byte opcode) {
+        return (0xff & opcode) >= (0xff & Opcode.IRETURN) && (0xff & opcode) <= (0xff & Opcode.RETURN);
+    }
+
+    /**
+     * @return 1 if the <var>branchOpcode</var> always branches after <var>constantOpcode</var>, 0 if it never
+     *         branches, -1 if that depends on the data
+     */
+    private static int
+    constantBranchOutcome(byte constantOpcode, int branchOpcode) {
+
+        if (constantOpcode == Opcode.ACONST_NULL) {
+            return branchOpcode == Opcode.IFNULL ? 1 : branchOpcode == Opcode.IFNONNULL ? 0 : -1;
+        }
+        if (constantOpcode < Opcode.ICONST_M1 || constantOpcode > Opcode.ICONST_5) return -1;
+
+        int     value = constantOpcode - Opcode.ICONST_0;
+        boolean branches;
+        switch ((byte) branchOpcode) {
+        case Opcode.IFEQ: branches = value == 0; break;
+        case Opcode.IFNE: branches = value != 0; break;
+        case Opcode.IFLT: branches = value < 0;  break;
+        case Opcode.IFGE: branches = value >= 0; break;
+        case Opcode.IFGT: branches = value > 0;  break;
+        case Opcode.IFLE: branches = value <= 0; break;
+        default:          return -1;
+        }
+        return branches ? 1 : 0;
+    }
+
+    /**
+     * @return The opcode that pushes the result of the <var>conversionOpcode</var> applied to the int constant that
+     *         <var>constantOpcode</var> pushes, or {@link Opcode#NOP} if there is no such opcode
+     */
+    private static byte
+    convertedConstant(byte constantOpcode, byte conversionOpcode) {
+
+        if (constantOpcode < Opcode.ICONST_0 || constantOpcode > Opcode.ICONST_5) return Opcode.NOP;
+
+        int value = constantOpcode - Opcode.ICONST_0;
+
+        if (conversionOpcode == Opcode.I2L && value <= 1) return (byte) (Opcode.LCONST_0 + value);
+        if (conversionOpcode == Opcode.I2F && value <= 2) return (byte) (Opcode.FCONST_0 + value);
+        if (conversionOpcode == Opcode.I2D && value <= 1) return (byte) (Opcode.DCONST_0 + value);
+        return Opcode.NOP;
+    }
+
+    /**
+     * @return Whether the methods that the given Methodrefs reference box a primitive value, and unbox it again,
+     *         e.g. {@code Integer.valueOf(int)} and {@code Integer.intValue()}
+     */
+    private boolean
+    isBoxingRoundTrip(int boxMethodrefIndex, int unboxMethodrefIndex) {
+
+        ClassFile.ConstantPoolInfo box   = this.classFile.getConstantPoolInfo((short) boxMethodrefIndex);
+        ClassFile.ConstantPoolInfo unbox = this.classFile.getConstantPoolInfo((short) unboxMethodrefIndex);
+        if (!(box instanceof ClassFile.ConstantMethodrefInfo) || !(unbox instanceof ClassFile.ConstantMethodrefInfo)) {
+            return false;
+        }
+        ClassFile.ConstantMethodrefInfo boxInfo   = (ClassFile.ConstantMethodrefInfo) box;
+        ClassFile.ConstantMethodrefInfo unboxInfo = (ClassFile.ConstantMethodrefInfo) unbox;
+
+        String wrapper = boxInfo.getClassInfo(this.classFile).getName(this.classFile);
+        if (!wrapper.equals(unboxInfo.getClassInfo(this.classFile).getName(this.classFile))) return false;
+
+        String[] unboxing = (String[]) CodeContext.UNBOXING_METHODS.get(wrapper);
+        if (unboxing == null) return false;
+
+        ClassFile.ConstantNameAndTypeInfo boxNat   = boxInfo.getNameAndType(this.classFile);
+        ClassFile.ConstantNameAndTypeInfo unboxNat = unboxInfo.getNameAndType(this.classFile);
+        return (
+            "valueOf".equals(boxNat.getName(this.classFile))
+            && ("(" + unboxing[1] + ")L" + wrapper + ";").equals(boxNat.getDescriptor(this.classFile))
+            && unboxing[0].equals(unboxNat.getName(this.classFile))
+            && ("()" + unboxing[1]).equals(unboxNat.getDescriptor(this.classFile))
+        );
+    }
+
+    /**
+     * Maps the internal names of the primitive wrapper classes to the names and result descriptors of their unboxing
+     * methods.
+     */
+    private static final Map<String /*wrapper*/, String[] /*name,descriptor*/>
+    UNBOXING_METHODS = CodeContext.createUnboxingMethods();
+    private static Map<String, String[]>
+    createUnboxingMethods() {
+        Map<String, String[]> m = new HashMap<String, String[]>();
+        m.put("java/lang/Boolean",   new String[] { "booleanValue", "Z" });
+        m.put("java/lang/Byte",      new String[] { "byteValue",    "B" });
+        m.put("java/lang/Character", new String[] { "charValue",    "C" });
+        m.put("java/lang/Short",     new String[] { "shortValue",   "S" });
+        m.put("java/lang/Integer",   new String[] { "intValue",     "I" });
+        m.put("java/lang/Long",      new String[] { "longValue",    "J" });
+        m.put("java/lang/Float",     new String[] { "floatValue",   "F" });
+        m.put("java/lang/Double",    new String[] { "doubleValue",  "D" });
+        return Collections.unmodifiableMap(m);
+    }
+
+    // The kinds of local variable accesses, see "localVariableAccess()".
+    private static final int INT = 0, LONG = 1, FLOAT = 2, DOUBLE = 3, REFERENCE = 4;
+
+    /**
+     * @return The kind ({@link #INT}, {@link #LONG}, {@link #FLOAT}, {@link #DOUBLE} or {@link #REFERENCE}) times
+     *         65536 plus the index of the local variable that the instruction at <var>pc</var> loads (or, iff
+     *         <var>store</var>, stores), or -1 if it is not such an instruction
+     */
+    private static int
+    localVariableAccess(byte[] code, int pc, boolean store) {
+
+        boolean wide   = code[pc] == Opcode.WIDE;
+        int     opcode = 0xff & code[wide ? pc + 1 : pc];
+        int     base   = store ? Opcode.ISTORE : Opcode.ILOAD;
+        int     base0  = store ? Opcode.ISTORE_0 : Opcode.ILOAD_0;
+
+        if (opcode >= base && opcode <= base + CodeContext.REFERENCE) {
+            int index = wide ? ((0xff & code[pc + 2]) << 8) | (0xff & code[pc + 3]) : 0xff & code[pc + 1];
+            return ((opcode - base) << 16) + index;
+        }
+
+        if (!wide && opcode >= base0 && opcode < base0 + 4 * (CodeContext.REFERENCE + 1)) {
+            return (((opcode - base0) / 4) << 16) + (opcode - base0) % 4;
+        }
+
+        return -1;
+    }
+
     /**
      * Analyzes the descriptor of the Fieldref at index <var>idx</var> and return its size.
      *
@@ -849,16 +1702,19 @@ class CodeContext {
     }
 
     /**
-     * Analyzes the descriptor of the Methodref and returns the sum of the arguments' sizes minus the return value's
-     * size.
+     * Analyzes the descriptor of the Methodref (or InterfaceMethodref, or InvokeDynamic) and returns the sum of the
+     * arguments' sizes minus the return value's size.
      */
     private int
     determineArgumentsSize(short idx) {
-        ClassFile.ConstantPoolInfo        cpi = this.classFile.getConstantPoolInfo(idx);
+        ClassFile                         cf  = this.classFile;
+        ClassFile.ConstantPoolInfo        cpi = cf.getConstantPoolInfo(idx);
         ClassFile.ConstantNameAndTypeInfo nat = (
             cpi instanceof ClassFile.ConstantInterfaceMethodrefInfo
-            ? ((ClassFile.ConstantInterfaceMethodrefInfo) cpi).getNameAndType(this.classFile)
-            : ((ClassFile.ConstantMethodrefInfo)          cpi).getNameAndType(this.classFile)
+            ? ((ClassFile.ConstantInterfaceMethodrefInfo) cpi).getNameAndType(cf)
+            : cpi instanceof ClassFile.ConstantInvokeDynamicInfo
+            ? cf.getConstantNameAndTypeInfo(((ClassFile.ConstantInvokeDynamicInfo) cpi).getNameAndTypeIndex())
+            : ((ClassFile.ConstantMethodrefInfo) cpi).getNameAndType(cf)
         );
         String desc = nat.getDescriptor(this.classFile);
 
@@ -987,6 +1843,10 @@ class CodeContext {
      * <p>
      *   Because the class file format does not support line numbers greater than 65535, these are treated as 65535.
      * </p>
+     * <p>
+     *   While a {@link FixUp} is being invoked, the bytes are inserted only at the end of the current fix-up pass, and
+     *   the <var>size</var> may be negative, which requests the removal of bytes before the current inserter.
+     * </p>
      *
      * @param lineNumber -1 indicates that no particular line in the source code corresponds to this offset
      * @param size       The number of NUL bytes to inject
@@ -999,6 +1859,18 @@ class CodeContext {
 
         if (size == 0) return cio;
 
+        // Within a fix-up pass, only record the resize; "fixUp()" applies it to the code and the following offsets.
+        {
+            List<int[]> prs = this.pendingResizes;
+            if (prs != null) {
+                prs.add(new int[] { cio - this.pendingShift, size });
+                this.pendingShift           += size;
+                this.currentInserter.offset += size;
+                return cio;
+            }
+        }
+        if (size < 0) throw new IllegalArgumentException("Negative size " + size);
+
         INSERT_LINE_NUMBER_OFFSET:
         if (lineNumber != -1) {
 
@@ -1006,15 +1878,20 @@ class CodeContext {
 
             // Find out whether the line number is different from the line number of the preceding insertion,
             // and, if so, insert a LineNumberOffset object, which will later lead to a LineNumberTable entry.
-            for (Offset o = this.currentInserter.prev; o != this.beginning; o = o.prev) {
-                assert o != null;
-                if (o instanceof LineNumberOffset) {
-                    if ((((LineNumberOffset) o).lineNumber & 0xffff) == lineNumber) {
-                        break INSERT_LINE_NUMBER_OFFSET;
+            LineNumberOffset pl = this.currentInserter == this.end ? this.lastLineNumberOffset : null;
+            if (pl == null) {
+                for (Offset o = this.currentInserter.prev; o != this.beginning; o = o.prev) {
+                    assert o != null;
+                    if (o instanceof LineNumberOffset) {
+                        pl = (LineNumberOffset) o;
+                        break;
                     }
-                    break;
                 }
             }
+            if (pl != null && (pl.lineNumber & 0xffff) == lineNumber) {
+                if (this.currentInserter == this.end) this.lastLineNumberOffset = pl;
+                break INSERT_LINE_NUMBER_OFFSET;
+            }
 
             // Insert a LineNumberOffset _before_ the current inserter.
             LineNumberOffset lno = new LineNumberOffset(cio, (short) lineNumber);
@@ -1028,6 +1905,9 @@ class CodeContext {
             cip.next = lno;
 
             this.currentInserter.prev = lno;
+
+            // A line number offset that is inserted before the end may hide the cached one.
+            this.lastLineNumberOffset = this.currentInserter == this.end ? lno : null;
         }
 
         if (this.end.offset + size <= this.code.length) {
@@ -1040,15 +1920,7 @@ class CodeContext {
             byte[] oldCode = this.code;
             //double size to avoid horrible performance, but don't grow over our limit
             int newSize = Math.max(Math.min(oldCode.length * 2, 0xffff), oldCode.length + size);
-            if (newSize > 0xffff) {
-                throw new InternalCompilerException(
-                    "Code of method \""
-                    + this.functionName
-                    + "\" of class \""
-                    + this.classFile.getThisClassName()
-                    + "\" grows beyond 64 KB"
-                );
-            }
+            if (newSize > 0xffff) this.throwCodeTooLarge();
             this.code = new byte[newSize];
             System.arraycopy(oldCode, 0, this.code, 0, cio);
             System.arraycopy(oldCode, cio, this.code, cio + size, this.end.offset - cio);
@@ -1059,6 +1931,17 @@ class CodeContext {
         return cio;
     }
 
+    private void
+    throwCodeTooLarge() {
+        throw new InternalCompilerException(
+            "Code of method \""
+            + this.functionName
+            + "\" of class \""
+            + this.classFile.getThisClassName()
+            + "\" grows beyond 64 KB"
+        );
+    }
+
     /**
      */
     public void
@@ -1101,21 +1984,15 @@ class CodeContext {
             int offset = this.destination.offset - this.source.offset;
 
             if (!this.expanded && (offset > Short.MAX_VALUE || offset < Short.MIN_VALUE)) {
-                //we want to insert the data without skewing our source position,
-                //so we will cache it and then restore it later.
-                final int pos = this.source.offset;
-                CodeContext.this.pushInserter(this.source);
-                {
-                    // Promotion to a wide instruction only requires 2 extra bytes. Everything else requires a new
-                    // GOTO_W instruction after a negated if (5 extra bytes).
-                    CodeContext.this.makeSpace(
-                        -1,
-                        this.opcode == Opcode.GOTO || this.opcode == Opcode.JSR ? 2 : 5
-                    );
-                }
-                CodeContext.this.popInserter();
-                this.source.offset = pos;
-                this.expanded      = true;
+
+                // Promotion to a wide instruction only requires 2 extra bytes. Everything else requires a new
+                // GOTO_W instruction after a negated if (5 extra bytes). "relocate()" inserts the bytes behind the
+                // source position when all relocatables are done.
+                CodeContext.this.pendingExpansions.put(
+                    this.source,
+                    this.opcode == Opcode.GOTO || this.opcode == Opcode.JSR ? 2 : 5
+                );
+                this.expanded = true;
                 return false;
             }
 
@@ -1160,9 +2037,9 @@ class CodeContext {
         }
 
         private boolean        expanded; //marks whether this has been expanded to account for a wide branch
-        private final int      opcode;
+        private int            opcode;      // May be changed by "optimize()"
         private final Inserter source;
-        private final Offset   destination;
+        private Offset         destination; // May be changed by "optimize()"
     }
 
     /**
@@ -1310,6 +2187,12 @@ class CodeContext {
          */
         static final int UNSET = -1;
 
+        /**
+         * Special value for {@link #offset} which indicates that the code at this {@link Offset} was removed through
+         * {@link CodeContext#removeCode(Offset, Offset)}
+         */
+        static final int REMOVED = -77;
+
         /**
          * Sets this "Offset" to the offset of the current inserter; inserts this "Offset" before the current inserter.
          */
@@ -1416,6 +2299,10 @@ class CodeContext {
      * <p>
      *   This is currently used for inserting the "padding bytes" into the TABLESWITCH and LOOKUPSWITCH instructions.
      * </p>
+     * <p>
+     *   A fix-up may {@link CodeContext#makeSpace(int, int)} only at its own position, i.e. with itself as the current
+     *   inserter.
+     * </p>
      */
     public
     interface FixUp {
@@ -1430,7 +2317,10 @@ class CodeContext {
      * @return All the local variables that are allocated in any block in this {@link CodeContext}
      */
     public List<Java.LocalVariableSlot>
-    getAllLocalVars() { return this.allLocalVars; }
+    getAllLocalVars() {
+        this.purgeRemovedCode();
+        return this.allLocalVars;
+    }
 
     /**
      * Removes all code between <var>from</var> and <var>to</var>. Also removes any {@link CodeContext.Relocatable}s
@@ -1449,9 +2339,10 @@ class CodeContext {
         // Shift down the bytecode past "to".
         System.arraycopy(this.code, to.offset, this.code, from.offset, this.end.offset - to.offset);
 
+        // The cached line number offset may be removed.
+        this.lastLineNumberOffset = null;
+
         // Invalidate all offsets between "from" and "to".
-        // Remove all relocatables that originate between "from" and "to".
-        Set<Offset> invalidOffsets = new HashSet<Offset>();
         {
             Offset o = from.next;
             assert o != null;
@@ -1459,11 +2350,9 @@ class CodeContext {
             for (; o != to;) {
                 assert o != null;
 
-                invalidOffsets.add(o);
-
                 // Invalidate the offset for fast failure.
                 final Offset n = o.next;
-                o.offset    = -77;
+                o.offset    = Offset.REMOVED;
                 o.prev      = null;
                 o.next      = null;
 
@@ -1479,6 +2368,24 @@ class CodeContext {
             }
         }
 
+        from.next = to;
+        to.prev   = from;
+
+        // The relocatables, exception table entries and local variables of the removed code are purged later, because
+        // doing that for each removal would take time proportional to the size of the method each time.
+        this.codeRemoved = true;
+    }
+
+    /**
+     * Removes the relocatables, exception table entries and local variables that belong to code that {@link
+     * #removeCode(Offset, Offset)} removed.
+     */
+    private void
+    purgeRemovedCode() {
+
+        if (!this.codeRemoved) return;
+        this.codeRemoved = false;
+
         // Invalidate all relocatables which originate or target a removed offset.
         for (Iterator<Relocatable> it = this.relocatables.iterator(); it.hasNext();) {
             Relocatable r = (Relocatable) it.next();
@@ -1486,20 +2393,20 @@ class CodeContext {
             if (r instanceof Branch) {
                 Branch b = (Branch) r;
 
-                if (invalidOffsets.contains(b.source)) {
+                if (b.source.offset == Offset.REMOVED) {
                     it.remove();
                 } else {
-                    assert !invalidOffsets.contains(b.destination);
+                    assert b.destination.offset != Offset.REMOVED;
                 }
             }
 
             if (r instanceof OffsetBranch) {
                 OffsetBranch ob = (OffsetBranch) r;
 
-                if (invalidOffsets.contains(ob.source)) {
+                if (ob.source.offset == Offset.REMOVED) {
                     it.remove();
                 } else {
-                    assert !invalidOffsets.contains(ob.destination);
+                    assert ob.destination.offset != Offset.REMOVED;
                 }
             }
         }
@@ -1509,28 +2416,27 @@ class CodeContext {
 
             // Start, end and handler must either ALL lie IN the range to remove or ALL lie outside.
 
-            if (invalidOffsets.contains(ete.startPC)) {
-                assert invalidOffsets.contains(ete.endPC);
-                assert invalidOffsets.contains(ete.handlerPC);
+            if (ete.startPC.offset == Offset.REMOVED) {
+                assert ete.endPC.offset == Offset.REMOVED;
+                assert ete.handlerPC.offset == Offset.REMOVED;
                 it.remove();
             } else {
-                assert !invalidOffsets.contains(ete.endPC);
-                assert !invalidOffsets.contains(ete.handlerPC);
+                assert ete.endPC.offset != Offset.REMOVED;
+                assert ete.handlerPC.offset != Offset.REMOVED;
             }
         }
 
         // Remove local variables in dead-code block.
         for (Iterator<LocalVariableSlot> it = this.allLocalVars.iterator(); it.hasNext();) {
-            final LocalVariableSlot var = (LocalVariableSlot) it.next();
-            if (invalidOffsets.contains(var.getStart())) {
-                assert invalidOffsets.contains(var.getEnd());
+            final LocalVariableSlot var   = (LocalVariableSlot) it.next();
+            Offset                  start = var.getStart();
+            Offset                  end   = var.getEnd();
+            if (start != null && start.offset == Offset.REMOVED) {
+                assert end != null && end.offset == Offset.REMOVED;
                 it.remove();
             } else {
-                assert !invalidOffsets.contains(var.getEnd());
+                assert end == null || end.offset != Offset.REMOVED;
             }
         }
-
-        from.next = to;
-        to.prev   = from;
     }
 }
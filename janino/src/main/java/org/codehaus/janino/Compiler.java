@@ -30,11 +30,18 @@ import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -74,6 +81,8 @@ import org.codehaus.janino.util.resource.ResourceFinder;
  *               [ -g:none ] \
  *               [ -g:{source,lines,vars} ] \
  *               [ -warn:<em>pattern-list</em> ] \
+ *               [ -threads <em>n</em> ] \
+ *               [ -target <em>version</em> ] \
  *               <em>source-file</em> ...
  *     java org.codehaus.janino.Compiler -help
  * </pre>
@@ -100,6 +109,8 @@ class Compiler {
         boolean         debugVars             = false;
         StringPattern[] warningHandlePatterns = Compiler.DEFAULT_WARNING_HANDLE_PATTERNS;
         boolean         rebuild               = false;
+        int             threadCount           = 1;
+        int             targetVersion         = 6;
 
         // Process command line options.
         int i;
@@ -144,6 +155,13 @@ class Compiler {
             if ("-rebuild".equals(arg)) {
                 rebuild = true;
             } else
+            if ("-threads".equals(arg)) {
+                threadCount = Integer.parseInt(args[++i]);
+            } else
+            if ("-target".equals(arg)) {
+                String s = args[++i];
+                targetVersion = Integer.parseInt(s.startsWith("1.") ? s.substring(2) : s);
+            } else
             if ("-help".equals(arg)) {
                 System.out.printf(Compiler.USAGE, (Object[]) null);
                 System.exit(1);
@@ -177,6 +195,8 @@ class Compiler {
             warningHandlePatterns,
             rebuild
         );
+        compiler.setThreadCount(threadCount);
+        compiler.setTargetVersion(targetVersion);
 
         // Compile source files.
         try {
@@ -220,6 +240,9 @@ class Compiler {
         + "                            static fields%n"
         + "  -rebuild                  Compile all source files, even if the class files%n"
         + "                            seems up-to-date%n"
+        + "  -threads <n>              Parse and compile the source files concurrently%n"
+        + "  -target <version>         Generate class files for the given VM version%n"
+        + "                            (6, 7, 8 or 9; default is 6)%n"
         + "  -help%n"
         + "%n"
         + "The default encoding in this environment is \"" + Charset.defaultCharset().toString() + "\"."
@@ -246,9 +269,13 @@ class Compiler {
     @Nullable private WarningHandler  warningHandler;
     @Nullable private ErrorHandler    compileErrorHandler;
     private EnumSet<JaninoOption>     options = EnumSet.noneOf(JaninoOption.class);
+    private int                       threadCount = 1;
+    private int                       targetVersion = 6;
 
     private final IClassLoader       iClassLoader;
-    private final List<UnitCompiler> parsedCompilationUnits = new ArrayList<UnitCompiler>();
+    private final List<UnitCompiler> parsedCompilationUnits = Collections.synchronizedList(
+        new ArrayList<UnitCompiler>()
+    );
 
 
     /**
@@ -492,8 +519,14 @@ class Compiler {
         this.benchmark.beginReporting();
         try {
 
-            // Parse all source files.
             this.parsedCompilationUnits.clear();
+
+            if (this.threadCount > 1) {
+                this.compileConcurrently(sourceResources);
+                return true;
+            }
+
+            // Parse all source files.
             for (Resource sourceResource : sourceResources) {
                 Compiler.LOGGER.log(Level.FINE, "Compiling \"{0}\"", sourceResource);
 
@@ -506,6 +539,7 @@ class Compiler {
                     this.iClassLoader
                 );
                 uc.options(this.options);
+                uc.setTargetVersion(this.targetVersion);
                 this.parsedCompilationUnits.add(uc);
             }
 
@@ -513,13 +547,7 @@ class Compiler {
             // but eventually all CUs will be compiled.
             for (int i = 0; i < this.parsedCompilationUnits.size(); ++i) {
                 UnitCompiler unitCompiler = (UnitCompiler) this.parsedCompilationUnits.get(i);
-
-                File sourceFile;
-                {
-                    CompilationUnit compilationUnit = unitCompiler.getCompilationUnit();
-                    if (compilationUnit.optionalFileName == null) throw new InternalCompilerException();
-                    sourceFile = new File(compilationUnit.optionalFileName);
-                }
+                File         sourceFile   = Compiler.getSourceFile(unitCompiler);
 
                 unitCompiler.setCompileErrorHandler(this.compileErrorHandler);
                 unitCompiler.setWarningHandler(this.warningHandler);
@@ -534,19 +562,7 @@ class Compiler {
                     this.benchmark.endReporting();
                 }
 
-                // Store the compiled classes and interfaces into class files.
-                this.benchmark.beginReporting(
-                    "Storing "
-                    + classFiles.length
-                    + " class file(s) resulting from compilation unit \""
-                    + sourceFile
-                    + "\""
-                );
-                try {
-                    for (ClassFile classFile : classFiles) this.storeClassFile(classFile, sourceFile);
-                } finally {
-                    this.benchmark.endReporting();
-                }
+                this.storeClassFiles(classFiles, sourceFile);
             }
         } finally {
             this.benchmark.endReporting("Compiled " + this.parsedCompilationUnits.size() + " compilation unit(s)");
@@ -554,6 +570,227 @@ class Compiler {
         return true;
     }
 
+    /**
+     * Parses and compiles the <var>sourceResources</var> with {@link #setThreadCount(int) multiple threads}.
+     * <p>
+     *   Compile errors and warnings are reported in the order of the compilation units, as if the units were
+     *   compiled one after another, and the class files are stored by the calling thread, in the same order.
+     * </p>
+     */
+    private void
+    compileConcurrently(Resource[] sourceResources) throws CompileException, IOException {
+
+        ExecutorService executorService = Executors.newFixedThreadPool(this.threadCount);
+        try {
+
+            // Parse all source files.
+            List<Future<UnitCompiler>> parsings       = new ArrayList<Future<UnitCompiler>>();
+            List<DeferredProblems>     parseProblemss = new ArrayList<DeferredProblems>();
+            for (final Resource sourceResource : sourceResources) {
+                final DeferredProblems parseProblems = new DeferredProblems();
+                parsings.add(executorService.submit(new Callable<UnitCompiler>() {
+
+                    @Override public UnitCompiler
+                    call() throws CompileException, IOException {
+                        Compiler.LOGGER.log(Level.FINE, "Compiling \"{0}\"", sourceResource);
+
+                        UnitCompiler uc = new UnitCompiler(
+                            Compiler.parseCompilationUnit(
+                                sourceResource.getFileName(),                   // fileName
+                                new BufferedInputStream(sourceResource.open()), // inputStream
+                                Compiler.this.characterEncoding,                // characterEncoding
+                                parseProblems                                   // optionalWarningHandler
+                            ),
+                            Compiler.this.iClassLoader
+                        );
+                        uc.options(Compiler.this.options);
+                        uc.setTargetVersion(Compiler.this.targetVersion);
+                        return uc;
+                    }
+                }));
+                parseProblemss.add(parseProblems);
+            }
+            for (int i = 0; i < parsings.size(); i++) {
+                ((DeferredProblems) parseProblemss.get(i)).report(null, this.warningHandler);
+                this.parsedCompilationUnits.add((UnitCompiler) Compiler.getResult((Future<?>) parsings.get(i)));
+            }
+
+            // Compile all parsed compilation units. Compiling may parse more compilation units (from the source
+            // path), so compile "rounds" until no new units appear.
+            for (int from = 0; from < this.parsedCompilationUnits.size();) {
+                int to = this.parsedCompilationUnits.size();
+
+                List<Future<ClassFile[]>> compilations    = new ArrayList<Future<ClassFile[]>>();
+                List<DeferredProblems>    compileProblemss = new ArrayList<DeferredProblems>();
+                for (int i = from; i < to; i++) {
+                    final UnitCompiler     unitCompiler    = (UnitCompiler) this.parsedCompilationUnits.get(i);
+                    final DeferredProblems compileProblems = new DeferredProblems();
+
+                    unitCompiler.setCompileErrorHandler(compileProblems);
+                    unitCompiler.setWarningHandler(compileProblems);
+                    compilations.add(executorService.submit(new Callable<ClassFile[]>() {
+
+                        @Override public ClassFile[]
+                        call() throws CompileException {
+                            return unitCompiler.compileUnit(
+                                Compiler.this.debugSource,
+                                Compiler.this.debugLines,
+                                Compiler.this.debugVars
+                            );
+                        }
+                    }));
+                    compileProblemss.add(compileProblems);
+                }
+
+                for (int i = from; i < to; i++) {
+                    DeferredProblems compileProblems = (DeferredProblems) compileProblemss.get(i - from);
+
+                    ClassFile[] classFiles;
+                    try {
+                        classFiles = (ClassFile[]) Compiler.getResult((Future<?>) compilations.get(i - from));
+                    } catch (CompileException ce) {
+
+                        // Report the compile errors before the "N error(s)" exception, like "compile()" does.
+                        compileProblems.report(this.compileErrorHandler, this.warningHandler);
+                        throw ce;
+                    }
+                    compileProblems.report(this.compileErrorHandler, this.warningHandler);
+
+                    this.storeClassFiles(
+                        classFiles,
+                        Compiler.getSourceFile((UnitCompiler) this.parsedCompilationUnits.get(i))
+                    );
+                }
+                from = to;
+            }
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    /**
+     * Waits for the <var>future</var> and returns its result, or re-throws the exception it completed with.
+     */
+    @Nullable private static Object
+    getResult(Future<?> future) throws CompileException, IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            InterruptedIOException iioe = new InterruptedIOException();
+            iioe.initCause(ie);
+            throw iioe; // SUPPRESS CHECKSTYLE AvoidHidingCause
+        } catch (ExecutionException ee) {
+            Throwable t = ee.getCause();
+            if (t instanceof CompileException) throw (CompileException) t;
+            if (t instanceof IOException)      throw (IOException) t;
+            if (t instanceof RuntimeException) throw (RuntimeException) t;
+            if (t instanceof Error)            throw (Error) t;
+            throw new InternalCompilerException(String.valueOf(t), t);
+        }
+    }
+
+    private static File
+    getSourceFile(UnitCompiler unitCompiler) {
+        CompilationUnit compilationUnit = unitCompiler.getCompilationUnit();
+        if (compilationUnit.optionalFileName == null) throw new InternalCompilerException();
+        return new File(compilationUnit.optionalFileName);
+    }
+
+    /**
+     * Stores the compiled classes and interfaces of one compilation unit into class files.
+     */
+    private void
+    storeClassFiles(ClassFile[] classFiles, File sourceFile) throws IOException {
+        this.benchmark.beginReporting(
+            "Storing "
+            + classFiles.length
+            + " class file(s) resulting from compilation unit \""
+            + sourceFile
+            + "\""
+        );
+        try {
+            for (ClassFile classFile : classFiles) this.storeClassFile(classFile, sourceFile);
+        } finally {
+            this.benchmark.endReporting();
+        }
+    }
+
+    /**
+     * Records the compile errors and warnings of one compilation unit while it is parsed or compiled concurrently,
+     * so that they can be reported in a deterministic order.
+     */
+    private static
+    class DeferredProblems implements ErrorHandler, WarningHandler {
+
+        private final List<Problem>      problems = new ArrayList<Problem>();
+        private boolean                  reported;
+        @Nullable private ErrorHandler   optionalErrorHandler;
+        @Nullable private WarningHandler optionalWarningHandler;
+
+        private static
+        class Problem {
+
+            final boolean            isError;
+            @Nullable final String   handle;
+            final String             message;
+            @Nullable final Location optionalLocation;
+
+            Problem(boolean isError, @Nullable String handle, String message, @Nullable Location optionalLocation) {
+                this.isError          = isError;
+                this.handle           = handle;
+                this.message          = message;
+                this.optionalLocation = optionalLocation;
+            }
+        }
+
+        @Override public synchronized void
+        handleError(String message, @Nullable Location optionalLocation) throws CompileException {
+            if (!this.reported) {
+                this.problems.add(new Problem(true, null, message, optionalLocation));
+                return;
+            }
+
+            // After "report()", problems are reported immediately.
+            if (this.optionalErrorHandler == null) throw new CompileException(message, optionalLocation);
+            this.optionalErrorHandler.handleError(message, optionalLocation);
+        }
+
+        @Override public synchronized void
+        handleWarning(@Nullable String handle, String message, @Nullable Location optionalLocation)
+        throws CompileException {
+            if (!this.reported) {
+                this.problems.add(new Problem(false, handle, message, optionalLocation));
+                return;
+            }
+            if (this.optionalWarningHandler != null) {
+                this.optionalWarningHandler.handleWarning(handle, message, optionalLocation);
+            }
+        }
+
+        /**
+         * Reports all recorded problems to the given handlers, in the order in which they were recorded. A {@code
+         * null} <var>optionalErrorHandler</var> means "throw a {@link CompileException} on the first error", a
+         * {@code null} <var>optionalWarningHandler</var> means "discard warnings".
+         */
+        synchronized void
+        report(@Nullable ErrorHandler optionalErrorHandler, @Nullable WarningHandler optionalWarningHandler)
+        throws CompileException {
+            this.reported               = true;
+            this.optionalErrorHandler   = optionalErrorHandler;
+            this.optionalWarningHandler = optionalWarningHandler;
+
+            for (Problem p : this.problems) {
+                if (p.isError) {
+                    this.handleError(p.message, p.optionalLocation);
+                } else {
+                    this.handleWarning(p.handle, p.message, p.optionalLocation);
+                }
+            }
+            this.problems.clear();
+        }
+    }
+
     /**
      * Reads one compilation unit from a file and parses it.
      * <p>
@@ -567,20 +804,37 @@ class Compiler {
         String           fileName,
         InputStream      inputStream,
         @Nullable String characterEncoding
+    ) throws CompileException, IOException {
+        this.benchmark.beginReporting("Parsing \"" + fileName + "\"");
+        try {
+            return Compiler.parseCompilationUnit(fileName, inputStream, characterEncoding, this.warningHandler);
+        } finally {
+            this.benchmark.endReporting();
+        }
+    }
+
+    /**
+     * Reads one compilation unit from a file and parses it; does not use the {@link Benchmark} and is thus safe to be
+     * called from multiple threads.
+     * <p>
+     *   The <var>inputStream</var> is closed before the method returns.
+     * </p>
+     */
+    private static Java.CompilationUnit
+    parseCompilationUnit(
+        String                   fileName,
+        InputStream              inputStream,
+        @Nullable String         characterEncoding,
+        @Nullable WarningHandler optionalWarningHandler
     ) throws CompileException, IOException {
         try {
 
             Scanner scanner = new Scanner(fileName, inputStream, characterEncoding);
 
             Parser parser = new Parser(scanner);
-            parser.setWarningHandler(this.warningHandler);
+            parser.setWarningHandler(optionalWarningHandler);
 
-            this.benchmark.beginReporting("Parsing \"" + fileName + "\"");
-            try {
-                return parser.parseCompilationUnit();
-            } finally {
-                this.benchmark.endReporting();
-            }
+            return parser.parseCompilationUnit();
         } finally {
             inputStream.close();
         }
@@ -696,6 +950,20 @@ class Compiler {
     public void
     setVerbose(boolean verbose) { this.benchmark = new Benchmark(verbose); }
 
+    /**
+     * @param threadCount If greater than one, then {@link #compile(Resource[])} parses and compiles the compilation
+     *                    units concurrently, with that many threads; the default is one
+     */
+    public void
+    setThreadCount(int threadCount) { this.threadCount = threadCount; }
+
+    /**
+     * @param targetVersion The version of the generated class files; 6 (the default), 7, 8 or 9
+     * @see UnitCompiler#setTargetVersion(int)
+     */
+    public void
+    setTargetVersion(int targetVersion) { this.targetVersion = targetVersion; }
+
     /**
      * A specialized {@link IClassLoader} that loads {@link IClass}es from the following sources:
      * <ol>
@@ -816,6 +1084,7 @@ class Compiler {
                     Compiler.this.characterEncoding
                 );
                 uc = new UnitCompiler(cu, Compiler.this.iClassLoader).options(Compiler.this.options);
+                uc.setTargetVersion(Compiler.this.targetVersion);
             } catch (IOException ex) {
                 throw new ClassNotFoundException("Parsing compilation unit \"" + sourceResource + "\"", ex);
             } catch (CompileException ex) {
@@ -36,6 +36,7 @@ import org.codehaus.commons.compiler.ICompilerFactory;
 import org.codehaus.commons.compiler.IExpressionEvaluator;
 import org.codehaus.commons.compiler.IScriptEvaluator;
 import org.codehaus.commons.compiler.ISimpleCompiler;
+import org.codehaus.commons.nullanalysis.Nullable;
 
 /**
  * The JANINO implementation of {@link ICompilerFactory}.
@@ -52,17 +53,62 @@ class CompilerFactory extends AbstractCompilerFactory {
     @Override public String
     getImplementationVersion() { return CompilerFactory.class.getPackage().getImplementationVersion(); }
 
+    @Nullable private CookCache           cookCache;
+    @Nullable private PersistentCookCache persistentCookCache;
+
+    /**
+     * Configures the {@link CookCache} for all {@link SimpleCompiler}s, {@link ClassBodyEvaluator}s, {@link
+     * ScriptEvaluator}s and {@link ExpressionEvaluator}s that this factory creates from now on.
+     *
+     * @param optionalCookCache {@code null} disables caching, which is the default
+     * @see                     SimpleCompiler#setCookCache(CookCache)
+     */
+    public void
+    setCookCache(@Nullable CookCache optionalCookCache) { this.cookCache = optionalCookCache; }
+
+    /**
+     * Configures the {@link PersistentCookCache} for all {@link SimpleCompiler}s, {@link ClassBodyEvaluator}s, {@link
+     * ScriptEvaluator}s and {@link ExpressionEvaluator}s that this factory creates from now on.
+     *
+     * @param optionalPersistentCookCache {@code null} disables persistent caching, which is the default
+     * @see                               SimpleCompiler#setPersistentCookCache(PersistentCookCache)
+     */
+    public void
+    setPersistentCookCache(@Nullable PersistentCookCache optionalPersistentCookCache) {
+        this.persistentCookCache = optionalPersistentCookCache;
+    }
+
     @Override public IExpressionEvaluator
-    newExpressionEvaluator() { return new ExpressionEvaluator(); }
+    newExpressionEvaluator() {
+        ExpressionEvaluator ee = new ExpressionEvaluator();
+        ee.setCookCache(this.cookCache);
+        ee.setPersistentCookCache(this.persistentCookCache);
+        return ee;
+    }
 
     @Override public IScriptEvaluator
-    newScriptEvaluator() { return new ScriptEvaluator(); }
+    newScriptEvaluator() {
+        ScriptEvaluator se = new ScriptEvaluator();
+        se.setCookCache(this.cookCache);
+        se.setPersistentCookCache(this.persistentCookCache);
+        return se;
+    }
 
     @Override public IClassBodyEvaluator
-    newClassBodyEvaluator() { return new ClassBodyEvaluator(); }
+    newClassBodyEvaluator() {
+        ClassBodyEvaluator cbe = new ClassBodyEvaluator();
+        cbe.setCookCache(this.cookCache);
+        cbe.setPersistentCookCache(this.persistentCookCache);
+        return cbe;
+    }
 
     @Override public ISimpleCompiler
-    newSimpleCompiler() { return new SimpleCompiler(); }
+    newSimpleCompiler() {
+        SimpleCompiler sc = new SimpleCompiler();
+        sc.setCookCache(this.cookCache);
+        sc.setPersistentCookCache(this.persistentCookCache);
+        return sc;
+    }
 
     @Override public AbstractJavaSourceClassLoader
     newJavaSourceClassLoader() {
@@ -0,0 +1,186 @@
+
+/*
+ * Janino - An embedded Java[TM] compiler
+ *
+ * Copyright (c) 2001-2010 Arno Unkrig. All rights reserved.
+ * Copyright (c) 2015-2016 TIBCO Software Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.codehaus.janino;
+
+import java.lang.ref.SoftReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.codehaus.commons.nullanalysis.Nullable;
+
+/**
+ * A bounded cache of the results of cooking {@link SimpleCompiler}s, {@link ClassBodyEvaluator}s, {@link
+ * ScriptEvaluator}s and {@link ExpressionEvaluator}s. When a cook cache is configured (see {@link
+ * SimpleCompiler#setCookCache(CookCache)} and {@link CompilerFactory#setCookCache(CookCache)}), then cooking the
+ * same source text with the same configuration (parent class loader, parameters, return types, default imports,
+ * etc.) again re-uses the previously generated classes, without scanning, parsing and compiling.
+ * <p>
+ *   When the cache is full, the least recently used entry is evicted.
+ * </p>
+ * <p>
+ *   Notice that the cache keys strongly reference the parent class loader, and also the parameter, return and
+ *   interface types of the cooked evaluators. Even with <var>softValues</var> {@code true}, only the generated classes
+ *   may be garbage-collected, but not the parent class loader; it remains reachable until its entries are evicted.
+ *   Thus, to release a parent class loader (e.g. on a webapp redeployment), {@link #clear()} the cache.
+ * </p>
+ * <p>
+ *   This class is thread-safe; one cache may be shared by many compilers.
+ * </p>
+ */
+public
+class CookCache {
+
+    private final int     maximumSize;
+    private final boolean softValues;
+
+    /**
+     * Maps keys to {@link ClassLoader}s, or, iff {@link #softValues}, to {@link SoftReference}s to {@link
+     * ClassLoader}s.
+     */
+    private final Map<Object /*key*/, Object /*ClassLoader-or-SoftReference*/> entries;
+
+    private long hitCount, missCount, evictionCount;
+
+    /**
+     * Equivalent with {@link #CookCache(int, boolean) CookCache}{@code (maximumSize, false)}.
+     */
+    public
+    CookCache(int maximumSize) { this(maximumSize, false); }
+
+    /**
+     * @param maximumSize The maximum number of entries that this cache holds
+     * @param softValues  Whether the cached {@link ClassLoader}s are only softly referenced, and may thus be
+     *                    reclaimed by the garbage collector when memory is low; notice that this does not release
+     *                    the parent class loaders, which the keys reference
+     */
+    public
+    CookCache(final int maximumSize, boolean softValues) {
+
+        if (maximumSize <= 0) throw new IllegalArgumentException("maximumSize");
+
+        this.maximumSize = maximumSize;
+        this.softValues  = softValues;
+        this.entries     = new LinkedHashMap<Object, Object>(16, 0.75F, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override protected boolean
+            removeEldestEntry(@Nullable Map.Entry<Object, Object> eldest) {
+                if (this.size() <= maximumSize) return false;
+                CookCache.this.evictionCount++;
+                return true;
+            }
+        };
+    }
+
+    /**
+     * @return The {@link ClassLoader} that was previously {@link #put(Object, ClassLoader) put} with the given
+     *         <var>key</var>, or {@code null}
+     */
+    @Nullable public synchronized ClassLoader
+    get(Object key) {
+
+        Object value = this.entries.get(key);
+        if (value instanceof SoftReference) {
+            value = ((SoftReference<?>) value).get();
+            if (value == null) {
+
+                // The referent was garbage-collected.
+                this.entries.remove(key);
+                this.evictionCount++;
+            }
+        }
+
+        if (value == null) {
+            this.missCount++;
+            return null;
+        }
+
+        this.hitCount++;
+        return (ClassLoader) value;
+    }
+
+    /**
+     * Stores the given <var>classLoader</var>, which holds the classes that were generated for the given
+     * <var>key</var>, possibly evicting the least recently used entry.
+     */
+    public synchronized void
+    put(Object key, ClassLoader classLoader) {
+        this.entries.put(key, this.softValues ? new SoftReference<ClassLoader>(classLoader) : classLoader);
+    }
+
+    /**
+     * Removes all entries from this cache. (The statistics counters are not reset.)
+     */
+    public synchronized void
+    clear() { this.entries.clear(); }
+
+    /**
+     * @return The current number of entries
+     */
+    public synchronized int
+    size() { return this.entries.size(); }
+
+    /**
+     * @return The maximum number of entries, as configured through the constructor
+     */
+    public int
+    getMaximumSize() { return this.maximumSize; }
+
+    /**
+     * @return How often {@link #get(Object)} returned a cached result
+     */
+    public synchronized long
+    getHitCount() { return this.hitCount; }
+
+    /**
+     * @return How often {@link #get(Object)} returned {@code null}
+     */
+    public synchronized long
+    getMissCount() { return this.missCount; }
+
+    /**
+     * @return How many entries were removed because the cache was full, or because their softly referenced value was
+     *         garbage-collected
+     */
+    public synchronized long
+    getEvictionCount() { return this.evictionCount; }
+
+    @Override public synchronized String
+    toString() {
+        return (
+            "size="
+            + this.entries.size()
+            + ", hits="
+            + this.hitCount
+            + ", misses="
+            + this.missCount
+            + ", evictions="
+            + this.evictionCount
+        );
+    }
+}
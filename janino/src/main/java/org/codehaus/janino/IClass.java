@@ -31,12 +31,14 @@ import java.lang.reflect.Constructor;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 
 import org.codehaus.commons.compiler.CompileException;
@@ -54,6 +56,17 @@ class IClass {
 
     private static final Logger LOGGER = Logger.getLogger(IClass.class.getName());
 
+    /**
+     * The source of the {@link #id}s; must be initialized before the {@link PrimitiveIClass}es are.
+     */
+    private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
+    /**
+     * A number that uniquely identifies this {@link IClass}; used to represent the supertype closures compactly, see
+     * {@link #isSubclassOf(IClass)} and {@link #implementsInterface(IClass)}.
+     */
+    private final int id = IClass.NEXT_ID.getAndIncrement();
+
     /**
      * Special return value for {@link IField#getConstantValue()} indicating that the field does <em>not</em> have a
      * constant value.
@@ -142,11 +155,29 @@ class IClass {
      */
     public final IConstructor[]
     getDeclaredIConstructors() {
-        if (this.declaredIConstructorsCache != null) return this.declaredIConstructorsCache;
+        IConstructor[] result = this.declaredIConstructorsCache;
+        if (result != null) return result;
+
+        // Compute outside of the lock, but publish only once, so that all threads see the same IConstructors.
+        result = this.getDeclaredIConstructors2();
+        synchronized (this) {
+            if (this.declaredIConstructorsCache == null) this.declaredIConstructorsCache = result;
+            return this.declaredIConstructorsCache;
+        }
+    }
+    @Nullable private volatile IConstructor[] declaredIConstructorsCache;
 
-        return (this.declaredIConstructorsCache = this.getDeclaredIConstructors2());
+    /**
+     * @return The number of declared constructors, methods and fields of this type that were resolved so far; does not
+     *         resolve any
+     */
+    int
+    getResolvedMemberCount() {
+        IConstructor[]      dcs = this.declaredIConstructorsCache;
+        IMethod[]           dms = this.declaredIMethodsCache;
+        Map<String, IField> dfs = this.declaredIFieldsCache;
+        return (dcs == null ? 0 : dcs.length) + (dms == null ? 0 : dms.length) + (dfs == null ? 0 : dfs.size());
     }
-    @Nullable private IConstructor[] declaredIConstructorsCache;
 
     /**
      * The uncached version of {@link #getDeclaredIConstructors()} which must be implemented by derived classes.
@@ -162,10 +193,24 @@ class IClass {
      */
     public final IMethod[]
     getDeclaredIMethods() {
-        if (this.declaredIMethodsCache != null) return this.declaredIMethodsCache;
-        return (this.declaredIMethodsCache = this.getDeclaredIMethods2());
+        for (;;) {
+            IMethod[] result = this.declaredIMethodsCache;
+            if (result != null) return result;
+
+            // Compute outside of the lock, but publish only once, so that all threads see the same IMethods. Retry if
+            // the method caches were invalidated in the meantime.
+            int generation = this.methodCachesGeneration;
+            result = this.getDeclaredIMethods2();
+            synchronized (this) {
+                if (this.methodCachesGeneration == generation) {
+                    if (this.declaredIMethodsCache == null) this.declaredIMethodsCache = result;
+                    return this.declaredIMethodsCache;
+                }
+            }
+        }
     }
-    @Nullable private IMethod[] declaredIMethodsCache;
+    @Nullable private volatile IMethod[] declaredIMethodsCache;
+    private volatile int                 methodCachesGeneration;
 
     /**
      * The uncached version of {@link #getDeclaredIMethods()} which must be implemented by derived classes.
@@ -184,7 +229,8 @@ class IClass {
     getDeclaredIMethods(String methodName) {
         Map<String, Object> dimc = this.declaredIMethodCache;
         if (dimc == null) {
-            IMethod[] dims = this.getDeclaredIMethods();
+            int       generation = this.methodCachesGeneration;
+            IMethod[] dims       = this.getDeclaredIMethods();
 
             // Fill the map with "IMethod"s and "List<IMethod>"s.
             dimc = new HashMap<String, Object>();
@@ -215,13 +261,15 @@ class IClass {
                     me.setValue(l.toArray(new IMethod[l.size()]));
                 }
             }
-            this.declaredIMethodCache = dimc;
+            synchronized (this) {
+                if (this.methodCachesGeneration == generation) this.declaredIMethodCache = dimc;
+            }
         }
 
         IMethod[] methods = (IMethod[]) dimc.get(methodName);
         return methods == null ? IClass.NO_IMETHODS : methods;
     }
-    @Nullable private Map<String /*methodName*/, Object /*IMethod-or-List<IMethod>*/> declaredIMethodCache;
+    @Nullable private volatile Map<String /*methodName*/, Object /*IMethod-or-List<IMethod>*/> declaredIMethodCache;
 
     /**
      * Returns all methods declared in the class or interface, its superclasses and its superinterfaces.
@@ -231,13 +279,14 @@ class IClass {
     public final IMethod[]
     getIMethods() throws CompileException {
 
-        if (this.iMethodCache != null) return this.iMethodCache;
+        IMethod[] result = this.iMethodCache;
+        if (result != null) return result;
 
         List<IMethod> iMethods = new ArrayList<IMethod>();
         this.getIMethods(iMethods);
         return (this.iMethodCache = (IMethod[]) iMethods.toArray(new IMethod[iMethods.size()]));
     }
-    @Nullable private IMethod[] iMethodCache;
+    @Nullable private volatile IMethod[] iMethodCache;
 
     private void
     getIMethods(List<IMethod> result) throws CompileException {
@@ -340,13 +389,24 @@ class IClass {
      */
     private Map<String /*fieldName*/, IField>
     getDeclaredIFieldsCache() {
-        if (this.declaredIFieldsCache != null) return this.declaredIFieldsCache;
-
-        IField[] fields = this.getDeclaredIFields2();
-
-        Map<String /*fieldName*/, IField> m = new LinkedHashMap<String, IClass.IField>();
-        for (IField f : fields) m.put(f.getName(), f);
-        return (this.declaredIFieldsCache = m);
+        for (;;) {
+            Map<String /*fieldName*/, IField> m = this.declaredIFieldsCache;
+            if (m != null) return m;
+
+            // Compute outside of the lock, but publish only once, so that all threads see the same IFields. Retry if
+            // the field caches were cleared in the meantime.
+            int      generation = this.fieldCachesGeneration;
+            IField[] fields     = this.getDeclaredIFields2();
+
+            m = new LinkedHashMap<String, IClass.IField>();
+            for (IField f : fields) m.put(f.getName(), f);
+            synchronized (this) {
+                if (this.fieldCachesGeneration == generation) {
+                    if (this.declaredIFieldsCache == null) this.declaredIFieldsCache = m;
+                    return this.declaredIFieldsCache;
+                }
+            }
+        }
     }
 
     /**
@@ -361,10 +421,14 @@ class IClass {
      * Clears the cache of declared fields which this class maintains in order to minimize the invocations of {@link
      * #getDeclaredIFields2()}.
      */
-    protected void
-    clearIFieldCaches() { this.declaredIFieldsCache = null; }
+    protected synchronized void
+    clearIFieldCaches() {
+        this.declaredIFieldsCache = null;
+        this.fieldCachesGeneration++;
+    }
 
-    @Nullable private Map<String /*fieldName*/, IField> declaredIFieldsCache;
+    @Nullable private volatile Map<String /*fieldName*/, IField> declaredIFieldsCache;
+    private volatile int                                         fieldCachesGeneration;
 
     /**
      * Uncached version of {@link #getDeclaredIFields()}.
@@ -386,10 +450,11 @@ class IClass {
      */
     public final IClass[]
     getDeclaredIClasses() throws CompileException {
-        if (this.declaredIClassesCache != null) return this.declaredIClassesCache;
+        IClass[] result = this.declaredIClassesCache;
+        if (result != null) return result;
         return (this.declaredIClassesCache = this.getDeclaredIClasses2());
     }
-    @Nullable private IClass[] declaredIClassesCache;
+    @Nullable private volatile IClass[] declaredIClassesCache;
 
     /**
      * @return The member types of this type
@@ -407,7 +472,7 @@ class IClass {
         }
         return this.declaringIClassCache;
     }
-    private boolean          declaringIClassIsCached;
+    private volatile boolean declaringIClassIsCached;
     @Nullable private IClass declaringIClassCache;
 
     /**
@@ -430,10 +495,11 @@ class IClass {
     getOuterIClass() throws CompileException {
         if (this.outerIClassIsCached) return this.outerIClassCache;
 
+        IClass oc = (this.outerIClassCache = this.getOuterIClass2());
         this.outerIClassIsCached = true;
-        return (this.outerIClassCache = this.getOuterIClass2());
+        return oc;
     }
-    private boolean          outerIClassIsCached;
+    private volatile boolean outerIClassIsCached;
     @Nullable private IClass outerIClassCache;
 
     /**
@@ -459,10 +525,11 @@ class IClass {
                 null
             );
         }
+        this.superclassCache    = sc;
         this.superclassIsCached = true;
-        return (this.superclassCache = sc);
+        return sc;
     }
-    private boolean          superclassIsCached;
+    private volatile boolean superclassIsCached;
     @Nullable private IClass superclassCache;
 
     /**
@@ -492,7 +559,8 @@ class IClass {
      */
     public final IClass[]
     getInterfaces() throws CompileException {
-        if (this.interfacesCache != null) return this.interfacesCache;
+        IClass[] result = this.interfacesCache;
+        if (result != null) return result;
 
         IClass[] is = this.getInterfaces2();
         for (IClass ii : is) {
@@ -505,7 +573,7 @@ class IClass {
         }
         return (this.interfacesCache = is);
     }
-    @Nullable private IClass[] interfacesCache;
+    @Nullable private volatile IClass[] interfacesCache;
 
     /**
      * @see #getInterfaces()
@@ -584,7 +652,7 @@ class IClass {
         this.componentTypeIsCached = true;
         return this.componentTypeCache;
     }
-    private boolean          componentTypeIsCached;
+    private volatile boolean componentTypeIsCached;
     @Nullable private IClass componentTypeCache;
 
     /**
@@ -612,9 +680,13 @@ class IClass {
         if (this == that) return true;
 
         // Widening primitive conversion, JLS7 5.1.2
-        {
-            String ds = that.getDescriptor() + this.getDescriptor();
-            if (ds.length() == 2 && IClass.PRIMITIVE_WIDENING_CONVERSIONS.contains(ds)) return true;
+        // (No reference type is assignable to a primitive type.)
+        if (this.isPrimitive()) {
+            return that.isPrimitive() && IClass.PRIMITIVE_WIDENING_CONVERSIONS[
+                IClass.primitiveIndex(that.getDescriptor())
+            ][
+                IClass.primitiveIndex(this.getDescriptor())
+            ];
         }
 
         // Widening reference conversion, JLS7 5.1.5
@@ -659,37 +731,62 @@ class IClass {
         return false;
     }
 
-    private static final Set<String> PRIMITIVE_WIDENING_CONVERSIONS = new HashSet<String>();
+    /**
+     * Indexed by {@link #primitiveIndex(String)} of the source type and of the target type.
+     */
+    private static final boolean[][] PRIMITIVE_WIDENING_CONVERSIONS = new boolean[9][9];
     static {
-        String[] pwcs = {
-            Descriptor.BYTE  + Descriptor.SHORT,
+        String[][] pwcs = {
+            { Descriptor.BYTE,  Descriptor.SHORT },
 
-            Descriptor.BYTE  + Descriptor.INT,
-            Descriptor.SHORT + Descriptor.INT,
-            Descriptor.CHAR  + Descriptor.INT,
+            { Descriptor.BYTE,  Descriptor.INT },
+            { Descriptor.SHORT, Descriptor.INT },
+            { Descriptor.CHAR,  Descriptor.INT },
 
-            Descriptor.BYTE  + Descriptor.LONG,
-            Descriptor.SHORT + Descriptor.LONG,
-            Descriptor.CHAR  + Descriptor.LONG,
-            Descriptor.INT   + Descriptor.LONG,
+            { Descriptor.BYTE,  Descriptor.LONG },
+            { Descriptor.SHORT, Descriptor.LONG },
+            { Descriptor.CHAR,  Descriptor.LONG },
+            { Descriptor.INT,   Descriptor.LONG },
 
-            Descriptor.BYTE  + Descriptor.FLOAT,
-            Descriptor.SHORT + Descriptor.FLOAT,
-            Descriptor.CHAR  + Descriptor.FLOAT,
-            Descriptor.INT   + Descriptor.FLOAT,
+            { Descriptor.BYTE,  Descriptor.FLOAT },
+            { Descriptor.SHORT, Descriptor.FLOAT },
+            { Descriptor.CHAR,  Descriptor.FLOAT },
+            { Descriptor.INT,   Descriptor.FLOAT },
 
-            Descriptor.LONG  + Descriptor.FLOAT,
+            { Descriptor.LONG,  Descriptor.FLOAT },
 
-            Descriptor.BYTE  + Descriptor.DOUBLE,
-            Descriptor.SHORT + Descriptor.DOUBLE,
-            Descriptor.CHAR  + Descriptor.DOUBLE,
-            Descriptor.INT   + Descriptor.DOUBLE,
+            { Descriptor.BYTE,  Descriptor.DOUBLE },
+            { Descriptor.SHORT, Descriptor.DOUBLE },
+            { Descriptor.CHAR,  Descriptor.DOUBLE },
+            { Descriptor.INT,   Descriptor.DOUBLE },
 
-            Descriptor.LONG  + Descriptor.DOUBLE,
+            { Descriptor.LONG,  Descriptor.DOUBLE },
 
-            Descriptor.FLOAT + Descriptor.DOUBLE,
+            { Descriptor.FLOAT, Descriptor.DOUBLE },
         };
-        for (String pwc : pwcs) IClass.PRIMITIVE_WIDENING_CONVERSIONS.add(pwc);
+        for (String[] pwc : pwcs) {
+            IClass.PRIMITIVE_WIDENING_CONVERSIONS[IClass.primitiveIndex(pwc[0])][IClass.primitiveIndex(pwc[1])] = true;
+        }
+    }
+
+    /**
+     * @param primitiveDescriptor The descriptor of a primitive type or {@code void}
+     * @return                    A number between 0 and 8 that identifies the primitive type
+     */
+    private static int
+    primitiveIndex(String primitiveDescriptor) {
+        switch (primitiveDescriptor.charAt(0)) {
+        case 'B': return 0;
+        case 'S': return 1;
+        case 'C': return 2;
+        case 'I': return 3;
+        case 'J': return 4;
+        case 'F': return 5;
+        case 'D': return 6;
+        case 'Z': return 7;
+        case 'V': return 8;
+        default:  throw new InternalCompilerException("\"" + primitiveDescriptor + "\" is not a primitive type");
+        }
     }
 
     /**
@@ -697,10 +794,7 @@ class IClass {
      */
     public boolean
     isSubclassOf(IClass that) throws CompileException {
-        for (IClass sc = this.getSuperclass(); sc != null; sc = sc.getSuperclass()) {
-            if (sc == that) return true;
-        }
-        return false;
+        return Arrays.binarySearch(this.getSuperclassIds(), that.id) >= 0;
     }
 
     /**
@@ -713,14 +807,68 @@ class IClass {
      */
     public boolean
     implementsInterface(IClass that) throws CompileException {
-        for (IClass c = this; c != null; c = c.getSuperclass()) {
-            IClass[] tis = c.getInterfaces();
-            for (IClass ti : tis) {
-                if (ti == that || ti.implementsInterface(that)) return true;
-            }
+        return Arrays.binarySearch(this.getInterfaceIds(), that.id) >= 0;
+    }
+
+    /**
+     * @return The (sorted) {@link #id}s of all direct and indirect superclasses of this type
+     */
+    private int[]
+    getSuperclassIds() throws CompileException {
+        int[] result = this.superclassIdsCache;
+        if (result != null) return result;
+
+        IClass sc = this.getSuperclass();
+        if (sc == null) {
+            result = new int[0];
+        } else {
+            int[] scIds = sc.getSuperclassIds();
+            result = Arrays.copyOf(scIds, scIds.length + 1);
+            result[scIds.length] = sc.id;
+            Arrays.sort(result);
         }
-        return false;
+
+        return (this.superclassIdsCache = result);
     }
+    @Nullable private volatile int[] superclassIdsCache;
+
+    /**
+     * @return The (sorted) {@link #id}s of all interfaces that this class implements, or that this interface extends,
+     *         directly or indirectly
+     */
+    private int[]
+    getInterfaceIds() throws CompileException {
+        int[] result = this.interfaceIdsCache;
+        if (result != null) return result;
+
+        IClass   sc = this.getSuperclass();
+        IClass[] is = this.getInterfaces();
+
+        // Collect the IDs of the superclass's interfaces, the direct interfaces, and their superinterfaces.
+        int[] scIds = sc == null ? new int[0] : sc.getInterfaceIds();
+        int   n     = scIds.length + is.length;
+        for (IClass i : is) n += i.getInterfaceIds().length;
+
+        int[] ids = Arrays.copyOf(scIds, n);
+        int   k   = scIds.length;
+        for (IClass i : is) {
+            ids[k++] = i.id;
+
+            int[] iIds = i.getInterfaceIds();
+            System.arraycopy(iIds, 0, ids, k, iIds.length);
+            k += iIds.length;
+        }
+
+        // Sort and eliminate duplicates.
+        Arrays.sort(ids);
+        k = 0;
+        for (int i = 0; i < ids.length; i++) {
+            if (k == 0 || ids[i] != ids[k - 1]) ids[k++] = ids[i];
+        }
+
+        return (this.interfaceIdsCache = (k == ids.length ? ids : Arrays.copyOf(ids, k)));
+    }
+    @Nullable private volatile int[] interfaceIdsCache;
 
     /**
      * Gets an {@link IClass} that represents an n-dimensional array of this type.
@@ -830,7 +978,9 @@ class IClass {
 
         return res;
     }
-    private final Map<String /*name*/, IClass[]> memberTypeCache = new HashMap<String, IClass[]>();
+    private final Map<String /*name*/, IClass[]> memberTypeCache = Collections.synchronizedMap(
+        new HashMap<String, IClass[]>()
+    );
     private static final IClass[]                ZERO_ICLASSES   = new IClass[0];
     private void
     findMemberType(@Nullable String optionalName, Collection<IClass> result) throws CompileException {
@@ -880,10 +1030,11 @@ class IClass {
      */
     public final IAnnotation[]
     getIAnnotations() throws CompileException {
-        if (this.iAnnotationsCache != null) return this.iAnnotationsCache;
+        IAnnotation[] result = this.iAnnotationsCache;
+        if (result != null) return result;
         return (this.iAnnotationsCache = this.getIAnnotations2());
     }
-    @Nullable private IAnnotation[] iAnnotationsCache;
+    @Nullable private volatile IAnnotation[] iAnnotationsCache;
 
     /**
      * @throws CompileException
@@ -956,10 +1107,11 @@ class IClass {
          */
         public final IClass[]
         getParameterTypes() throws CompileException {
-            if (this.parameterTypesCache != null) return this.parameterTypesCache;
+            IClass[] result = this.parameterTypesCache;
+            if (result != null) return result;
             return (this.parameterTypesCache = this.getParameterTypes2());
         }
-        @Nullable private IClass[] parameterTypesCache;
+        @Nullable private volatile IClass[] parameterTypesCache;
 
         /**
          * Opposed to the {@link Constructor}, there is no magic "{@code this$0}" parameter.
@@ -995,10 +1147,11 @@ class IClass {
          */
         public final IClass[]
         getThrownExceptions() throws CompileException {
-            if (this.thrownExceptionsCache != null) return this.thrownExceptionsCache;
+            IClass[] result = this.thrownExceptionsCache;
+            if (result != null) return result;
             return (this.thrownExceptionsCache = this.getThrownExceptions2());
         }
-        @Nullable private IClass[] thrownExceptionsCache;
+        @Nullable private volatile IClass[] thrownExceptionsCache;
 
         /**
          * @return The types thrown by this constructor or method
@@ -1363,9 +1516,10 @@ class IClass {
     /**
      * This class caches the declared methods in order to minimize the invocations of {@link #getDeclaredIMethods2()}.
      */
-    public void
+    public synchronized void
     invalidateMethodCaches() {
         this.declaredIMethodsCache = null;
         this.declaredIMethodCache  = null;
+        this.methodCachesGeneration++;
     }
 }
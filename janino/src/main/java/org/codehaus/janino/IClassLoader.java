@@ -27,10 +27,14 @@
 package org.codehaus.janino;
 
 import java.io.File;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -39,6 +43,7 @@ import org.codehaus.commons.nullanalysis.Nullable;
 import org.codehaus.janino.IClass.IConstructor;
 import org.codehaus.janino.IClass.IMethod;
 import org.codehaus.janino.util.resource.JarDirectoriesResourceFinder;
+import org.codehaus.janino.util.resource.JrtResourceFinder;
 import org.codehaus.janino.util.resource.PathResourceFinder;
 import org.codehaus.janino.util.resource.ResourceFinder;
 
@@ -119,6 +124,19 @@ class IClassLoader {
         this.parentIClassLoader = parentIClassLoader;
     }
 
+    /**
+     * @return {@code null} iff this {@link IClassLoader} has no parent
+     */
+    @Nullable public final IClassLoader
+    getParentIClassLoader() { return this.parentIClassLoader; }
+
+    /**
+     * @return A snapshot of the types that were loaded through this {@link IClassLoader} (and not through its parent)
+     *         so far, including array types
+     */
+    public final Collection<IClass>
+    getLoadedIClasses() { return new ArrayList<IClass>(this.loadedIClasses.values()); }
+
     /**
      * This method must be called by the constructor of the <em>derived</em> class. (The reason being is that this
      * method invokes abstract {@link #loadIClass(String)} which will not work until the derived class is constructed.)
@@ -278,56 +296,126 @@ class IClassLoader {
             if (res != null) return res;
         }
 
-        // We need to synchronize here because "unloadableIClasses" and "loadedIClasses" are unsynchronized
-        // containers. Also, "findIClass()" is not thread safe.
-        IClass result;
+        // Fast path: No locking for types that were loaded (or found unloadable) before.
+        IClass result = (IClass) this.loadedIClasses.get(fieldDescriptor);
+        if (result != null) return result;
+        if (this.unloadableIClasses.contains(fieldDescriptor)) return null;
 
-        synchronized (this) {
+        if (this.isConcurrent()) {
+            result = this.loadIClassConcurrently(fieldDescriptor);
+        } else {
 
-            // Class could not be loaded before?
-            if (this.unloadableIClasses.contains(fieldDescriptor)) return null;
+            // We need to synchronize here because "findIClass()" is not thread safe.
+            synchronized (this) {
+                result = this.loadIClass2(fieldDescriptor);
+            }
+        }
 
-            // Class already loaded?
-            result = (IClass) this.loadedIClasses.get(fieldDescriptor);
-            if (result != null) return result;
+        IClassLoader.LOGGER.exiting(null, "loadIClass", result);
+        return result;
+    }
 
-            // Special handling for array types.
-            if (Descriptor.isArrayReference(fieldDescriptor)) {
+    /**
+     * Only one thread at a time loads a particular type; other threads that request the <em>same</em> type wait
+     * until that thread has completed, while requests for other types proceed in parallel.
+     */
+    @Nullable private IClass
+    loadIClassConcurrently(String fieldDescriptor) throws ClassNotFoundException {
 
-                // Load the component type.
-                IClass componentIClass = this.loadIClass(
-                    Descriptor.getComponentDescriptor(fieldDescriptor)
-                );
-                if (componentIClass == null) return null;
+        boolean interrupted = false;
+        try {
+            for (;;) {
+
+                IClass result = (IClass) this.loadedIClasses.get(fieldDescriptor);
+                if (result != null) return result;
+                if (this.unloadableIClasses.contains(fieldDescriptor)) return null;
+
+                PendingLoad pl    = new PendingLoad();
+                PendingLoad other = (PendingLoad) this.pendingLoads.putIfAbsent(fieldDescriptor, pl);
+                if (other == null) {
+                    try {
+                        return this.loadIClass2(fieldDescriptor);
+                    } finally {
+                        this.pendingLoads.remove(fieldDescriptor);
+                        pl.done.countDown();
+                    }
+                }
 
-                // Now get and define the array type.
-                IClass arrayIClass = componentIClass.getArrayIClass(this.TYPE_java_lang_Object);
-                this.loadedIClasses.put(fieldDescriptor, arrayIClass);
-                return arrayIClass;
-            }
+                if (other.thread == Thread.currentThread()) {
+                    throw new InternalCompilerException("Circular loading of type \"" + fieldDescriptor + "\"");
+                }
 
-            // Load the class through the {@link #findIClass(String)} method implemented by the derived class.
-            // By contract, {@link findIClass(String)} <em>must</em> invoke {@link #defineIClass(IClass)}!
-            IClassLoader.LOGGER.log(Level.FINE, "About to call \"findIClass({0})\"", fieldDescriptor);
-            result = this.findIClass(fieldDescriptor);
-            if (result == null) {
-                if (this.loadedIClasses.containsKey(fieldDescriptor)) {
-                    throw new InternalCompilerException((
-                        "\"findIClass(\""
-                        + fieldDescriptor
-                        + "\")\" called \"defineIClass()\", but returned null!?"
-                    ));
+                // Wait until the other thread has completed loading, then re-examine the caches. (If the other
+                // thread failed, then this thread will retry loading the type.)
+                try {
+                    other.done.await();
+                } catch (InterruptedException ie) {
+                    interrupted = true;
                 }
-                this.unloadableIClasses.add(fieldDescriptor);
-                return null;
             }
-            if (!this.loadedIClasses.containsKey(fieldDescriptor)) {
+        } finally {
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Represents the loading of a type that is currently in progress.
+     */
+    private static
+    class PendingLoad {
+        final Thread         thread = Thread.currentThread();
+        final CountDownLatch done   = new CountDownLatch(1);
+    }
+
+    /**
+     * Loads a type that is not yet in the caches. Must not be invoked concurrently for the same descriptor.
+     */
+    @Nullable private IClass
+    loadIClass2(String fieldDescriptor) throws ClassNotFoundException {
+
+        // Class could not be loaded before?
+        if (this.unloadableIClasses.contains(fieldDescriptor)) return null;
+
+        // Class already loaded?
+        IClass result = (IClass) this.loadedIClasses.get(fieldDescriptor);
+        if (result != null) return result;
+
+        // Special handling for array types.
+        if (Descriptor.isArrayReference(fieldDescriptor)) {
+
+            // Load the component type.
+            IClass componentIClass = this.loadIClass(
+                Descriptor.getComponentDescriptor(fieldDescriptor)
+            );
+            if (componentIClass == null) return null;
+
+            // Now get and define the array type.
+            IClass arrayIClass = componentIClass.getArrayIClass(this.TYPE_java_lang_Object);
+            this.loadedIClasses.put(fieldDescriptor, arrayIClass);
+            return arrayIClass;
+        }
+
+        // Load the class through the {@link #findIClass(String)} method implemented by the derived class.
+        // By contract, {@link findIClass(String)} <em>must</em> invoke {@link #defineIClass(IClass)}!
+        IClassLoader.LOGGER.log(Level.FINE, "About to call \"findIClass({0})\"", fieldDescriptor);
+        result = this.findIClass(fieldDescriptor);
+        if (result == null) {
+            if (this.loadedIClasses.containsKey(fieldDescriptor)) {
                 throw new InternalCompilerException((
                     "\"findIClass(\""
                     + fieldDescriptor
-                    + "\")\" did not call \"defineIClass()\"!?"
+                    + "\")\" called \"defineIClass()\", but returned null!?"
                 ));
             }
+            this.unloadableIClasses.add(fieldDescriptor);
+            return null;
+        }
+        if (!this.loadedIClasses.containsKey(fieldDescriptor)) {
+            throw new InternalCompilerException((
+                "\"findIClass(\""
+                + fieldDescriptor
+                + "\")\" did not call \"defineIClass()\"!?"
+            ));
         }
 
         if (!result.getDescriptor().equalsIgnoreCase(fieldDescriptor)) {
@@ -340,10 +428,20 @@ class IClassLoader {
             );
         }
 
-        IClassLoader.LOGGER.exiting(null, "loadIClass", result);
         return result;
     }
 
+    /**
+     * Whether {@link #findIClass(String)} may be invoked by multiple threads concurrently (for different
+     * descriptors). If so, then {@link #loadIClass(String)} does not serialize the loading of types, but only
+     * concurrent requests for the <em>same</em> type.
+     * <p>
+     *   The default implementation returns {@code false}.
+     * </p>
+     */
+    protected boolean
+    isConcurrent() { return false; }
+
     /**
      * Finds a new {@link IClass} by descriptor and calls {@link #defineIClass(IClass)}.
      * <p>
@@ -366,8 +464,9 @@ class IClassLoader {
      *   Notice that this method is never called for array types.
      * </p>
      * <p>
-     *   Notice that this method is never called from more than one thread at a time. In other words, implementations
-     *   of this method need not be thread-safe.
+     *   Notice that this method is never called from more than one thread at a time, unless {@link #isConcurrent()}
+     *   is overridden to return {@code true}. In other words, implementations of this method need not be
+     *   thread-safe.
      * </p>
      *
      * @return                        {@code null} if a class with that descriptor could not be found
@@ -406,6 +505,10 @@ class IClassLoader {
      *   "sun.boot.class.path", and the default for the {@code optionalExtensionDirs} is the path defined in the
      *   "java.ext.dirs" system property.
      * </p>
+     * <p>
+     *   Java 9+ has neither of these properties; there the default boot classes are read from the "{@code jrt:/}" file
+     *   system (see {@link JrtResourceFinder}), and there are no extension directories.
+     * </p>
      */
     public static IClassLoader
     createJavacLikePathIClassLoader(
@@ -413,16 +516,28 @@ class IClassLoader {
         @Nullable final File[] optionalExtDirs,
         final File[]           classPath
     ) {
-        ResourceFinder bootClassPathResourceFinder = new PathResourceFinder(
-            optionalBootClassPath == null
-            ? PathResourceFinder.parsePath(System.getProperty("sun.boot.class.path"))
-            : optionalBootClassPath
-        );
-        ResourceFinder extensionDirectoriesResourceFinder = new JarDirectoriesResourceFinder(
-            optionalExtDirs == null
-            ? PathResourceFinder.parsePath(System.getProperty("java.ext.dirs"))
-            : optionalExtDirs
-        );
+        ResourceFinder bootClassPathResourceFinder;
+        if (optionalBootClassPath != null) {
+            bootClassPathResourceFinder = new PathResourceFinder(optionalBootClassPath);
+        } else {
+            String sbcp = System.getProperty("sun.boot.class.path");
+            if (sbcp != null) {
+                bootClassPathResourceFinder = new PathResourceFinder(PathResourceFinder.parsePath(sbcp));
+            } else
+            if (JrtResourceFinder.isAvailable()) {
+                bootClassPathResourceFinder = new JrtResourceFinder();
+            } else
+            {
+                bootClassPathResourceFinder = ResourceFinder.EMPTY_RESOURCE_FINDER;
+            }
+        }
+
+        File[] extDirs = optionalExtDirs;
+        if (extDirs == null) {
+            String jed = System.getProperty("java.ext.dirs");
+            extDirs = jed == null ? new File[0] : PathResourceFinder.parsePath(jed);
+        }
+        ResourceFinder extensionDirectoriesResourceFinder = new JarDirectoriesResourceFinder(extDirs);
         final ResourceFinder classPathResourceFinder = new PathResourceFinder(classPath);
 
         // We can load classes through "ResourceFinderIClassLoader"s, which means
@@ -447,6 +562,11 @@ class IClassLoader {
     }
 
     @Nullable private final IClassLoader             parentIClassLoader;
-    private final Map<String /*descriptor*/, IClass> loadedIClasses     = new HashMap<String, IClass>();
-    private final Set<String /*descriptor*/>         unloadableIClasses = new HashSet<String>();
+    private final Map<String /*descriptor*/, IClass> loadedIClasses     = new ConcurrentHashMap<String, IClass>();
+    private final Set<String /*descriptor*/>         unloadableIClasses = Collections.newSetFromMap(
+        new ConcurrentHashMap<String, Boolean>()
+    );
+
+    private final ConcurrentMap<String /*descriptor*/, PendingLoad>
+    pendingLoads = new ConcurrentHashMap<String, PendingLoad>();
 }
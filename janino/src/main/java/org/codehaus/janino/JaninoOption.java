@@ -47,4 +47,12 @@ enum JaninoOption {
      * Contrary to the JLS, allow <em>any</em> expression as a resource in a TRY-with-resources statement.
      */
     EXPRESSIONS_IN_TRY_WITH_RESOURCES_ALLOWED,
+
+    /**
+     * Keep the compile-time state (resolved types, methods and local variables, constant values, synthetic members,
+     * ...) in side tables of the {@link UnitCompiler} rather than in the nodes of the {@link Java.CompilationUnit}.
+     * Thus, one parsed compilation unit can be compiled many times, even concurrently and against different {@link
+     * IClassLoader}s, without copying it first.
+     */
+    RESOLUTIONS_IN_SIDE_TABLES,
 }
@@ -862,7 +862,7 @@ class Java {
         /**
          * Holds the resolved type during compilation.
          */
-        @Nullable IClass resolvedType;
+        @Nullable volatile IClass resolvedType;
 
         public
         AbstractTypeDeclaration(
@@ -936,7 +936,7 @@ class Java {
         /**
          * Adds one {@link MethodDeclarator} to this type.
          */
-        public void
+        public synchronized void
         addDeclaredMethod(MethodDeclarator method) {
             this.declaredMethods.add(method);
             method.setDeclaringType(this);
@@ -966,7 +966,7 @@ class Java {
         @Override public List<MethodDeclarator>
         getMethodDeclarations() { return this.declaredMethods; }
 
-        @Override public String
+        @Override public synchronized String
         createLocalTypeName(String localTypeName) {
             return (
                 this.getClassName()
@@ -977,7 +977,7 @@ class Java {
             );
         }
 
-        @Override public String
+        @Override public synchronized String
         createAnonymousClassName() {
             return (
                 this.getClassName()
@@ -1048,7 +1048,7 @@ class Java {
         /**
          * Adds one field declaration to this class.
          */
-        public void
+        public synchronized void
         addFieldDeclaration(FieldDeclaration fd) {
             this.variableDeclaratorsAndInitializers.add(fd);
             fd.setDeclaringType(this);
@@ -1060,7 +1060,7 @@ class Java {
         /**
          * Adds one initializer to this class.
          */
-        public void
+        public synchronized void
         addInitializer(Initializer i) {
             this.variableDeclaratorsAndInitializers.add(i);
             i.setDeclaringType(this);
@@ -1154,7 +1154,7 @@ class Java {
 
         // Implement TypeDeclaration.
 
-        @Override public String
+        @Override public synchronized String
         getClassName() {
             if (this.myName != null) return this.myName;
 
@@ -1653,7 +1653,7 @@ class Java {
         /**
          * Adds one constant declaration to this interface declaration.
          */
-        public void
+        public synchronized void
         addConstantDeclaration(FieldDeclaration fd) {
             this.constantDeclarations.add(fd);
             fd.setDeclaringType(this);
@@ -2331,7 +2331,7 @@ class Java {
         /**
          * The resolved {@link IClass.IConstructor}.
          */
-        @Nullable IClass.IConstructor iConstructor;
+        @Nullable volatile IClass.IConstructor iConstructor;
 
         /**
          * The {@link AlternateConstructorInvocation} or {@link SuperConstructorInvocation}, if any.
@@ -2510,7 +2510,7 @@ class Java {
         /**
          * The resolved {@link IMethod}.
          */
-        @Nullable IClass.IMethod iMethod;
+        @Nullable volatile IClass.IMethod iMethod;
     }
 
     /**
@@ -3448,16 +3448,26 @@ class Java {
     static
     class Padder extends CodeContext.Inserter implements CodeContext.FixUp {
 
+        /**
+         * The number of padding bytes that were inserted so far.
+         */
+        private int padding;
+
         Padder(CodeContext codeContext) { codeContext.super(); }
 
         @Override public void
         fixUp() {
-            int x = this.offset % 4;
-            if (x != 0) {
+
+            // There must be zero to three padding bytes; thus, when the instruction was shifted since the last
+            // fix-up, then padding bytes may have to be removed.
+            int x          = (this.offset - this.padding) % 4;
+            int newPadding = x == 0 ? 0 : 4 - x;
+            if (newPadding != this.padding) {
                 CodeContext ca = this.getCodeContext();
                 ca.pushInserter(this);
-                ca.makeSpace(-1, 4 - x);
+                ca.makeSpace(-1, newPadding - this.padding);
                 ca.popInserter();
+                this.padding = newPadding;
             }
         }
     }
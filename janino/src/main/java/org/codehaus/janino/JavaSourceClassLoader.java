@@ -163,6 +163,22 @@ class JavaSourceClassLoader extends AbstractJavaSourceClassLoader {
         this.iClassLoader.setWarningHandler(optionalWarningHandler);
     }
 
+    /**
+     * @see UnitCompiler#setTargetVersion(int)
+     */
+    public void
+    setTargetVersion(int targetVersion) {
+        this.iClassLoader.setTargetVersion(targetVersion);
+    }
+
+    /**
+     * @see JavaSourceIClassLoader#setParseCache(ParseCache)
+     */
+    public void
+    setParseCache(@Nullable ParseCache optionalParseCache) {
+        this.iClassLoader.setParseCache(optionalParseCache);
+    }
+
     /**
      * Implementation of {@link ClassLoader#findClass(String)}.
      *
@@ -229,6 +245,7 @@ class JavaSourceClassLoader extends AbstractJavaSourceClassLoader {
                     }
                     for (ClassFile cf : cfs) bytecodes.put(cf.getThisClassName(), cf.toByteArray());
                     compiledUnitCompilers.add(uc);
+                    this.unitCompiled(uc);
                     continue COMPILE_UNITS;
                 }
             }
@@ -236,6 +253,14 @@ class JavaSourceClassLoader extends AbstractJavaSourceClassLoader {
         }
     }
 
+    /**
+     * Is invoked by {@link #generateBytecodes(String)} after a compilation unit was compiled, e.g. in order to record
+     * the {@link UnitCompiler#getReferencedTypeDescriptors() types it depends on}. The default implementation does
+     * nothing.
+     */
+    protected void
+    unitCompiled(UnitCompiler unitCompiler) {}
+
     /**
      * @throws ClassFormatError
      * @see #setProtectionDomainFactory
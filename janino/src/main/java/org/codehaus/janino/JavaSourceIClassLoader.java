@@ -59,6 +59,8 @@ class JavaSourceIClassLoader extends IClassLoader {
     private ResourceFinder        sourceFinder;
     @Nullable private String      optionalCharacterEncoding;
     private EnumSet<JaninoOption> options = EnumSet.noneOf(JaninoOption.class);
+    private int                   targetVersion = 6;
+    @Nullable private ParseCache  optionalParseCache;
 
     /**
      * Collection of parsed compilation units.
@@ -122,6 +124,26 @@ class JavaSourceIClassLoader extends IClassLoader {
         this.optionalWarningHandler = optionalWarningHandler;
     }
 
+    /**
+     * @see UnitCompiler#setTargetVersion(int)
+     */
+    public void
+    setTargetVersion(int targetVersion) {
+        this.targetVersion = targetVersion;
+    }
+
+    /**
+     * Configures a cache for the parsed compilation units, so that unchanged source files are not scanned and parsed
+     * again. Iff a parse cache is configured, then the compilation units are compiled with the {@link
+     * JaninoOption#RESOLUTIONS_IN_SIDE_TABLES} option, because they are potentially shared with other class loaders.
+     *
+     * @param optionalParseCache {@code null} to disable parse caching (the default)
+     */
+    public void
+    setParseCache(@Nullable ParseCache optionalParseCache) {
+        this.optionalParseCache = optionalParseCache;
+    }
+
     /**
      * @return A reference to the currently effective compilation options; changes to it take
      *         effect immediately
@@ -177,9 +199,16 @@ class JavaSourceIClassLoader extends IClassLoader {
             Java.CompilationUnit cu = this.findCompilationUnit(className);
             if (cu == null) return null;
 
-            UnitCompiler uc = new UnitCompiler(cu, this).options(this.options);
+            EnumSet<JaninoOption> options = this.options;
+            if (this.optionalParseCache != null) {
+                options = EnumSet.copyOf(options);
+                options.add(JaninoOption.RESOLUTIONS_IN_SIDE_TABLES);
+            }
+
+            UnitCompiler uc = new UnitCompiler(cu, this).options(options);
             uc.setCompileErrorHandler(this.optionalCompileErrorHandler);
             uc.setWarningHandler(this.optionalWarningHandler);
+            uc.setTargetVersion(this.targetVersion);
 
             // Remember compilation unit for later compilation.
             this.unitCompilers.add(uc);
@@ -205,7 +234,8 @@ class JavaSourceIClassLoader extends IClassLoader {
     }
 
     /**
-     * Finds the Java source file for the named class through the configured 'source resource finder' and parses it.
+     * Finds the Java source file for the named class through the configured 'source resource finder' and parses it,
+     * unless the configured {@link ParseCache} holds a compilation unit for the same version of that source file.
      *
      * @return {@code null} iff the source file could not be found
      */
@@ -217,6 +247,12 @@ class JavaSourceIClassLoader extends IClassLoader {
         JavaSourceIClassLoader.LOGGER.log(Level.FINE, "sourceResource={0}", sourceResource);
         if (sourceResource == null) return null;
 
+        ParseCache pc = this.optionalParseCache;
+        if (pc != null) {
+            CompilationUnit cu = pc.get(sourceResource, this.optionalCharacterEncoding);
+            if (cu != null) return cu;
+        }
+
         // Scan and parse the source file.
         InputStream inputStream = sourceResource.open();
         try {
@@ -230,7 +266,9 @@ class JavaSourceIClassLoader extends IClassLoader {
             Parser parser = new Parser(scanner);
             parser.setWarningHandler(this.optionalWarningHandler);
 
-            return parser.parseCompilationUnit();
+            CompilationUnit cu = parser.parseCompilationUnit();
+            if (pc != null) pc.put(sourceResource, this.optionalCharacterEncoding, cu);
+            return cu;
         } finally {
             try { inputStream.close(); } catch (IOException ex) {}
         }
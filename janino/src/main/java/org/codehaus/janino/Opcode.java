@@ -169,6 +169,7 @@ class Opcode {
     public static final byte IMUL            = 104;
     public static final byte INEG            = 116;
     public static final byte INSTANCEOF      = (byte) 193;
+    public static final byte INVOKEDYNAMIC   = (byte) 186;
     public static final byte INVOKEINTERFACE = (byte) 185;
     public static final byte INVOKESPECIAL   = (byte) 183;
     public static final byte INVOKESTATIC    = (byte) 184;
@@ -341,6 +342,11 @@ class Opcode {
      */
     public static final short SD_INVOKEINTERFACE = 16;
 
+    /**
+     * This element of {@link #OPCODE_PROPERTIES} represents the INVOKEDYNAMIC opcode.
+     */
+    public static final short SD_INVOKEDYNAMIC = 17;
+
     /**
      * This element of {@link #OPCODE_PROPERTIES} represents the MULTIANEWARRAY opcode.
      */
@@ -665,7 +671,7 @@ class Opcode {
         /*INVOKESPECIAL*/   Opcode.SD_INVOKESPECIAL | Opcode.OP1_CP2,
         /*INVOKESTATIC*/    Opcode.SD_INVOKESTATIC | Opcode.OP1_CP2,
         /*INVOKEINTERFACE*/ Opcode.SD_INVOKEINTERFACE | Opcode.OP1_CP2 | Opcode.OP2_SB | Opcode.OP3_SB,
-        /*UNUSED*/          Opcode.INVALID_OPCODE,
+        /*INVOKEDYNAMIC*/   Opcode.SD_INVOKEDYNAMIC | Opcode.OP1_CP2 | Opcode.OP2_SS,
         /*NEW*/             Opcode.SD_P1 | Opcode.OP1_CP2,
         /*NEWARRAY*/        Opcode.SD_P0 | Opcode.OP1_UB,
         /*ANEWARRAY*/       Opcode.SD_P0 | Opcode.OP1_CP2,
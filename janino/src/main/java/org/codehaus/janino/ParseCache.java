@@ -0,0 +1,149 @@
+
+/*
+ * Janino - An embedded Java[TM] compiler
+ *
+ * Copyright (c) 2001-2010 Arno Unkrig. All rights reserved.
+ * Copyright (c) 2015-2016 TIBCO Software Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.codehaus.janino;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.codehaus.commons.nullanalysis.Nullable;
+import org.codehaus.janino.Java.CompilationUnit;
+import org.codehaus.janino.util.resource.Resource;
+
+/**
+ * A cache of the {@link CompilationUnit}s that a {@link JavaSourceIClassLoader} parses from source {@link Resource}s.
+ * When a parse cache is configured (see {@link JavaSourceIClassLoader#setParseCache(ParseCache)} and {@link
+ * JavaSourceClassLoader#setParseCache(ParseCache)}), then a source file that has not changed since it was last parsed
+ * is not scanned and parsed again, which is typically the case for most of the source files when a set of scripts is
+ * re-deployed.
+ * <p>
+ *   Entries are keyed by the {@link Resource#getFileName() file name} of the source resource, and are valid as long as
+ *   the {@link Resource#lastModified() modification time} (and the character encoding) is the same. Resources that
+ *   have no modification time (i.e. {@link Resource#lastModified()} returns {@code 0L}) are never cached.
+ * </p>
+ * <p>
+ *   Because the cached compilation units are shared, {@link JavaSourceIClassLoader}s compile them with the {@link
+ *   JaninoOption#RESOLUTIONS_IN_SIDE_TABLES} option, so they remain unmodified.
+ * </p>
+ * <p>
+ *   Notice that the parser's warnings are only reported when the source file is actually parsed, i.e. not for cache
+ *   hits.
+ * </p>
+ * <p>
+ *   This class is thread-safe; one cache may be shared by many class loaders. To plug in a different caching
+ *   strategy, override {@link #get(Resource, String)} and {@link #put(Resource, String, CompilationUnit)}.
+ * </p>
+ */
+public
+class ParseCache {
+
+    private final Map<String /*fileName*/, Entry> entries = new HashMap<String, Entry>();
+
+    private long hitCount, missCount;
+
+    private static
+    class Entry {
+
+        final long             lastModified;
+        @Nullable final String optionalCharacterEncoding;
+        final CompilationUnit  compilationUnit;
+
+        Entry(long lastModified, @Nullable String optionalCharacterEncoding, CompilationUnit compilationUnit) {
+            this.lastModified              = lastModified;
+            this.optionalCharacterEncoding = optionalCharacterEncoding;
+            this.compilationUnit           = compilationUnit;
+        }
+    }
+
+    /**
+     * @return The compilation unit that was previously {@link #put(Resource, String, CompilationUnit) put} for a
+     *         resource with the same file name, modification time and character encoding, or {@code null}
+     */
+    @Nullable public synchronized CompilationUnit
+    get(Resource sourceResource, @Nullable String optionalCharacterEncoding) {
+
+        long  lastModified = sourceResource.lastModified();
+        Entry entry        = (Entry) this.entries.get(sourceResource.getFileName());
+        if (
+            lastModified == 0L
+            || entry == null
+            || entry.lastModified != lastModified
+            || !ParseCache.equals(entry.optionalCharacterEncoding, optionalCharacterEncoding)
+        ) {
+            this.missCount++;
+            return null;
+        }
+
+        this.hitCount++;
+        return entry.compilationUnit;
+    }
+
+    /**
+     * Stores the given <var>compilationUnit</var>, which was parsed from the given <var>sourceResource</var>,
+     * replacing any entry for a previous version of the same resource.
+     */
+    public synchronized void
+    put(Resource sourceResource, @Nullable String optionalCharacterEncoding, CompilationUnit compilationUnit) {
+
+        long lastModified = sourceResource.lastModified();
+        if (lastModified == 0L) return;
+
+        this.entries.put(
+            sourceResource.getFileName(),
+            new Entry(lastModified, optionalCharacterEncoding, compilationUnit)
+        );
+    }
+
+    /**
+     * Removes all entries from this cache. (The statistics counters are not reset.)
+     */
+    public synchronized void
+    clear() { this.entries.clear(); }
+
+    /**
+     * @return The current number of entries
+     */
+    public synchronized int
+    size() { return this.entries.size(); }
+
+    /**
+     * @return How often {@link #get(Resource, String)} returned a cached result
+     */
+    public synchronized long
+    getHitCount() { return this.hitCount; }
+
+    /**
+     * @return How often {@link #get(Resource, String)} returned {@code null}
+     */
+    public synchronized long
+    getMissCount() { return this.missCount; }
+
+    @Override public synchronized String
+    toString() { return "size=" + this.entries.size() + ", hits=" + this.hitCount + ", misses=" + this.missCount; }
+
+    private static boolean
+    equals(@Nullable String s1, @Nullable String s2) { return s1 == null ? s2 == null : s1.equals(s2); }
+}
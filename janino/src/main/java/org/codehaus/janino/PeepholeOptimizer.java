@@ -0,0 +1,189 @@
+
+/*
+ * Janino - An embedded Java[TM] compiler
+ *
+ * Copyright (c) 2001-2010 Arno Unkrig. All rights reserved.
+ * Copyright (c) 2015-2016 TIBCO Software Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package org.codehaus.janino;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Configures the optional peephole optimization of the generated bytecode, and counts the rewrites that it performs.
+ * When a peephole optimizer is configured (see {@link UnitCompiler#setPeepholeOptimizer(PeepholeOptimizer)} and
+ * {@link SimpleCompiler#setPeepholeOptimizer(PeepholeOptimizer)}), then the code of each method is rewritten after
+ * it was generated, and before its branch offsets are computed (see {@link CodeContext#optimize(PeepholeOptimizer)}).
+ * <p>
+ *   Smaller bytecode loads faster, and, more importantly, is more likely to be inlined by the JIT compiler, whose
+ *   inlining limits (e.g. HotSpot's "{@code MaxInlineSize}" and "{@code FreqInlineSize}") are measured in bytecode
+ *   bytes.
+ * </p>
+ * <p>
+ *   This class is thread-safe; one optimizer may be shared by many compilers, and then accumulates their counts.
+ * </p>
+ */
+public
+class PeepholeOptimizer {
+
+    /**
+     * The rewrites that the peephole optimizer performs.
+     */
+    public
+    enum Rewrite {
+
+        /**
+         * A branch to a {@code GOTO} is redirected to the destination of the {@code GOTO}.
+         */
+        JUMP_THREADING,
+
+        /**
+         * A {@code GOTO} to the immediately following instruction is removed.
+         */
+        GOTO_NEXT,
+
+        /**
+         * A {@code GOTO} to a {@code RETURN} instruction is replaced with a copy of the {@code RETURN} instruction.
+         */
+        GOTO_RETURN,
+
+        /**
+         * A conditional branch over a {@code GOTO} is inverted, and the {@code GOTO} is removed.
+         */
+        INVERTED_BRANCH,
+
+        /**
+         * A conditional branch on a constant ({@code ICONST_x} or {@code ACONST_NULL}) is replaced with a {@code
+         * GOTO}, or removed.
+         */
+        CONSTANT_BRANCH,
+
+        /**
+         * The conversion of an integer constant into a {@code long}, {@code float} or {@code double} constant, e.g.
+         * {@code ICONST_1 I2L}, is replaced with the converted constant, e.g. {@code LCONST_1}.
+         */
+        CONSTANT_CONVERSION,
+
+        /**
+         * Boxing that is immediately followed by unboxing, e.g. {@code Integer.valueOf(int)} and {@code
+         * Integer.intValue()}, is removed.
+         */
+        BOXING_ROUND_TRIP,
+
+        /**
+         * A {@code CHECKCAST} that follows a {@code CHECKCAST} to the same type, or an {@code ACONST_NULL}, is
+         * removed.
+         */
+        REDUNDANT_CHECKCAST,
+
+        /**
+         * A local variable store that is immediately followed by a load of the same variable is replaced with a
+         * {@code DUP} and the store, if that is shorter, i.e. for the variables 4 and up.
+         */
+        STORE_LOAD,
+
+        /**
+         * A local variable load that is immediately followed by a store into the same variable is removed.
+         */
+        LOAD_STORE,
+
+        /**
+         * The code that the other rewrites made unreachable is removed. This rewrite is always performed, because the
+         * JVM rejects unreachable code without stack map frames.
+         */
+        DEAD_CODE
+    }
+
+    private final Set<Rewrite> enabledRewrites;
+
+    private final long[] counts = new long[Rewrite.values().length];
+    private long         optimizedMethodCount, savedByteCount;
+
+    /**
+     * Enables all {@link Rewrite}s.
+     */
+    public
+    PeepholeOptimizer() { this(EnumSet.allOf(Rewrite.class)); }
+
+    /**
+     * @param enabledRewrites The {@link Rewrite}s to perform
+     */
+    public
+    PeepholeOptimizer(Set<Rewrite> enabledRewrites) {
+        this.enabledRewrites = EnumSet.noneOf(Rewrite.class);
+        this.enabledRewrites.addAll(enabledRewrites);
+        this.enabledRewrites.add(Rewrite.DEAD_CODE);
+    }
+
+    /**
+     * @return The {@link Rewrite}s that are performed
+     */
+    public Set<Rewrite>
+    getEnabledRewrites() { return EnumSet.copyOf(this.enabledRewrites); }
+
+    /**
+     * @return Whether the given <var>rewrite</var> is performed
+     */
+    public boolean
+    isEnabled(Rewrite rewrite) { return this.enabledRewrites.contains(rewrite); }
+
+    /**
+     * @return How often the given <var>rewrite</var> was performed
+     */
+    public synchronized long
+    getCount(Rewrite rewrite) { return this.counts[rewrite.ordinal()]; }
+
+    /**
+     * @return The number of methods that were optimized
+     */
+    public synchronized long
+    getOptimizedMethodCount() { return this.optimizedMethodCount; }
+
+    /**
+     * @return The total number of bytecode bytes that the rewrites saved
+     */
+    public synchronized long
+    getSavedByteCount() { return this.savedByteCount; }
+
+    /**
+     * Adds the counts of the optimization of one method.
+     *
+     * @param counts         The counts of the {@link Rewrite}s, indexed by their {@link Rewrite#ordinal() ordinal}
+     * @param savedByteCount The number of bytes by which the code of the method shrank
+     */
+    synchronized void
+    record(int[] counts, int savedByteCount) {
+        for (int i = 0; i < counts.length; i++) this.counts[i] += counts[i];
+        this.optimizedMethodCount++;
+        this.savedByteCount += savedByteCount;
+    }
+
+    @Override public synchronized String
+    toString() {
+        StringBuilder sb = new StringBuilder("methods=").append(this.optimizedMethodCount);
+        sb.append(", savedBytes=").append(this.savedByteCount);
+        for (Rewrite rewrite : Rewrite.values()) {
+            sb.append(", ").append(rewrite).append('=').append(this.counts[rewrite.ordinal()]);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,347 @@
+
+/*
+ * Janino - An embedded Java[TM] compiler
+ *
+ * Copyright (c) 2001-2010 Arno Unkrig. All rights reserved.
+ * Copyright (c) 2015-2016 TIBCO Software Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.codehaus.janino;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+import org.codehaus.commons.nullanalysis.Nullable;
+
+/**
+ * A persistent, content-addressed cache of the bytecode that cooking {@link SimpleCompiler}s, {@link
+ * ClassBodyEvaluator}s, {@link ScriptEvaluator}s and {@link ExpressionEvaluator}s generates. Unlike the {@link
+ * CookCache}, this cache survives JVM restarts, so a warm restart merely defines the previously generated classes.
+ * <p>
+ *   Each entry is stored in one file in the cache directory; its name is the SHA-256 hash of the source text, the
+ *   configuration of the compiler (parameters, return types, default imports, etc.), the JANINO version and the
+ *   cache file format version. (Notice that the parent class loader is <em>not</em> part of the key, because it
+ *   cannot be persisted; all users of a cache directory must use compatible parent class loaders.)
+ * </p>
+ * <p>
+ *   Entry files are written atomically (to a temporary file, which is then renamed), and carry a checksum. Entry
+ *   files that are found to be corrupt are deleted and treated as cache misses.
+ * </p>
+ * <p>
+ *   This class is thread-safe, and multiple JVMs may share one cache directory.
+ * </p>
+ *
+ * @see SimpleCompiler#setPersistentCookCache(PersistentCookCache)
+ */
+public
+class PersistentCookCache {
+
+    private static final Logger LOGGER = Logger.getLogger(PersistentCookCache.class.getName());
+
+    /**
+     * Identifies the format of the entry files; change it whenever the format changes.
+     */
+    private static final int MAGIC = 0x4a434301; // "JCC\01"
+
+    private static final String SUFFIX = ".jcc";
+
+    private final File directory;
+
+    private long hitCount, missCount, corruptionCount;
+
+    /**
+     * @param directory Where the cache entries are stored; is created if it does not exist
+     */
+    public
+    PersistentCookCache(File directory) { this.directory = directory; }
+
+    /**
+     * @return The bytecode that was previously {@link #put(Object, Map) put} with an equal <var>key</var>, or {@code
+     *         null}
+     */
+    @Nullable public Map<String /*className*/, byte[] /*bytecode*/>
+    get(Object key) {
+
+        String keyString = PersistentCookCache.keyToString(key);
+        File   file      = this.entryFile(keyString);
+
+        if (!file.exists()) {
+            this.countMiss();
+            return null;
+        }
+
+        try {
+            Map<String, byte[]> result = PersistentCookCache.read(file, keyString);
+            if (result != null) {
+                synchronized (this) { this.hitCount++; }
+                return result;
+            }
+        } catch (IOException ioe) {
+            PersistentCookCache.LOGGER.log(Level.FINE, "Reading \"" + file + "\"", ioe);
+        }
+
+        // The entry file is corrupt (or a hash collision occurred).
+        synchronized (this) { this.corruptionCount++; }
+        file.delete();
+        this.countMiss();
+        return null;
+    }
+
+    /**
+     * Stores the given <var>classes</var> under the given <var>key</var>. I/O errors are logged and otherwise
+     * ignored, because they only affect the performance of future cooks.
+     */
+    public void
+    put(Object key, Map<String /*className*/, byte[] /*bytecode*/> classes) {
+
+        String keyString = PersistentCookCache.keyToString(key);
+        File   file      = this.entryFile(keyString);
+
+        File tmpFile = null;
+        try {
+            if (!this.directory.isDirectory() && !this.directory.mkdirs() && !this.directory.isDirectory()) {
+                throw new IOException("Cannot create directory \"" + this.directory + "\"");
+            }
+
+            tmpFile = File.createTempFile(file.getName(), ".tmp", this.directory);
+
+            OutputStream os = new FileOutputStream(tmpFile);
+            try {
+                os.write(PersistentCookCache.toByteArray(keyString, classes));
+                os.close();
+                os = null;
+            } finally {
+                if (os != null) try { os.close(); } catch (IOException e) {}
+            }
+
+            // Replace any existing entry file atomically; on some platforms, "renameTo()" fails if the target
+            // exists.
+            if (!tmpFile.renameTo(file)) {
+                file.delete();
+                if (!tmpFile.renameTo(file) && !file.exists()) {
+                    throw new IOException("Cannot rename \"" + tmpFile + "\" to \"" + file + "\"");
+                }
+            }
+            tmpFile = null;
+        } catch (IOException ioe) {
+            PersistentCookCache.LOGGER.log(Level.WARNING, "Writing \"" + file + "\"", ioe);
+        } finally {
+            if (tmpFile != null) tmpFile.delete();
+        }
+    }
+
+    /**
+     * Deletes all entry files from the cache directory.
+     */
+    public void
+    clear() {
+        File[] files = this.directory.listFiles();
+        if (files == null) return;
+        for (File file : files) {
+            if (file.getName().endsWith(PersistentCookCache.SUFFIX)) file.delete();
+        }
+    }
+
+    /**
+     * @return The directory where the cache entries are stored
+     */
+    public File
+    getDirectory() { return this.directory; }
+
+    /**
+     * @return How often {@link #get(Object)} returned a cached result
+     */
+    public synchronized long
+    getHitCount() { return this.hitCount; }
+
+    /**
+     * @return How often {@link #get(Object)} returned {@code null}
+     */
+    public synchronized long
+    getMissCount() { return this.missCount; }
+
+    /**
+     * @return How many corrupt entry files {@link #get(Object)} encountered (and deleted)
+     */
+    public synchronized long
+    getCorruptionCount() { return this.corruptionCount; }
+
+    private synchronized void
+    countMiss() { this.missCount++; }
+
+    private File
+    entryFile(String keyString) {
+
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException nsae) {
+            throw new InternalCompilerException("SHA-256", nsae);
+        }
+
+        byte[]        hash = md.digest(PersistentCookCache.utf8(keyString));
+        StringBuilder sb   = new StringBuilder(2 * hash.length + PersistentCookCache.SUFFIX.length());
+        for (byte b : hash) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+
+        return new File(this.directory, sb.append(PersistentCookCache.SUFFIX).toString());
+    }
+
+    /**
+     * Converts the elements of a cook cache key into a string that is stable across JVM restarts. {@link Class}es are
+     * represented by their names; {@link ClassLoader}s are not represented at all.
+     */
+    private static String
+    keyToString(Object key) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(CompilerFactory.class.getPackage().getImplementationVersion()).append('\n');
+        PersistentCookCache.keyToString(key, sb);
+        return sb.toString();
+    }
+
+    private static void
+    keyToString(@Nullable Object key, StringBuilder sb) {
+        if (key instanceof Collection) {
+            sb.append('[');
+            for (Object element : (Collection<?>) key) {
+                PersistentCookCache.keyToString(element, sb);
+                sb.append(',');
+            }
+            sb.append(']');
+        } else
+        if (key instanceof Class) {
+            sb.append(((Class<?>) key).getName());
+        } else
+        if (key instanceof ClassLoader) {
+            sb.append('-');
+        } else
+        if (key instanceof String) {
+            String s = (String) key;
+            sb.append(s.length()).append(':').append(s);
+        } else
+        {
+            sb.append(key);
+        }
+    }
+
+    private static byte[]
+    toByteArray(String keyString, Map<String /*className*/, byte[] /*bytecode*/> classes) throws IOException {
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        DataOutputStream      dos  = new DataOutputStream(baos);
+
+        dos.writeInt(PersistentCookCache.MAGIC);
+        PersistentCookCache.writeBytes(dos, PersistentCookCache.utf8(keyString));
+        dos.writeInt(classes.size());
+        for (Map.Entry<String, byte[]> e : classes.entrySet()) {
+            PersistentCookCache.writeBytes(dos, PersistentCookCache.utf8((String) e.getKey()));
+            PersistentCookCache.writeBytes(dos, (byte[]) e.getValue());
+        }
+
+        CRC32 crc32 = new CRC32();
+        crc32.update(baos.toByteArray());
+        dos.writeLong(crc32.getValue());
+        dos.flush();
+
+        return baos.toByteArray();
+    }
+
+    /**
+     * @return {@code null} iff the file is corrupt, or belongs to a different key
+     */
+    @Nullable private static Map<String /*className*/, byte[] /*bytecode*/>
+    read(File file, String keyString) throws IOException {
+
+        byte[] data;
+        {
+            long length = file.length();
+            if (length < 16 || length > Integer.MAX_VALUE) return null;
+            data = new byte[(int) length];
+            InputStream is = new FileInputStream(file);
+            try {
+                new DataInputStream(is).readFully(data);
+            } finally {
+                try { is.close(); } catch (IOException e) {}
+            }
+        }
+
+        // Verify the checksum.
+        CRC32 crc32 = new CRC32();
+        crc32.update(data, 0, data.length - 8);
+        DataInputStream dis = new DataInputStream(new ByteArrayInputStream(data));
+        dis.skipBytes(data.length - 8);
+        if (dis.readLong() != crc32.getValue()) return null;
+
+        dis = new DataInputStream(new ByteArrayInputStream(data, 0, data.length - 8));
+        if (dis.readInt() != PersistentCookCache.MAGIC) return null;
+        if (!keyString.equals(new String(PersistentCookCache.readBytes(dis), "UTF-8"))) return null;
+
+        int                 count  = dis.readInt();
+        Map<String, byte[]> result = new HashMap<String, byte[]>();
+        for (int i = 0; i < count; i++) {
+            String className = new String(PersistentCookCache.readBytes(dis), "UTF-8");
+            result.put(className, PersistentCookCache.readBytes(dis));
+        }
+        return result;
+    }
+
+    private static void
+    writeBytes(DataOutputStream dos, byte[] ba) throws IOException {
+        dos.writeInt(ba.length);
+        dos.write(ba);
+    }
+
+    private static byte[]
+    readBytes(DataInputStream dis) throws IOException {
+        int length = dis.readInt();
+        if (length < 0 || length > dis.available()) throw new IOException("Invalid length " + length);
+        byte[] result = new byte[length];
+        dis.readFully(result);
+        return result;
+    }
+
+    private static byte[]
+    utf8(String s) {
+        try {
+            return s.getBytes("UTF-8");
+        } catch (UnsupportedEncodingException uee) {
+            throw new InternalCompilerException("UTF-8", uee);
+        }
+    }
+}
@@ -26,11 +26,14 @@
 
 package org.codehaus.janino;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 import org.codehaus.commons.nullanalysis.Nullable;
 import org.codehaus.janino.util.ClassFile;
+import org.codehaus.janino.util.resource.ByteBufferResource;
 import org.codehaus.janino.util.resource.Resource;
 import org.codehaus.janino.util.resource.ResourceFinder;
 
@@ -58,25 +61,53 @@ class ResourceFinderIClassLoader extends IClassLoader {
         Resource classFileResource = this.resourceFinder.findResource(ClassFile.getClassFileResourceName(className));
         if (classFileResource == null) return null;
 
-        // Open the class file resource.
-        InputStream is;
-        try {
-            is = classFileResource.open();
-        } catch (IOException ex) {
-            throw new ClassNotFoundException("Opening resource \"" + classFileResource.getFileName() + "\"", ex);
+        // Get the class file contents. Resources that are already in memory (e.g. memory-mapped) are used without any
+        // copying.
+        ByteBuffer contents;
+        if (classFileResource instanceof ByteBufferResource) {
+            try {
+                contents = ((ByteBufferResource) classFileResource).getByteBuffer();
+            } catch (IOException e) {
+                throw new ClassNotFoundException("Reading resource \"" + classFileResource.getFileName() + "\"", e);
+            }
+        } else {
+            InputStream is;
+            try {
+                is = classFileResource.open();
+            } catch (IOException ex) {
+                throw new ClassNotFoundException("Opening resource \"" + classFileResource.getFileName() + "\"", ex);
+            }
+            try {
+                contents = ResourceFinderIClassLoader.readAll(is);
+            } catch (IOException e) {
+                throw new ClassNotFoundException("Reading resource \"" + classFileResource.getFileName() + "\"", e);
+            } finally {
+                try { is.close(); } catch (IOException e) {}
+            }
         }
 
-        // Load the IClass from the class file.
+        // Load the IClass from the class file. Decode the attributes lazily, because the compiler needs only the
+        // signatures, and not e.g. the "Code" attributes of the methods.
         ClassFile cf;
         try {
-            cf = new ClassFile(is);
+            cf = new ClassFile(contents, true);
         } catch (IOException e) {
             throw new ClassNotFoundException("Reading resource \"" + classFileResource.getFileName() + "\"", e);
-        } finally {
-            try { is.close(); } catch (IOException e) {}
         }
         IClass iClass = new ClassFileIClass(cf, this);
         this.defineIClass(iClass);
         return iClass;
     }
+
+    private static ByteBuffer
+    readAll(InputStream is) throws IOException {
+        ByteArrayOutputStream baos   = new ByteArrayOutputStream();
+        byte[]                buffer = new byte[8192];
+        for (;;) {
+            int n = is.read(buffer);
+            if (n == -1) break;
+            baos.write(buffer, 0, n);
+        }
+        return ByteBuffer.wrap(baos.toByteArray());
+    }
 }
@@ -26,6 +26,7 @@
 
 package org.codehaus.janino;
 
+import java.io.CharArrayReader;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileWriter;
@@ -174,6 +175,68 @@ class Scanner {
         int              initialLineNumber,        // "1" is a good idea
         int              initialColumnNumber       // "0" is a good idea
     ) throws IOException {
+        this(optionalFileName, in, null, initialLineNumber, initialColumnNumber);
+    }
+
+    // Public Scanners that read from a character array.
+
+    /**
+     * Sets up a scanner that reads tokens from the given, in-memory <var>source</var>.
+     * <p>
+     *   This is much faster than reading through a {@link Reader}, because the characters are not copied one by one,
+     *   and the texts of identifiers, keywords and operators are created only once per scanner. The scanner does not
+     *   copy the <var>source</var>, so the array must not be modified while the scanner is in use.
+     * </p>
+     *
+     * @see #Scanner(String, Reader)
+     */
+    public
+    Scanner(@Nullable String optionalFileName, char[] source) throws IOException {
+        this(
+            optionalFileName, // optionalFileName
+            null,             // in
+            source,           // source
+            1,                // initialLineNumber
+            0                 // initialColumnNumber
+        );
+    }
+
+    /**
+     * Creates a {@link Scanner} that reads from an in-memory <var>source</var> and counts lines and columns from
+     * non-default initial values.
+     *
+     * @see #Scanner(String, char[])
+     */
+    public
+    Scanner(
+        @Nullable String optionalFileName,
+        char[]           source,
+        int              initialLineNumber,        // "1" is a good idea
+        int              initialColumnNumber       // "0" is a good idea
+    ) throws IOException {
+        this(optionalFileName, null, source, initialLineNumber, initialColumnNumber);
+    }
+
+    /**
+     * Exactly one of <var>in</var> and <var>source</var> must be non-{@code null}.
+     */
+    private
+    Scanner(
+        @Nullable String optionalFileName,
+        @Nullable Reader in,
+        @Nullable char[] source,
+        int              initialLineNumber,
+        int              initialColumnNumber
+    ) throws IOException {
+
+        // Unicode escapes and source code level debugging (see below) require the (slower) "Reader" path.
+        if (source != null && (
+            Scanner.containsUnicodeEscape(source)
+            || (optionalFileName == null && Boolean.getBoolean(ICookable.SYSTEM_PROPERTY_SOURCE_DEBUGGING_ENABLE))
+        )) {
+            in     = new CharArrayReader(source);
+            source = null;
+        }
 
         // Debugging on source code level is only possible if the code comes from a "real" Java source file which the
         // debugger can read. If this is not the case, and we absolutely want source code level debugging, then we
@@ -197,11 +260,20 @@ class Scanner {
         }
 
         this.optionalFileName     = optionalFileName;
-        this.in                   = new UnicodeUnescapeReader(in);
+        this.in                   = in == null ? null : new UnicodeUnescapeReader(in);
+        this.source               = source;
         this.nextCharLineNumber   = initialLineNumber;
         this.nextCharColumnNumber = initialColumnNumber;
     }
 
+    private static boolean
+    containsUnicodeEscape(char[] source) {
+        for (int i = source.length - 2; i >= 0; i--) {
+            if (source[i] == '\\' && source[i + 1] == 'u') return true;
+        }
+        return false;
+    }
+
     /**
      * If <var>value</var> is {@code true}, then white space in the input stream is <em>ignored</em>, rather than
      * scanned as a {@link TokenType#WHITE_SPACE} token. Since white space is typically quite numerous, this
@@ -224,7 +296,7 @@ class Scanner {
      *             close the underlying {@link InputStream} or {@link Reader} itself
      */
     @Deprecated public void
-    close() throws IOException { this.in.close(); }
+    close() throws IOException { if (this.in != null) this.in.close(); }
 
     /**
      * @return The {@link Location} of the next character
@@ -238,10 +310,16 @@ class Scanner {
     }
 
     /**
-     * Holds the characters of the currently scanned token.
+     * Holds the characters of the currently scanned token (only if the scanner reads from a {@link Reader}).
      */
     private final StringBuilder sb = new StringBuilder();
 
+    /**
+     * The offset of the currently scanned token in the {@link #source} (only if the scanner reads from a character
+     * array).
+     */
+    private int tokenStart;
+
     /**
      * Produces and returns the next token. Notice that end-of-input is <em>not</em> signalized with a {@code null}
      * product, but by an {@link TokenType#END_OF_INPUT}-type token.
@@ -263,9 +341,9 @@ class Scanner {
         this.tokenColumnNumber = this.nextCharColumnNumber;
 
         this.sb.setLength(0);
+        this.tokenStart = this.sourcePosition();
 
-        TokenType tokenType  = this.scan();
-        String    tokenValue = this.sb.toString();
+        TokenType tokenType = this.scan();
 
         // We want to be able to use REFERENCE EQUALITY for these...
         if (
@@ -273,9 +351,99 @@ class Scanner {
             || tokenType == TokenType.BOOLEAN_LITERAL
             || tokenType == TokenType.NULL_LITERAL
             || tokenType == TokenType.OPERATOR
-        ) tokenValue = tokenValue.intern();
+        ) return this.token(tokenType, this.source != null ? this.symbol() : this.sb.toString().intern());
 
-        return this.token(tokenType, tokenValue);
+        if (tokenType == TokenType.IDENTIFIER) {
+            return this.token(tokenType, this.source != null ? this.symbol() : this.sb.toString());
+        }
+
+        return this.token(tokenType, this.tokenText());
+    }
+
+    /**
+     * @return The text of the currently scanned token
+     */
+    private String
+    tokenText() {
+        char[] s = this.source;
+        if (s == null) return this.sb.toString();
+
+        int start = this.tokenStart;
+        return new String(s, start, this.sourcePosition() - start);
+    }
+
+    /**
+     * @return The offset in the {@link #source} of the first character that was not yet consumed (i.e. the
+     *         characters that were {@link #peek()}ed, but not yet {@link #read()}, are not counted)
+     */
+    private int
+    sourcePosition() {
+        return (
+            this.sourceOffset
+            - (this.nextChar == -1 ? 0 : 1)
+            - (this.nextButOneChar == -1 ? 0 : 1)
+        );
+    }
+
+    /**
+     * Returns the text of the currently scanned token from the {@link #symbols} table, so that recurring identifiers,
+     * keywords and operators are created only once per scanner. Keywords and operators are {@link String#intern()
+     * interned}.
+     */
+    private String
+    symbol() {
+
+        char[] s     = this.source;
+        int    start = this.tokenStart;
+        int    end   = this.sourcePosition();
+        assert s != null;
+
+        // Notice: This is the same hash function as "String.hashCode()".
+        int hash = 0;
+        for (int i = start; i < end; i++) hash = 31 * hash + s[i];
+
+        String[] symbols = this.symbols;
+        int      mask    = symbols.length - 1;
+        int      idx     = hash & mask;
+        for (String symbol; (symbol = symbols[idx]) != null; idx = (idx + 1) & mask) {
+            if (symbol.hashCode() == hash && Scanner.regionEquals(symbol, s, start, end)) return symbol;
+        }
+
+        String result = new String(s, start, end - start);
+        if (
+            Scanner.JAVA_KEYWORDS.contains(result)
+            || Scanner.JAVA_OPERATORS.contains(result)
+            || "true".equals(result)
+            || "false".equals(result)
+            || "null".equals(result)
+        ) result = result.intern();
+
+        symbols[idx] = result;
+        if (++this.symbolCount > symbols.length / 2) this.rehashSymbols();
+
+        return result;
+    }
+
+    private void
+    rehashSymbols() {
+        String[] newSymbols = new String[2 * this.symbols.length];
+        int      mask       = newSymbols.length - 1;
+        for (String symbol : this.symbols) {
+            if (symbol == null) continue;
+            int idx = symbol.hashCode() & mask;
+            while (newSymbols[idx] != null) idx = (idx + 1) & mask;
+            newSymbols[idx] = symbol;
+        }
+        this.symbols = newSymbols;
+    }
+
+    private static boolean
+    regionEquals(String s, char[] ca, int start, int end) {
+        if (s.length() != end - start) return false;
+        for (int i = start; i < end; i++) {
+            if (s.charAt(i - start) != ca[i]) return false;
+        }
+        return true;
     }
 
     private TokenType
@@ -324,7 +492,7 @@ class Scanner {
         if (Character.isJavaIdentifierStart((char) this.peek())) {
             this.read();
             while (Character.isJavaIdentifierPart((char) this.peek())) this.read();
-            String s = this.sb.toString();
+            String s = this.source != null ? this.symbol() : this.sb.toString();
             if ("true".equals(s))  return TokenType.BOOLEAN_LITERAL;
             if ("false".equals(s)) return TokenType.BOOLEAN_LITERAL;
             if ("null".equals(s))  return TokenType.NULL_LITERAL;
@@ -363,9 +531,10 @@ class Scanner {
 
         // Scan operator (including what Java calls "separators").
         if (Scanner.JAVA_OPERATORS.contains(String.valueOf((char) this.peek()))) {
+            String operator = "";
             do {
-                this.read();
-            } while (Scanner.JAVA_OPERATORS.contains(this.sb.toString() + (char) this.peek()));
+                operator += this.read();
+            } while (Scanner.JAVA_OPERATORS.contains(operator + (char) this.peek()));
             return TokenType.OPERATOR;
         }
 
@@ -690,7 +859,7 @@ class Scanner {
         if (this.nextChar == -1) throw new CompileException("Unexpected end-of-input", this.location());
 
         final char result = (char) this.nextChar;
-        this.sb.append(result);
+        if (this.source == null) this.sb.append(result);
 
         this.nextChar       = this.nextButOneChar;
         this.nextButOneChar = -1;
@@ -707,7 +876,7 @@ class Scanner {
     peekRead(int expected) throws CompileException, IOException {
 
         if (this.peek() == expected) {
-            if (this.nextChar != -1) this.sb.append((char) this.nextChar);
+            if (this.nextChar != -1 && this.source == null) this.sb.append((char) this.nextChar);
             this.nextChar       = this.nextButOneChar;
             this.nextButOneChar = -1;
             return true;
@@ -728,7 +897,7 @@ class Scanner {
 
         if (expectedCharacters.indexOf((char) this.nextChar) == -1) return false;
 
-        this.sb.append((char) this.nextChar);
+        if (this.source == null) this.sb.append((char) this.nextChar);
 
         this.nextChar       = this.nextButOneChar;
         this.nextButOneChar = -1;
@@ -740,10 +909,18 @@ class Scanner {
     internalRead() throws IOException, CompileException {
 
         int result;
-        try {
-            result = this.in.read();
-        } catch (UnicodeUnescapeException ex) {
-            throw new CompileException(ex.getMessage(), this.location(), ex);
+
+        char[] s = this.source;
+        if (s != null) {
+            result = this.sourceOffset < s.length ? s[this.sourceOffset++] : -1;
+        } else {
+            Reader in = this.in;
+            assert in != null;
+            try {
+                result = in.read();
+            } catch (UnicodeUnescapeException ex) {
+                throw new CompileException(ex.getMessage(), this.location(), ex);
+            }
         }
         if (result == '\r') {
             ++this.nextCharLineNumber;
@@ -766,8 +943,24 @@ class Scanner {
     }
 
     @Nullable private final String optionalFileName;
-    private final Reader           in;
+    @Nullable private final Reader in;
     private boolean                ignoreWhiteSpace;
+
+    /**
+     * The in-memory source code, or {@code null} iff the scanner reads from a {@link Reader}.
+     */
+    @Nullable private final char[] source;
+
+    /**
+     * The offset of the next character to read from the {@link #source}.
+     */
+    private int sourceOffset;
+
+    /**
+     * An open-addressing hash table of the identifiers, keywords and operators scanned so far; see {@link #symbol()}.
+     */
+    private String[] symbols = new String[256];
+    private int      symbolCount;
     private int                    nextChar       = -1;
     private int                    nextButOneChar = -1;
     private boolean                crLfPending;
@@ -142,6 +142,65 @@ class ScriptEvaluator extends ClassBodyEvaluator implements IScriptEvaluator {
      */
     @Nullable private Script[] scripts;
 
+    /**
+     * Non-{@code null} while {@link #createFastEvaluators(String[], Class, String[])} is cooking.
+     */
+    @Nullable private Class<?> fastEvaluatorsInterface;
+
+    /**
+     * Implemented by a class that is generated after the cooked scripts were evaluated a number of times, and that
+     * invokes the static script methods directly, i.e. without {@link Method#invoke(Object, Object[]) reflection},
+     * with unboxed arguments, and (for the primitive-specialized methods) without boxing the result.
+     * <p>
+     *   Each method dispatches on the script index, and wraps any exception that the script throws in an {@link
+     *   InvocationTargetException}. The caller must verify beforehand that the indexed script is static, that (for
+     *   the specialized methods) its return type matches, and that the arguments match the script's parameter types
+     *   exactly; otherwise the methods throw {@link ClassCastException}s or {@link IllegalArgumentException}s.
+     * </p>
+     *
+     * @see #evaluate(int, Object[])
+     * @see #evaluateInt(int, Object[])
+     */
+    public
+    interface Invoker {
+
+        /**
+         * @return The script's return value, boxed, or {@code null} for a {@code void} script
+         */
+        @Nullable Object invoke(int index, @Nullable Object[] arguments) throws InvocationTargetException;
+
+        /**
+         * Invokes a script whose return type is {@code int}.
+         */
+        int invokeInt(int index, @Nullable Object[] arguments) throws InvocationTargetException;
+
+        /**
+         * Invokes a script whose return type is {@code long}.
+         */
+        long invokeLong(int index, @Nullable Object[] arguments) throws InvocationTargetException;
+
+        /**
+         * Invokes a script whose return type is {@code double}.
+         */
+        double invokeDouble(int index, @Nullable Object[] arguments) throws InvocationTargetException;
+
+        /**
+         * Invokes a script whose return type is {@code boolean}.
+         */
+        boolean invokeBoolean(int index, @Nullable Object[] arguments) throws InvocationTargetException;
+    }
+
+    /**
+     * The {@link Invoker} of the cooked scripts, or {@code null} iff it was not (yet) generated.
+     */
+    @Nullable private Invoker invoker;
+
+    /**
+     * The number of evaluations before the {@link #invoker} was generated, or -1 iff it cannot be generated. (Races
+     * between threads are harmless; they only shift the point in time when the invoker is generated.)
+     */
+    private int reflectiveEvaluations;
+
     /**
      * @throws IllegalArgumentException <var>count</var> is different from previous invocations of
      *                                  this method
@@ -586,12 +645,27 @@ class ScriptEvaluator extends ClassBodyEvaluator implements IScriptEvaluator {
 
     @Override public final void
     cook(@Nullable String[] optionalFileNames, String[] strings) throws CompileException {
-        Reader[] readers = new Reader[strings.length];
-        for (int i = 0; i < strings.length; ++i) readers[i] = new StringReader(strings[i]);
+
+        if (optionalFileNames != null) this.setScriptCount(optionalFileNames.length);
+        this.setScriptCount(strings.length);
+
         try {
-            this.cook(optionalFileNames, readers);
+            if (this.isCookCacheEnabled()) {
+                this.cookCached(optionalFileNames == null ? new String[strings.length] : optionalFileNames, strings);
+                return;
+            }
+
+            // Scan the strings in memory, which is much faster than through "StringReader"s.
+            Scanner[] scanners = new Scanner[strings.length];
+            for (int i = 0; i < strings.length; ++i) {
+                scanners[i] = new Scanner(
+                    optionalFileNames == null ? null : optionalFileNames[i],
+                    strings[i].toCharArray()
+                );
+            }
+            this.cook(scanners);
         } catch (IOException ex) {
-            throw new InternalCompilerException("SNO: IOException despite StringReader", ex);
+            throw new InternalCompilerException("SNO: IOException despite in-memory source", ex);
         }
     }
 
@@ -606,8 +680,11 @@ class ScriptEvaluator extends ClassBodyEvaluator implements IScriptEvaluator {
      * <p>
      *   The number and the complexity of the scripts is restricted by the <a
      *   href="http://java.sun.com/docs/books/vmspec/2nd-edition/html/ClassFile.doc.html#88659">Limitations of the Java
-     *   Virtual Machine</a>, where the most limiting factor is the 64K entries limit of the constant pool. Since every
-     *   method with a distinct name requires one entry there, you can define at best 32K (very simple) scripts.
+     *   Virtual Machine</a>, where the most limiting factor is the 64K entries limit of the constant pool. Therefore,
+     *   if all scripts are STATIC and none is an override method, then the scripts are distributed over the generated
+     *   class and as many PUBLIC STATIC member classes ("{@code Batch1}", "{@code Batch2}", ...) as necessary.
+     *   (Notice that {@link #getMethod(int)}{@code .getDeclaringClass()} then yields different classes for different
+     *   scripts.)
      * </p>
      */
     @Override public final void
@@ -616,6 +693,13 @@ class ScriptEvaluator extends ClassBodyEvaluator implements IScriptEvaluator {
         if (optionalFileNames != null) this.setScriptCount(optionalFileNames.length);
         this.setScriptCount(readers.length);
 
+        if (this.isCookCacheEnabled()) {
+            String[] sources = new String[readers.length];
+            for (int i = 0; i < readers.length; ++i) sources[i] = Cookable.readString(readers[i]);
+            this.cookCached(optionalFileNames == null ? new String[readers.length] : optionalFileNames, sources);
+            return;
+        }
+
         Scanner[] scanners = new Scanner[readers.length];
         for (int i = 0; i < readers.length; ++i) {
             scanners[i] = new Scanner(optionalFileNames == null ? null : optionalFileNames[i], readers[i]);
@@ -626,6 +710,31 @@ class ScriptEvaluator extends ClassBodyEvaluator implements IScriptEvaluator {
     @Override public final void
     cook(Scanner scanner) throws CompileException, IOException { this.cook(new Scanner[] { scanner }); }
 
+    @Override protected void
+    addToCookCacheKey(List<Object> key) {
+        super.addToCookCacheKey(key);
+
+        Script[] ss = this.scripts;
+        if (ss == null) return;
+
+        for (Script s : ss) {
+            key.add(s.overrideMethod);
+            key.add(s.staticMethod);
+            key.add(s.returnType);
+            key.add(s.methodName);
+            key.add(Arrays.asList(s.parameterNames));
+            key.add(Arrays.asList(s.parameterTypes));
+            key.add(Arrays.asList(s.thrownExceptions));
+        }
+        key.add(this.fastEvaluatorsInterface);
+    }
+
+    @Override protected void
+    cookFromCache(ClassLoader classLoader) {
+        super.cookFromCache(classLoader);
+        this.resolveMethods(this.loadGeneratedClass(classLoader));
+    }
+
     /**
      * Like {@link #cook(Scanner)}, but cooks a <em>set</em> of scripts into one class. Notice that if <em>any</em> of
      * the scripts causes trouble, the entire compilation will fail. If you need to report <em>which</em> of the
@@ -648,7 +757,7 @@ class ScriptEvaluator extends ClassBodyEvaluator implements IScriptEvaluator {
      * @throws IllegalStateException Any of the preceding {@code set...()} had an array size different from that of
      *                               {@code scanners}
      */
-    public final void
+    @Override public final void
     cook(Scanner[] scanners) throws CompileException, IOException {
 
         this.setScriptCount(scanners.length);
@@ -674,20 +783,78 @@ class ScriptEvaluator extends ClassBodyEvaluator implements IScriptEvaluator {
         final Java.AbstractClassDeclaration
         cd = this.addPackageMemberClassDeclaration(parsers[0].location(), compilationUnit);
 
-        // Create methods with one block each.
+        // Parse all scripts.
+        @SuppressWarnings("unchecked") List<Java.BlockStatement>[]
+        statementss = new List[parsers.length];
+        boolean splittable = true;
         for (int i = 0; i < parsers.length; ++i) {
 
-            Script es     = this.getScript(i);
-            Parser parser = parsers[i];
+            Script es = this.getScript(i);
 
             // Create the statements of the method.
-            List<Java.BlockStatement>   statements   = new ArrayList<Java.BlockStatement>();
+            List<Java.BlockStatement>   statements   = (statementss[i] = new ArrayList<Java.BlockStatement>());
             List<Java.MethodDeclarator> localMethods = new ArrayList<Java.MethodDeclarator>();
-            this.makeStatements(i, parser, statements, localMethods);
+            this.makeStatements(i, parsers[i], statements, localMethods);
+
+            // Add the "local methods" that a script may declare. (They go to the top-level class, so that the
+            // scripts can invoke them from any batch class.)
+            for (MethodDeclarator method : localMethods) {
+                cd.addDeclaredMethod(method);
+            }
+
+            if (!es.staticMethod || es.overrideMethod) splittable = false;
+        }
+
+        // Create methods with one block each. When the scripts are many, or large, distribute them over the top-level
+        // class and a number of static member classes, because a class file's constant pool is limited to 64K
+        // entries.
+        Java.AbstractClassDeclaration       batchCd             = cd;
+        int                                 batchCount          = 0;
+        int                                 batchMethodCount    = 0;
+        int                                 batchConstantsCount = 0;
+        List<Java.AbstractClassDeclaration> batchCds            = new ArrayList<Java.AbstractClassDeclaration>();
+        List<Integer>                       batchStarts         = new ArrayList<Integer>();
+        batchCds.add(cd);
+        batchStarts.add(0);
+        for (int i = 0; i < parsers.length; ++i) {
+
+            Script                    es         = this.getScript(i);
+            Parser                    parser     = parsers[i];
+            List<Java.BlockStatement> statements = statementss[i];
+            Location                  loc        = parser.location();
+
+            if (splittable) {
+                int constantsCount = ScriptEvaluator.estimateConstantPoolEntries(statements);
+                if (batchMethodCount > 0 && (
+                    batchMethodCount >= ScriptEvaluator.MAX_SCRIPTS_PER_CLASS
+                    || batchConstantsCount + constantsCount > ScriptEvaluator.MAX_ESTIMATED_CONSTANTS_PER_CLASS
+                )) {
+                    Java.MemberClassDeclaration mcd = new Java.MemberClassDeclaration(
+                        loc,                                                    // location
+                        null,                                                   // optionalDocComment
+                        new Java.Modifiers((short) (Mod.PUBLIC | Mod.STATIC)),  // modifiers
+                        ScriptEvaluator.BATCH_CLASS_NAME_PREFIX + ++batchCount, // name
+                        null,                                                   // optionalTypeParameters
+                        null,                                                   // optionalExtendedType
+                        (                                                       // implementedTypes
+                            this.fastEvaluatorsInterface != null
+                            ? this.classesToTypes(loc, new Class[] { this.fastEvaluatorsInterface })
+                            : new Java.Type[0]
+                        )
+                    );
+                    cd.addMemberTypeDeclaration(mcd);
+                    batchCds.add(mcd);
+                    batchStarts.add(i);
+                    batchCd             = mcd;
+                    batchMethodCount    = 0;
+                    batchConstantsCount = 0;
+                }
+                batchMethodCount++;
+                batchConstantsCount += constantsCount;
+            }
 
             // Create the method that holds the statements.
-            Location loc = parser.location();
-            cd.addDeclaredMethod(this.makeMethodDeclaration(
+            batchCd.addDeclaredMethod(this.makeMethodDeclaration(
                 loc,                 // location
                 (                    // annotations
                     es.overrideMethod
@@ -702,16 +869,104 @@ class ScriptEvaluator extends ClassBodyEvaluator implements IScriptEvaluator {
                 es.thrownExceptions, // thrownExceptions
                 statements           // statements
             ));
+        }
 
-            // Also add the "local methods" that a script my declare.
-            for (MethodDeclarator method : localMethods) {
-                cd.addDeclaredMethod(method);
+        // Make each of the classes implement the "fast evaluators" interface (see "createFastEvaluators()").
+        Class<?> fei = this.fastEvaluatorsInterface;
+        if (fei != null) {
+            batchStarts.add(parsers.length);
+            for (int i = 0; i < batchCds.size(); i++) {
+                this.addFastEvaluatorsDispatcher(
+                    (Java.NamedClassDeclaration) batchCds.get(i),
+                    ScriptEvaluator.getMethodToImplement(fei),
+                    (Integer) batchStarts.get(i),
+                    (Integer) batchStarts.get(i + 1)
+                );
             }
         }
 
         this.cook2(compilationUnit);
     }
 
+    /**
+     * Adds an {@code int} field "{@code index}", a constructor that initializes it, and an implementation of the
+     * <var>methodToImplement</var> that dispatches to script method #{@code index}.
+     */
+    private void
+    addFastEvaluatorsDispatcher(Java.NamedClassDeclaration cd, Method methodToImplement, int from, int to)
+    throws CompileException, IOException {
+
+        String[] parameterNames = this.getScript(from).parameterNames;
+        String   arguments      = Arrays.asList(parameterNames).toString();
+        arguments = arguments.substring(1, arguments.length() - 1);
+
+        Parser p = new Parser(new Scanner(null, (
+            "private final int index; public " + cd.getName() + "(int index) { this.index = index; }"
+        ).toCharArray()));
+        p.parseClassBodyDeclaration(cd);
+        p.parseClassBodyDeclaration(cd);
+
+        StringBuilder sb = new StringBuilder("switch (this.index) {");
+        for (int i = from; i < to; i++) {
+            String invocation = this.getScript(i).methodName + "(" + arguments + ");";
+            sb.append("case ").append(i).append(": ").append(
+                methodToImplement.getReturnType() == void.class
+                ? invocation + " return;"
+                : "return " + invocation
+            );
+        }
+        sb.append("} throw new AssertionError(this.index); }");
+        List<Java.BlockStatement>
+        statements = new Parser(new Scanner(null, sb.toString().toCharArray())).parseBlockStatements();
+
+        cd.addDeclaredMethod(this.makeMethodDeclaration(
+            cd.getLocation(),                      // location
+            new Java.Annotation[0],                // annotations
+            false,                                 // staticMethod
+            methodToImplement.getReturnType(),     // returnType
+            methodToImplement.getName(),           // methodName
+            methodToImplement.getParameterTypes(), // parameterTypes
+            parameterNames,                        // parameterNames
+            methodToImplement.getExceptionTypes(), // thrownExceptions
+            statements                             // statements
+        ));
+    }
+
+    /**
+     * The maximum number of scripts that {@link #cook(Parser[])} puts into one class.
+     */
+    private static final int MAX_SCRIPTS_PER_CLASS = 2000;
+
+    /**
+     * The maximum number of constant pool entries that {@link #cook(Parser[])} allows for the scripts of one class,
+     * as estimated by {@link #estimateConstantPoolEntries(List)}. (The hard limit is 65535.)
+     */
+    private static final int MAX_ESTIMATED_CONSTANTS_PER_CLASS = 30000;
+
+    /**
+     * The name prefix of the static member classes that {@link #cook(Parser[])} creates when it distributes the
+     * scripts over multiple classes.
+     */
+    private static final String BATCH_CLASS_NAME_PREFIX = "Batch";
+
+    /**
+     * A pessimistic estimate of the number of constant pool entries that the compilation of a script method
+     * requires: Its name, its descriptor, and (at most) two for each AST node.
+     */
+    private static int
+    estimateConstantPoolEntries(List<Java.BlockStatement> statements) {
+
+        final int[] nodeCount = new int[1];
+        AbstractTraverser<RuntimeException> at = new AbstractTraverser<RuntimeException>() {
+
+            @Override public void
+            traverseLocated(Java.Located l) { nodeCount[0]++; }
+        };
+        for (Java.BlockStatement bs : statements) at.visitBlockStatement(bs);
+
+        return 2 + 2 * nodeCount[0];
+    }
+
     /**
      * Compiles the given <var>compilationUnit</var>, defines it into a {@link ClassLoader}, loads the generated class,
      * gets the script methods from that class, and makes them available through {@link #getMethod(int)}.
@@ -720,7 +975,15 @@ class ScriptEvaluator extends ClassBodyEvaluator implements IScriptEvaluator {
     cook2(CompilationUnit compilationUnit) throws CompileException {
 
         // Compile and load the compilation unit.
-        final Class<?> c = this.compileToClass(compilationUnit);
+        this.resolveMethods(this.compileToClass(compilationUnit));
+    }
+
+    /**
+     * Gets the script methods from the given generated class (and its member classes, see {@link #cook(Parser[])}),
+     * and makes them available through {@link #getMethod(int)}.
+     */
+    private void
+    resolveMethods(Class<?> c) {
 
         // Find the script methods by name and parameter types.
         assert this.scripts != null;
@@ -728,6 +991,8 @@ class ScriptEvaluator extends ClassBodyEvaluator implements IScriptEvaluator {
 
         // Clear the generated methods.
         for (int i = 0; i < count; ++i) this.getScript(i).result = null;
+        this.invoker               = null;
+        this.reflectiveEvaluations = 0;
 
         // "Class.getDeclaredMethod(name, parameterTypes)" is slow when the class declares MANY methods (say, in
         // the thousands). So let's use "Class.getDeclaredMethods()" instead.
@@ -741,14 +1006,11 @@ class ScriptEvaluator extends ClassBodyEvaluator implements IScriptEvaluator {
         }
 
         // Now invoke "Class.getDeclaredMethods()" and filter "our" methods from the result.
-        for (Method m : c.getDeclaredMethods()) {
-
-            Integer idx = dms.get(ScriptEvaluator.methodKey(m.getName(), m.getParameterTypes()));
-            if (idx == null) continue;
-
-            Script es = this.getScript(idx);
-            assert es.result == null;
-            es.result = m;
+        this.resolveMethods(c.getDeclaredMethods(), dms);
+        for (Class<?> mc : c.getDeclaredClasses()) {
+            if (mc.getSimpleName().startsWith(ScriptEvaluator.BATCH_CLASS_NAME_PREFIX)) {
+                this.resolveMethods(mc.getDeclaredMethods(), dms);
+            }
         }
 
         // Verify that the class declared "all our" methods.
@@ -766,6 +1028,19 @@ class ScriptEvaluator extends ClassBodyEvaluator implements IScriptEvaluator {
         }
     }
 
+    private void
+    resolveMethods(Method[] methods, Map<Object /*methodKey*/, Integer /*methodIndex*/> dms) {
+        for (Method m : methods) {
+
+            Integer idx = (Integer) dms.get(ScriptEvaluator.methodKey(m.getName(), m.getParameterTypes()));
+            if (idx == null) continue;
+
+            Script es = this.getScript(idx);
+            assert es.result == null;
+            es.result = m;
+        }
+    }
+
     private static Object
     methodKey(String methodName, Class<?>[] parameterTypes) {
         return Arrays.asList(ScriptEvaluator.cat(methodName, parameterTypes, Object.class));
@@ -789,9 +1064,19 @@ class ScriptEvaluator extends ClassBodyEvaluator implements IScriptEvaluator {
     @Override @Nullable public Object
     evaluate(@Nullable Object[] arguments) throws InvocationTargetException { return this.evaluate(0, arguments); }
 
+    /**
+     * After a number of evaluations, static scripts are no longer invoked through {@link Method#invoke(Object,
+     * Object[]) reflection}, but through a generated {@link Invoker}, which is considerably faster. Only if an
+     * argument requires a widening conversion or is invalid (which is checked <em>before</em> the invocation), the
+     * script is still invoked through reflection, which then performs the conversion or throws the appropriate {@link
+     * IllegalArgumentException}.
+     */
     @Override @Nullable public Object
     evaluate(int idx, @Nullable Object[] arguments) throws InvocationTargetException {
 
+        Invoker i = this.getInvoker(idx, arguments);
+        if (i != null) return i.invoke(idx, arguments);
+
         Method method = this.getMethod(idx);
 
         try {
@@ -801,6 +1086,286 @@ class ScriptEvaluator extends ClassBodyEvaluator implements IScriptEvaluator {
         }
     }
 
+    /**
+     * Evaluates a script with return type {@code int}, without boxing the result.
+     *
+     * @see #evaluate(int, Object[])
+     */
+    public int
+    evaluateInt(int idx, @Nullable Object[] arguments) throws InvocationTargetException {
+
+        Invoker i = this.getInvoker(idx, arguments);
+        if (i != null && this.getScript(idx).returnType == int.class) return i.invokeInt(idx, arguments);
+
+        return ((Integer) this.evaluate(idx, arguments)).intValue();
+    }
+
+    /**
+     * Evaluates a script with return type {@code long}, without boxing the result.
+     *
+     * @see #evaluate(int, Object[])
+     */
+    public long
+    evaluateLong(int idx, @Nullable Object[] arguments) throws InvocationTargetException {
+
+        Invoker i = this.getInvoker(idx, arguments);
+        if (i != null && this.getScript(idx).returnType == long.class) return i.invokeLong(idx, arguments);
+
+        return ((Long) this.evaluate(idx, arguments)).longValue();
+    }
+
+    /**
+     * Evaluates a script with return type {@code double}, without boxing the result.
+     *
+     * @see #evaluate(int, Object[])
+     */
+    public double
+    evaluateDouble(int idx, @Nullable Object[] arguments) throws InvocationTargetException {
+
+        Invoker i = this.getInvoker(idx, arguments);
+        if (i != null && this.getScript(idx).returnType == double.class) return i.invokeDouble(idx, arguments);
+
+        return ((Double) this.evaluate(idx, arguments)).doubleValue();
+    }
+
+    /**
+     * Evaluates a script with return type {@code boolean}, without boxing the result.
+     *
+     * @see #evaluate(int, Object[])
+     */
+    public boolean
+    evaluateBoolean(int idx, @Nullable Object[] arguments) throws InvocationTargetException {
+
+        Invoker i = this.getInvoker(idx, arguments);
+        if (i != null && this.getScript(idx).returnType == boolean.class) return i.invokeBoolean(idx, arguments);
+
+        return ((Boolean) this.evaluate(idx, arguments)).booleanValue();
+    }
+
+    /**
+     * @return The {@link Invoker} iff it can invoke the indexed script with the given <var>arguments</var>, i.e. the
+     *         script is static, and the <var>arguments</var> match its parameter types exactly
+     */
+    @Nullable private Invoker
+    getInvoker(int idx, @Nullable Object[] arguments) {
+
+        Invoker result = this.invoker;
+        if (result == null) {
+            if (
+                this.reflectiveEvaluations < 0
+                || ++this.reflectiveEvaluations < ScriptEvaluator.INVOKER_GENERATION_THRESHOLD
+            ) return null;
+
+            // Generate the invoker, or, if that is not possible, don't try again.
+            result = this.generateInvoker();
+            if (result == null) {
+                this.reflectiveEvaluations = -1;
+                return null;
+            }
+            this.invoker = result;
+        }
+
+        Script s = this.getScript(idx);
+        if (!s.staticMethod) return null;
+        if (!ScriptEvaluator.argumentsMatch(s.parameterTypes, arguments)) return null;
+
+        return result;
+    }
+
+    /**
+     * @return Whether the <var>arguments</var> can be passed to a method with the given <var>parameterTypes</var>
+     *         without any conversion other than unboxing
+     */
+    private static boolean
+    argumentsMatch(Class<?>[] parameterTypes, @Nullable Object[] arguments) {
+
+        if (arguments == null) return parameterTypes.length == 0;
+        if (arguments.length != parameterTypes.length) return false;
+
+        for (int i = 0; i < arguments.length; i++) {
+            Class<?> pt = parameterTypes[i];
+            Object   a  = arguments[i];
+            if (pt.isPrimitive()) {
+                if (a == null || a.getClass() != ScriptEvaluator.wrapperClass(pt)) return false;
+            } else {
+                if (a != null && !pt.isInstance(a)) return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Generates, compiles and loads an {@link Invoker} for the static methods of the cooked scripts.
+     *
+     * @return {@code null} iff no invoker can be generated, e.g. because the {@link Invoker} interface is not visible
+     *         to the generated classes, or because the scripts are too many
+     */
+    @Nullable private Invoker
+    generateInvoker() {
+
+        Script[] ss = this.scripts;
+        assert ss != null;
+
+        Class<?>    declaringClass = this.getMethod(0).getDeclaringClass();
+        ClassLoader cl             = declaringClass.getClassLoader();
+        try {
+            if (Class.forName(Invoker.class.getName(), false, cl) != Invoker.class) return null;
+        } catch (ClassNotFoundException cnfe) {
+            return null;
+        }
+
+        // Limit the code size of the invoker's methods to well below 64 KB.
+        int size = 0;
+        for (Script s : ss) {
+            if (!s.staticMethod) continue;
+            for (Class<?> pt : s.parameterTypes) {
+                if (pt.getCanonicalName() == null) return null;
+            }
+            size += 1 + s.parameterTypes.length;
+        }
+        if (size == 0 || size > ScriptEvaluator.MAX_INVOKER_SIZE) return null;
+
+        // Generate the source code of the invoker class, in the package of the generated class.
+        String        className = declaringClass.getName() + ScriptEvaluator.INVOKER_CLASS_NAME_SUFFIX;
+        int           idx       = className.lastIndexOf('.');
+        StringBuilder sb        = new StringBuilder();
+        if (idx != -1) sb.append("package ").append(className.substring(0, idx)).append(';');
+        sb.append("public class ").append(className.substring(idx + 1));
+        sb.append(" implements ").append(Invoker.class.getCanonicalName()).append(" {");
+        ScriptEvaluator.appendInvokerMethod(sb, "invoke",        null,          ss);
+        ScriptEvaluator.appendInvokerMethod(sb, "invokeInt",     int.class,     ss);
+        ScriptEvaluator.appendInvokerMethod(sb, "invokeLong",    long.class,    ss);
+        ScriptEvaluator.appendInvokerMethod(sb, "invokeDouble",  double.class,  ss);
+        ScriptEvaluator.appendInvokerMethod(sb, "invokeBoolean", boolean.class, ss);
+        sb.append('}');
+
+        SimpleCompiler sc = new SimpleCompiler();
+        sc.setParentClassLoader(cl);
+        try {
+            sc.cook(sb.toString());
+        } catch (CompileException ce) {
+
+            // E.g. a parameter type is not accessible from the invoker class; stick with reflection.
+            return null;
+        }
+
+        try {
+            return (Invoker) sc.getClassLoader().loadClass(className).newInstance();
+        } catch (Exception e) {
+            // SNO - The generated class is PUBLIC and has a PUBLIC default constructor.
+            throw new InternalCompilerException(e.toString(), e);
+        }
+    }
+
+    /**
+     * Appends the source code of one of the {@link Invoker} methods, which has a case for each static script with the
+     * given <var>returnType</var> (or for <em>all</em> static scripts iff <var>returnType</var> is {@code null}).
+     */
+    private static void
+    appendInvokerMethod(
+        StringBuilder      sb,
+        String             methodName,
+        @Nullable Class<?> returnType,
+        Script[]           scripts
+    ) {
+        sb.append("public ").append(returnType == null ? "java.lang.Object" : returnType.getName()).append(' ');
+        sb.append(methodName).append("(int index, java.lang.Object[] a) ");
+        sb.append("throws java.lang.reflect.InvocationTargetException { switch (index) {");
+
+        for (int i = 0; i < scripts.length; i++) {
+            Script s = scripts[i];
+            if (!s.staticMethod || (returnType != null && s.returnType != returnType)) continue;
+
+            // The caller has already verified that the arguments match the parameter types.
+            sb.append("case ").append(i).append(": {");
+            StringBuilder arguments = new StringBuilder();
+            for (int j = 0; j < s.parameterTypes.length; j++) {
+                Class<?> pt  = s.parameterTypes[j];
+                String   ptn = pt.getCanonicalName();
+                sb.append(ptn).append(" p").append(j).append(" = ");
+                if (pt.isPrimitive()) {
+                    sb.append("((").append(ScriptEvaluator.wrapperClassName(pt)).append(") a[").append(j);
+                    sb.append("]).").append(ptn).append("Value();");
+                } else {
+                    sb.append('(').append(ptn).append(") a[").append(j).append("];");
+                }
+                if (j > 0) arguments.append(", ");
+                arguments.append('p').append(j);
+            }
+
+            String invocation = (
+                s.getResult().getDeclaringClass().getCanonicalName()
+                + '.'
+                + s.methodName
+                + '('
+                + arguments
+                + ')'
+            );
+            sb.append("try { ");
+            if (returnType != null) {
+                sb.append("return ").append(invocation).append(';');
+            } else
+            if (s.returnType == void.class) {
+                sb.append(invocation).append("; return null;");
+            } else
+            if (s.returnType.isPrimitive()) {
+                sb.append("return ").append(ScriptEvaluator.wrapperClassName(s.returnType));
+                sb.append(".valueOf(").append(invocation).append(");");
+            } else
+            {
+                sb.append("return ").append(invocation).append(';');
+            }
+            sb.append(" } catch (java.lang.Throwable t) {");
+            sb.append(" throw new java.lang.reflect.InvocationTargetException(t);");
+            sb.append(" } }");
+        }
+
+        sb.append("} throw new java.lang.IllegalArgumentException(java.lang.String.valueOf(index)); }");
+    }
+
+    private static Class<?>
+    wrapperClass(Class<?> primitiveType) {
+        return (
+            primitiveType == int.class     ? Integer.class   :
+            primitiveType == long.class    ? Long.class      :
+            primitiveType == double.class  ? Double.class    :
+            primitiveType == boolean.class ? Boolean.class   :
+            primitiveType == char.class    ? Character.class :
+            primitiveType == byte.class    ? Byte.class      :
+            primitiveType == short.class   ? Short.class     :
+            primitiveType == float.class   ? Float.class     :
+            Void.class
+        );
+    }
+
+    private static String
+    wrapperClassName(Class<?> primitiveType) {
+        if (primitiveType == int.class)  return "java.lang.Integer";
+        if (primitiveType == char.class) return "java.lang.Character";
+
+        String name = primitiveType.getName();
+        return "java.lang." + Character.toUpperCase(name.charAt(0)) + name.substring(1);
+    }
+
+    /**
+     * After this many reflective evaluations, an {@link Invoker} is generated for the scripts; like the JRE's own
+     * "inflation" of {@link Method#invoke(Object, Object[])}, this avoids the cost of the code generation for scripts
+     * that are evaluated only a few times.
+     */
+    private static final int INVOKER_GENERATION_THRESHOLD = 15;
+
+    /**
+     * The suffix that is appended to the name of the generated class to form the name of the {@link Invoker} class.
+     */
+    private static final String INVOKER_CLASS_NAME_SUFFIX = "$$Invoker";
+
+    /**
+     * The maximum sum of the number of static scripts and the number of their parameters, for which an {@link Invoker}
+     * is generated. (This keeps the code size of the invoker's methods well below the 64 KB limit.)
+     */
+    private static final int MAX_INVOKER_SIZE = 1000;
+
     @Override public Method
     getMethod() { return this.getMethod(0); }
 
@@ -1115,12 +1680,28 @@ class ScriptEvaluator extends ClassBodyEvaluator implements IScriptEvaluator {
     @Override public <T> Object
     createFastEvaluator(Reader reader, Class<T> interfaceToImplement, String[] parameterNames)
     throws CompileException, IOException {
-        return this.createFastEvaluator(new Scanner(null, reader), interfaceToImplement, parameterNames);
+
+        if (!this.isCookCacheEnabled()) {
+            return this.createFastEvaluator(new Scanner(null, reader), interfaceToImplement, parameterNames);
+        }
+
+        // Go through "cook(Reader)", so that the cook cache is used.
+        this.setUpFastEvaluator(interfaceToImplement, parameterNames);
+        this.cook(reader);
+        return this.instantiateFastEvaluator();
     }
 
     @Override public <T> Object
     createFastEvaluator(String script, Class<T> interfaceToImplement, String[] parameterNames) throws CompileException {
         try {
+            if (!this.isCookCacheEnabled()) {
+                return this.createFastEvaluator(
+                    new Scanner(null, script.toCharArray()),
+                    interfaceToImplement,
+                    parameterNames
+                );
+            }
+
             return this.createFastEvaluator(
                 new StringReader(script),
                 interfaceToImplement,
@@ -1142,22 +1723,102 @@ class ScriptEvaluator extends ClassBodyEvaluator implements IScriptEvaluator {
     public Object
     createFastEvaluator(Scanner scanner, Class<?> interfaceToImplement, String[] parameterNames)
     throws CompileException, IOException {
+        this.setUpFastEvaluator(interfaceToImplement, parameterNames);
+        this.cook(scanner);
+        return this.instantiateFastEvaluator();
+    }
+
+    /**
+     * Cooks a set of scripts into one or a few classes (see {@link #cook(Parser[])}), and creates one "fast
+     * evaluator" per script. This is much faster than invoking {@link #createFastEvaluator(String, Class, String[])}
+     * once per script, because all scripts are parsed and compiled in one pass, and no per-script class is loaded.
+     * <p>
+     *   Notice that the returned objects are <em>not</em> of distinct classes, and that the {@link
+     *   #setMethodNames(String[])}, {@link #setStaticMethod(boolean[])}, {@link #setOverrideMethod(boolean[])}, {@link
+     *   #setReturnTypes(Class[])}, {@link #setParameters(String[][], Class[][])} and {@link
+     *   #setThrownExceptions(Class[][])} configuration is overwritten by this method.
+     * </p>
+     *
+     * @param interfaceToImplement Must declare exactly one method
+     * @param parameterNames       The names of the parameters of the interface method, as they are used in the
+     *                             <var>scripts</var>
+     * @return                     An array of the same length as <var>scripts</var>; each element implements the
+     *                             <var>interfaceToImplement</var>
+     */
+    public Object[]
+    createFastEvaluators(String[] scripts, Class<?> interfaceToImplement, String[] parameterNames)
+    throws CompileException {
+
+        Method methodToImplement = ScriptEvaluator.getMethodToImplement(interfaceToImplement);
+
+        int          n                 = scripts.length;
+        boolean[]    staticMethod      = new boolean[n];
+        boolean[]    overrideMethod    = new boolean[n];
+        Class<?>[]   returnTypes       = new Class<?>[n];
+        String[][]   parameterNamess   = new String[n][];
+        Class<?>[][] parameterTypess   = new Class<?>[n][];
+        Class<?>[][] thrownExceptionss = new Class<?>[n][];
+        for (int i = 0; i < n; i++) {
+            staticMethod[i]      = true;
+            returnTypes[i]       = methodToImplement.getReturnType();
+            parameterNamess[i]   = parameterNames;
+            parameterTypess[i]   = methodToImplement.getParameterTypes();
+            thrownExceptionss[i] = methodToImplement.getExceptionTypes();
+        }
+
+        this.setImplementedInterfaces(new Class[] { interfaceToImplement });
+        this.setStaticMethod(staticMethod);
+        this.setOverrideMethod(overrideMethod);
+        if (this instanceof IExpressionEvaluator) {
+
+            // Must not call "IExpressionEvaluator.setReturnTypes()".
+            ((IExpressionEvaluator) this).setExpressionTypes(returnTypes);
+        } else {
+            this.setReturnTypes(returnTypes);
+        }
+        this.setParameters(parameterNamess, parameterTypess);
+        this.setThrownExceptions(thrownExceptionss);
+
+        this.fastEvaluatorsInterface = interfaceToImplement;
+        try {
+            this.cook(scripts);
+        } finally {
+            this.fastEvaluatorsInterface = null;
+        }
+
+        Object[] result = new Object[n];
+        for (int i = 0; i < n; i++) {
+            try {
+                result[i] = this.getMethod(i).getDeclaringClass().getConstructor(int.class).newInstance(i);
+            } catch (Exception e) {
+                // SNO - The generated constructor is PUBLIC and does not throw.
+                throw new InternalCompilerException(e.toString(), e);
+            }
+        }
+        return result;
+    }
+
+    private static Method
+    getMethodToImplement(Class<?> interfaceToImplement) {
         if (!interfaceToImplement.isInterface()) {
             throw new InternalCompilerException("\"" + interfaceToImplement + "\" is not an interface");
         }
 
-        Method methodToImplement;
-        {
-            Method[] methods = interfaceToImplement.getDeclaredMethods();
-            if (methods.length != 1) {
-                throw new InternalCompilerException(
-                    "Interface \""
-                    + interfaceToImplement
-                    + "\" must declare exactly one method"
-                );
-            }
-            methodToImplement = methods[0];
+        Method[] methods = interfaceToImplement.getDeclaredMethods();
+        if (methods.length != 1) {
+            throw new InternalCompilerException(
+                "Interface \""
+                + interfaceToImplement
+                + "\" must declare exactly one method"
+            );
         }
+        return methods[0];
+    }
+
+    private void
+    setUpFastEvaluator(Class<?> interfaceToImplement, String[] parameterNames) {
+
+        Method methodToImplement = ScriptEvaluator.getMethodToImplement(interfaceToImplement);
 
         this.setImplementedInterfaces(new Class[] { interfaceToImplement });
         this.setOverrideMethod(true);
@@ -1172,7 +1833,10 @@ class ScriptEvaluator extends ClassBodyEvaluator implements IScriptEvaluator {
         this.setMethodName(methodToImplement.getName());
         this.setParameters(parameterNames, methodToImplement.getParameterTypes());
         this.setThrownExceptions(methodToImplement.getExceptionTypes());
-        this.cook(scanner);
+    }
+
+    private Object
+    instantiateFastEvaluator() {
         Class<?> c = this.getMethod().getDeclaringClass();
         try {
             return c.newInstance();
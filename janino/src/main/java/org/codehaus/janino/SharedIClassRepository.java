@@ -0,0 +1,171 @@
+
+/*
+ * Janino - An embedded Java[TM] compiler
+ *
+ * Copyright (c) 2001-2010 Arno Unkrig. All rights reserved.
+ * Copyright (c) 2015-2016 TIBCO Software Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.codehaus.janino;
+
+import org.codehaus.commons.compiler.CompileException;
+
+/**
+ * A process-wide repository of {@link IClass}es for the types that many compilations share, e.g. the JRE types and
+ * the types of a large library on the application class path, so that their metadata is built once per JVM instead of
+ * once per compiler instance.
+ * <p>
+ *   The repository loads the shared types through a {@link ClassLoaderIClassLoader} for a common ("parent-level")
+ *   {@link ClassLoader}. Compilations (e.g. of different tenants) use it by delegating to it:
+ * </p>
+ * <ul>
+ *   <li>{@link SimpleCompiler}s (and thus the evaluators) through {@link
+ *   SimpleCompiler#setSharedIClassRepository(SharedIClassRepository)}</li>
+ *   <li>{@link Compiler}s and {@link JavaSourceIClassLoader}s by passing {@link #getIClassLoader()} as their parent
+ *   {@link IClassLoader}</li>
+ *   <li>Any other code through {@link #newTenantIClassLoader(ClassLoader)}</li>
+ * </ul>
+ * <p>
+ *   Types are loaded and resolved on demand, or up front through {@link #preload(String[])}; the {@link IClass}es of
+ *   preloaded types are effectively immutable. The repository is thread-safe; types that were loaded before are
+ *   retrieved without any locking.
+ * </p>
+ * <p>
+ *   {@link #getLoadedTypeCount()}, {@link #getResolvedMemberCount()} and {@link #getEstimatedSize()} report the
+ *   repository's memory footprint.
+ * </p>
+ */
+public
+class SharedIClassRepository {
+
+    /**
+     * Assumed heap footprint of an {@link IClass} (with its caches) and of one resolved member (with its descriptor
+     * strings and parameter arrays). The actual values vary with the JVM, the number of parameters, annotations, etc.
+     */
+    private static final long ESTIMATED_BYTES_PER_TYPE   = 600;
+    private static final long ESTIMATED_BYTES_PER_MEMBER = 250;
+
+    private final ClassLoaderIClassLoader iClassLoader;
+
+    /**
+     * Creates a repository of the types that the <var>sharedClassLoader</var> loads. All repositories for the same
+     * <var>sharedClassLoader</var> share the same {@link IClass}es; see {@link
+     * ClassLoaderIClassLoader#getShared(ClassLoader)}.
+     */
+    public
+    SharedIClassRepository(ClassLoader sharedClassLoader) {
+        this.iClassLoader = ClassLoaderIClassLoader.getShared(sharedClassLoader);
+    }
+
+    /**
+     * @return The {@link IClassLoader} that loads the shared types, for use as the parent of other {@link
+     *         IClassLoader}s
+     */
+    public ClassLoaderIClassLoader
+    getIClassLoader() { return this.iClassLoader; }
+
+    /**
+     * @return A new {@link IClassLoader} that takes the shared types from this repository, and loads all other types
+     *         through the <var>tenantClassLoader</var>, which is typically a child of the shared {@link ClassLoader}
+     */
+    public ClassLoaderIClassLoader
+    newTenantIClassLoader(ClassLoader tenantClassLoader) {
+        return new ClassLoaderIClassLoader(tenantClassLoader, this.iClassLoader);
+    }
+
+    /**
+     * Loads the named types and resolves their supertypes, member types, constructors, methods and fields, so that
+     * later compilations find them readily available.
+     *
+     * @param classNames              Fully qualified class names, e.g. "java.util.Map$Entry"
+     * @throws ClassNotFoundException One of the types does not exist in the shared {@link ClassLoader}, or cannot be
+     *                                resolved
+     */
+    public void
+    preload(String[] classNames) throws ClassNotFoundException {
+        for (String className : classNames) {
+
+            IClass iClass = this.iClassLoader.loadIClass(Descriptor.fromClassName(className));
+            if (iClass == null) throw new ClassNotFoundException(className);
+
+            try {
+                iClass.getSuperclass();
+                iClass.getInterfaces();
+                iClass.getDeclaredIClasses();
+                iClass.getDeclaredIConstructors();
+                iClass.getDeclaredIMethods();
+                iClass.getDeclaredIFields();
+            } catch (CompileException ce) {
+                throw new ClassNotFoundException("Resolving \"" + className + "\"", ce);
+            }
+        }
+    }
+
+    /**
+     * @return The number of types that were loaded into this repository so far
+     */
+    public int
+    getLoadedTypeCount() {
+        int result = 0;
+        for (IClassLoader icl = this.iClassLoader; icl != null; icl = icl.getParentIClassLoader()) {
+            result += icl.getLoadedIClasses().size();
+        }
+        return result;
+    }
+
+    /**
+     * @return The number of constructors, methods and fields of the loaded types that were resolved so far
+     */
+    public int
+    getResolvedMemberCount() {
+        int result = 0;
+        for (IClassLoader icl = this.iClassLoader; icl != null; icl = icl.getParentIClassLoader()) {
+            for (IClass iClass : icl.getLoadedIClasses()) result += iClass.getResolvedMemberCount();
+        }
+        return result;
+    }
+
+    /**
+     * @return A rough estimate of the number of heap bytes that the {@link IClass}es of the repository occupy
+     */
+    public long
+    getEstimatedSize() {
+        return (
+            SharedIClassRepository.ESTIMATED_BYTES_PER_TYPE * this.getLoadedTypeCount()
+            + SharedIClassRepository.ESTIMATED_BYTES_PER_MEMBER * this.getResolvedMemberCount()
+        );
+    }
+
+    @Override public String
+    toString() {
+        return (
+            "SharedIClassRepository("
+            + this.iClassLoader.getClassLoader()
+            + "): "
+            + this.getLoadedTypeCount()
+            + " types, "
+            + this.getResolvedMemberCount()
+            + " members, ~"
+            + (this.getEstimatedSize() / 1024)
+            + " KB"
+        );
+    }
+}
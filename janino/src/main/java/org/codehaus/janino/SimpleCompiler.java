@@ -30,12 +30,16 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
+import java.io.StringReader;
 import java.lang.reflect.Method;
 import java.security.AccessController;
 import java.security.Permissions;
 import java.security.PrivilegedAction;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.logging.Logger;
 
@@ -75,8 +79,28 @@ class SimpleCompiler extends Cookable implements ISimpleCompiler {
     private boolean debugLines  = this.debugSource;
     private boolean debugVars   = this.debugSource;
 
+    private int targetVersion = 6;
+
+    private int methodSizeThreshold;
+
+    private int classSizeThreshold;
+
+    @Nullable private PeepholeOptimizer peepholeOptimizer;
+
     @Nullable private Permissions permissions;
 
+    @Nullable private AllowList allowList;
+
+    private boolean shareIClassLoader;
+
+    @Nullable private SharedIClassRepository sharedIClassRepository;
+
+    @Nullable private CookCache           cookCache;
+    @Nullable private PersistentCookCache persistentCookCache;
+
+    // The bytecode of the most recently cooked classes.
+    @Nullable private Map<String /*className*/, byte[] /*bytecode*/> bytecodes;
+
     private EnumSet<JaninoOption> options = EnumSet.noneOf(JaninoOption.class);
 
     public static void // SUPPRESS CHECKSTYLE JavadocMethod
@@ -191,6 +215,66 @@ class SimpleCompiler extends Cookable implements ISimpleCompiler {
         );
     }
 
+    /**
+     * If <var>value</var> is {@code true}, then all future compilations use the {@link IClassLoader} that is {@link
+     * ClassLoaderIClassLoader#getShared(ClassLoader) shared} by all compilers with the same parent class loader,
+     * instead of creating a new one for each {@link #cook(Java.CompilationUnit)}. This avoids re-loading the
+     * commonly used types on every cook, which dominates the compilation time of small expressions and scripts.
+     * <p>
+     *   The shared {@link IClassLoader} keeps the parent class loader reachable; see {@link
+     *   ClassLoaderIClassLoader#release(ClassLoader)}.
+     * </p>
+     * <p>
+     *   The default is {@code false}.
+     * </p>
+     *
+     * @see #setParentClassLoader(ClassLoader)
+     */
+    public void
+    setShareIClassLoader(boolean value) { this.shareIClassLoader = value; }
+
+    /**
+     * If <var>value</var> is not {@code null}, then all future compilations take the types that it provides from it,
+     * and load only the remaining types through the {@link #setParentClassLoader(ClassLoader) parent class loader}.
+     * This is useful when many compilers with <em>different</em> parent class loaders (e.g. one per tenant) share a
+     * large set of types, which is then loaded and resolved only once per JVM.
+     * <p>
+     *   Takes precedence over {@link #setShareIClassLoader(boolean)}. The default is {@code null}.
+     * </p>
+     */
+    public void
+    setSharedIClassRepository(@Nullable SharedIClassRepository value) { this.sharedIClassRepository = value; }
+
+    /**
+     * Configures a cache that future {@link #cook(String, Reader)} operations use: If the cache holds the result of a
+     * previous cook of the same source text with the same configuration, then that result is re-used, instead of
+     * scanning, parsing and compiling the source again.
+     * <p>
+     *   Cooks with {@link #setPermissions(Permissions) permissions} configured are never cached.
+     * </p>
+     *
+     * @param optionalCookCache {@code null} disables caching, which is the default
+     */
+    public void
+    setCookCache(@Nullable CookCache optionalCookCache) { this.cookCache = optionalCookCache; }
+
+    /**
+     * Configures a cache that persists the bytecode generated by future {@link #cook(String, Reader)} operations:
+     * If the cache holds the bytecode of a previous cook of the same source text with the same configuration (maybe
+     * by a different JVM), then that bytecode is re-used, instead of scanning, parsing and compiling the source
+     * again.
+     * <p>
+     *   If both a {@link #setCookCache(CookCache) cook cache} and a persistent cook cache are configured, then the
+     *   former is checked first.
+     * </p>
+     *
+     * @param optionalPersistentCookCache {@code null} disables persistent caching, which is the default
+     */
+    public void
+    setPersistentCookCache(@Nullable PersistentCookCache optionalPersistentCookCache) {
+        this.persistentCookCache = optionalPersistentCookCache;
+    }
+
     @Override public void
     setDebuggingInformation(boolean debugSource, boolean debugLines, boolean debugVars) {
         this.debugSource = debugSource;
@@ -198,13 +282,178 @@ class SimpleCompiler extends Cookable implements ISimpleCompiler {
         this.debugVars   = debugVars;
     }
 
+    /**
+     * Sets the version of the generated class files; defaults to {@code 6}.
+     *
+     * @see UnitCompiler#setTargetVersion(int)
+     */
+    public void
+    setTargetVersion(int targetVersion) {
+        if (targetVersion < 6 || targetVersion > 9) {
+            throw new IllegalArgumentException("Unsupported target version " + targetVersion);
+        }
+        this.targetVersion = targetVersion;
+    }
+
+    /**
+     * Enables splitting of large generated methods into synthetic helper methods; defaults to {@code 0}, which
+     * disables it.
+     *
+     * @see UnitCompiler#setMethodSizeThreshold(int)
+     */
+    public void
+    setMethodSizeThreshold(int threshold) { this.methodSizeThreshold = threshold; }
+
+    /**
+     * Enables moving the static methods of large generated classes into synthetic nested classes; defaults to {@code
+     * 0}, which disables it.
+     *
+     * @see UnitCompiler#setClassSizeThreshold(int)
+     */
+    public void
+    setClassSizeThreshold(int threshold) { this.classSizeThreshold = threshold; }
+
+    /**
+     * Enables the peephole optimization of the generated bytecode; defaults to {@code null}, which disables it.
+     *
+     * @see UnitCompiler#setPeepholeOptimizer(PeepholeOptimizer)
+     */
+    public void
+    setPeepholeOptimizer(@Nullable PeepholeOptimizer optimizer) { this.peepholeOptimizer = optimizer; }
+
     /**
      * Scans, parses and compiles a given compilation unit from the given {@link Reader}. After completion, {@link
      * #getClassLoader()} returns a {@link ClassLoader} that allows for access to the compiled classes.
      */
     @Override public final void
     cook(@Nullable String optionalFileName, Reader r) throws CompileException, IOException {
-        this.cook(new Scanner(optionalFileName, r));
+
+        if (!this.isCookCacheEnabled()) {
+            this.cook(new Scanner(optionalFileName, r));
+            return;
+        }
+
+        this.cookCached(new String[] { optionalFileName }, new String[] { Cookable.readString(r) });
+    }
+
+    /**
+     * Scans the string through a {@link Scanner#Scanner(String, char[]) character array scanner}, which is much faster
+     * than reading it through a {@link StringReader}.
+     */
+    @Override public final void
+    cook(@Nullable String optionalFileName, String s) throws CompileException {
+        try {
+            if (!this.isCookCacheEnabled()) {
+                this.cook(new Scanner(optionalFileName, s.toCharArray()));
+                return;
+            }
+
+            this.cookCached(new String[] { optionalFileName }, new String[] { s });
+        } catch (IOException ioe) {
+            throw new InternalCompilerException("SNO: IOException despite in-memory source", ioe);
+        }
+    }
+
+    /**
+     * Cooks the given <var>sources</var>, or, if the configured {@link CookCache} or {@link PersistentCookCache} holds
+     * the result of a previous cook of the same sources with the same configuration, re-uses that result.
+     */
+    protected final void
+    cookCached(String[] optionalFileNames, String[] sources) throws CompileException, IOException {
+
+        CookCache           cc  = this.cookCache;
+        PersistentCookCache pcc = this.persistentCookCache;
+
+        List<Object> key = null;
+        if ((cc != null || pcc != null) && this.permissions == null) {
+            key = new ArrayList<Object>();
+            key.add(Arrays.asList(optionalFileNames));
+            key.add(Arrays.asList(sources));
+            this.addToCookCacheKey(key);
+
+            if (cc != null) {
+                ClassLoader cl = cc.get(key);
+                if (cl != null) {
+                    this.cookFromCache(cl);
+                    return;
+                }
+            }
+
+            if (pcc != null) {
+                Map<String, byte[]> classes = pcc.get(key);
+                if (classes != null) {
+                    this.cook(classes);
+                    ClassLoader cl = this.assertCooked();
+                    this.cookFromCache(cl);
+                    if (cc != null) cc.put(key, cl);
+                    return;
+                }
+            }
+        }
+
+        Scanner[] scanners = new Scanner[sources.length];
+        for (int i = 0; i < sources.length; i++) {
+            scanners[i] = new Scanner(optionalFileNames[i], sources[i].toCharArray());
+        }
+        this.cook(scanners);
+
+        if (key != null) {
+            if (cc != null) cc.put(key, this.assertCooked());
+            Map<String, byte[]> classes = this.bytecodes;
+            if (pcc != null && classes != null) pcc.put(key, classes);
+        }
+    }
+
+    /**
+     * @return Whether a {@link CookCache} or a {@link PersistentCookCache} is configured
+     */
+    protected final boolean
+    isCookCacheEnabled() { return this.cookCache != null || this.persistentCookCache != null; }
+
+    /**
+     * Adds to the <var>key</var> all configuration elements that influence the result of cooking.
+     * Derived classes that have additional configuration must override this method and invoke the super method.
+     *
+     * @see #setCookCache(CookCache)
+     */
+    protected void
+    addToCookCacheKey(List<Object> key) {
+        key.add(this.getClass());
+        key.add(this.parentClassLoader);
+        key.add(this.debugSource);
+        key.add(this.debugLines);
+        key.add(this.debugVars);
+        key.add(this.targetVersion);
+        key.add(this.methodSizeThreshold);
+        key.add(this.classSizeThreshold);
+        key.add(EnumSet.copyOf(this.options));
+
+        // The allow list is mutable, so add its (canonical) string representation rather than the object itself.
+        AllowList al = this.allowList;
+        key.add(al == null ? null : al.toString());
+
+        PeepholeOptimizer po = this.peepholeOptimizer;
+        key.add(po == null ? null : po.getEnabledRewrites());
+    }
+
+    /**
+     * Makes the given <var>classLoader</var>, which was previously created by cooking an equally configured
+     * compiler, the result of this compiler, as if it were cooked right now.
+     * Derived classes must override this method and invoke the super method iff they have additional state that
+     * {@link #cook(Scanner)} sets up.
+     */
+    protected void
+    cookFromCache(ClassLoader classLoader) { this.result = classLoader; }
+
+    /**
+     * Cooks the given <var>scanners</var>; this implementation supports only exactly one scanner.
+     *
+     * @see ScriptEvaluator#cook(Scanner[])
+     */
+    protected void
+    cook(Scanner[] scanners) throws CompileException, IOException {
+        if (scanners.length != 1) throw new IllegalArgumentException("Only one source supported");
+        this.cook(scanners[0]);
     }
 
     /**
@@ -226,13 +475,29 @@ class SimpleCompiler extends Cookable implements ISimpleCompiler {
 
         ClassFile[] classFiles;
 
-        IClassLoader icl = (this.classLoaderIClassLoader = new ClassLoaderIClassLoader(this.parentClassLoader));
+        SharedIClassRepository  sicr = this.sharedIClassRepository;
+        ClassLoaderIClassLoader icl;
+        if (sicr != null) {
+            icl = sicr.newTenantIClassLoader(this.parentClassLoader);
+        } else
+        if (this.shareIClassLoader) {
+            icl = ClassLoaderIClassLoader.getShared(this.parentClassLoader);
+        } else
+        {
+            icl = new ClassLoaderIClassLoader(this.parentClassLoader);
+        }
+        this.classLoaderIClassLoader = icl;
         try {
 
             // Compile compilation unit to class files.
             UnitCompiler unitCompiler = new UnitCompiler(compilationUnit, icl).options(this.options);
             unitCompiler.setCompileErrorHandler(this.optionalCompileErrorHandler);
             unitCompiler.setWarningHandler(this.optionalWarningHandler);
+            unitCompiler.setTargetVersion(this.targetVersion);
+            unitCompiler.setMethodSizeThreshold(this.methodSizeThreshold);
+            unitCompiler.setClassSizeThreshold(this.classSizeThreshold);
+            unitCompiler.setPeepholeOptimizer(this.peepholeOptimizer);
+            unitCompiler.setAllowList(this.allowList);
 
             classFiles = unitCompiler.compileUnit(this.debugSource, this.debugLines, this.debugVars);
         } finally {
@@ -267,6 +532,8 @@ class SimpleCompiler extends Cookable implements ISimpleCompiler {
     public void
     cook(final Map<String /*className*/, byte[] /*bytecode*/> classes) {
 
+        this.bytecodes = classes;
+
         // Create a ClassLoader that loads the generated classes.
         ClassLoader cl = (ClassLoader) AccessController.doPrivileged(new PrivilegedAction<ClassLoader>() {
 
@@ -299,6 +566,19 @@ class SimpleCompiler extends Cookable implements ISimpleCompiler {
     @Override public void
     setNoPermissions() { this.setPermissions(new Permissions()); }
 
+    /**
+     * Restricts the methods, constructors and fields that all future compilations may use; see {@link AllowList}.
+     * <p>
+     *   This is an alternative to {@link #setPermissions(Permissions)}: Because it is enforced at compile time, it
+     *   does not install a JVM-wide {@link SecurityManager}, and has no run-time overhead, neither for the compiled
+     *   code nor for the rest of the application. Changes to the <var>allowList</var> take effect with the next cook.
+     * </p>
+     *
+     * @param allowList {@code null} allows all members, which is the default
+     */
+    public void
+    setAllowList(@Nullable AllowList allowList) { this.allowList = allowList; }
+
     /**
      * Two {@link SimpleCompiler}s are regarded equal iff
      * <ul>
@@ -0,0 +1,1158 @@
+
+/*
+ * Janino - An embedded Java[TM] compiler
+ *
+ * Copyright (c) 2001-2010 Arno Unkrig. All rights reserved.
+ * Copyright (c) 2015-2016 TIBCO Software Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.codehaus.janino;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.codehaus.commons.compiler.CompileException;
+import org.codehaus.commons.nullanalysis.Nullable;
+import org.codehaus.janino.util.ClassFile;
+
+/**
+ * Computes the body of the "StackMapTable" attribute (JVMS8 4.7.4) of a "Code" attribute, which class files of
+ * version 51 (Java 7) and later must have. Implements a dataflow analysis over the (fixed-up) byte code, which infers
+ * the verification types (JVMS8 4.10.1.2) of the local variables and the operand stack at each branch target and at
+ * each exception handler.
+ * <p>
+ *   Verification types are represented as strings: {@code "T"} (top), {@code "I"}, {@code "F"}, {@code "J"}, {@code
+ *   "D"}, {@code "N"} (null), {@code "U"} (uninitializedThis), {@code "U<offset>"} (the not-yet-initialized object
+ *   created by the NEW instruction at that offset), or the field descriptor of a class or array type. Values of type
+ *   long and double occupy two words; the second word is represented as {@code "-"}.
+ * </p>
+ */
+class StackMapTableGenerator {
+
+    /**
+     * Provides the knowledge about the class hierarchy that is required to merge reference types.
+     */
+    interface ClassHierarchy {
+
+        /**
+         * @param classFd1 The field descriptor of a class or interface type
+         * @param classFd2 The field descriptor of a class or interface type
+         * @return         The field descriptor of the most specific common supertype of the two types, or {@link
+         *                 Descriptor#JAVA_LANG_OBJECT} if one of the types is an interface
+         */
+        String getCommonSuperclass(String classFd1, String classFd2) throws CompileException;
+    }
+
+    private static final String TOP                = "T";
+    private static final String INTEGER            = "I";
+    private static final String FLOAT              = "F";
+    private static final String LONG               = "J";
+    private static final String DOUBLE             = "D";
+    private static final String NULL               = "N";
+    private static final String UNINITIALIZED_THIS = "U";
+    private static final String SECOND_WORD        = "-";
+
+    private final ClassFile      classFile;
+    private final String         thisFd;
+    private final byte[]         code;
+    private final int            codeLength;
+    private final int            maxLocals;
+    private final ClassHierarchy classHierarchy;
+
+    private final List<int[]>  exceptionHandlers = new ArrayList<int[]>(); // startPc, endPc, handlerPc
+    private final List<String> catchTypes        = new ArrayList<String>();
+
+    /**
+     * Whether a frame is required at the respective offset (branch targets and exception handlers).
+     */
+    private final boolean[] joinPoints;
+
+    /**
+     * The (merged) frames at the join points.
+     */
+    private final Frame[] frames;
+
+    private final int[]     worklist;
+    private int             worklistSize;
+    private final boolean[] inWorklist;
+
+    /**
+     * @param thisFd The field descriptor of the class that declares the method
+     */
+    StackMapTableGenerator(
+        ClassFile      classFile,
+        String         thisFd,
+        byte[]         code,
+        int            codeLength,
+        int            maxLocals,
+        ClassHierarchy classHierarchy
+    ) {
+        this.classFile      = classFile;
+        this.thisFd         = thisFd;
+        this.code           = code;
+        this.codeLength     = codeLength;
+        this.maxLocals      = maxLocals;
+        this.classHierarchy = classHierarchy;
+        this.joinPoints     = new boolean[codeLength];
+        this.frames         = new Frame[codeLength];
+        this.worklist       = new int[codeLength];
+        this.inWorklist     = new boolean[codeLength];
+    }
+
+    /**
+     * Declares an entry of the "exception_table" of the code.
+     *
+     * @param catchTypeFd {@code null} means "any exception" (i.e. a FINALLY clause)
+     */
+    public void
+    addExceptionHandler(int startPc, int endPc, int handlerPc, @Nullable String catchTypeFd) {
+        this.exceptionHandlers.add(new int[] { startPc, endPc, handlerPc });
+        this.catchTypes.add(catchTypeFd == null ? Descriptor.JAVA_LANG_THROWABLE : catchTypeFd);
+    }
+
+    /**
+     * @param isStatic         Whether the method has no "this" parameter
+     * @param isConstructor    Whether the method is an instance initialization method ({@code <init>})
+     * @param methodDescriptor The descriptor of the method, which determines the types of the parameters
+     * @return                 The body of the "StackMapTable" attribute, or {@code null} iff no frames are necessary
+     */
+    @Nullable public byte[]
+    generate(boolean isStatic, boolean isConstructor, String methodDescriptor) throws CompileException {
+
+        // Determine the offsets that require a frame.
+        for (int pc = 0; pc < this.codeLength; pc += this.getInstructionLength(pc)) {
+            for (int target : this.getBranchTargets(pc)) this.joinPoints[target] = true;
+        }
+        for (int[] eh : this.exceptionHandlers) this.joinPoints[eh[2]] = true;
+
+        // Set up the initial frame.
+        String[] locals = new String[this.maxLocals];
+        Arrays.fill(locals, StackMapTableGenerator.TOP);
+        {
+            int idx = 0;
+            if (!isStatic) {
+                locals[idx++] = (
+                    isConstructor && !this.thisFd.equals(Descriptor.JAVA_LANG_OBJECT)
+                    ? StackMapTableGenerator.UNINITIALIZED_THIS
+                    : this.thisFd
+                );
+            }
+            for (String pfd : StackMapTableGenerator.getParameterFds(methodDescriptor)) {
+                String vt = StackMapTableGenerator.verificationType(pfd);
+                locals[idx++] = vt;
+                if (StackMapTableGenerator.isTwoWords(vt)) locals[idx++] = StackMapTableGenerator.SECOND_WORD;
+            }
+        }
+        Frame initialFrame = new Frame(locals, new ArrayList<String>());
+
+        // Propagate the frames until a fixpoint is reached.
+        this.frames[0] = initialFrame.copy();
+        this.enqueue(0);
+        while (this.worklistSize > 0) {
+            int pc = this.worklist[--this.worklistSize];
+            this.inWorklist[pc] = false;
+            this.analyze(pc);
+        }
+
+        return this.storeFrames(initialFrame);
+    }
+
+    /**
+     * Simulates the execution of the code, starting at <var>pc</var> with the frame at that offset, until the next
+     * join point or the next instruction that does not "fall through".
+     */
+    private void
+    analyze(int pc) throws CompileException {
+
+        Frame start = this.frames[pc];
+        assert start != null;
+        Frame frame = start.copy();
+
+        for (;;) {
+
+            // The exception handlers must accept the local variables as they are before and after the instruction.
+            this.mergeIntoExceptionHandlers(pc, frame);
+            int     nextPc        = pc + this.getInstructionLength(pc);
+            boolean fallsThrough = this.execute(pc, frame);
+            this.mergeIntoExceptionHandlers(pc, frame);
+
+            if (!fallsThrough) return;
+
+            pc = nextPc;
+            if (pc >= this.codeLength) {
+                throw new InternalCompilerException("Code falls off the end at offset " + pc);
+            }
+            if (this.joinPoints[pc]) {
+                this.merge(frame, pc);
+                return;
+            }
+        }
+    }
+
+    private void
+    mergeIntoExceptionHandlers(int pc, Frame frame) throws CompileException {
+        for (int i = 0; i < this.exceptionHandlers.size(); i++) {
+            int[] eh = (int[]) this.exceptionHandlers.get(i);
+            if (pc >= eh[0] && pc < eh[1]) {
+                List<String> stack = new ArrayList<String>();
+                stack.add((String) this.catchTypes.get(i));
+                this.merge(new Frame(frame.locals, stack), eh[2]);
+            }
+        }
+    }
+
+    /**
+     * Merges the <var>frame</var> into the frame at offset <var>target</var>, and schedules the target for
+     * (re-)analysis iff that changed the target's frame.
+     */
+    private void
+    merge(Frame frame, int target) throws CompileException {
+
+        Frame existing = this.frames[target];
+        if (existing == null) {
+            this.frames[target] = frame.copy();
+            this.enqueue(target);
+            return;
+        }
+
+        if (existing.stack.size() != frame.stack.size()) {
+            throw new InternalCompilerException(
+                "Operand stack inconsistent at offset "
+                + target
+                + ": Previous size "
+                + existing.stack.size()
+                + ", now "
+                + frame.stack.size()
+            );
+        }
+
+        boolean changed = false;
+        for (int i = 0; i < existing.locals.length; i++) {
+            String l1 = existing.locals[i], l2 = frame.locals[i];
+            if (l1.equals(l2)) continue;
+            existing.locals[i] = (
+                StackMapTableGenerator.isReference(l1) && StackMapTableGenerator.isReference(l2)
+                ? this.mergeReferences(l1, l2)
+                : StackMapTableGenerator.TOP
+            );
+            changed |= !existing.locals[i].equals(l1);
+        }
+
+        // Invalidate halves of long and double values.
+        for (int i = 0; i < existing.locals.length; i++) {
+            String l = existing.locals[i];
+            if (StackMapTableGenerator.isTwoWords(l)) {
+                if (
+                    i + 1 < existing.locals.length
+                    && StackMapTableGenerator.SECOND_WORD.equals(existing.locals[i + 1])
+                ) {
+                    i++;
+                    continue;
+                }
+            } else
+            if (!StackMapTableGenerator.SECOND_WORD.equals(l)) {
+                continue;
+            }
+            existing.locals[i] = StackMapTableGenerator.TOP;
+            changed            = true;
+        }
+
+        for (int i = 0; i < existing.stack.size(); i++) {
+            String s1 = (String) existing.stack.get(i), s2 = (String) frame.stack.get(i);
+            if (s1.equals(s2)) continue;
+            if (!StackMapTableGenerator.isReference(s1) || !StackMapTableGenerator.isReference(s2)) {
+                throw new InternalCompilerException(
+                    "Operand stack inconsistent at offset " + target + ": \"" + s1 + "\" vs. \"" + s2 + "\""
+                );
+            }
+            String s = this.mergeReferences(s1, s2);
+            if (!s.equals(s1)) {
+                existing.stack.set(i, s);
+                changed = true;
+            }
+        }
+
+        if (changed) this.enqueue(target);
+    }
+
+    private String
+    mergeReferences(String fd1, String fd2) throws CompileException {
+
+        if (fd1.equals(fd2))                            return fd1;
+        if (fd1.equals(StackMapTableGenerator.NULL))    return fd2;
+        if (fd2.equals(StackMapTableGenerator.NULL))    return fd1;
+
+        if (Descriptor.isArrayReference(fd1) && Descriptor.isArrayReference(fd2)) {
+            String cfd1 = fd1.substring(1), cfd2 = fd2.substring(1);
+            if (StackMapTableGenerator.isReference(cfd1) && StackMapTableGenerator.isReference(cfd2)) {
+                return '[' + this.mergeReferences(cfd1, cfd2);
+            }
+            return Descriptor.JAVA_LANG_OBJECT;
+        }
+
+        if (Descriptor.isArrayReference(fd1) || Descriptor.isArrayReference(fd2)) return Descriptor.JAVA_LANG_OBJECT;
+
+        return this.classHierarchy.getCommonSuperclass(fd1, fd2);
+    }
+
+    private void
+    enqueue(int pc) {
+        if (this.inWorklist[pc]) return;
+        this.inWorklist[pc]                    = true;
+        this.worklist[this.worklistSize++] = pc;
+    }
+
+    /**
+     * Updates the <var>frame</var> according to the semantics of the instruction at <var>pc</var>, and merges it into
+     * the frames of the instruction's branch targets.
+     *
+     * @return Whether execution continues with the next instruction
+     */
+    private boolean
+    execute(int pc, Frame frame) throws CompileException {
+        byte opcode = this.code[pc];
+        switch (opcode) {
+
+        case Opcode.NOP:
+            return true;
+
+        case Opcode.ACONST_NULL:
+            frame.push(StackMapTableGenerator.NULL);
+            return true;
+
+        case Opcode.ICONST_M1: case Opcode.ICONST_0: case Opcode.ICONST_1: case Opcode.ICONST_2:
+        case Opcode.ICONST_3: case Opcode.ICONST_4: case Opcode.ICONST_5:
+        case Opcode.BIPUSH:    case Opcode.SIPUSH:
+            frame.push(StackMapTableGenerator.INTEGER);
+            return true;
+
+        case Opcode.LCONST_0: case Opcode.LCONST_1:
+            frame.push(StackMapTableGenerator.LONG);
+            return true;
+
+        case Opcode.FCONST_0: case Opcode.FCONST_1: case Opcode.FCONST_2:
+            frame.push(StackMapTableGenerator.FLOAT);
+            return true;
+
+        case Opcode.DCONST_0: case Opcode.DCONST_1:
+            frame.push(StackMapTableGenerator.DOUBLE);
+            return true;
+
+        case Opcode.LDC:
+            frame.push(this.getConstantType(0xff & this.code[pc + 1]));
+            return true;
+
+        case Opcode.LDC_W:
+        case Opcode.LDC2_W:
+            frame.push(this.getConstantType(this.u16(pc + 1)));
+            return true;
+
+        case Opcode.ILOAD: case Opcode.LLOAD: case Opcode.FLOAD: case Opcode.DLOAD: case Opcode.ALOAD:
+            this.load(frame, opcode, 0xff & this.code[pc + 1]);
+            return true;
+
+        case Opcode.ILOAD_0: case Opcode.ILOAD_1: case Opcode.ILOAD_2: case Opcode.ILOAD_3:
+            frame.push(StackMapTableGenerator.INTEGER);
+            return true;
+
+        case Opcode.LLOAD_0: case Opcode.LLOAD_1: case Opcode.LLOAD_2: case Opcode.LLOAD_3:
+            frame.push(StackMapTableGenerator.LONG);
+            return true;
+
+        case Opcode.FLOAD_0: case Opcode.FLOAD_1: case Opcode.FLOAD_2: case Opcode.FLOAD_3:
+            frame.push(StackMapTableGenerator.FLOAT);
+            return true;
+
+        case Opcode.DLOAD_0: case Opcode.DLOAD_1: case Opcode.DLOAD_2: case Opcode.DLOAD_3:
+            frame.push(StackMapTableGenerator.DOUBLE);
+            return true;
+
+        case Opcode.ALOAD_0: case Opcode.ALOAD_1: case Opcode.ALOAD_2: case Opcode.ALOAD_3:
+            frame.push(frame.locals[opcode - Opcode.ALOAD_0]);
+            return true;
+
+        case Opcode.IALOAD: case Opcode.BALOAD: case Opcode.CALOAD: case Opcode.SALOAD:
+            frame.pop(2);
+            frame.push(StackMapTableGenerator.INTEGER);
+            return true;
+
+        case Opcode.LALOAD:
+            frame.pop(2);
+            frame.push(StackMapTableGenerator.LONG);
+            return true;
+
+        case Opcode.FALOAD:
+            frame.pop(2);
+            frame.push(StackMapTableGenerator.FLOAT);
+            return true;
+
+        case Opcode.DALOAD:
+            frame.pop(2);
+            frame.push(StackMapTableGenerator.DOUBLE);
+            return true;
+
+        case Opcode.AALOAD:
+            {
+                frame.pop(1);
+                String arrayType = frame.pop();
+                frame.push(
+                    StackMapTableGenerator.NULL.equals(arrayType)
+                    ? StackMapTableGenerator.NULL
+                    : arrayType.substring(1)
+                );
+            }
+            return true;
+
+        case Opcode.ISTORE: case Opcode.LSTORE: case Opcode.FSTORE: case Opcode.DSTORE: case Opcode.ASTORE:
+            this.store(frame, opcode, 0xff & this.code[pc + 1]);
+            return true;
+
+        case Opcode.ISTORE_0: case Opcode.ISTORE_1: case Opcode.ISTORE_2: case Opcode.ISTORE_3:
+            this.store(frame, Opcode.ISTORE, opcode - Opcode.ISTORE_0);
+            return true;
+
+        case Opcode.LSTORE_0: case Opcode.LSTORE_1: case Opcode.LSTORE_2: case Opcode.LSTORE_3:
+            this.store(frame, Opcode.LSTORE, opcode - Opcode.LSTORE_0);
+            return true;
+
+        case Opcode.FSTORE_0: case Opcode.FSTORE_1: case Opcode.FSTORE_2: case Opcode.FSTORE_3:
+            this.store(frame, Opcode.FSTORE, opcode - Opcode.FSTORE_0);
+            return true;
+
+        case Opcode.DSTORE_0: case Opcode.DSTORE_1: case Opcode.DSTORE_2: case Opcode.DSTORE_3:
+            this.store(frame, Opcode.DSTORE, opcode - Opcode.DSTORE_0);
+            return true;
+
+        case Opcode.ASTORE_0: case Opcode.ASTORE_1: case Opcode.ASTORE_2: case Opcode.ASTORE_3:
+            this.store(frame, Opcode.ASTORE, opcode - Opcode.ASTORE_0);
+            return true;
+
+        case Opcode.IASTORE: case Opcode.FASTORE: case Opcode.AASTORE:
+        case Opcode.BASTORE: case Opcode.CASTORE: case Opcode.SASTORE:
+            frame.pop(3);
+            return true;
+
+        case Opcode.LASTORE: case Opcode.DASTORE:
+            frame.pop(4);
+            return true;
+
+        case Opcode.POP:
+        case Opcode.MONITORENTER: case Opcode.MONITOREXIT:
+            frame.pop(1);
+            return true;
+
+        case Opcode.POP2:
+            frame.pop(2);
+            return true;
+
+        case Opcode.DUP:
+            {
+                String v1 = frame.pop();
+                frame.pushWords(v1, v1);
+            }
+            return true;
+
+        case Opcode.DUP_X1:
+            {
+                String v1 = frame.pop(), v2 = frame.pop();
+                frame.pushWords(v1, v2, v1);
+            }
+            return true;
+
+        case Opcode.DUP_X2:
+            {
+                String v1 = frame.pop(), v2 = frame.pop(), v3 = frame.pop();
+                frame.pushWords(v1, v3, v2, v1);
+            }
+            return true;
+
+        case Opcode.DUP2:
+            {
+                String v1 = frame.pop(), v2 = frame.pop();
+                frame.pushWords(v2, v1, v2, v1);
+            }
+            return true;
+
+        case Opcode.DUP2_X1:
+            {
+                String v1 = frame.pop(), v2 = frame.pop(), v3 = frame.pop();
+                frame.pushWords(v2, v1, v3, v2, v1);
+            }
+            return true;
+
+        case Opcode.DUP2_X2:
+            {
+                String v1 = frame.pop(), v2 = frame.pop(), v3 = frame.pop(), v4 = frame.pop();
+                frame.pushWords(v2, v1, v4, v3, v2, v1);
+            }
+            return true;
+
+        case Opcode.SWAP:
+            {
+                String v1 = frame.pop(), v2 = frame.pop();
+                frame.pushWords(v1, v2);
+            }
+            return true;
+
+        case Opcode.IADD: case Opcode.ISUB: case Opcode.IMUL: case Opcode.IDIV: case Opcode.IREM:
+        case Opcode.ISHL: case Opcode.ISHR: case Opcode.IUSHR: case Opcode.IAND: case Opcode.IOR: case Opcode.IXOR:
+        case Opcode.FCMPL: case Opcode.FCMPG:
+            frame.pop(2);
+            frame.push(StackMapTableGenerator.INTEGER);
+            return true;
+
+        case Opcode.LADD: case Opcode.LSUB: case Opcode.LMUL: case Opcode.LDIV: case Opcode.LREM:
+        case Opcode.LAND: case Opcode.LOR: case Opcode.LXOR:
+            frame.pop(4);
+            frame.push(StackMapTableGenerator.LONG);
+            return true;
+
+        case Opcode.LSHL: case Opcode.LSHR: case Opcode.LUSHR:
+            frame.pop(3);
+            frame.push(StackMapTableGenerator.LONG);
+            return true;
+
+        case Opcode.FADD: case Opcode.FSUB: case Opcode.FMUL: case Opcode.FDIV: case Opcode.FREM:
+            frame.pop(2);
+            frame.push(StackMapTableGenerator.FLOAT);
+            return true;
+
+        case Opcode.DADD: case Opcode.DSUB: case Opcode.DMUL: case Opcode.DDIV: case Opcode.DREM:
+            frame.pop(4);
+            frame.push(StackMapTableGenerator.DOUBLE);
+            return true;
+
+        case Opcode.INEG: case Opcode.LNEG: case Opcode.FNEG: case Opcode.DNEG:
+            return true;
+
+        case Opcode.IINC:
+            return true;
+
+        case Opcode.I2L: case Opcode.F2L:
+            frame.pop(1);
+            frame.push(StackMapTableGenerator.LONG);
+            return true;
+
+        case Opcode.I2F:
+            frame.pop(1);
+            frame.push(StackMapTableGenerator.FLOAT);
+            return true;
+
+        case Opcode.I2D: case Opcode.F2D:
+            frame.pop(1);
+            frame.push(StackMapTableGenerator.DOUBLE);
+            return true;
+
+        case Opcode.L2I: case Opcode.D2I:
+        case Opcode.LCMP: case Opcode.DCMPL: case Opcode.DCMPG:
+            frame.pop(opcode == Opcode.L2I || opcode == Opcode.D2I ? 2 : 4);
+            frame.push(StackMapTableGenerator.INTEGER);
+            return true;
+
+        case Opcode.L2F: case Opcode.D2F:
+            frame.pop(2);
+            frame.push(StackMapTableGenerator.FLOAT);
+            return true;
+
+        case Opcode.L2D:
+            frame.pop(2);
+            frame.push(StackMapTableGenerator.DOUBLE);
+            return true;
+
+        case Opcode.D2L:
+            frame.pop(2);
+            frame.push(StackMapTableGenerator.LONG);
+            return true;
+
+        case Opcode.F2I: case Opcode.I2B: case Opcode.I2C: case Opcode.I2S:
+            frame.pop(1);
+            frame.push(StackMapTableGenerator.INTEGER);
+            return true;
+
+        case Opcode.IFEQ: case Opcode.IFNE: case Opcode.IFLT: case Opcode.IFGE: case Opcode.IFGT: case Opcode.IFLE:
+        case Opcode.IFNULL: case Opcode.IFNONNULL:
+            frame.pop(1);
+            this.merge(frame, pc + this.s16(pc + 1));
+            return true;
+
+        case Opcode.IF_ICMPEQ: case Opcode.IF_ICMPNE: case Opcode.IF_ICMPLT: case Opcode.IF_ICMPGE:
+        case Opcode.IF_ICMPGT: case Opcode.IF_ICMPLE: case Opcode.IF_ACMPEQ: case Opcode.IF_ACMPNE:
+            frame.pop(2);
+            this.merge(frame, pc + this.s16(pc + 1));
+            return true;
+
+        case Opcode.GOTO:
+            this.merge(frame, pc + this.s16(pc + 1));
+            return false;
+
+        case Opcode.GOTO_W:
+            this.merge(frame, pc + this.s32(pc + 1));
+            return false;
+
+        case Opcode.TABLESWITCH:
+        case Opcode.LOOKUPSWITCH:
+            frame.pop(1);
+            for (int target : this.getBranchTargets(pc)) this.merge(frame, target);
+            return false;
+
+        case Opcode.IRETURN: case Opcode.LRETURN: case Opcode.FRETURN: case Opcode.DRETURN: case Opcode.ARETURN:
+        case Opcode.RETURN:
+        case Opcode.ATHROW:
+            return false;
+
+        case Opcode.GETSTATIC:
+        case Opcode.GETFIELD:
+            {
+                String fd = this.getFieldrefDescriptor(this.u16(pc + 1));
+                if (opcode == Opcode.GETFIELD) frame.pop(1);
+                frame.push(StackMapTableGenerator.verificationType(fd));
+            }
+            return true;
+
+        case Opcode.PUTSTATIC:
+        case Opcode.PUTFIELD:
+            {
+                String fd = this.getFieldrefDescriptor(this.u16(pc + 1));
+                frame.pop(Descriptor.size(fd) + (opcode == Opcode.PUTFIELD ? 1 : 0));
+            }
+            return true;
+
+        case Opcode.INVOKEVIRTUAL: case Opcode.INVOKESPECIAL: case Opcode.INVOKESTATIC: case Opcode.INVOKEINTERFACE:
+            this.invoke(frame, opcode, this.u16(pc + 1));
+            return true;
+
+        case Opcode.INVOKEDYNAMIC:
+            {
+                ClassFile cf = this.classFile;
+
+                ClassFile.ConstantInvokeDynamicInfo
+                cidi = (ClassFile.ConstantInvokeDynamicInfo) cf.getConstantPoolInfo((short) this.u16(pc + 1));
+
+                String md = cf.getConstantNameAndTypeInfo(cidi.getNameAndTypeIndex()).getDescriptor(cf);
+                for (String pfd : StackMapTableGenerator.getParameterFds(md)) frame.pop(Descriptor.size(pfd));
+
+                String rfd = md.substring(md.indexOf(')') + 1);
+                if (!"V".equals(rfd)) frame.push(StackMapTableGenerator.verificationType(rfd));
+            }
+            return true;
+
+        case Opcode.NEW:
+            frame.push(StackMapTableGenerator.UNINITIALIZED_THIS + pc);
+            return true;
+
+        case Opcode.NEWARRAY:
+            frame.pop(1);
+            frame.push("[" + "ZCFDBSIJ".charAt(this.code[pc + 1] - 4));
+            return true;
+
+        case Opcode.ANEWARRAY:
+            frame.pop(1);
+            frame.push("[" + this.getClassFd(this.u16(pc + 1)));
+            return true;
+
+        case Opcode.ARRAYLENGTH:
+        case Opcode.INSTANCEOF:
+            frame.pop(1);
+            frame.push(StackMapTableGenerator.INTEGER);
+            return true;
+
+        case Opcode.CHECKCAST:
+            frame.pop(1);
+            frame.push(this.getClassFd(this.u16(pc + 1)));
+            return true;
+
+        case Opcode.MULTIANEWARRAY:
+            frame.pop(0xff & this.code[pc + 3]);
+            frame.push(this.getClassFd(this.u16(pc + 1)));
+            return true;
+
+        case Opcode.WIDE:
+            {
+                byte wopcode = this.code[pc + 1];
+                int  idx     = this.u16(pc + 2);
+                switch (wopcode) {
+
+                case Opcode.ILOAD: case Opcode.LLOAD: case Opcode.FLOAD: case Opcode.DLOAD: case Opcode.ALOAD:
+                    this.load(frame, wopcode, idx);
+                    return true;
+
+                case Opcode.ISTORE: case Opcode.LSTORE: case Opcode.FSTORE: case Opcode.DSTORE: case Opcode.ASTORE:
+                    this.store(frame, wopcode, idx);
+                    return true;
+
+                case Opcode.IINC:
+                    return true;
+
+                default:
+                    throw new InternalCompilerException(
+                        "Unexpected opcode WIDE " + (0xff & wopcode) + " at offset " + pc
+                    );
+                }
+            }
+
+        default:
+            throw new InternalCompilerException(
+                "Unexpected opcode " + (0xff & opcode) + " at offset " + pc + " in a method with a StackMapTable"
+            );
+        }
+    }
+
+    private void
+    load(Frame frame, byte opcode, int idx) {
+        switch (opcode) {
+        case Opcode.ILOAD: frame.push(StackMapTableGenerator.INTEGER); break;
+        case Opcode.LLOAD: frame.push(StackMapTableGenerator.LONG);    break;
+        case Opcode.FLOAD: frame.push(StackMapTableGenerator.FLOAT);   break;
+        case Opcode.DLOAD: frame.push(StackMapTableGenerator.DOUBLE);  break;
+        case Opcode.ALOAD: frame.push(frame.locals[idx]);              break;
+        default:           throw new InternalCompilerException(Integer.toString(opcode));
+        }
+    }
+
+    private void
+    store(Frame frame, byte opcode, int idx) {
+
+        String vt;
+        switch (opcode) {
+        case Opcode.ISTORE: frame.pop(1); vt = StackMapTableGenerator.INTEGER; break;
+        case Opcode.LSTORE: frame.pop(2); vt = StackMapTableGenerator.LONG;    break;
+        case Opcode.FSTORE: frame.pop(1); vt = StackMapTableGenerator.FLOAT;   break;
+        case Opcode.DSTORE: frame.pop(2); vt = StackMapTableGenerator.DOUBLE;  break;
+        case Opcode.ASTORE: vt = frame.pop();                                  break;
+        default:            throw new InternalCompilerException(Integer.toString(opcode));
+        }
+
+        String[] locals = frame.locals;
+
+        // Overwriting either word of a long or double value invalidates the other word.
+        if (idx > 0 && StackMapTableGenerator.isTwoWords(locals[idx - 1])) {
+            locals[idx - 1] = StackMapTableGenerator.TOP;
+        }
+        int last = StackMapTableGenerator.isTwoWords(vt) ? idx + 1 : idx;
+        if (StackMapTableGenerator.isTwoWords(locals[last])) locals[last + 1] = StackMapTableGenerator.TOP;
+
+        locals[idx] = vt;
+        if (last != idx) locals[last] = StackMapTableGenerator.SECOND_WORD;
+    }
+
+    private void
+    invoke(Frame frame, byte opcode, int idx) {
+
+        ClassFile.ConstantPoolInfo        cpi = this.classFile.getConstantPoolInfo((short) idx);
+        ClassFile.ConstantNameAndTypeInfo nat = (
+            cpi instanceof ClassFile.ConstantInterfaceMethodrefInfo
+            ? ((ClassFile.ConstantInterfaceMethodrefInfo) cpi).getNameAndType(this.classFile)
+            : ((ClassFile.ConstantMethodrefInfo)          cpi).getNameAndType(this.classFile)
+        );
+        String md = nat.getDescriptor(this.classFile);
+
+        for (String pfd : StackMapTableGenerator.getParameterFds(md)) frame.pop(Descriptor.size(pfd));
+
+        if (opcode != Opcode.INVOKESTATIC) {
+            String target = frame.pop();
+            if (opcode == Opcode.INVOKESPECIAL && "<init>".equals(nat.getName(this.classFile))) {
+
+                // The instance initialization method initializes the target object.
+                String initialized;
+                if (StackMapTableGenerator.UNINITIALIZED_THIS.equals(target)) {
+                    initialized = this.thisFd;
+                } else
+                if (target.charAt(0) == 'U') {
+                    int newPc = Integer.parseInt(target.substring(1));
+                    initialized = this.getClassFd(this.u16(newPc + 1));
+                } else
+                {
+                    throw new InternalCompilerException("Constructor invoked on initialized object");
+                }
+                for (int i = 0; i < frame.locals.length; i++) {
+                    if (frame.locals[i].equals(target)) frame.locals[i] = initialized;
+                }
+                for (int i = 0; i < frame.stack.size(); i++) {
+                    if (((String) frame.stack.get(i)).equals(target)) frame.stack.set(i, initialized);
+                }
+            }
+        }
+
+        String rfd = md.substring(md.indexOf(')') + 1);
+        if (!"V".equals(rfd)) frame.push(StackMapTableGenerator.verificationType(rfd));
+    }
+
+    /**
+     * @return The verification type of the value that an LDC instruction with the given constant pool index pushes
+     */
+    private String
+    getConstantType(int idx) {
+        ClassFile.ConstantPoolInfo cpi = this.classFile.getConstantPoolInfo((short) idx);
+
+        if (cpi instanceof ClassFile.ConstantValuePoolInfo) {
+            Object value = ((ClassFile.ConstantValuePoolInfo) cpi).getValue(this.classFile);
+            if (value instanceof Integer) return StackMapTableGenerator.INTEGER;
+            if (value instanceof Float)   return StackMapTableGenerator.FLOAT;
+            if (value instanceof Long)    return StackMapTableGenerator.LONG;
+            if (value instanceof Double)  return StackMapTableGenerator.DOUBLE;
+            if (value instanceof String)  return Descriptor.JAVA_LANG_STRING;
+        }
+        if (cpi instanceof ClassFile.ConstantClassInfo) return Descriptor.JAVA_LANG_CLASS;
+
+        if (cpi instanceof ClassFile.ConstantMethodTypeInfo)   return "Ljava/lang/invoke/MethodType;";
+        if (cpi instanceof ClassFile.ConstantMethodHandleInfo) return "Ljava/lang/invoke/MethodHandle;";
+
+        throw new InternalCompilerException("Unexpected constant pool entry " + cpi + " for LDC");
+    }
+
+    private String
+    getFieldrefDescriptor(int idx) {
+        ClassFile cf = this.classFile;
+        return cf.getConstantFieldrefInfo((short) idx).getNameAndType(cf).getDescriptor(cf);
+    }
+
+    private String
+    getClassFd(int idx) {
+        return Descriptor.fromInternalForm(this.classFile.getConstantClassInfo((short) idx).getName(this.classFile));
+    }
+
+    /**
+     * @return The offsets that the instruction at <var>pc</var> may branch to (not including the next instruction)
+     */
+    private int[]
+    getBranchTargets(int pc) {
+        byte opcode = this.code[pc];
+        switch (opcode) {
+
+        case Opcode.TABLESWITCH:
+            {
+                int   p      = (pc + 4) & ~3;
+                int   low    = this.s32(p + 4);
+                int   high   = this.s32(p + 8);
+                int[] result = new int[high - low + 2];
+                result[0] = pc + this.s32(p);
+                for (int i = 1; i < result.length; i++) result[i] = pc + this.s32(p + 8 + 4 * i);
+                return result;
+            }
+
+        case Opcode.LOOKUPSWITCH:
+            {
+                int   p      = (pc + 4) & ~3;
+                int   npairs = this.s32(p + 4);
+                int[] result = new int[npairs + 1];
+                result[0] = pc + this.s32(p);
+                for (int i = 1; i < result.length; i++) result[i] = pc + this.s32(p + 8 * i + 4);
+                return result;
+            }
+
+        case Opcode.JSR:
+        case Opcode.JSR_W:
+        case Opcode.RET:
+            throw new InternalCompilerException("JSR/RET must not be used in a method with a StackMapTable");
+
+        case Opcode.GOTO_W:
+            return new int[] { pc + this.s32(pc + 1) };
+
+        case Opcode.WIDE:
+            return new int[0];
+
+        default:
+            short props = Opcode.OPCODE_PROPERTIES[0xff & opcode];
+            if (props != Opcode.INVALID_OPCODE && (props & Opcode.OP1_MASK) == Opcode.OP1_BO2) {
+                return new int[] { pc + this.s16(pc + 1) };
+            }
+            return new int[0];
+        }
+    }
+
+    private int
+    getInstructionLength(int pc) {
+        byte opcode = this.code[pc];
+        switch (opcode) {
+
+        case Opcode.WIDE:
+            return this.code[pc + 1] == Opcode.IINC ? 6 : 4;
+
+        case Opcode.TABLESWITCH:
+            {
+                int p = (pc + 4) & ~3;
+                return p + 12 + 4 * (this.s32(p + 8) - this.s32(p + 4) + 1) - pc;
+            }
+
+        case Opcode.LOOKUPSWITCH:
+            {
+                int p = (pc + 4) & ~3;
+                return p + 8 + 8 * this.s32(p + 4) - pc;
+            }
+
+        default:
+            ;
+        }
+
+        short props = Opcode.OPCODE_PROPERTIES[0xff & opcode];
+        if (props == Opcode.INVALID_OPCODE) {
+            throw new InternalCompilerException("Invalid opcode " + (0xff & opcode) + " at offset " + pc);
+        }
+
+        int length = 1;
+        switch (props & Opcode.OP1_MASK) {
+
+        case 0:
+            break;
+
+        case Opcode.OP1_SB:
+        case Opcode.OP1_UB:
+        case Opcode.OP1_CP1:
+        case Opcode.OP1_LV1:
+            length += 1;
+            break;
+
+        case Opcode.OP1_SS:
+        case Opcode.OP1_CP2:
+        case Opcode.OP1_LV2:
+        case Opcode.OP1_BO2:
+        case Opcode.OP1_JSR:
+            length += 2;
+            break;
+
+        case Opcode.OP1_BO4:
+            length += 4;
+            break;
+
+        default:
+            throw new InternalCompilerException("Invalid OP1 at offset " + pc);
+        }
+        if ((props & Opcode.OP2_MASK) == Opcode.OP2_SB) length += 1;
+        if ((props & Opcode.OP2_MASK) == Opcode.OP2_SS) length += 2;
+        if ((props & Opcode.OP3_MASK) == Opcode.OP3_SB) length += 1;
+
+        return length;
+    }
+
+    /**
+     * Encodes the frames at the join points, using the most compact frame types.
+     */
+    @Nullable private byte[]
+    storeFrames(Frame initialFrame) {
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        DataOutputStream      dos  = new DataOutputStream(baos);
+
+        int numberOfEntries = 0;
+        try {
+            List<String> previousLocals = StackMapTableGenerator.compactLocals(initialFrame.locals);
+            int          previousPc     = -1;
+            for (int pc = 0; pc < this.codeLength; pc++) {
+                if (!this.joinPoints[pc]) continue;
+
+                Frame frame = this.frames[pc];
+                if (frame == null) throw new InternalCompilerException("Unreachable code at offset " + pc);
+
+                List<String> locals      = StackMapTableGenerator.compactLocals(frame.locals);
+                List<String> stack       = StackMapTableGenerator.compactStack(frame.stack);
+                int          offsetDelta = previousPc == -1 ? pc : pc - previousPc - 1;
+
+                if (locals.equals(previousLocals) && stack.isEmpty()) {
+                    if (offsetDelta < 64) {
+                        dos.writeByte(offsetDelta);                         // same_frame
+                    } else {
+                        dos.writeByte(251);                                 // same_frame_extended
+                        dos.writeShort(offsetDelta);
+                    }
+                } else
+                if (locals.equals(previousLocals) && stack.size() == 1) {
+                    if (offsetDelta < 64) {
+                        dos.writeByte(64 + offsetDelta);                    // same_locals_1_stack_item_frame
+                    } else {
+                        dos.writeByte(247);                                 // same_locals_1_stack_item_frame_extended
+                        dos.writeShort(offsetDelta);
+                    }
+                    this.storeVerificationType((String) stack.get(0), dos);
+                } else
+                {
+                    dos.writeByte(255);                                     // full_frame
+                    dos.writeShort(offsetDelta);
+                    dos.writeShort(locals.size());
+                    for (String vt : locals) this.storeVerificationType(vt, dos);
+                    dos.writeShort(stack.size());
+                    for (String vt : stack) this.storeVerificationType(vt, dos);
+                }
+
+                previousLocals = locals;
+                previousPc     = pc;
+                numberOfEntries++;
+            }
+        } catch (IOException ioe) {
+            throw new InternalCompilerException(null, ioe);
+        }
+
+        if (numberOfEntries == 0) return null;
+
+        byte[] frames = baos.toByteArray();
+        byte[] result = new byte[2 + frames.length];
+        result[0] = (byte) (numberOfEntries >> 8);
+        result[1] = (byte) numberOfEntries;
+        System.arraycopy(frames, 0, result, 2, frames.length);
+        return result;
+    }
+
+    private void
+    storeVerificationType(String vt, DataOutputStream dos) throws IOException {
+        if (vt.length() == 1) {
+            dos.writeByte("TIFDJNU".indexOf(vt.charAt(0)));
+        } else
+        if (vt.charAt(0) == 'U') {
+            dos.writeByte(8);                                          // Uninitialized_variable_info
+            dos.writeShort(Integer.parseInt(vt.substring(1)));
+        } else
+        {
+            dos.writeByte(7);                                          // Object_variable_info
+            dos.writeShort(this.classFile.addConstantClassInfo(vt));
+        }
+    }
+
+    /**
+     * @return The <var>locals</var>, without the second words of long and double values, and without trailing TOPs
+     */
+    private static List<String>
+    compactLocals(String[] locals) {
+        List<String> result = new ArrayList<String>();
+        for (String l : locals) {
+            if (!StackMapTableGenerator.SECOND_WORD.equals(l)) result.add(l);
+        }
+        while (!result.isEmpty() && StackMapTableGenerator.TOP.equals(result.get(result.size() - 1))) {
+            result.remove(result.size() - 1);
+        }
+        return result;
+    }
+
+    /**
+     * @return The <var>stack</var>, without the second words of long and double values
+     */
+    private static List<String>
+    compactStack(List<String> stack) {
+        List<String> result = new ArrayList<String>();
+        for (String s : stack) {
+            if (!StackMapTableGenerator.SECOND_WORD.equals(s)) result.add(s);
+        }
+        return result;
+    }
+
+    private static List<String>
+    getParameterFds(String methodDescriptor) {
+        List<String> result = new ArrayList<String>();
+        for (int i = 1; methodDescriptor.charAt(i) != ')';) {
+            int start = i;
+            while (methodDescriptor.charAt(i) == '[') i++;
+            if (methodDescriptor.charAt(i) == 'L') i = methodDescriptor.indexOf(';', i);
+            i++;
+            result.add(methodDescriptor.substring(start, i));
+        }
+        return result;
+    }
+
+    /**
+     * @return The verification type that corresponds with the given field descriptor
+     */
+    private static String
+    verificationType(String fd) {
+        switch (fd.charAt(0)) {
+        case 'Z': case 'B': case 'C': case 'S': case 'I':
+            return StackMapTableGenerator.INTEGER;
+        case 'F':
+            return StackMapTableGenerator.FLOAT;
+        case 'J':
+            return StackMapTableGenerator.LONG;
+        case 'D':
+            return StackMapTableGenerator.DOUBLE;
+        default:
+            return fd;
+        }
+    }
+
+    private static boolean
+    isTwoWords(String vt) {
+        return StackMapTableGenerator.LONG.equals(vt) || StackMapTableGenerator.DOUBLE.equals(vt);
+    }
+
+    /**
+     * @return Whether <var>vt</var> is the verification type of an initialized object, or "null"
+     */
+    private static boolean
+    isReference(String vt) {
+        return (
+            StackMapTableGenerator.NULL.equals(vt)
+            || Descriptor.isClassOrInterfaceReference(vt)
+            || (Descriptor.isArrayReference(vt))
+        );
+    }
+
+    private int
+    u16(int pc) { return ((0xff & this.code[pc]) << 8) | (0xff & this.code[pc + 1]); }
+
+    private int
+    s16(int pc) { return (short) this.u16(pc); }
+
+    private int
+    s32(int pc) { return (this.u16(pc) << 16) | this.u16(pc + 2); }
+
+    /**
+     * The verification types of the local variables and the operand stack.
+     */
+    private static
+    class Frame {
+
+        final String[]     locals;
+        final List<String> stack;
+
+        Frame(String[] locals, List<String> stack) {
+            this.locals = locals;
+            this.stack  = stack;
+        }
+
+        Frame
+        copy() {
+            String[] locals = new String[this.locals.length];
+            System.arraycopy(this.locals, 0, locals, 0, locals.length);
+            return new Frame(locals, new ArrayList<String>(this.stack));
+        }
+
+        /**
+         * Pushes a value of the given verification type, which occupies one or two words.
+         */
+        void
+        push(String vt) {
+            this.stack.add(vt);
+            if (StackMapTableGenerator.isTwoWords(vt)) this.stack.add(StackMapTableGenerator.SECOND_WORD);
+        }
+
+        void
+        pushWords(String... words) { this.stack.addAll(Arrays.asList(words)); }
+
+        String
+        pop() {
+            if (this.stack.isEmpty()) throw new InternalCompilerException("Operand stack underflow");
+            return (String) this.stack.remove(this.stack.size() - 1);
+        }
+
+        void
+        pop(int words) { for (int i = 0; i < words; i++) this.pop(); }
+    }
+}
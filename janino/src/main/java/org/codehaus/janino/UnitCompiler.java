@@ -38,13 +38,18 @@ import java.util.Collections;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.SortedMap;
 import java.util.StringTokenizer;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
@@ -78,6 +83,7 @@ import org.codehaus.janino.Java.Assignment;
 import org.codehaus.janino.Java.Atom;
 import org.codehaus.janino.Java.BinaryOperation;
 import org.codehaus.janino.Java.Block;
+import org.codehaus.janino.Java.BlockLambdaBody;
 import org.codehaus.janino.Java.BlockStatement;
 import org.codehaus.janino.Java.BooleanLiteral;
 import org.codehaus.janino.Java.BooleanRvalue;
@@ -109,6 +115,7 @@ import org.codehaus.janino.Java.EmptyStatement;
 import org.codehaus.janino.Java.EnclosingScopeOfTypeDeclaration;
 import org.codehaus.janino.Java.EnumConstant;
 import org.codehaus.janino.Java.EnumDeclaration;
+import org.codehaus.janino.Java.ExpressionLambdaBody;
 import org.codehaus.janino.Java.ExpressionStatement;
 import org.codehaus.janino.Java.FieldAccess;
 import org.codehaus.janino.Java.FieldAccessExpression;
@@ -116,18 +123,23 @@ import org.codehaus.janino.Java.FieldDeclaration;
 import org.codehaus.janino.Java.FloatingPointLiteral;
 import org.codehaus.janino.Java.ForEachStatement;
 import org.codehaus.janino.Java.ForStatement;
+import org.codehaus.janino.Java.FormalLambdaParameters;
 import org.codehaus.janino.Java.FunctionDeclarator;
 import org.codehaus.janino.Java.FunctionDeclarator.FormalParameter;
 import org.codehaus.janino.Java.FunctionDeclarator.FormalParameters;
+import org.codehaus.janino.Java.IdentifierLambdaParameters;
 import org.codehaus.janino.Java.IfStatement;
 import org.codehaus.janino.Java.Initializer;
+import org.codehaus.janino.Java.InferredLambdaParameters;
 import org.codehaus.janino.Java.InnerClassDeclaration;
 import org.codehaus.janino.Java.Instanceof;
 import org.codehaus.janino.Java.IntegerLiteral;
 import org.codehaus.janino.Java.InterfaceDeclaration;
 import org.codehaus.janino.Java.Invocation;
 import org.codehaus.janino.Java.LabeledStatement;
+import org.codehaus.janino.Java.LambdaBody;
 import org.codehaus.janino.Java.LambdaExpression;
+import org.codehaus.janino.Java.LambdaParameters;
 import org.codehaus.janino.Java.Literal;
 import org.codehaus.janino.Java.LocalClassDeclaration;
 import org.codehaus.janino.Java.LocalClassDeclarationStatement;
@@ -205,9 +217,11 @@ import org.codehaus.janino.Visitor.ImportVisitor;
 import org.codehaus.janino.Visitor.LvalueVisitor;
 import org.codehaus.janino.Visitor.RvalueVisitor;
 import org.codehaus.janino.Visitor.TypeDeclarationVisitor;
+import org.codehaus.janino.util.AbstractTraverser;
 import org.codehaus.janino.util.Annotatable;
 import org.codehaus.janino.util.ClassFile;
 import org.codehaus.janino.util.ClassFile.ClassFileException;
+import org.codehaus.janino.util.DeepCopier;
 
 /**
  * This class actually implements the Java compiler. It is associated with exactly one compilation unit which it
@@ -236,6 +250,14 @@ class UnitCompiler {
      */
     private static final int STRING_CONCAT_LIMIT = 3;
 
+    // Special characters and limits of "StringConcatFactory.makeConcatWithConstants()".
+    private static final char TAG_ARG                   = '\u0001';
+    private static final char TAG_CONST                 = '\u0002';
+    private static final int  MAX_INDY_CONCAT_ARG_SLOTS = 200;
+
+    // Keeps the recipe constant well within the 65535-byte limit of a CONSTANT_Utf8_info entry.
+    private static final int MAX_RECIPE_LENGTH = 20000;
+
     /**
      * Special value for the <var>orientation</var> parameter of the {@link #compileBoolean(Java.Rvalue,
      * CodeContext.Offset, boolean)} methods, indicating that the code should be generated such that execution branches
@@ -254,6 +276,12 @@ class UnitCompiler {
 
     private EnumSet<JaninoOption> options = EnumSet.noneOf(JaninoOption.class);
 
+    private int targetVersion = 6;
+
+    private int methodSizeThreshold;
+
+    private int classSizeThreshold;
+
     public
     UnitCompiler(CompilationUnit compilationUnit, IClassLoader iClassLoader) {
         this.compilationUnit = compilationUnit;
@@ -276,12 +304,112 @@ class UnitCompiler {
         return this;
     }
 
+    /**
+     * Sets the version of the generated class files, e.g. {@code 8} for Java 8 class files (version 52.0). Defaults to
+     * {@code 6}.
+     * <p>
+     *   For target versions 7 and later, the {@code finally} clauses of {@code try} statements are inlined (instead of
+     *   being compiled into JSR subroutines), and each "Code" attribute is accompanied by a "StackMapTable" attribute,
+     *   as JVMS8 4.9 and 4.10.1 require.
+     * </p>
+     * <p>
+     *   Lambda expressions require target version 8 or later; they are compiled into synthetic methods and
+     *   INVOKEDYNAMIC instructions that bootstrap through {@code java.lang.invoke.LambdaMetafactory}.
+     * </p>
+     * <p>
+     *   For target versions 9 and later, string concatenation is compiled into INVOKEDYNAMIC instructions that
+     *   bootstrap through {@code java.lang.invoke.StringConcatFactory} (instead of {@link StringBuilder} chains).
+     * </p>
+     *
+     * @param targetVersion 6, 7, 8 or 9
+     */
+    public void
+    setTargetVersion(int targetVersion) {
+        if (targetVersion < 6 || targetVersion > 9) {
+            throw new IllegalArgumentException("Unsupported target version " + targetVersion);
+        }
+        this.targetVersion = targetVersion;
+    }
+
+    /**
+     * Enables the "outlining" of large method bodies: If the estimated bytecode size of the statements of a method
+     * body or of a block exceeds the <var>threshold</var>, then runs of these statements are moved into synthetic
+     * private helper methods, which receive the local variables that the statements use as parameters. Defaults to 0,
+     * which disables outlining.
+     * <p>
+     *   This keeps machine-generated methods below the 64 KB limit of the JVM (JVMS8 4.7.3), and, with a threshold of
+     *   e.g. 8000, below HotSpot's "{@code HugeMethodLimit}", above which methods are not JIT-compiled.
+     * </p>
+     * <p>
+     *   Statements are outlined only in methods (not constructors or initializers) of classes that are neither local
+     *   nor anonymous, and only if they do not declare local variables, do not assign to local variables of the
+     *   enclosing method, do not {@code return}, {@code break} or {@code continue} out of the run, contain no class
+     *   declarations or lambda expressions, and do not refer to local classes of the enclosing blocks. The last
+     *   statement of each block is never outlined.
+     * </p>
+     *
+     * @param threshold The estimated number of bytecode bytes, or 0
+     */
+    public void
+    setMethodSizeThreshold(int threshold) { this.methodSizeThreshold = threshold; }
+
+    /**
+     * Enables the splitting of large classes: If the estimated number of constant pool entries of a class exceeds the
+     * <var>threshold</var>, then the bodies of its static methods are moved into synthetic static member classes named
+     * "{@code spill$<n>}", and the methods themselves forward to the moved copies. Defaults to 0, which disables
+     * class splitting.
+     * <p>
+     *   This keeps classes with many static methods, e.g. the classes generated by {@link ScriptEvaluator} batches or
+     *   large {@link ClassBodyEvaluator} bodies, below the 65535 entry limit of the constant pool (JVMS8 4.1), because
+     *   the constants that a method body uses go with it into the spill class. The methods remain in place, so they
+     *   can still be found through reflection.
+     * </p>
+     * <p>
+     *   Only static methods of classes that are neither local nor anonymous are moved, and only if they are neither
+     *   generic nor {@code synchronized}; all methods with the same name are moved together, and only if all of them
+     *   qualify.
+     * </p>
+     *
+     * @param threshold The estimated number of constant pool entries, or 0
+     */
+    public void
+    setClassSizeThreshold(int threshold) { this.classSizeThreshold = threshold; }
+
+    /**
+     * Restricts the methods, constructors and fields that the compiled code may use; references to members that the
+     * <var>allowList</var> does not allow are reported as compile errors. Defaults to {@code null}, which allows all
+     * members.
+     */
+    public void
+    setAllowList(@Nullable AllowList allowList) { this.allowList = allowList; }
+
+    /**
+     * Enables the peephole optimization of the generated bytecode, e.g. the removal of {@code GOTO}s to the
+     * immediately following instruction; see {@link PeepholeOptimizer.Rewrite} for the complete list. The
+     * <var>optimizer</var> counts the rewrites that it performs. Defaults to {@code null}, which disables peephole
+     * optimization.
+     */
+    public void
+    setPeepholeOptimizer(@Nullable PeepholeOptimizer optimizer) { this.peepholeOptimizer = optimizer; }
+
     /**
      * @return The {@link CompilationUnit} that this {@link UnitCompiler} compiles
      */
     public CompilationUnit
     getCompilationUnit() { return this.compilationUnit; }
 
+    /**
+     * @return The field descriptors of the (non-array, non-primitive) types that this {@link UnitCompiler} has loaded
+     *         through its {@link IClassLoader} so far, i.e. the types that the compilation unit depends on; this
+     *         includes the types whose constant values were inlined
+     */
+    public Set<String>
+    getReferencedTypeDescriptors() {
+        synchronized (this.referencedTypeDescriptors) {
+            return new HashSet<String>(this.referencedTypeDescriptors);
+        }
+    }
+
     private void
     import2(SingleStaticImportDeclaration ssid) throws CompileException {
         String name = UnitCompiler.last(ssid.identifiers);
@@ -520,7 +648,9 @@ class UnitCompiler {
                 superclass != null ? superclass.getDescriptor() : null, // superclassFD
                 IClass.getDescriptors(iClass.getInterfaces())           // interfaceFDs
             );
+            this.setVersion(cf);
         }
+        this.declaredTypes.put(iClass.getDescriptor(), iClass);
 
         // Add class annotations with retention != SOURCE.
         this.compileAnnotations(cd.getAnnotations(), cf, cf);
@@ -643,11 +773,11 @@ class UnitCompiler {
                     )
                 }
             );
-            ((AbstractClassDeclaration) ed).addFieldDeclaration(fd);
+            this.addFieldDeclaration((AbstractTypeDeclaration) ed, fd);
         }
 
         // Process static initializers (a.k.a. class initializers).
-        for (BlockStatement vdoi : cd.variableDeclaratorsAndInitializers) {
+        for (BlockStatement vdoi : this.getVariableDeclaratorsAndInitializers(cd)) {
             if (((TypeBodyDeclaration) vdoi).isStatic()) classInitializationStatements.add(vdoi);
         }
 
@@ -748,7 +878,7 @@ class UnitCompiler {
                         lvds,
 
                         // System.arraycopy(E.ENUM$VALUES, 0, tmp, 0, <number-of-constants>);
-                        new ExpressionStatement(new MethodInvocation(
+                        new ExpressionStatement(this.exemptFromAllowList(new MethodInvocation(
                             loc,                                                          // location
                             new SimpleType(loc, this.iClassLoader.TYPE_java_lang_System), // optionalTarget
                             "arraycopy",                                                  // methodName
@@ -760,7 +890,7 @@ class UnitCompiler {
                                 new IntegerLiteral(loc, "0"),                                                   // Argument #4: 0
                                 new IntegerLiteral(loc, String.valueOf(numberOfEnumConstants)),                 // Argument #5: <number-of-constants>
                             }
-                        )),
+                        ))),
 
                         // return tmp;
                         new ReturnStatement(loc, new LocalVariableAccess(loc, this.getLocalVariable(lvds, vd)))
@@ -801,7 +931,7 @@ class UnitCompiler {
                         new ReturnStatement(loc, new Cast(
                             loc,                             // location
                             new SimpleType(loc, enumIClass), // targetType
-                            new MethodInvocation(            // value
+                            this.exemptFromAllowList(new MethodInvocation( // value
                                 loc,                                                        // location
                                 new SimpleType(loc, this.iClassLoader.TYPE_java_lang_Enum), // optionalTarget
                                 "valueOf",                                                  // methodName
@@ -809,7 +939,7 @@ class UnitCompiler {
                                     new ClassLiteral(loc, new SimpleType(loc, enumIClass)),
                                     new ParameterAccess(loc, fp)
                                 }
-                            )
+                            ))
                         ))
                     )
                 );
@@ -820,6 +950,9 @@ class UnitCompiler {
             }
         }
 
+        // Move the bodies of static methods into spill classes, if the class is too large.
+        List<MemberClassDeclaration> spillClasses = this.spillStaticMethods(cd);
+
         // Compile declared methods.
         this.compileDeclaredMethods(cd, cf);
 
@@ -827,14 +960,14 @@ class UnitCompiler {
         // As a side effect of compiling methods and constructors, synthetic "class-dollar" methods (which implement
         // class literals) are generated on-the fly. We need to note how many we have here so we can compile the
         // extras.
-        final int declaredMethodCount = cd.getMethodDeclarations().size();
+        final int declaredMethodCount = this.getMethodDeclarations(cd).size();
         {
-            int                     syntheticFieldCount = cd.syntheticFields.size();
-            ConstructorDeclarator[] ctords              = cd.getConstructors();
+            int                     syntheticFieldCount = this.getSyntheticFields(cd).size();
+            ConstructorDeclarator[] ctords              = this.getConstructors(cd);
             for (ConstructorDeclarator ctord : ctords) {
 
                 this.compile(ctord, cf);
-                if (syntheticFieldCount != cd.syntheticFields.size()) {
+                if (syntheticFieldCount != this.getSyntheticFields(cd).size()) {
                     throw new InternalCompilerException(
                         "SNO: Compilation of constructor \""
                         + ctord
@@ -848,6 +981,7 @@ class UnitCompiler {
 
         // A side effect of this call may create synthetic functions to access protected parent variables.
         this.compileDeclaredMemberTypes(cd, cf);
+        for (MemberClassDeclaration scd : spillClasses) this.compileMemberType(scd, cd, cf);
 
         // Compile the aforementioned extras.
         this.compileDeclaredMethods(cd, cf, declaredMethodCount);
@@ -867,12 +1001,12 @@ class UnitCompiler {
         }
 
         // Add class and instance variables as (static and non-static) fields.
-        for (BlockStatement vdoi : cd.getVariableDeclaratorsAndInitializers()) {
+        for (BlockStatement vdoi : this.getVariableDeclaratorsAndInitializers(cd)) {
             if (vdoi instanceof FieldDeclaration) this.addFields((FieldDeclaration) vdoi, cf);
         }
 
         // Synthetic fields.
-        for (IField f : cd.getSyntheticFields().values()) {
+        for (IField f : this.getSyntheticFields(cd).values()) {
             cf.addFieldInfo(
                 Mod.PACKAGE,                 // accessFlags
                 f.getName(),                 // fieldName
@@ -885,6 +1019,29 @@ class UnitCompiler {
         this.addClassFile(cf);
     }
 
+    /**
+     * Sets the version of the given {@link ClassFile} as configured through {@link #setTargetVersion(int)}.
+     */
+    private void
+    setVersion(ClassFile cf) {
+        cf.setVersion(
+            (
+                this.targetVersion == 9 ? ClassFile.MAJOR_VERSION_JDK_9   :
+                this.targetVersion == 8 ? ClassFile.MAJOR_VERSION_JDK_1_8 :
+                this.targetVersion == 7 ? ClassFile.MAJOR_VERSION_JDK_1_7 :
+                ClassFile.MAJOR_VERSION_JDK_1_6
+            ),
+            (short) 0
+        );
+    }
+
+    /**
+     * Whether {@code finally} clauses are compiled into JSR/RET subroutines, which is forbidden for class files of
+     * version 51 and later (JVMS8 4.9.1); otherwise they are inlined.
+     */
+    private boolean
+    finallyAsSubroutine() { return this.targetVersion < 7; }
+
     /**
      * Adds the given {@link ClassFile} to the result set.
      */
@@ -972,7 +1129,7 @@ class UnitCompiler {
             final int             nesting = ocs.size();
             if (nesting >= 2) {
                 TypeDeclaration immediatelyEnclosingOuterClassDeclaration = (TypeDeclaration) ocs.get(1);
-                icd.defineSyntheticField(new SimpleIField(
+                this.defineSyntheticField(icd, new SimpleIField(
                     this.resolve(icd),
                     "this$" + (nesting - 2),
                     this.resolve(immediatelyEnclosingOuterClassDeclaration)
@@ -987,7 +1144,7 @@ class UnitCompiler {
     fakeCompileVariableDeclaratorsAndInitializers(AbstractClassDeclaration cd) throws CompileException {
 
         // Compilation of field declarations can create synthetic variables, so we must not use an iterator.
-        List<BlockStatement> vdais = cd.variableDeclaratorsAndInitializers;
+        List<BlockStatement> vdais = this.getVariableDeclaratorsAndInitializers(cd);
         for (int i = 0; i < vdais.size(); i++) {
             BlockStatement vdoi = (BlockStatement) vdais.get(i);
             this.fakeCompile(vdoi);
@@ -1000,7 +1157,8 @@ class UnitCompiler {
         final IClass iClass = this.resolve(id);
 
         // Determine extended interfaces.
-        IClass[] is                   = (id.interfaces = new IClass[id.extendedTypes.length]);
+        IClass[] is                   = new IClass[id.extendedTypes.length];
+        if (!this.sideTables()) id.interfaces = is;
         String[] interfaceDescriptors = new String[is.length];
         for (int i = 0; i < id.extendedTypes.length; ++i) {
             is[i]                   = this.getType(id.extendedTypes[i]);
@@ -1014,6 +1172,8 @@ class UnitCompiler {
             Descriptor.JAVA_LANG_OBJECT,                                    // superclassFD
             interfaceDescriptors                                            // interfaceFDs
         );
+        this.setVersion(cf);
+        this.declaredTypes.put(iClass.getDescriptor(), iClass);
 
         // Add interface annotations with retention != SOURCE.
         this.compileAnnotations(id.getAnnotations(), cf, cf);
@@ -1036,9 +1196,9 @@ class UnitCompiler {
         if (id.hasDeprecatedDocTag()) cf.addDeprecatedAttribute();
 
         // Interface initialization method.
-        if (!id.constantDeclarations.isEmpty()) {
+        if (!this.getConstantDeclarations(id).isEmpty()) {
             List<BlockStatement> statements = new ArrayList<BlockStatement>();
-            statements.addAll(id.constantDeclarations);
+            statements.addAll(this.getConstantDeclarations(id));
 
             this.maybeCreateInitMethod(id, cf, statements);
         }
@@ -1046,7 +1206,9 @@ class UnitCompiler {
         this.compileDeclaredMethods(id, cf);
 
         // Class variables.
-        for (FieldDeclaration constantDeclaration : id.constantDeclarations) this.addFields(constantDeclaration, cf);
+        for (FieldDeclaration constantDeclaration : this.getConstantDeclarations(id)) {
+            this.addFields(constantDeclaration, cf);
+        }
 
         this.compileDeclaredMemberTypes(id, cf);
 
@@ -1304,21 +1466,24 @@ class UnitCompiler {
      */
     private void
     compileDeclaredMemberTypes(TypeDeclaration decl, ClassFile cf) throws CompileException {
-        for (MemberTypeDeclaration mtd : decl.getMemberTypeDeclarations()) {
-            this.compile(mtd);
-
-            // Add InnerClasses attribute entry for member type declaration.
-            short innerClassInfoIndex = cf.addConstantClassInfo(this.resolve(mtd).getDescriptor());
-            short outerClassInfoIndex = cf.addConstantClassInfo(this.resolve(decl).getDescriptor());
-            short innerNameIndex      = cf.addConstantUtf8Info(mtd.getName());
-            assert mtd.getAnnotations().length == 0;
-            cf.addInnerClassesAttributeEntry(new ClassFile.InnerClassesAttribute.Entry(
-                innerClassInfoIndex,   // innerClassInfoIndex
-                outerClassInfoIndex,   // outerClassInfoIndex
-                innerNameIndex,        // innerNameIndex
-                mtd.getModifierFlags() // innerClassAccessFlags
-            ));
-        }
+        for (MemberTypeDeclaration mtd : decl.getMemberTypeDeclarations()) this.compileMemberType(mtd, decl, cf);
+    }
+
+    private void
+    compileMemberType(MemberTypeDeclaration mtd, TypeDeclaration decl, ClassFile cf) throws CompileException {
+        this.compile(mtd);
+
+        // Add InnerClasses attribute entry for member type declaration.
+        short innerClassInfoIndex = cf.addConstantClassInfo(this.resolve(mtd).getDescriptor());
+        short outerClassInfoIndex = cf.addConstantClassInfo(this.resolve(decl).getDescriptor());
+        short innerNameIndex      = cf.addConstantUtf8Info(mtd.getName());
+        assert mtd.getAnnotations().length == 0;
+        cf.addInnerClassesAttributeEntry(new ClassFile.InnerClassesAttribute.Entry(
+            innerClassInfoIndex,   // innerClassInfoIndex
+            outerClassInfoIndex,   // outerClassInfoIndex
+            innerNameIndex,        // innerNameIndex
+            mtd.getModifierFlags() // innerClassAccessFlags
+        ));
     }
 
     /**
@@ -1343,8 +1508,9 @@ class UnitCompiler {
         // Notice that as a side effect of compiling methods, synthetic "class-dollar" methods (which implement class
         // literals) are generated on-the fly. Hence, we must not use an Iterator here.
 
-        for (int i = startPos; i < typeDeclaration.getMethodDeclarations().size(); ++i) {
-            MethodDeclarator md = (MethodDeclarator) typeDeclaration.getMethodDeclarations().get(i);
+        List<MethodDeclarator> mds = this.getMethodDeclarations(typeDeclaration);
+        for (int i = startPos; i < mds.size(); ++i) {
+            MethodDeclarator md = (MethodDeclarator) mds.get(i);
 
             IMethod m                     = this.toIMethod(md);
             boolean overrides             = this.overridesMethodFromSupertype(m, this.resolve(md.getDeclaringType()));
@@ -1552,7 +1718,7 @@ class UnitCompiler {
     compile2(Block b) throws CompileException {
         this.getCodeContext().saveLocalVariables();
         try {
-            return this.compileStatements(b.statements);
+            return this.compileStatements(this.outlineStatements(b.statements, b));
         } finally {
             this.getCodeContext().restoreLocalVariables();
         }
@@ -1590,29 +1756,31 @@ class UnitCompiler {
         final CodeContext.Offset bodyOffset = this.getCodeContext().newOffset();
 
         // Compile body.
-        ds.whereToContinue = null;
-        if (!this.compile(ds.body) && ds.whereToContinue == null) {
+        this.setWhereToContinue(ds, null);
+        if (!this.compile(ds.body) && this.getWhereToContinueOrNull(ds) == null) {
             this.warning("DSNTC", "\"do\" statement never tests its condition", ds.getLocation());
 
-            Offset wtb = ds.whereToBreak;
+            Offset wtb = this.getWhereToBreakOrNull(ds);
             if (wtb == null) return false;
 
             wtb.set();
-            ds.whereToBreak = null;
+            this.setWhereToBreak(ds, null);
 
             return true;
         }
-        if (ds.whereToContinue != null) {
-            ds.whereToContinue.set();
-            ds.whereToContinue = null;
+        Offset wtc = this.getWhereToContinueOrNull(ds);
+        if (wtc != null) {
+            wtc.set();
+            this.setWhereToContinue(ds, null);
         }
 
         // Compile condition.
         this.compileBoolean(ds.condition, bodyOffset, UnitCompiler.JUMP_IF_TRUE);
 
-        if (ds.whereToBreak != null) {
-            ds.whereToBreak.set();
-            ds.whereToBreak = null;
+        Offset wtb = this.getWhereToBreakOrNull(ds);
+        if (wtb != null) {
+            wtb.set();
+            this.setWhereToBreak(ds, null);
         }
 
         return true;
@@ -1652,21 +1820,22 @@ class UnitCompiler {
             this.writeBranch(fs, Opcode.GOTO, toCondition);
 
             // Compile body.
-            fs.whereToContinue = null;
+            this.setWhereToContinue(fs, null);
             final CodeContext.Offset bodyOffset = this.getCodeContext().newOffset();
             boolean                  bodyCcn    = this.compile(fs.body);
-            if (fs.whereToContinue != null) fs.whereToContinue.set();
+            Offset wtc = this.getWhereToContinueOrNull(fs);
+            if (wtc != null) wtc.set();
 
             // Compile update.
             if (ou != null) {
-                if (!bodyCcn && fs.whereToContinue == null) {
+                if (!bodyCcn && this.getWhereToContinueOrNull(fs) == null) {
                     this.warning("FUUR", "For update is unreachable", fs.getLocation());
                 } else
                 {
                     for (Rvalue rv : ou) this.compile(rv);
                 }
             }
-            fs.whereToContinue = null;
+            this.setWhereToContinue(fs, null);
 
             // Compile condition.
             toCondition.set();
@@ -1675,9 +1844,10 @@ class UnitCompiler {
             this.getCodeContext().restoreLocalVariables();
         }
 
-        if (fs.whereToBreak != null) {
-            fs.whereToBreak.set();
-            fs.whereToBreak = null;
+        Offset wtb = this.getWhereToBreakOrNull(fs);
+        if (wtb != null) {
+            wtb.set();
+            this.setWhereToBreak(fs, null);
         }
 
         return true;
@@ -1712,7 +1882,7 @@ class UnitCompiler {
                 this.writeBranch(fes, Opcode.GOTO, toCondition);
 
                 // Compile the body.
-                fes.whereToContinue = null;
+                this.setWhereToContinue(fes, null);
                 final CodeContext.Offset bodyOffset = this.getCodeContext().newOffset();
 
                 this.load(fes, expressionType, expressionLv);
@@ -1724,15 +1894,16 @@ class UnitCompiler {
                 this.store(fes, elementLv);
 
                 boolean bodyCcn = this.compile(fes.body);
-                if (fes.whereToContinue != null) fes.whereToContinue.set();
+                Offset wtc = this.getWhereToContinueOrNull(fes);
+                if (wtc != null) wtc.set();
 
                 // Compile update.
-                if (!bodyCcn && fes.whereToContinue == null) {
+                if (!bodyCcn && this.getWhereToContinueOrNull(fes) == null) {
                     this.warning("FUUR", "For update is unreachable", fes.getLocation());
                 } else {
                     this.crement(fes, indexLv, "++");
                 }
-                fes.whereToContinue = null;
+                this.setWhereToContinue(fes, null);
 
                 // Compile condition.
                 toCondition.set();
@@ -1744,9 +1915,10 @@ class UnitCompiler {
                 this.getCodeContext().restoreLocalVariables();
             }
 
-            if (fes.whereToBreak != null) {
-                fes.whereToBreak.set();
-                fes.whereToBreak = null;
+            Offset wtb = this.getWhereToBreakOrNull(fes);
+            if (wtb != null) {
+                wtb.set();
+                this.setWhereToBreak(fes, null);
             }
         } else
         if (this.iClassLoader.TYPE_java_lang_Iterable.isAssignableFrom(expressionType)) {
@@ -1772,7 +1944,7 @@ class UnitCompiler {
                 this.writeBranch(fes, Opcode.GOTO, toCondition);
 
                 // Compile the body.
-                fes.whereToContinue = null;
+                this.setWhereToContinue(fes, null);
                 final CodeContext.Offset bodyOffset = this.getCodeContext().newOffset();
 
                 this.load(fes, iteratorLv);
@@ -1793,13 +1965,14 @@ class UnitCompiler {
                 this.store(fes, elementLv);
 
                 boolean bodyCcn = this.compile(fes.body);
-                if (fes.whereToContinue != null) fes.whereToContinue.set();
+                Offset wtc = this.getWhereToContinueOrNull(fes);
+                if (wtc != null) wtc.set();
 
                 // Compile update.
-                if (!bodyCcn && fes.whereToContinue == null) {
+                if (!bodyCcn && this.getWhereToContinueOrNull(fes) == null) {
                     this.warning("FUUR", "For update is unreachable", fes.getLocation());
                 }
-                fes.whereToContinue = null;
+                this.setWhereToContinue(fes, null);
 
                 // Compile condition.
                 toCondition.set();
@@ -1810,9 +1983,10 @@ class UnitCompiler {
                 this.getCodeContext().restoreLocalVariables();
             }
 
-            if (fes.whereToBreak != null) {
-                fes.whereToBreak.set();
-                fes.whereToBreak = null;
+            Offset wtb = this.getWhereToBreakOrNull(fes);
+            if (wtb != null) {
+                wtb.set();
+                this.setWhereToBreak(fes, null);
             }
         } else
         {
@@ -1838,20 +2012,22 @@ class UnitCompiler {
         }
 
         // Compile body.
-        Offset wtc = (ws.whereToContinue = this.getCodeContext().new Offset());
+        Offset wtc = this.getCodeContext().new Offset();
+        this.setWhereToContinue(ws, wtc);
         this.writeBranch(ws, Opcode.GOTO, wtc);
         final CodeContext.Offset bodyOffset = this.getCodeContext().newOffset();
         this.compile(ws.body); // Return value (CCN) is ignored.
-        assert ws.whereToContinue == wtc;
+        assert this.getWhereToContinueOrNull(ws) == wtc;
         wtc.set();
-        ws.whereToContinue = null;
+        this.setWhereToContinue(ws, null);
 
         // Compile condition.
         this.compileBoolean(ws.condition, bodyOffset, UnitCompiler.JUMP_IF_TRUE);
 
-        if (ws.whereToBreak != null) {
-            ws.whereToBreak.set();
-            ws.whereToBreak = null;
+        Offset wtb = this.getWhereToBreakOrNull(ws);
+        if (wtb != null) {
+            wtb.set();
+            this.setWhereToBreak(ws, null);
         }
         return true;
     }
@@ -1862,15 +2038,16 @@ class UnitCompiler {
         if (optionalUpdate != null) return this.compileUnconditionalLoopWithUpdate(cs, body, optionalUpdate);
 
         // Compile body.
-        Offset wtc = (cs.whereToContinue = this.getCodeContext().newOffset());
+        Offset wtc = this.getCodeContext().newOffset();
+        this.setWhereToContinue(cs, wtc);
         if (this.compile(body)) this.writeBranch(cs, Opcode.GOTO, wtc);
-        cs.whereToContinue = null;
+        this.setWhereToContinue(cs, null);
 
-        Offset wtb = cs.whereToBreak;
+        Offset wtb = this.getWhereToBreakOrNull(cs);
         if (wtb == null) return false;
 
         wtb.set();
-        cs.whereToBreak = null;
+        this.setWhereToBreak(cs, null);
 
         return true;
     }
@@ -1879,26 +2056,27 @@ class UnitCompiler {
     throws CompileException {
 
         // Compile body.
-        cs.whereToContinue = null;
+        this.setWhereToContinue(cs, null);
         final CodeContext.Offset bodyOffset = this.getCodeContext().newOffset();
         boolean                  bodyCcn    = this.compile(body);
 
         // Compile the "update".
-        if (cs.whereToContinue != null) cs.whereToContinue.set();
-        if (!bodyCcn && cs.whereToContinue == null) {
+        Offset wtc = this.getWhereToContinueOrNull(cs);
+        if (wtc != null) wtc.set();
+        if (!bodyCcn && this.getWhereToContinueOrNull(cs) == null) {
             this.warning("LUUR", "Loop update is unreachable", update[0].getLocation());
         } else
         {
             for (Rvalue rv : update) this.compile(rv);
             this.writeBranch(cs, Opcode.GOTO, bodyOffset);
         }
-        cs.whereToContinue = null;
+        this.setWhereToContinue(cs, null);
 
-        Offset wtb = cs.whereToBreak;
+        Offset wtb = this.getWhereToBreakOrNull(cs);
         if (wtb == null) return false;
         wtb.set();
 
-        cs.whereToBreak = null;
+        this.setWhereToBreak(cs, null);
 
         return true;
     }
@@ -1907,12 +2085,12 @@ class UnitCompiler {
     compile2(LabeledStatement ls) throws CompileException {
         boolean canCompleteNormally = this.compile(ls.body);
 
-        Offset wtb = ls.whereToBreak;
+        Offset wtb = this.getWhereToBreakOrNull(ls);
         if (wtb == null) return canCompleteNormally;
 
         wtb.set();
 
-        ls.whereToBreak = null;
+        this.setWhereToBreak(ls, null);
 
         return true;
     }
@@ -2184,12 +2362,12 @@ class UnitCompiler {
             }
         }
 
-        Offset wtb = ss.whereToBreak;
+        Offset wtb = this.getWhereToBreakOrNull(ss);
         if (wtb == null) return canCompleteNormally;
 
         wtb.set();
 
-        ss.whereToBreak = null;
+        this.setWhereToBreak(ss, null);
 
         return true;
     }
@@ -2240,11 +2418,11 @@ class UnitCompiler {
             }
         }
 
-        this.leaveStatements(
+        if (!this.leaveStatements(
             bs.getEnclosingScope(),              // from
             brokenStatement.getEnclosingScope(), // to
             null                                 // optionalStackValueType
-        );
+        )) return false;
         this.writeBranch(bs, Opcode.GOTO, this.getWhereToBreak(brokenStatement));
         return false;
     }
@@ -2304,16 +2482,17 @@ class UnitCompiler {
             }
         }
 
-        Offset wtc = continuedStatement.whereToContinue;
+        Offset wtc = this.getWhereToContinueOrNull(continuedStatement);
         if (wtc == null) {
-            wtc = (continuedStatement.whereToContinue = this.getCodeContext().new Offset());
+            wtc = this.getCodeContext().new Offset();
+            this.setWhereToContinue(continuedStatement, wtc);
         }
 
-        this.leaveStatements(
+        if (!this.leaveStatements(
             cs.getEnclosingScope(),                 // from
             continuedStatement.getEnclosingScope(), // to
             null                                    // optionalStackValueType
-        );
+        )) return false;
 
         this.writeBranch(cs, Opcode.GOTO, wtc);
 
@@ -2340,6 +2519,7 @@ class UnitCompiler {
                 ? new Rvalue[0]
                 : new Rvalue[] { as.optionalExpression2 }
             );
+            this.allowListExemptions.put(as, as);
             this.invokeConstructor(
                 as,                                              // locatable
                 as,                                              // scope
@@ -2376,9 +2556,10 @@ class UnitCompiler {
             if (!Mod.isStatic(fd.modifiers.accessFlags)) this.writeOpcode(fd, Opcode.ALOAD_0);
             IClass fieldType = this.getType(fd.type);
             if (initializer instanceof Rvalue) {
-                Rvalue rvalue          = (Rvalue) initializer;
-                IClass initializerType = this.compileGetValue(rvalue);
+                Rvalue rvalue = (Rvalue) initializer;
                 fieldType = fieldType.getArrayIClass(vd.brackets, this.iClassLoader.TYPE_java_lang_Object);
+                this.setLambdaTargetType(rvalue, fieldType);
+                IClass initializerType = this.compileGetValue(rvalue);
                 this.assignmentConversion(
                     fd,                           // locatable
                     initializerType,              // sourceType
@@ -2577,6 +2758,7 @@ class UnitCompiler {
             if (oi != null) {
                 if (oi instanceof Rvalue) {
                     Rvalue rhs = (Rvalue) oi;
+                    this.setLambdaTargetType(rhs, lv.type);
                     this.assignmentConversion(
                         lvds,                      // locatable
                         this.compileGetValue(rhs), // sourceType
@@ -2605,7 +2787,12 @@ class UnitCompiler {
     public LocalVariable
     getLocalVariable(LocalVariableDeclarationStatement lvds, VariableDeclarator vd) throws CompileException {
 
-        if (vd.localVariable != null) return vd.localVariable;
+        SideTableEntry ste = this.sideTables() ? this.sideTableEntry(vd) : null;
+
+        {
+            LocalVariable result = ste != null ? ste.localVariable : vd.localVariable;
+            if (result != null) return result;
+        }
 
         // Determine variable type.
         Type variableType = lvds.type;
@@ -2613,10 +2800,16 @@ class UnitCompiler {
 
         // Ignore "lvds.modifiers.annotations".
 
-        return (vd.localVariable = new LocalVariable(
+        LocalVariable result = new LocalVariable(
             Mod.isFinal(lvds.modifiers.accessFlags), // finaL
             this.getType(variableType)               // type
-        ));
+        );
+        if (ste != null) {
+            ste.localVariable = result;
+        } else {
+            vd.localVariable = result;
+        }
+        return result;
     }
 
     private boolean
@@ -2635,11 +2828,11 @@ class UnitCompiler {
         IClass returnType = this.getReturnType(enclosingFunction);
         if (returnType == IClass.VOID) {
             if (orv != null) this.compileError("Method must not return a value", rs.getLocation());
-            this.leaveStatements(
+            if (!this.leaveStatements(
                 rs.getEnclosingScope(), // from
                 enclosingFunction,      // to
                 null                    // optionalStackValueType
-            );
+            )) return false;
             this.writeOpcode(rs, Opcode.RETURN);
             return false;
         }
@@ -2648,6 +2841,7 @@ class UnitCompiler {
             this.compileError("Method must return a value", rs.getLocation());
             return false;
         }
+        this.setLambdaTargetType(orv, returnType);
         IClass type = this.compileGetValue(orv);
         this.assignmentConversion(
             rs,                        // locatable
@@ -2656,11 +2850,11 @@ class UnitCompiler {
             this.getConstantValue(orv) // optionalConstantValue
         );
 
-        this.leaveStatements(
+        if (!this.leaveStatements(
             rs.getEnclosingScope(), // from
             enclosingFunction,      // to
             returnType              // optionalStackValueType
-        );
+        )) return false;
         this.writeOpcode(rs, Opcode.IRETURN + UnitCompiler.ilfda(returnType));
         return false;
     }
@@ -2681,11 +2875,16 @@ class UnitCompiler {
         try {
 
             // Allocate a local variable for the monitor object.
-            ss.monitorLvIndex = this.getCodeContext().allocateLocalVariable((short) 1);
+            short monitorLvIndex = this.getCodeContext().allocateLocalVariable((short) 1);
+            if (this.sideTables()) {
+                this.sideTableEntry(ss).monitorLvIndex = monitorLvIndex;
+            } else {
+                ss.monitorLvIndex = monitorLvIndex;
+            }
 
             // Store the monitor object.
             this.writeOpcode(ss, Opcode.DUP);
-            this.store(ss, this.iClassLoader.TYPE_java_lang_Object, ss.monitorLvIndex);
+            this.store(ss, this.iClassLoader.TYPE_java_lang_Object, monitorLvIndex);
 
             // Create lock on the monitor object.
             this.writeOpcode(ss, Opcode.MONITORENTER);
@@ -2882,14 +3081,14 @@ class UnitCompiler {
                 this.iClassLoader.METH_java_lang_Throwable__addSuppressed == null
                 ? (BlockStatement) new EmptyStatement(loc)
                 : new ExpressionStatement(
-                    new MethodInvocation(
+                    this.exemptFromAllowList(new MethodInvocation(
                         loc,                                      // location
                         new LocalVariableAccess(loc, primaryExc), // optionalTarget
                         "addSuppressed",                          // methodName
                         new Rvalue[] {                            // arguments
                             new LocalVariableAccess(loc, this.getLocalVariable(suppressedException)),
                         }
-                    )
+                    ))
                 )
             );
             BlockStatement f = new IfStatement(
@@ -2911,7 +3110,9 @@ class UnitCompiler {
                     new TryStatement(            // thenStatement
                         loc,                                       // location
                         new ExpressionStatement(                   // body
-                            new MethodInvocation(loc, new LocalVariableAccess(loc, identifier), "close", new Rvalue[0])
+                            this.exemptFromAllowList(new MethodInvocation(
+                                loc, new LocalVariableAccess(loc, identifier), "close", new Rvalue[0]
+                            ))
                         ),
                         Collections.singletonList(new CatchClause( // catchClauses
                             loc,                   // location
@@ -2920,7 +3121,9 @@ class UnitCompiler {
                         ))
                     ),
                     new ExpressionStatement(     // elseStatement
-                        new MethodInvocation(loc, new LocalVariableAccess(loc, identifier), "close", new Rvalue[0])
+                        this.exemptFromAllowList(
+                            new MethodInvocation(loc, new LocalVariableAccess(loc, identifier), "close", new Rvalue[0])
+                        )
                     )
                 )
             );
@@ -2959,13 +3162,15 @@ class UnitCompiler {
         @Nullable BlockStatement finallY
     ) throws CompileException {
 
+        if (!this.finallyAsSubroutine()) return this.compileTryCatchInlineFinally(ts, compileBody, finallY);
+
         final CodeContext.Offset beginningOfBody = this.getCodeContext().newOffset();
         final CodeContext.Offset afterStatement  = this.getCodeContext().new Offset();
 
         boolean canCompleteNormally;
 
         if (finallY == null) {
-            canCompleteNormally = this.compileTryCatch(ts, compileBody, beginningOfBody, afterStatement);
+            canCompleteNormally = this.compileTryCatch(ts, compileBody, beginningOfBody, afterStatement, null);
         } else {
 
             // Compile a TRY statement *with* a FINALLY clause.
@@ -2973,7 +3178,8 @@ class UnitCompiler {
             this.getCodeContext().saveLocalVariables();
             try {
 
-                final Offset fo = (ts.finallyOffset = this.getCodeContext().new Offset());
+                final Offset fo = this.getCodeContext().new Offset();
+                this.setFinallyOffset(ts, fo);
 
                 // Allocate a LV for the JSR of the FINALLY clause.
                 //
@@ -2994,7 +3200,7 @@ class UnitCompiler {
                         }
                         return canCompleteNormally;
                     }
-                }, beginningOfBody, afterStatement);
+                }, beginningOfBody, afterStatement, null);
 
                 // Generate the "catch (Throwable) {" clause that invokes the FINALLY subroutine.
                 this.getCodeContext().saveLocalVariables();
@@ -3025,7 +3231,7 @@ class UnitCompiler {
 
                     // Generate the "finally" subroutine.
                     fo.set();
-                    ts.finallyOffset = null;
+                    this.setFinallyOffset(ts, null);
 
                     this.store(
                         finallY,                                 // locatable
@@ -3060,24 +3266,190 @@ class UnitCompiler {
     }
 
     /**
-     * Generates code for a TRY statement without resources and without a FINALLY clause.
+     * Generates code for a TRY statement without resources, but with an (optional) FINALLY clause, where the FINALLY
+     * clause is inlined wherever control leaves the TRY block or a CATCH clause, plus once in a "catch-all" exception
+     * handler (JVMS8 4.9.1 forbids JSR and RET in class files of version 51 and later).
      *
      * @return Whether the code can complete normally
      */
     private boolean
+    compileTryCatchInlineFinally(
+        final TryStatement       ts,
+        final Compilable2        compileBody,
+        @Nullable BlockStatement finallY
+    ) throws CompileException {
+
+        final CodeContext.Offset beginningOfBody = this.getCodeContext().newOffset();
+        final CodeContext.Offset afterStatement  = this.getCodeContext().new Offset();
+
+        final TryLevel level = new TryLevel(ts, finallY);
+
+        boolean canCompleteNormally;
+        this.tryLevels.add(level);
+        try {
+            canCompleteNormally = this.compileTryCatch(ts, new Compilable2() {
+
+                @Override public boolean
+                compile() throws CompileException {
+                    return compileBody.compile() && UnitCompiler.this.inlineFinally(level);
+                }
+            }, beginningOfBody, afterStatement, level);
+        } finally {
+            this.tryLevels.remove(this.tryLevels.size() - 1);
+        }
+
+        if (finallY != null) {
+
+            // Generate the "catch (Throwable) {" clause that executes the FINALLY clause and rethrows the exception.
+            this.getCodeContext().saveLocalVariables();
+            try {
+                CodeContext.Offset here = this.getCodeContext().newOffset();
+
+                List<CodeContext.Offset[]>
+                protectedRanges = UnitCompiler.getProtectedRanges(level, beginningOfBody, here);
+
+                if (!protectedRanges.isEmpty()) {
+                    for (CodeContext.Offset[] pr : protectedRanges) {
+                        this.getCodeContext().addExceptionTableEntry(
+                            pr[0], // startPC
+                            pr[1], // endPC
+                            here,  // handlerPC
+                            null   // catchTypeFD
+                        );
+                    }
+
+                    // Save the exception object in an anonymous local variable.
+                    short evi = this.getCodeContext().allocateLocalVariable((short) 1);
+                    this.store(
+                        finallY,                                 // locatable
+                        this.iClassLoader.TYPE_java_lang_Object, // lvType
+                        evi                                      // lvIndex
+                    );
+                    if (this.compile(finallY)) {
+                        this.load(
+                            finallY,                                 // locatable
+                            this.iClassLoader.TYPE_java_lang_Object, // type
+                            evi                                      // index
+                        );
+                        this.writeOpcode(finallY, Opcode.ATHROW);
+                    }
+                }
+            } finally {
+                this.getCodeContext().restoreLocalVariables();
+            }
+        }
+
+        afterStatement.set();
+        return canCompleteNormally;
+    }
+
+    /**
+     * Inlines the FINALLY clause of the given <var>level</var> (iff it has one), and excludes the inlined code from
+     * the exception table entries of that level and of all levels nested in it.
+     *
+     * @return Whether the inlined FINALLY clause can complete normally
+     */
+    private boolean
+    inlineFinally(TryLevel level) throws CompileException {
+
+        BlockStatement finallY = level.finallY;
+        if (finallY == null) return true;
+
+        CodeContext.Offset from = this.getCodeContext().newOffset();
+
+        boolean canCompleteNormally;
+        level.finallyPending = false;
+        try {
+            canCompleteNormally = this.compile(finallY);
+        } finally {
+            level.finallyPending = true;
+        }
+
+        CodeContext.Offset[] hole = { from, this.getCodeContext().newOffset() };
+
+        int idx = this.tryLevels.indexOf(level);
+        assert idx != -1;
+        for (TryLevel tl : this.tryLevels.subList(idx, this.tryLevels.size())) tl.holes.add(hole);
+
+        return canCompleteNormally;
+    }
+
+    /**
+     * @return The ranges of code between <var>from</var> and <var>to</var> that are not inlined FINALLY clauses of
+     *         <var>optionalTryLevel</var>; never contains empty ranges
+     */
+    private static List<CodeContext.Offset[]>
+    getProtectedRanges(@Nullable TryLevel optionalTryLevel, CodeContext.Offset from, CodeContext.Offset to) {
+
+        List<CodeContext.Offset[]> result = new ArrayList<CodeContext.Offset[]>();
+
+        CodeContext.Offset start = from;
+        if (optionalTryLevel != null) {
+            for (CodeContext.Offset[] hole : optionalTryLevel.holes) {
+                if (hole[0].offset < start.offset || hole[1].offset > to.offset) continue;
+                if (hole[0].offset > start.offset) result.add(new CodeContext.Offset[] { start, hole[0] });
+                start = hole[1];
+            }
+        }
+        if (to.offset > start.offset) result.add(new CodeContext.Offset[] { start, to });
+
+        return result;
+    }
+
+    /**
+     * A TRY statement that is currently being compiled with inlined FINALLY clauses. A TRY-with-resources statement
+     * has one level per resource, plus one level for the FINALLY clause.
+     */
+    private static
+    class TryLevel {
+
+        final TryStatement tryStatement;
+
+        /**
+         * The FINALLY clause to inline wherever control leaves the TRY block or a CATCH clause; {@code null} iff
+         * there is none.
+         */
+        @Nullable final BlockStatement finallY;
+
+        /**
+         * Whether control leaving the level must execute the FINALLY clause; {@code false} while the FINALLY
+         * clause itself is being compiled.
+         */
+        boolean finallyPending = true;
+
+        /**
+         * The code ranges of the inlined FINALLY clauses, which the level's exception handlers must not cover.
+         */
+        final List<CodeContext.Offset[]> holes = new ArrayList<CodeContext.Offset[]>();
+
+        TryLevel(TryStatement tryStatement, @Nullable BlockStatement finallY) {
+            this.tryStatement = tryStatement;
+            this.finallY      = finallY;
+        }
+    }
+
+    /**
+     * Generates code for a TRY statement without resources and without a FINALLY clause.
+     *
+     * @param optionalTryLevel Iff FINALLY clauses are inlined, the level of the TRY statement; the FINALLY clause is
+     *                         then inlined after each CATCH clause that completes normally
+     * @return                 Whether the code can complete normally
+     */
+    private boolean
     compileTryCatch(
         TryStatement             tryStatement,
         Compilable2              compileBody,
         final CodeContext.Offset beginningOfBody,
-        final CodeContext.Offset afterStatement
+        final CodeContext.Offset afterStatement,
+        @Nullable TryLevel       optionalTryLevel
     ) throws CompileException {
 
         // Initialize all catch clauses as "unreachable" only to check later that they ARE indeed reachable.
         for (CatchClause catchClause : tryStatement.catchClauses) {
-            catchClause.reachable = false;
+            boolean reachable = false;
             for (Type t : catchClause.catchParameter.types) {
                 IClass caughtExceptionType = this.getType(t);
-                catchClause.reachable |= (
+                reachable |= (
                     // Superclass or subclass of "java.lang.Error"?
                     this.iClassLoader.TYPE_java_lang_Error.isAssignableFrom(caughtExceptionType)
                     || caughtExceptionType.isAssignableFrom(this.iClassLoader.TYPE_java_lang_Error)
@@ -3086,6 +3458,7 @@ class UnitCompiler {
                     || caughtExceptionType.isAssignableFrom(this.iClassLoader.TYPE_java_lang_RuntimeException)
                 );
             }
+            this.setReachable(catchClause, reachable);
         }
 
         boolean canCompleteNormally = compileBody.compile();
@@ -3100,7 +3473,11 @@ class UnitCompiler {
             this.writeBranch(tryStatement, Opcode.GOTO, afterStatement);
         }
 
-        if (beginningOfBody.offset != afterBody.offset) { // Avoid zero-length exception table entries.
+        // Avoid zero-length exception table entries.
+        List<CodeContext.Offset[]>
+        protectedRanges = UnitCompiler.getProtectedRanges(optionalTryLevel, beginningOfBody, afterBody);
+
+        if (!protectedRanges.isEmpty()) {
             this.getCodeContext().saveLocalVariables();
             try {
                 for (int i = 0; i < tryStatement.catchClauses.size(); ++i) {
@@ -3115,7 +3492,7 @@ class UnitCompiler {
                         IClass caughtExceptionType = this.getType(catchClause.catchParameter.types[0]);
 
                         // Verify that the CATCH clause is reachable.
-                        if (!catchClause.reachable) {
+                        if (!this.isReachable(catchClause)) {
                             this.compileError("Catch clause is unreachable", catchClause.getLocation());
                         }
 
@@ -3130,26 +3507,32 @@ class UnitCompiler {
                         // Kludge: Treat the exception variable like a local variable of the catch clause body.
                         this.getLocalVariable(catchClause.catchParameter).setSlot(exceptionVarSlot);
 
-                        this.getCodeContext().addExceptionTableEntry(
-                            beginningOfBody,                    // startPC
-                            afterBody,                          // endPC
-                            this.getCodeContext().newOffset(),  // handlerPC
-                            caughtExceptionType.getDescriptor() // catchTypeFD
-                        );
+                        CodeContext.Offset handlerPc = this.getCodeContext().newOffset();
+                        for (CodeContext.Offset[] pr : protectedRanges) {
+                            this.getCodeContext().addExceptionTableEntry(
+                                pr[0],                              // startPC
+                                pr[1],                              // endPC
+                                handlerPc,                          // handlerPC
+                                caughtExceptionType.getDescriptor() // catchTypeFD
+                            );
+                        }
                         this.store(
                             catchClause,         // locatable
                             caughtExceptionType, // lvType
                             evi                  // lvIndex
                         );
 
-                        if (this.compile(catchClause.body)) {
+                        if (
+                            this.compile(catchClause.body)
+                            && (optionalTryLevel == null || this.inlineFinally(optionalTryLevel))
+                        ) {
                             canCompleteNormally = true;
-                            if (tryStatement.finallyOffset != null) {
-                                this.writeBranch(tryStatement, Opcode.JSR, tryStatement.finallyOffset);
-                            }
+                            Offset fo = this.getFinallyOffset(tryStatement);
+                            if (fo != null) this.writeBranch(tryStatement, Opcode.JSR, fo);
                             if (
                                 i < tryStatement.catchClauses.size() - 1
-                                || tryStatement.finallyOffset != null
+                                || fo != null
+                                || (optionalTryLevel != null && optionalTryLevel.finallY != null)
                             ) this.writeBranch(catchClause, Opcode.GOTO, afterStatement);
                         }
                     } finally {
@@ -3310,21 +3693,21 @@ class UnitCompiler {
                     // Define special constructor parameters "String $name" and "int $ordinal" for enums.
                     LocalVariable lv1 = new LocalVariable(true, this.iClassLoader.TYPE_java_lang_String);
                     lv1.setSlot(this.getCodeContext().allocateLocalVariable((short) 1, null, null));
-                    constructorDeclarator.syntheticParameters.put("$name", lv1);
+                    this.getSyntheticParameters(constructorDeclarator).put("$name", lv1);
 
                     LocalVariable lv2 = new LocalVariable(true, IClass.INT);
                     lv2.setSlot(this.getCodeContext().allocateLocalVariable((short) 1, null, null));
-                    constructorDeclarator.syntheticParameters.put("$ordinal", lv2);
+                    this.getSyntheticParameters(constructorDeclarator).put("$ordinal", lv2);
                 }
 
                 // Define synthetic parameters for inner classes ("this$...", "val$...").
-                for (IField sf : constructorDeclarator.getDeclaringClass().syntheticFields.values()) {
+                for (IField sf : this.getSyntheticFields(constructorDeclarator.getDeclaringClass()).values()) {
                     LocalVariable lv = new LocalVariable(true, sf.getType());
 
                     lv.setSlot(
                         this.getCodeContext().allocateLocalVariable(Descriptor.size(sf.getDescriptor()), null, null)
                     );
-                    constructorDeclarator.syntheticParameters.put(sf.getName(), lv);
+                    this.getSyntheticParameters(constructorDeclarator).put(sf.getName(), lv);
                 }
             }
 
@@ -3362,13 +3745,13 @@ class UnitCompiler {
 
                         LocalVariableAccess nameAccess = new LocalVariableAccess(
                             cd.getLocation(),
-                            (LocalVariable) cd.syntheticParameters.get("$name")
+                            (LocalVariable) this.getSyntheticParameters(cd).get("$name")
                         );
                         assert nameAccess != null;
 
                         LocalVariableAccess ordinalAccess = new LocalVariableAccess(
                             cd.getLocation(),
-                            (LocalVariable) cd.syntheticParameters.get("$ordinal")
+                            (LocalVariable) this.getSyntheticParameters(cd).get("$ordinal")
                         );
                         assert ordinalAccess != null;
 
@@ -3388,13 +3771,14 @@ class UnitCompiler {
                 }
             }
 
-            // Compile the function body.
-            List<? extends BlockStatement> oss = fd.optionalStatements;
+            // Compile the function body (or, if the method was spilled, the invocation of its copy).
+            List<? extends BlockStatement> oss = (List<? extends BlockStatement>) this.spilledMethods.get(fd);
+            if (oss == null) oss = fd.optionalStatements;
             if (oss == null) {
                 this.compileError("Method must have a body", fd.getLocation());
                 return;
             }
-            if (this.compileStatements(oss)) {
+            if (this.compileStatements(this.outlineStatements(oss, fd))) {
                 if (this.getReturnType(fd) != IClass.VOID) {
                     this.compileError("Method must return a value", fd.getLocation());
                 }
@@ -3408,6 +3792,10 @@ class UnitCompiler {
         // Don't continue code attribute generation if we had compile errors.
         if (this.compileErrorCount > 0) return;
 
+        // Optimize the code, if enabled.
+        PeepholeOptimizer po = this.peepholeOptimizer;
+        if (po != null) codeContext.optimize(po);
+
         // Fix up and reallocate as needed.
         codeContext.fixUpAndRelocate();
 
@@ -3429,6 +3817,27 @@ class UnitCompiler {
             }
         }
 
+        // Compute the stack map frames, which class files of version 51 and later require.
+        if (classFile.getMajorVersion() >= ClassFile.MAJOR_VERSION_JDK_1_7) {
+            try {
+                codeContext.computeStackMapTable(
+                    this.resolve(fd.getDeclaringType()).getDescriptor(), // thisFd
+                    Mod.isStatic(mi.getAccessFlags()),                   // isStatic
+                    fd instanceof ConstructorDeclarator,                 // isConstructor
+                    mi.getDescriptor(),                                  // methodDescriptor
+                    new StackMapTableGenerator.ClassHierarchy() {        // classHierarchy
+
+                        @Override public String
+                        getCommonSuperclass(String classFd1, String classFd2) throws CompileException {
+                            return UnitCompiler.this.getCommonSuperclass(classFd1, classFd2);
+                        }
+                    }
+                );
+            } catch (RuntimeException re) {
+                throw new InternalCompilerException("Compiling \"" + fd + "\"; " + re.getMessage(), re);
+            }
+        }
+
         final short lntani;
         if (this.debugLines) {
             lntani = classFile.addConstantUtf8Info("LineNumberTable");
@@ -3456,6 +3865,46 @@ class UnitCompiler {
         });
     }
 
+    /**
+     * @return The field descriptor of the most specific common superclass of the two given classes or interfaces, as
+     *         the verifier computes it (interfaces are treated like {@link Object})
+     */
+    private String
+    getCommonSuperclass(String classFd1, String classFd2) throws CompileException {
+
+        IClass c1 = this.findTypeByDescriptor(classFd1), c2 = this.findTypeByDescriptor(classFd2);
+        if (c1 == null || c2 == null) return Descriptor.JAVA_LANG_OBJECT;
+
+        if (c1.isAssignableFrom(c2)) return c1.isInterface() ? Descriptor.JAVA_LANG_OBJECT : classFd1;
+        if (c2.isAssignableFrom(c1)) return c2.isInterface() ? Descriptor.JAVA_LANG_OBJECT : classFd2;
+        if (c1.isInterface() || c2.isInterface()) return Descriptor.JAVA_LANG_OBJECT;
+
+        for (IClass sc = c1.getSuperclass(); sc != null; sc = sc.getSuperclass()) {
+            if (sc.isAssignableFrom(c2)) return sc.getDescriptor();
+        }
+        return Descriptor.JAVA_LANG_OBJECT;
+    }
+
+    /**
+     * @return The class or interface declared in this compilation unit or loaded through the {@link IClassLoader},
+     *         or {@code null} iff it cannot be found
+     */
+    @Nullable private IClass
+    findTypeByDescriptor(String fieldDescriptor) throws CompileException {
+
+        IClass result = (IClass) this.declaredTypes.get(fieldDescriptor);
+        if (result != null) return result;
+
+        result = this.findClass(Descriptor.toClassName(fieldDescriptor));
+        if (result != null) return result;
+
+        try {
+            return this.loadIClass(fieldDescriptor);
+        } catch (ClassNotFoundException cnfe) {
+            throw new CompileException(fieldDescriptor, null, cnfe);
+        }
+    }
+
     /**
      * Makes the variable name and class name Constant Pool names used by local variables.
      */
@@ -3499,11 +3948,15 @@ class UnitCompiler {
             }
         }
 
-        fd.localVariables = localVars;
+        if (this.sideTables()) {
+            this.sideTableEntry(fd).localVariables = localVars;
+        } else {
+            fd.localVariables = localVars;
+        }
         if (fd instanceof ConstructorDeclarator) {
             ConstructorDeclarator cd = (ConstructorDeclarator) fd;
             if (cd.optionalConstructorInvocation != null) {
-                UnitCompiler.buildLocalVariableMap(cd.optionalConstructorInvocation, localVars);
+                this.buildLocalVariableMap(cd.optionalConstructorInvocation, localVars);
             }
         }
         if (fd.optionalStatements != null) {
@@ -3523,17 +3976,17 @@ class UnitCompiler {
 
                 // Basic statements that use the default handlers.
                 // SUPPRESS CHECKSTYLE LineLengthCheck:11
-                @Override public Map<String, LocalVariable> visitAlternateConstructorInvocation(AlternateConstructorInvocation aci)  { UnitCompiler.buildLocalVariableMap(aci, localVars);  return localVars; }
-                @Override public Map<String, LocalVariable> visitBreakStatement(BreakStatement bs)                                   { UnitCompiler.buildLocalVariableMap(bs, localVars);   return localVars; }
-                @Override public Map<String, LocalVariable> visitContinueStatement(ContinueStatement cs)                             { UnitCompiler.buildLocalVariableMap(cs, localVars);   return localVars; }
-                @Override public Map<String, LocalVariable> visitAssertStatement(AssertStatement as)                                 { UnitCompiler.buildLocalVariableMap(as, localVars);   return localVars; }
-                @Override public Map<String, LocalVariable> visitEmptyStatement(EmptyStatement es)                                   { UnitCompiler.buildLocalVariableMap(es, localVars);   return localVars; }
-                @Override public Map<String, LocalVariable> visitExpressionStatement(ExpressionStatement es)                         { UnitCompiler.buildLocalVariableMap(es, localVars);   return localVars; }
-                @Override public Map<String, LocalVariable> visitFieldDeclaration(FieldDeclaration fd)                               { UnitCompiler.buildLocalVariableMap(fd, localVars);   return localVars; }
-                @Override public Map<String, LocalVariable> visitReturnStatement(ReturnStatement rs)                                 { UnitCompiler.buildLocalVariableMap(rs, localVars);   return localVars; }
-                @Override public Map<String, LocalVariable> visitSuperConstructorInvocation(SuperConstructorInvocation sci)          { UnitCompiler.buildLocalVariableMap(sci, localVars);  return localVars; }
-                @Override public Map<String, LocalVariable> visitThrowStatement(ThrowStatement ts)                                   { UnitCompiler.buildLocalVariableMap(ts, localVars);   return localVars; }
-                @Override public Map<String, LocalVariable> visitLocalClassDeclarationStatement(LocalClassDeclarationStatement lcds) { UnitCompiler.buildLocalVariableMap(lcds, localVars); return localVars; }
+                @Override public Map<String, LocalVariable> visitAlternateConstructorInvocation(AlternateConstructorInvocation aci)  { UnitCompiler.this.buildLocalVariableMap(aci, localVars);  return localVars; }
+                @Override public Map<String, LocalVariable> visitBreakStatement(BreakStatement bs)                                   { UnitCompiler.this.buildLocalVariableMap(bs, localVars);   return localVars; }
+                @Override public Map<String, LocalVariable> visitContinueStatement(ContinueStatement cs)                             { UnitCompiler.this.buildLocalVariableMap(cs, localVars);   return localVars; }
+                @Override public Map<String, LocalVariable> visitAssertStatement(AssertStatement as)                                 { UnitCompiler.this.buildLocalVariableMap(as, localVars);   return localVars; }
+                @Override public Map<String, LocalVariable> visitEmptyStatement(EmptyStatement es)                                   { UnitCompiler.this.buildLocalVariableMap(es, localVars);   return localVars; }
+                @Override public Map<String, LocalVariable> visitExpressionStatement(ExpressionStatement es)                         { UnitCompiler.this.buildLocalVariableMap(es, localVars);   return localVars; }
+                @Override public Map<String, LocalVariable> visitFieldDeclaration(FieldDeclaration fd)                               { UnitCompiler.this.buildLocalVariableMap(fd, localVars);   return localVars; }
+                @Override public Map<String, LocalVariable> visitReturnStatement(ReturnStatement rs)                                 { UnitCompiler.this.buildLocalVariableMap(rs, localVars);   return localVars; }
+                @Override public Map<String, LocalVariable> visitSuperConstructorInvocation(SuperConstructorInvocation sci)          { UnitCompiler.this.buildLocalVariableMap(sci, localVars);  return localVars; }
+                @Override public Map<String, LocalVariable> visitThrowStatement(ThrowStatement ts)                                   { UnitCompiler.this.buildLocalVariableMap(ts, localVars);   return localVars; }
+                @Override public Map<String, LocalVariable> visitLocalClassDeclarationStatement(LocalClassDeclarationStatement lcds) { UnitCompiler.this.buildLocalVariableMap(lcds, localVars); return localVars; }
 
                 // More complicated statements with specialized handlers, but don't add new variables in this scope.
                 // SUPPRESS CHECKSTYLE LineLengthCheck:10
@@ -3561,26 +4014,59 @@ class UnitCompiler {
 
     // Default handlers.
 
-    private static Map<String, LocalVariable>
+    private Map<String, LocalVariable>
     buildLocalVariableMap(Statement s, final Map<String, LocalVariable> localVars) {
-        return (s.localVariables = localVars);
+        this.setLocalVariables(s, localVars);
+        return localVars;
     }
 
-    private static Map<String, LocalVariable>
+    private Map<String, LocalVariable>
     buildLocalVariableMap(ConstructorInvocation ci, final Map<String, LocalVariable> localVars) {
-        return (ci.localVariables = localVars);
+        if (this.sideTables()) {
+            this.sideTableEntry(ci).localVariables = localVars;
+        } else {
+            ci.localVariables = localVars;
+        }
+        return localVars;
+    }
+
+    private void
+    setLocalVariables(Statement s, Map<String, LocalVariable> localVars) {
+        if (this.sideTables()) {
+            this.sideTableEntry(s).localVariables = localVars;
+        } else {
+            s.localVariables = localVars;
+        }
+    }
+
+    /**
+     * @return The local variable with the given <var>name</var> that is visible in the <var>blockStatement</var>, or
+     *         {@code null}
+     */
+    @Nullable private LocalVariable
+    findLocalVariable(BlockStatement blockStatement, String name) {
+
+        if (!this.sideTables()) return blockStatement.findLocalVariable(name);
+
+        Object node = blockStatement;
+        if (node instanceof Initializer) node = ((Initializer) node).block;
+
+        Map<String, LocalVariable> lvs = this.sideTableEntry(node).localVariables;
+        if (lvs == null) return null;
+
+        return (LocalVariable) lvs.get(name);
     }
 
     // Specialized handlers.
     private void
     buildLocalVariableMap(Block block, Map<String, LocalVariable> localVars) throws CompileException {
-        block.localVariables = localVars;
+        this.setLocalVariables(block, localVars);
         for (BlockStatement bs : block.statements) localVars = this.buildLocalVariableMap(bs, localVars);
     }
 
     private void
     buildLocalVariableMap(DoStatement ds, final Map<String, LocalVariable> localVars) throws CompileException {
-        ds.localVariables = localVars;
+        this.setLocalVariables(ds, localVars);
         this.buildLocalVariableMap(ds.body, localVars);
     }
 
@@ -3591,7 +4077,7 @@ class UnitCompiler {
         if (fs.optionalInit != null) {
             inner = this.buildLocalVariableMap(fs.optionalInit, localVars);
         }
-        fs.localVariables = inner;
+        this.setLocalVariables(fs, inner);
         this.buildLocalVariableMap(fs.body, inner);
     }
 
@@ -3602,13 +4088,13 @@ class UnitCompiler {
         vars.putAll(localVars);
         LocalVariable elementLv = this.getLocalVariable(fes.currentElement, false);
         vars.put(fes.currentElement.name, elementLv);
-        fes.localVariables = vars;
+        this.setLocalVariables(fes, vars);
         this.buildLocalVariableMap(fes.body, vars);
     }
 
     private void
     buildLocalVariableMap(IfStatement is, final Map<String, LocalVariable> localVars) throws CompileException {
-        is.localVariables = localVars;
+        this.setLocalVariables(is, localVars);
         this.buildLocalVariableMap(is.thenStatement, localVars);
         if (is.elseStatement != null) {
             this.buildLocalVariableMap(is.elseStatement, localVars);
@@ -3623,7 +4109,7 @@ class UnitCompiler {
     private void
     buildLocalVariableMap(SwitchStatement ss, final Map<String, LocalVariable> localVars)
     throws CompileException {
-        ss.localVariables = localVars;
+        this.setLocalVariables(ss, localVars);
         Map<String, LocalVariable> vars = localVars;
         for (SwitchBlockStatementGroup sbsg : ss.sbsgs) {
             for (BlockStatement bs : sbsg.blockStatements) vars = this.buildLocalVariableMap(bs, vars);
@@ -3633,14 +4119,14 @@ class UnitCompiler {
     private void
     buildLocalVariableMap(SynchronizedStatement ss, final Map<String, LocalVariable> localVars)
     throws CompileException {
-        ss.localVariables = localVars;
+        this.setLocalVariables(ss, localVars);
         this.buildLocalVariableMap(ss.body, localVars);
     }
 
     private void
     buildLocalVariableMap(TryStatement ts, final Map<String, LocalVariable> localVars)
     throws CompileException {
-        ts.localVariables = localVars;
+        this.setLocalVariables(ts, localVars);
         this.buildLocalVariableMap(ts.body, localVars);
         for (CatchClause cc : ts.catchClauses) this.buildLocalVariableMap(cc, localVars);
         if (ts.finallY != null) {
@@ -3651,14 +4137,14 @@ class UnitCompiler {
     private void
     buildLocalVariableMap(WhileStatement ws, final Map<String, LocalVariable> localVars)
     throws CompileException {
-        ws.localVariables = localVars;
+        this.setLocalVariables(ws, localVars);
         this.buildLocalVariableMap(ws.body, localVars);
     }
 
     private Map<String, LocalVariable>
     buildLocalVariableMap(LabeledStatement ls, final Map<String, LocalVariable> localVars)
     throws CompileException {
-        ls.localVariables = localVars;
+        this.setLocalVariables(ls, localVars);
         return this.buildLocalVariableMap((BlockStatement) ls.body, localVars);
     }
 
@@ -3673,7 +4159,7 @@ class UnitCompiler {
                 this.compileError("Redefinition of local variable \"" + vd.name + "\" ", vd.getLocation());
             }
         }
-        lvds.localVariables = newVars;
+        this.setLocalVariables(lvds, newVars);
         return newVars;
     }
 
@@ -3705,7 +4191,12 @@ class UnitCompiler {
     public LocalVariable
     getLocalVariable(FormalParameter parameter, boolean isVariableArityParameter) throws CompileException {
 
-        if (parameter.localVariable != null) return parameter.localVariable;
+        SideTableEntry ste = this.sideTables() ? this.sideTableEntry(parameter) : null;
+
+        {
+            LocalVariable result = ste != null ? ste.localVariable : parameter.localVariable;
+            if (result != null) return result;
+        }
 
         assert parameter.type != null;
         IClass parameterType = this.getType(parameter.type);
@@ -3713,7 +4204,13 @@ class UnitCompiler {
             parameterType = parameterType.getArrayIClass(this.iClassLoader.TYPE_java_lang_Object);
         }
 
-        return (parameter.localVariable = new LocalVariable(parameter.finaL, parameterType));
+        LocalVariable result = new LocalVariable(parameter.finaL, parameterType);
+        if (ste != null) {
+            ste.localVariable = result;
+        } else {
+            parameter.localVariable = result;
+        }
+        return result;
     }
 
     /**
@@ -3722,14 +4219,25 @@ class UnitCompiler {
     public LocalVariable
     getLocalVariable(CatchParameter parameter) throws CompileException {
 
-        if (parameter.localVariable != null) return parameter.localVariable;
+        SideTableEntry ste = this.sideTables() ? this.sideTableEntry(parameter) : null;
+
+        {
+            LocalVariable result = ste != null ? ste.localVariable : parameter.localVariable;
+            if (result != null) return result;
+        }
 
         if (parameter.types.length != 1) {
             throw UnitCompiler.compileException(parameter, "Multi-type CATCH parameters NYI");
         }
         IClass parameterType = this.getType(parameter.types[0]);
 
-        return (parameter.localVariable = new LocalVariable(parameter.finaL, parameterType));
+        LocalVariable result = new LocalVariable(parameter.finaL, parameterType);
+        if (ste != null) {
+            ste.localVariable = result;
+        } else {
+            parameter.localVariable = result;
+        }
+        return result;
     }
 
     // ------------------ Rvalue.compile() ----------------
@@ -3813,6 +4321,7 @@ class UnitCompiler {
     compile2(Assignment a) throws CompileException {
         if (a.operator == "=") { // SUPPRESS CHECKSTYLE StringLiteralEquality
             this.compileContext(a.lhs);
+            this.setLambdaTargetType(a.rhs, this.getType(a.lhs));
             this.assignmentConversion(
                 a,                           // locatable
                 this.compileGetValue(a.rhs), // sourceType
@@ -4348,8 +4857,9 @@ class UnitCompiler {
 
     private int
     compileContext2(FieldAccess fa) throws CompileException {
+        this.checkAllowed(fa, fa.field, fa.field.getName(), null);
         if (fa.field.isStatic()) {
-            Rvalue rv = fa.lhs.toRvalue();
+            Rvalue rv = this.dereference(fa.lhs).toRvalue();
             if (rv != null) {
                 this.warning(
                     "CNSFA",
@@ -4512,10 +5022,966 @@ class UnitCompiler {
         return this.getIClass(tr);
     }
 
-    @SuppressWarnings("static-method") private IClass
+    private IClass
     compileGet2(LambdaExpression le) throws CompileException {
-        throw UnitCompiler.compileException(le, "Compilation of lambda expression NYI");
-    }
+        IClass targetType = this.getType2(le);
+
+        if (this.targetVersion < 8) {
+            this.compileError("Lambda expressions require target version 8 or later", le.getLocation());
+            this.writeOpcode(le, Opcode.ACONST_NULL);
+            return targetType;
+        }
+
+        IMethod sam = this.getFunctionalInterfaceMethod(le, targetType);
+
+        // Determine the local variables of the enclosing scopes that the lambda body refers to; these are passed to
+        // the implementation method as leading parameters.
+        Map<String, LocalVariable> capturedVariables = this.getCapturedLocalVariables(le);
+
+        MethodDeclarator implementationMethod = (MethodDeclarator) this.lambdaImplementationMethods.get(le);
+        if (implementationMethod == null) {
+            implementationMethod = this.declareLambdaImplementationMethod(le, sam, capturedVariables);
+            this.lambdaImplementationMethods.put(le, implementationMethod);
+        }
+
+        // Non-static implementation methods are private and hence compiled into static methods with a leading
+        // parameter for the enclosing instance; see "compile(FunctionDeclarator, ClassFile)".
+        IClass           declaringIClass = this.resolve(implementationMethod.getDeclaringType());
+        MethodDescriptor implementationMd;
+        String           implementationName;
+        StringBuilder    indyParameterFds = new StringBuilder("(");
+        if (implementationMethod.isStatic()) {
+            implementationMd   = this.toIMethod(implementationMethod).getDescriptor();
+            implementationName = implementationMethod.name;
+        } else {
+            implementationMd   = (
+                this.toIMethod(implementationMethod)
+                .getDescriptor()
+                .prependParameter(declaringIClass.getDescriptor())
+            );
+            implementationName = implementationMethod.name + '$';
+            this.load(le, declaringIClass, 0);
+            indyParameterFds.append(declaringIClass.getDescriptor());
+        }
+        for (LocalVariable lv : capturedVariables.values()) {
+            this.load(le, lv);
+            indyParameterFds.append(lv.type.getDescriptor());
+        }
+        indyParameterFds.append(')');
+
+        // The "instantiated method type" is the SAM descriptor, specialized with the declared types of the lambda
+        // parameters.
+        String[]         parameterFds   = implementationMd.parameterFds;
+        MethodDescriptor instantiatedMd = new MethodDescriptor(
+            sam.getReturnType().getDescriptor(),
+            (String[]) Arrays.copyOfRange(
+                parameterFds,
+                parameterFds.length - sam.getParameterTypes().length,
+                parameterFds.length
+            )
+        );
+
+        ClassFile cf = this.getCodeContext().getClassFile();
+
+        short bootstrapMethodAttrIndex = cf.addBootstrapMethod(
+            cf.addConstantMethodHandleInfo(                                 // bootstrapMethodRef
+                ClassFile.ConstantMethodHandleInfo.REF_INVOKE_STATIC,
+                cf.addConstantMethodrefInfo(
+                    "Ljava/lang/invoke/LambdaMetafactory;",
+                    "metafactory",
+                    (
+                        "("
+                        + "Ljava/lang/invoke/MethodHandles$Lookup;"
+                        + "Ljava/lang/String;"
+                        + "Ljava/lang/invoke/MethodType;"
+                        + "Ljava/lang/invoke/MethodType;"
+                        + "Ljava/lang/invoke/MethodHandle;"
+                        + "Ljava/lang/invoke/MethodType;"
+                        + ")Ljava/lang/invoke/CallSite;"
+                    )
+                )
+            ),
+            new short[] {                                                   // bootstrapArguments
+                cf.addConstantMethodTypeInfo(sam.getDescriptor().toString()),
+                cf.addConstantMethodHandleInfo(
+                    ClassFile.ConstantMethodHandleInfo.REF_INVOKE_STATIC,
+                    cf.addConstantMethodrefInfo(
+                        declaringIClass.getDescriptor(),
+                        implementationName,
+                        implementationMd.toString()
+                    )
+                ),
+                cf.addConstantMethodTypeInfo(instantiatedMd.toString()),
+            }
+        );
+
+        this.writeOpcode(le, Opcode.INVOKEDYNAMIC);
+        this.writeShort(cf.addConstantInvokeDynamicInfo(
+            bootstrapMethodAttrIndex,                                       // bootstrapMethodAttrIndex
+            sam.getName(),                                                  // methodName
+            indyParameterFds + targetType.getDescriptor()                   // methodMd
+        ));
+        this.writeShort(0);
+
+        return targetType;
+    }
+
+    /**
+     * Declares the synthetic method "{@code lambda$<n>}" that implements the given lambda expression: Its parameters
+     * are the <var>capturedVariables</var>, followed by the lambda parameters; its body is the lambda body. The method
+     * is static iff the lambda expression appears in a static context.
+     * <p>
+     *   Like the "{@code class$}" method, the new method is added to the declaring type and is compiled together with
+     *   its other methods.
+     * </p>
+     */
+    private MethodDeclarator
+    declareLambdaImplementationMethod(LambdaExpression le, IMethod sam, Map<String, LocalVariable> capturedVariables)
+    throws CompileException {
+        Location loc = le.getLocation();
+
+        Scope s = le.getEnclosingScope();
+        while (!(s instanceof TypeBodyDeclaration)) s = s.getEnclosingScope();
+        TypeBodyDeclaration tbd = (TypeBodyDeclaration) s;
+
+        TypeDeclaration td = tbd.getDeclaringType();
+        if (!(td instanceof AbstractClassDeclaration)) {
+            throw UnitCompiler.compileException(le, "Lambda expressions in interfaces NYI");
+        }
+        AbstractClassDeclaration declaringClass = (AbstractClassDeclaration) td;
+
+        // The lambda's parameters and body are re-parented into the implementation method; with side tables, the
+        // parsed compilation unit must remain untouched, so re-parent copies instead.
+        DeepCopier copier = this.sideTables() ? new DeepCopier() : null;
+
+        IClass[] samParameterTypes = sam.getParameterTypes();
+
+        List<FormalParameter> parameters = new ArrayList<FormalParameter>();
+        for (Entry<String, LocalVariable> e : capturedVariables.entrySet()) {
+            LocalVariable lv = (LocalVariable) e.getValue();
+            parameters.add(new FormalParameter(
+                loc,                          // location
+                true,                         // finaL
+                new SimpleType(loc, lv.type), // type
+                (String) e.getKey()           // name
+            ));
+        }
+
+        boolean variableArity = false;
+        if (le.parameters instanceof FormalLambdaParameters) {
+            FormalParameters fps = ((FormalLambdaParameters) le.parameters).formalParameters;
+            if (copier != null) fps = copier.copyFormalParameters(fps);
+            if (fps.parameters.length != samParameterTypes.length) {
+                throw UnitCompiler.compileException(le, (
+                    "Lambda expression has "
+                    + fps.parameters.length
+                    + " parameter(s), but \""
+                    + sam
+                    + "\" has "
+                    + samParameterTypes.length
+                ));
+            }
+            parameters.addAll(Arrays.asList(fps.parameters));
+            variableArity = fps.variableArity;
+        } else
+        {
+            String[] names = (
+                le.parameters instanceof IdentifierLambdaParameters
+                ? new String[] { ((IdentifierLambdaParameters) le.parameters).identifier }
+                : ((InferredLambdaParameters) le.parameters).names
+            );
+            if (names.length != samParameterTypes.length) {
+                throw UnitCompiler.compileException(le, (
+                    "Lambda expression has "
+                    + names.length
+                    + " parameter(s), but \""
+                    + sam
+                    + "\" has "
+                    + samParameterTypes.length
+                ));
+            }
+            for (int i = 0; i < names.length; i++) {
+                parameters.add(new FormalParameter(
+                    loc,                                       // location
+                    false,                                     // finaL
+                    new SimpleType(loc, samParameterTypes[i]), // type
+                    names[i]                                   // name
+                ));
+            }
+        }
+
+        IClass returnType = sam.getReturnType();
+
+        BlockStatement body;
+        if (le.body instanceof BlockLambdaBody) {
+            body = ((BlockLambdaBody) le.body).block;
+            if (copier != null) body = copier.copyBlockStatement(body);
+        } else
+        {
+            Rvalue expression = ((ExpressionLambdaBody) le.body).expression;
+            if (copier != null) expression = copier.copyRvalue(expression);
+            if (returnType == IClass.VOID) {
+                body = new ExpressionStatement(expression);
+            } else {
+                body = new ReturnStatement(loc, expression);
+            }
+        }
+
+        IClass[] thrownExceptions     = sam.getThrownExceptions();
+        Type[]   thrownExceptionTypes = new Type[thrownExceptions.length];
+        for (int i = 0; i < thrownExceptions.length; i++) {
+            thrownExceptionTypes[i] = new SimpleType(loc, thrownExceptions[i]);
+        }
+
+        String name;
+        for (int i = 0;; i++) {
+            name = "lambda$" + i;
+            if (this.getMethodDeclaration(declaringClass, name) == null) break;
+        }
+
+        MethodDeclarator result = new MethodDeclarator(
+            loc,                                                         // location
+            null,                                                        // optionalDocComment
+            new Modifiers((short) (                                      // modifiers
+                Mod.PRIVATE | Mod.SYNTHETIC | (tbd.isStatic() ? Mod.STATIC : 0)
+            )),
+            null,                                                        // optionalTypeParameters
+            new SimpleType(loc, returnType),                             // type
+            name,                                                        // name
+            new FormalParameters(                                        // formalParameters
+                loc,
+                (FormalParameter[]) parameters.toArray(new FormalParameter[parameters.size()]),
+                variableArity
+            ),
+            thrownExceptionTypes,                                        // thrownExceptions
+            null,                                                        // defaultValue
+            Collections.singletonList(body)                              // optionalStatements
+        );
+
+        this.addDeclaredMethod(declaringClass, result);
+
+        return result;
+    }
+
+    /**
+     * @return The local variables of the scope enclosing the <var>lambdaExpression</var> which its body refers to,
+     *         in order of their first appearance
+     */
+    private Map<String, LocalVariable>
+    getCapturedLocalVariables(LambdaExpression lambdaExpression) {
+
+        Scope s = lambdaExpression.getEnclosingScope();
+        if (!(s instanceof BlockStatement)) return Collections.emptyMap();
+        final BlockStatement enclosingBlockStatement = (BlockStatement) s;
+
+        final Set<String> parameterNames = new HashSet<String>();
+        if (lambdaExpression.parameters instanceof IdentifierLambdaParameters) {
+            parameterNames.add(((IdentifierLambdaParameters) lambdaExpression.parameters).identifier);
+        } else
+        if (lambdaExpression.parameters instanceof InferredLambdaParameters) {
+            parameterNames.addAll(Arrays.asList(((InferredLambdaParameters) lambdaExpression.parameters).names));
+        } else
+        if (lambdaExpression.parameters instanceof FormalLambdaParameters) {
+            FormalParameters fps = ((FormalLambdaParameters) lambdaExpression.parameters).formalParameters;
+            for (FormalParameter fp : fps.parameters) parameterNames.add(fp.name);
+        }
+
+        final Map<String, LocalVariable> result = new LinkedHashMap<String, LocalVariable>();
+        new AbstractTraverser<RuntimeException>() {
+
+            @Override public void
+            traverseAmbiguousName(AmbiguousName an) {
+                String identifier = an.identifiers[0];
+                if (!parameterNames.contains(identifier) && !result.containsKey(identifier)) {
+                    LocalVariable lv = UnitCompiler.this.findLocalVariable(enclosingBlockStatement, identifier);
+                    if (lv != null) result.put(identifier, lv);
+                }
+                super.traverseAmbiguousName(an);
+            }
+
+            @Override public void
+            traverseLambdaExpression(LambdaExpression le) {
+                this.traverseLambdaBody(le.body);
+                super.traverseLambdaExpression(le);
+            }
+
+            void
+            traverseLambdaBody(LambdaBody body) {
+                if (body instanceof BlockLambdaBody) {
+                    this.visitBlockStatement(((BlockLambdaBody) body).block);
+                } else
+                if (body instanceof ExpressionLambdaBody) {
+                    this.visitAtom(((ExpressionLambdaBody) body).expression);
+                }
+            }
+        }.traverseLambdaExpression(lambdaExpression);
+
+        return result;
+    }
+
+    /**
+     * The estimated average number of bytecode bytes per AST node, and the minimum estimated size of a run of
+     * statements that is worth being outlined.
+     */
+    private static final int ESTIMATED_BYTES_PER_NODE = 2;
+    private static final int MIN_OUTLINED_SIZE        = 64;
+
+    /**
+     * Iff {@link #setMethodSizeThreshold(int) outlining} is enabled and the <var>statements</var> are too large,
+     * replaces runs of them with invocations of synthetic "{@code outline$<n>}" methods, which are added to the
+     * declaring type and compiled together with its other methods.
+     *
+     * @param scope The block or function declarator that declares the <var>statements</var>
+     * @return      The statements to compile instead of the <var>statements</var>
+     */
+    private List<? extends BlockStatement>
+    outlineStatements(List<? extends BlockStatement> statements, Scope scope) throws CompileException {
+
+        int threshold = this.methodSizeThreshold;
+        if (threshold <= 0 || statements.size() < 2) return statements;
+
+        // A block may be compiled more than once, e.g. when it is an inlined FINALLY clause.
+        {
+            List<? extends BlockStatement>
+            result = (List<? extends BlockStatement>) this.outlinedStatements.get(scope);
+            if (result != null) return result;
+        }
+
+        Scope s = scope;
+        while (!(s instanceof TypeBodyDeclaration)) s = s.getEnclosingScope();
+        if (!(s instanceof MethodDeclarator)) return statements;
+        MethodDeclarator md = (MethodDeclarator) s;
+        if ("<clinit>".equals(md.name)) return statements;
+
+        TypeDeclaration td = md.getDeclaringType();
+        if (
+            !(td instanceof AbstractClassDeclaration)
+            || td instanceof LocalClassDeclaration
+            || td instanceof AnonymousClassDeclaration
+        ) return statements;
+
+        // When there are many runs, then the invocations of their outline methods are outlined in turn. Each round
+        // reduces the estimated size, so this terminates.
+        List<? extends BlockStatement> result = statements;
+        for (;;) {
+            List<BlockStatement> result2 = this.outlineRuns(result, threshold, md, scope);
+            if (result2 == null) break;
+            result = result2;
+        }
+
+        this.outlinedStatements.put(scope, result);
+        return result;
+    }
+
+    /**
+     * @return The <var>statements</var>, with runs of them replaced by invocations of outline methods, or {@code null}
+     *         iff the <var>statements</var> are not larger than the <var>threshold</var>, or no run could be outlined
+     */
+    @Nullable private List<BlockStatement>
+    outlineRuns(List<? extends BlockStatement> statements, int threshold, MethodDeclarator md, Scope scope)
+    throws CompileException {
+
+        int[] sizes     = new int[statements.size()];
+        int   totalSize = 0;
+        for (int i = 0; i < sizes.length; i++) {
+            sizes[i]  =  this.estimateSize((BlockStatement) statements.get(i));
+            totalSize += sizes[i];
+        }
+        if (totalSize <= threshold) return null;
+
+        List<BlockStatement>       result   = new ArrayList<BlockStatement>();
+        List<BlockStatement>       run      = new ArrayList<BlockStatement>();
+        Map<String, LocalVariable> runLvs   = new LinkedHashMap<String, LocalVariable>();
+        int                        runSize  = 0;
+        boolean                    outlined = false;
+        for (int i = 0; i < sizes.length; i++) {
+            BlockStatement bs = (BlockStatement) statements.get(i);
+
+            // The last statement must remain in place, for the reachability analysis of the statements after the
+            // block, and for "Method must return a value".
+            Map<String, LocalVariable> lvs = i == sizes.length - 1 ? null : this.getOutlinedLocalVariables(bs);
+
+            if (lvs == null || (!run.isEmpty() && runSize + sizes[i] > threshold)) {
+                outlined |= this.outlineRun(run, runLvs, runSize, md, scope, result);
+                run.clear();
+                runLvs.clear();
+                runSize = 0;
+            }
+
+            if (lvs == null) {
+                result.add(bs);
+            } else {
+                run.add(bs);
+                runLvs.putAll(lvs);
+                runSize += sizes[i];
+            }
+        }
+        outlined |= this.outlineRun(run, runLvs, runSize, md, scope, result);
+
+        return outlined ? result : null;
+    }
+
+    /**
+     * Adds the <var>run</var> of statements to the <var>result</var>, either as they are (if the run is too small
+     * to be worth outlining, or if the <var>localVariables</var> are too many to be passed as parameters), or as one
+     * invocation of a new synthetic method that executes copies of them.
+     *
+     * @return Whether the <var>run</var> was outlined
+     */
+    private boolean
+    outlineRun(
+        List<BlockStatement>       run,
+        Map<String, LocalVariable> localVariables,
+        int                        runSize,
+        MethodDeclarator           md,
+        Scope                      scope,
+        List<BlockStatement>       result
+    ) throws CompileException {
+
+        int parameterSize = md.isStatic() ? 0 : 1;
+        for (LocalVariable lv : localVariables.values()) parameterSize += Descriptor.size(lv.type.getDescriptor());
+
+        // The run must be larger than the invocation that replaces it.
+        if (
+            runSize < UnitCompiler.MIN_OUTLINED_SIZE
+            || runSize <= (2 + localVariables.size()) * UnitCompiler.ESTIMATED_BYTES_PER_NODE
+            || parameterSize > 255
+        ) {
+            result.addAll(run);
+            return false;
+        }
+
+        Location loc = ((BlockStatement) run.get(0)).getLocation();
+
+        List<FormalParameter> parameters = new ArrayList<FormalParameter>();
+        List<Rvalue>          arguments  = new ArrayList<Rvalue>();
+        for (Entry<String, LocalVariable> e : localVariables.entrySet()) {
+            LocalVariable lv = (LocalVariable) e.getValue();
+            parameters.add(new FormalParameter(
+                loc,                          // location
+                true,                         // finaL
+                new SimpleType(loc, lv.type), // type
+                (String) e.getKey()           // name
+            ));
+            arguments.add(new AmbiguousName(loc, new String[] { (String) e.getKey() }));
+        }
+
+        // The outlined statements may throw the checked exceptions that the method declares, and those that the TRY
+        // statements between the block and the method catch.
+        List<Type> thrownExceptionTypes = new ArrayList<Type>();
+        for (Type t : md.thrownExceptions) thrownExceptionTypes.add(new SimpleType(loc, this.getType(t)));
+        for (Scope c = scope; c != md;) {
+            Scope s = c.getEnclosingScope();
+            if (s instanceof TryStatement && ((TryStatement) s).body == c) {
+                for (CatchClause cc : ((TryStatement) s).catchClauses) {
+                    for (Type t : cc.catchParameter.types) {
+                        thrownExceptionTypes.add(new SimpleType(loc, this.getType(t)));
+                    }
+                }
+            }
+            c = s;
+        }
+
+        AbstractClassDeclaration declaringClass = (AbstractClassDeclaration) md.getDeclaringType();
+
+        String name;
+        for (int i = 0;; i++) {
+            name = "outline$" + i;
+            if (this.getMethodDeclaration(declaringClass, name) == null) break;
+        }
+
+        // The statements are already linked to their enclosing scope, so re-parent copies of them.
+        MethodDeclarator omd = new MethodDeclarator(
+            loc,                                                                           // location
+            null,                                                                          // optionalDocComment
+            new Modifiers((short) (                                                        // modifiers
+                Mod.PRIVATE | Mod.SYNTHETIC | (md.isStatic() ? Mod.STATIC : 0)
+            )),
+            null,                                                                          // optionalTypeParameters
+            new SimpleType(loc, IClass.VOID),                                              // type
+            name,                                                                          // name
+            new FormalParameters(                                                          // formalParameters
+                loc,
+                (FormalParameter[]) parameters.toArray(new FormalParameter[parameters.size()]),
+                false
+            ),
+            (Type[]) thrownExceptionTypes.toArray(new Type[thrownExceptionTypes.size()]), // thrownExceptions
+            null,                                                                          // defaultValue
+            new DeepCopier().copyBlockStatements(run)                                      // optionalStatements
+        );
+        this.addDeclaredMethod(declaringClass, omd);
+
+        ExpressionStatement invocation = new ExpressionStatement(new MethodInvocation(
+            loc,                                                          // location
+            null,                                                         // optionalTarget
+            name,                                                         // methodName
+            (Rvalue[]) arguments.toArray(new Rvalue[arguments.size()])    // arguments
+        ));
+        invocation.setEnclosingScope(scope);
+
+        // Make the local variables visible for the arguments, and for the case that the invocation is outlined again.
+        this.setLocalVariables(invocation, new HashMap<String, LocalVariable>(localVariables));
+
+        result.add(invocation);
+        return true;
+    }
+
+    /**
+     * @return A rough estimate of the number of bytecode bytes that the <var>blockStatement</var> compiles into
+     */
+    private int
+    estimateSize(BlockStatement blockStatement) {
+        final int[] nodeCount = new int[1];
+        new AbstractTraverser<RuntimeException>() {
+            @Override public void traverseLocated(Located l) { nodeCount[0]++; }
+        }.visitBlockStatement(blockStatement);
+        return nodeCount[0] * UnitCompiler.ESTIMATED_BYTES_PER_NODE;
+    }
+
+    /**
+     * @return The local variables of the enclosing scope which the <var>blockStatement</var> refers to, in order of
+     *         their first appearance, or {@code null} iff the <var>blockStatement</var> cannot be outlined
+     */
+    @Nullable private Map<String, LocalVariable>
+    getOutlinedLocalVariables(final BlockStatement blockStatement) {
+
+        if (
+            !(blockStatement instanceof Statement)
+            || blockStatement instanceof LocalVariableDeclarationStatement
+            || blockStatement instanceof LocalClassDeclarationStatement
+            || blockStatement instanceof FieldDeclaration
+        ) return null;
+
+        // The names of the variables that the "blockStatement" refers to, assigns and declares itself. (Local
+        // variables cannot be shadowed, so none of the declared variables is a local variable of the enclosing scope.)
+        final Set<String> referenced = new LinkedHashSet<String>();
+        final Set<String> assigned   = new HashSet<String>();
+        final Set<String> declared   = new HashSet<String>();
+        final Set<String> typeNames  = new HashSet<String>();
+        final boolean[]   outlinable = { true };
+        new AbstractTraverser<RuntimeException>() {
+
+            // The statements within the "blockStatement" that BREAK and CONTINUE statements may refer to.
+            int               breakables, continuables;
+            final Set<String> labels = new HashSet<String>();
+
+            @Override public void
+            traverseAmbiguousName(AmbiguousName an) {
+                referenced.add(an.identifiers[0]);
+                super.traverseAmbiguousName(an);
+            }
+
+            @Override public void
+            traverseReferenceType(ReferenceType rt) {
+                typeNames.add(rt.identifiers[0]);
+                super.traverseReferenceType(rt);
+            }
+
+            @Override public void
+            traverseLocalVariableDeclarationStatement(LocalVariableDeclarationStatement lvds) {
+                for (VariableDeclarator vd : lvds.variableDeclarators) declared.add(vd.name);
+                super.traverseLocalVariableDeclarationStatement(lvds);
+            }
+
+            @Override public void
+            traverseFormalParameter(FormalParameter fp) {
+                declared.add(fp.name);
+                super.traverseFormalParameter(fp);
+            }
+
+            @Override public void
+            traverseTryStatement(TryStatement ts) {
+                for (TryStatement.Resource r : ts.resources) {
+                    if (r instanceof LocalVariableDeclaratorResource) {
+                        declared.add(((LocalVariableDeclaratorResource) r).variableDeclarator.name);
+                    }
+                }
+                for (CatchClause cc : ts.catchClauses) declared.add(cc.catchParameter.name);
+                super.traverseTryStatement(ts);
+            }
+
+            @Override public void
+            traverseAssignment(Assignment a) {
+                this.checkAssignment(a.lhs);
+                super.traverseAssignment(a);
+            }
+
+            @Override public void
+            traverseCrement(Crement c) {
+                this.checkAssignment(c.operand);
+                super.traverseCrement(c);
+            }
+
+            private void
+            checkAssignment(Lvalue lhs) {
+                if (lhs instanceof AmbiguousName && ((AmbiguousName) lhs).n == 1) {
+                    assigned.add(((AmbiguousName) lhs).identifiers[0]);
+                }
+            }
+
+            @Override public void
+            traverseReturnStatement(ReturnStatement rs) { outlinable[0] = false; }
+
+            @Override public void
+            traverseBreakStatement(BreakStatement bs) {
+                String label = bs.optionalLabel;
+                if (label == null ? this.breakables == 0 : !this.labels.contains(label)) outlinable[0] = false;
+            }
+
+            @Override public void
+            traverseContinueStatement(ContinueStatement cs) {
+                String label = cs.optionalLabel;
+                if (label == null ? this.continuables == 0 : !this.labels.contains(label)) outlinable[0] = false;
+            }
+
+            @Override public void
+            traverseLabeledStatement(LabeledStatement ls) {
+                this.labels.add(ls.label);
+                super.traverseLabeledStatement(ls);
+            }
+
+            @Override public void
+            traverseSwitchStatement(SwitchStatement ss) {
+                this.breakables++;
+                super.traverseSwitchStatement(ss);
+                this.breakables--;
+            }
+
+            @Override public void
+            traverseWhileStatement(WhileStatement ws) {
+                this.breakables++;
+                this.continuables++;
+                super.traverseWhileStatement(ws);
+                this.breakables--;
+                this.continuables--;
+            }
+
+            @Override public void
+            traverseDoStatement(DoStatement ds) {
+                this.breakables++;
+                this.continuables++;
+                super.traverseDoStatement(ds);
+                this.breakables--;
+                this.continuables--;
+            }
+
+            @Override public void
+            traverseForStatement(ForStatement fs) {
+                this.breakables++;
+                this.continuables++;
+                super.traverseForStatement(fs);
+                this.breakables--;
+                this.continuables--;
+            }
+
+            @Override public void
+            traverseForEachStatement(ForEachStatement fes) {
+                this.breakables++;
+                this.continuables++;
+                super.traverseForEachStatement(fes);
+                this.breakables--;
+                this.continuables--;
+            }
+
+            // Class declarations and lambda expressions would be declared twice.
+            @Override public void
+            traverseLocalClassDeclarationStatement(LocalClassDeclarationStatement lcds) { outlinable[0] = false; }
+
+            @Override public void
+            traverseNewAnonymousClassInstance(NewAnonymousClassInstance naci) { outlinable[0] = false; }
+
+            @Override public void
+            traverseLambdaExpression(LambdaExpression le) { outlinable[0] = false; }
+        }.visitBlockStatement(blockStatement);
+        if (!outlinable[0]) return null;
+
+        // The local classes of the enclosing blocks are not in scope in the outline method.
+        typeNames.addAll(referenced);
+        for (String name : typeNames) {
+            if (UnitCompiler.findLocalClassDeclaration(blockStatement, name) != null) return null;
+        }
+
+        // The outlined statements can only read the local variables of the enclosing scope.
+        for (String name : assigned) {
+            if (!declared.contains(name) && this.findLocalVariable(blockStatement, name) != null) return null;
+        }
+
+        Map<String, LocalVariable> result = new LinkedHashMap<String, LocalVariable>();
+        for (String name : referenced) {
+            if (declared.contains(name)) continue;
+            LocalVariable lv = this.findLocalVariable(blockStatement, name);
+            if (lv != null) result.put(name, lv);
+        }
+        return result;
+    }
+
+    /**
+     * The estimated number of constant pool entries of a method that forwards to its spilled copy, in addition to
+     * one per parameter.
+     */
+    private static final int ESTIMATED_FORWARDER_SIZE = 4;
+
+    /**
+     * Iff {@link #setClassSizeThreshold(int) class splitting} is enabled and the <var>cd</var> is too large, moves the
+     * bodies of static methods of the <var>cd</var> into new "{@code spill$<n>}" classes; the moved methods then
+     * forward to their copies.
+     *
+     * @return The spill classes, which the caller must compile as member types of the <var>cd</var>
+     */
+    private List<MemberClassDeclaration>
+    spillStaticMethods(AbstractClassDeclaration cd) throws CompileException {
+
+        List<MemberClassDeclaration> result    = new ArrayList<MemberClassDeclaration>();
+        int                          threshold = this.classSizeThreshold;
+        if (
+            threshold <= 0
+            || cd instanceof LocalClassDeclaration
+            || cd instanceof AnonymousClassDeclaration
+            || Mod.isSynthetic(cd.getModifierFlags()) // Don't split spill classes again.
+        ) return result;
+
+        // Estimate the size of the class, and group the static methods by name, because an invocation of an
+        // overloaded method must find all the overloads in the same class.
+        int                                 classSize = 0;
+        Map<String, List<MethodDeclarator>> groups    = new LinkedHashMap<String, List<MethodDeclarator>>();
+        Set<String>                         unmovable = new HashSet<String>();
+        for (MethodDeclarator md : this.getMethodDeclarations(cd)) {
+            classSize += this.estimateConstantPoolSize(md);
+            if (
+                !md.isStatic()
+                || md.optionalStatements == null
+                || md.getOptionalTypeParameters() != null
+                || Mod.isSynchronized(md.modifiers.accessFlags)
+                || !this.isSpillable(md)
+            ) {
+                unmovable.add(md.name);
+                continue;
+            }
+            List<MethodDeclarator> group = (List<MethodDeclarator>) groups.get(md.name);
+            if (group == null) groups.put(md.name, (group = new ArrayList<MethodDeclarator>()));
+            group.add(md);
+        }
+        for (ConstructorDeclarator ctord : this.getConstructors(cd)) {
+            classSize += this.estimateConstantPoolSize(ctord);
+        }
+        for (BlockStatement vdoi : this.getVariableDeclaratorsAndInitializers(cd)) {
+            classSize += this.estimateConstantPoolSize((TypeBodyDeclaration) vdoi);
+        }
+
+        MemberClassDeclaration spillClass = null;
+        int                    spillSize  = 0;
+        for (Entry<String, List<MethodDeclarator>> e : groups.entrySet()) {
+            if (classSize <= threshold) break;
+            if (unmovable.contains(e.getKey())) continue;
+
+            List<MethodDeclarator> group     = (List<MethodDeclarator>) e.getValue();
+            int                    groupSize = 0;
+            for (MethodDeclarator md : group) {
+                int size = this.estimateConstantPoolSize(md);
+                groupSize += size;
+                classSize -= size - UnitCompiler.ESTIMATED_FORWARDER_SIZE - md.formalParameters.parameters.length;
+            }
+
+            // Start a new spill class when the current one is full.
+            if (spillClass == null || spillSize + groupSize > threshold) {
+                String name;
+                for (int i = result.size();; i++) {
+                    name = "spill$" + i;
+                    if (cd.getMemberTypeDeclaration(name) == null) break;
+                }
+                short modifiers = (short) (Mod.PRIVATE | Mod.STATIC | Mod.FINAL | Mod.SYNTHETIC);
+                spillClass = new MemberClassDeclaration(
+                    cd.getLocation(),         // location
+                    null,                     // optionalDocComment
+                    new Modifiers(modifiers), // modifiers
+                    name,                     // name
+                    null,                     // optionalTypeParameters
+                    null,                     // optionalExtendedType
+                    new Type[0]               // implementedTypes
+                );
+
+                // Notice: The spill class is not added to the member types of the CD, because the CD may be shared
+                // with other compilations.
+                spillClass.setDeclaringType(cd);
+                result.add(spillClass);
+                spillSize = 0;
+            }
+            spillSize += groupSize;
+
+            for (MethodDeclarator md : group) this.spillMethod(md, spillClass);
+        }
+
+        return result;
+    }
+
+    /**
+     * @return Whether the body of the <var>md</var> can be {@link #spillMethod(MethodDeclarator,
+     *         MemberClassDeclaration) copied} into a spill class; the {@link DeepCopier} does not produce fresh,
+     *         unresolved copies of TRY-with-resources statements and of local and anonymous class declarations
+     */
+    private boolean
+    isSpillable(MethodDeclarator md) {
+        final boolean[] spillable = { true };
+        new AbstractTraverser<RuntimeException>() {
+
+            @Override public void
+            traverseTryStatement(TryStatement ts) {
+                if (!ts.resources.isEmpty()) spillable[0] = false;
+                super.traverseTryStatement(ts);
+            }
+
+            @Override public void
+            traverseLocalClassDeclarationStatement(LocalClassDeclarationStatement lcds) { spillable[0] = false; }
+
+            @Override public void
+            traverseNewAnonymousClassInstance(NewAnonymousClassInstance naci) { spillable[0] = false; }
+        }.visitTypeBodyDeclaration(md);
+        return spillable[0];
+    }
+
+    /**
+     * Adds a copy of the <var>md</var> to the <var>spillClass</var>, and registers an invocation of that copy as the
+     * new body of the <var>md</var>.
+     */
+    private void
+    spillMethod(MethodDeclarator md, MemberClassDeclaration spillClass) throws CompileException {
+
+        this.addDeclaredMethod(spillClass, new DeepCopier().copyMethodDeclarator(md));
+
+        Location          loc        = md.getLocation();
+        FormalParameter[] parameters = md.formalParameters.parameters;
+        Rvalue[]          arguments  = new Rvalue[parameters.length];
+        for (int i = 0; i < parameters.length; i++) arguments[i] = new ParameterAccess(loc, parameters[i]);
+
+        MethodInvocation invocation = new MethodInvocation(
+            loc,                                           // location
+            new SimpleType(loc, this.resolve(spillClass)), // optionalTarget
+            md.name,                                       // methodName
+            arguments                                      // arguments
+        );
+
+        BlockStatement forwarder;
+        if (this.getReturnType(md) == IClass.VOID) {
+            forwarder = new ExpressionStatement(invocation);
+        } else {
+            forwarder = new ReturnStatement(loc, invocation);
+        }
+        forwarder.setEnclosingScope(md);
+
+        List<BlockStatement> body = new ArrayList<BlockStatement>();
+        body.add(forwarder);
+        this.spilledMethods.put(md, body);
+    }
+
+    /**
+     * @return A rough estimate of the number of constant pool entries that the <var>tbd</var> contributes to its
+     *         class file
+     */
+    private int
+    estimateConstantPoolSize(TypeBodyDeclaration tbd) {
+        final int[] nodeCount = new int[1];
+        new AbstractTraverser<RuntimeException>() {
+            @Override public void traverseLocated(Located l) { nodeCount[0]++; }
+        }.visitTypeBodyDeclaration(tbd);
+        return nodeCount[0];
+    }
+
+    /**
+     * @return The single abstract method of the given <var>functionalInterface</var> (JLS8 9.8)
+     * @throws CompileException The <var>functionalInterface</var> is not a functional interface
+     */
+    private IMethod
+    getFunctionalInterfaceMethod(Locatable locatable, IClass functionalInterface) throws CompileException {
+        IMethod result = this.findFunctionalInterfaceMethod(functionalInterface);
+        if (result == null) {
+            throw UnitCompiler.compileException(
+                locatable,
+                "\"" + functionalInterface + "\" is not a functional interface"
+            );
+        }
+        return result;
+    }
+
+    /**
+     * @return The single abstract method of the given <var>type</var>, or {@code null} iff <var>type</var> is not a
+     *         functional interface (JLS8 9.8)
+     */
+    @Nullable private IMethod
+    findFunctionalInterfaceMethod(IClass type) throws CompileException {
+        if (!type.isInterface()) return null;
+
+        IMethod result = null;
+        for (IMethod m : type.getIMethods()) {
+            if (!m.isAbstract() || m.isStatic()) continue;
+
+            // Abstract methods that redeclare public methods of "java.lang.Object" do not count.
+            IMethod om = this.iClassLoader.TYPE_java_lang_Object.findIMethod(m.getName(), m.getParameterTypes());
+            if (om != null && om.getAccess() == Access.PUBLIC) continue;
+
+            if (result != null) {
+
+                // The same method may be inherited from more than one superinterface.
+                if (
+                    result.getName().equals(m.getName())
+                    && Arrays.equals(result.getParameterTypes(), m.getParameterTypes())
+                ) continue;
+                return null;
+            }
+            result = m;
+        }
+        return result;
+    }
+
+    /**
+     * Iff the <var>rvalue</var> is a (possibly parenthesized) lambda expression, records the <var>targetType</var>
+     * as its target type (JLS8 15.27.3). Must be invoked before the <var>rvalue</var> is compiled in an assignment,
+     * invocation or casting context.
+     * <p>
+     *   The target type is also propagated into the second and third operands of a conditional expression (JLS8
+     *   15.25.3), so that e.g. "{@code Callable c = flag ? () -> 1 : () -> 2;}" works.
+     * </p>
+     */
+    private void
+    setLambdaTargetType(Rvalue rvalue, IClass targetType) {
+        while (rvalue instanceof ParenthesizedExpression) rvalue = ((ParenthesizedExpression) rvalue).value;
+        if (rvalue instanceof LambdaExpression) {
+            this.lambdaTargetTypes.put((LambdaExpression) rvalue, targetType);
+        } else
+        if (rvalue instanceof ConditionalExpression) {
+            ConditionalExpression ce = (ConditionalExpression) rvalue;
+            this.setLambdaTargetType(ce.mhs, targetType);
+            this.setLambdaTargetType(ce.rhs, targetType);
+        }
+    }
+
+    /**
+     * @return Whether the <var>rvalue</var> is a (possibly parenthesized) lambda expression
+     */
+    private static boolean
+    isLambdaExpression(Rvalue rvalue) {
+        while (rvalue instanceof ParenthesizedExpression) rvalue = ((ParenthesizedExpression) rvalue).value;
+        return rvalue instanceof LambdaExpression;
+    }
+
+    /**
+     * @return Whether the given lambda expression is compatible with the given parameter type (JLS8 15.27.3), judging
+     *         by the number of parameters only
+     */
+    private boolean
+    isLambdaCompatible(Rvalue rvalue, IClass parameterType) throws CompileException {
+        while (rvalue instanceof ParenthesizedExpression) rvalue = ((ParenthesizedExpression) rvalue).value;
+        LambdaParameters lps = ((LambdaExpression) rvalue).parameters;
+
+        IMethod sam = this.findFunctionalInterfaceMethod(parameterType);
+        if (sam == null) return false;
+
+        int parameterCount = (
+            lps instanceof IdentifierLambdaParameters ? 1 :
+            lps instanceof InferredLambdaParameters ? ((InferredLambdaParameters) lps).names.length :
+            ((FormalLambdaParameters) lps).formalParameters.parameters.length
+        );
+        return parameterCount == sam.getParameterTypes().length;
+    }
 
     private IClass
     compileGet2(QualifiedThisReference qtr) throws CompileException {
@@ -4572,15 +6038,15 @@ class UnitCompiler {
         }
 
         // Check if synthetic method "static Class class$(String className)" is already declared.
-        if (declaringType.getMethodDeclaration("class$") == null) this.declareClassDollarMethod(cl);
+        if (this.getMethodDeclaration(declaringType, "class$") == null) this.declareClassDollarMethod(cl);
 
         // Determine the statics of the declaring class (this is where static fields declarations are found).
         List<? extends BlockStatement> statics;
         if (declaringType instanceof AbstractClassDeclaration) {
-            statics = ((AbstractClassDeclaration) declaringType).variableDeclaratorsAndInitializers;
+            statics = this.getVariableDeclaratorsAndInitializers((AbstractClassDeclaration) declaringType);
         } else
         if (declaringType instanceof InterfaceDeclaration) {
-            statics = ((InterfaceDeclaration) declaringType).constantDeclarations;
+            statics = this.getConstantDeclarations((InterfaceDeclaration) declaringType);
         } else {
             throw new InternalCompilerException(
                 "SNO: AbstractTypeDeclaration is neither ClassDeclaration nor InterfaceDeclaration"
@@ -4638,16 +6104,7 @@ class UnitCompiler {
                     )
                 }
             );
-            if (declaringType instanceof AbstractClassDeclaration) {
-                ((AbstractClassDeclaration) declaringType).addFieldDeclaration(fd);
-            } else
-            if (declaringType instanceof InterfaceDeclaration) {
-                ((InterfaceDeclaration) declaringType).addConstantDeclaration(fd);
-            } else {
-                throw new InternalCompilerException(
-                    "SNO: AbstractTypeDeclaration is neither ClassDeclaration nor InterfaceDeclaration"
-                );
-            }
+            this.addFieldDeclaration((AbstractTypeDeclaration) declaringType, fd);
         }
 
         // return (class$X != null) ? class$X : (class$X = class$("X"));
@@ -4687,8 +6144,9 @@ class UnitCompiler {
     compileGet2(Assignment a) throws CompileException {
         if (a.operator == "=") { // SUPPRESS CHECKSTYLE StringLiteralEquality
             int    lhsCs   = this.compileContext(a.lhs);
-            IClass rhsType = this.compileGetValue(a.rhs);
             IClass lhsType = this.getType(a.lhs);
+            this.setLambdaTargetType(a.rhs, lhsType);
+            IClass rhsType = this.compileGetValue(a.rhs);
             Object rhsCv   = this.getConstantValue(a.rhs);
             this.assignmentConversion(a, rhsType, lhsType, rhsCv);
             this.dupx(a, lhsType, lhsCs);
@@ -4777,11 +6235,11 @@ class UnitCompiler {
             // JLS7 15.25, list 1, bullet 3: "b ? ReferenceType : null => ReferenceType"
             expressionType = mhsType;
         } else
-        if (ce.mhs.constantValue == null && rhsType.isPrimitive()) {
+        if (this.getCachedConstantValue(ce.mhs) == null && rhsType.isPrimitive()) {
             expressionType = this.isBoxingConvertible(rhsType);
             assert expressionType != null : rhsType + " is not boxing convertible";
         } else
-        if (ce.rhs.constantValue == null && mhsType.isPrimitive()) {
+        if (this.getCachedConstantValue(ce.rhs) == null && mhsType.isPrimitive()) {
             expressionType = this.isBoxingConvertible(mhsType);
             assert expressionType != null : mhsType + " is not boxing convertible";
         } else
@@ -4789,8 +6247,8 @@ class UnitCompiler {
 
             // TODO JLS7 15.25, list 1, bullet 4, bullet 1: "b ? Byte : Short => short"
 
-            Object rhscv = ce.rhs.constantValue;
-            Object mhscv = ce.mhs.constantValue;
+            Object rhscv = this.getCachedConstantValue(ce.rhs);
+            Object mhscv = this.getCachedConstantValue(ce.mhs);
 
             if (
                 mhsType == IClass.BYTE
@@ -4801,7 +6259,7 @@ class UnitCompiler {
                 // JLS7 15.25, list 1, bullet 4, bullet 2: "b ? byte : 127 => byte"
                 expressionType = IClass.BYTE;
                 // fix up the constant to be a byte
-                ce.rhs.constantValue = UnitCompiler.isByteConstant(rhscv);
+                this.setCachedConstantValue(ce.rhs, UnitCompiler.isByteConstant(rhscv));
             } else
             if (
                 mhsType == IClass.INT
@@ -4812,7 +6270,7 @@ class UnitCompiler {
                 // JLS7 15.25, list 1, bullet 4, bullet 3: "b ? 127 : byte => byte"
                 expressionType = IClass.BYTE;
                 // fix up the constant to be a byte
-                ce.mhs.constantValue = UnitCompiler.isByteConstant(mhscv);
+                this.setCachedConstantValue(ce.mhs, UnitCompiler.isByteConstant(mhscv));
             } else
             {
 
@@ -5052,6 +6510,7 @@ class UnitCompiler {
 
         // JLS7 5.5 Casting Conversion.
         IClass tt = this.getType(c.targetType);
+        this.setLambdaTargetType(c.value, tt);
         IClass vt = this.compileGetValue(c.value);
         if (
             this.tryIdentityConversion(vt, tt)
@@ -5211,6 +6670,7 @@ class UnitCompiler {
         }
 
         for (int i = 0; i < adjustedArgs.length; ++i) {
+            this.setLambdaTargetType(adjustedArgs[i], parameterTypes[i]);
             this.assignmentConversion(
                 mi,                                    // location
                 this.compileGetValue(adjustedArgs[i]), // sourceType
@@ -5344,6 +6804,7 @@ class UnitCompiler {
         // TODO: adjust args
         IClass[] parameterTypes = iMethod.getParameterTypes();
         for (int i = 0; i < scmi.arguments.length; ++i) {
+            this.setLambdaTargetType(scmi.arguments[i], parameterTypes[i]);
             this.assignmentConversion(
                 scmi,                                    // locatable
                 this.compileGetValue(scmi.arguments[i]), // sourceType
@@ -5364,13 +6825,7 @@ class UnitCompiler {
 
     private IClass
     compileGet2(NewClassInstance nci) throws CompileException {
-        IClass iClass;
-        if (nci.iClass != null) {
-            iClass = nci.iClass;
-        } else {
-            assert nci.type != null;
-            iClass = (nci.iClass = this.getType(nci.type));
-        }
+        IClass iClass = this.getType2(nci);
 
         this.writeOpcode(nci, Opcode.NEW);
         this.writeConstantClassInfo(iClass.getDescriptor());
@@ -5411,7 +6866,7 @@ class UnitCompiler {
                 if (iClass.getOuterIClass() != null) {
                     this.compileError((
                         "Instantiation of \""
-                        + (nci.type != null ? nci.type.toString() : String.valueOf(nci.iClass))
+                        + (nci.type != null ? nci.type.toString() : String.valueOf(iClass))
                         + "\" requires an enclosing instance"
                     ), nci.getLocation());
                 }
@@ -5525,7 +6980,7 @@ class UnitCompiler {
         }
 
         // Generate the anonymous constructor for the anonymous class (JLS7 15.9.5.1).
-        acd.addConstructor(new ConstructorDeclarator(
+        this.addConstructor(acd, new ConstructorDeclarator(
             loc,                                    // location
             null,                                   // optionalDocComment
             new Modifiers(Mod.PACKAGE),             // modifiers
@@ -5592,7 +7047,7 @@ class UnitCompiler {
             // Remove the synthetic constructor that was temporarily added. This is necessary because this NACI
             // expression (and all other expressions) are sometimes compiled more than once (see "fakeCompile()"), and
             // we'd end up with TWO synthetic constructors. See JANINO-143.
-            acd.constructors.remove(acd.constructors.size() - 1);
+            this.removeLastConstructor(acd);
         }
         return this.resolve(naci.anonymousClassDeclaration);
     }
@@ -5652,6 +7107,7 @@ class UnitCompiler {
             ArrayInitializerOrRvalue aiorv = ai.values[i];
             if (aiorv instanceof Rvalue) {
                 Rvalue rv = (Rvalue) aiorv;
+                this.setLambdaTargetType(rv, ct);
                 this.assignmentConversion(
                     ai,                       // locatable
                     this.compileGetValue(rv), // sourceType
@@ -5719,9 +7175,12 @@ class UnitCompiler {
     @Nullable public final Object
     getConstantValue(Rvalue rv) throws CompileException {
 
-        if (rv.constantValue != Rvalue.CONSTANT_VALUE_UNKNOWN) return rv.constantValue;
+        {
+            Object result = this.getCachedConstantValue(rv);
+            if (result != Rvalue.CONSTANT_VALUE_UNKNOWN) return result;
+        }
 
-        return (rv.constantValue = rv.accept(new RvalueVisitor<Object, CompileException>() {
+        Object result = rv.accept(new RvalueVisitor<Object, CompileException>() {
 
             @Override @Nullable public Object
             visitLvalue(Lvalue lv) throws CompileException {
@@ -5765,7 +7224,26 @@ class UnitCompiler {
             @Override @Nullable public Object visitQualifiedThisReference(QualifiedThisReference qtr)                      { return UnitCompiler.this.getConstantValue2(qtr);  }
             @Override @Nullable public Object visitThisReference(ThisReference tr)                                         { return UnitCompiler.this.getConstantValue2(tr);   }
             @Override @Nullable public Object visitLambdaExpression(LambdaExpression le)                                   { return UnitCompiler.this.getConstantValue2(le);   }
-        }));
+        });
+        this.setCachedConstantValue(rv, result);
+        return result;
+    }
+
+    /**
+     * @return The constant value of the <var>rv</var> as determined so far, or {@link Rvalue#CONSTANT_VALUE_UNKNOWN}
+     */
+    @Nullable private Object
+    getCachedConstantValue(Rvalue rv) {
+        return this.sideTables() ? this.sideTableEntry(rv).constantValue : rv.constantValue;
+    }
+
+    private void
+    setCachedConstantValue(Rvalue rv, @Nullable Object constantValue) {
+        if (this.sideTables()) {
+            this.sideTableEntry(rv).constantValue = constantValue;
+        } else {
+            rv.constantValue = constantValue;
+        }
     }
 
     @SuppressWarnings("static-method")
@@ -6057,7 +7535,7 @@ class UnitCompiler {
             IfStatement is = (IfStatement) lva.getEnclosingScope();
 
             if (is.condition instanceof AmbiguousName) {
-                Atom ra = ((AmbiguousName) is.condition).reclassified;
+                Atom ra = this.getReclassified((AmbiguousName) is.condition);
 
                 if (ra instanceof LocalVariableAccess) {
                     LocalVariable lv = ((LocalVariableAccess) ra).localVariable;
@@ -6079,7 +7557,11 @@ class UnitCompiler {
 
                                 if (
                                     lvds.variableDeclarators.length == 1
-                                    && lvds.variableDeclarators[0].localVariable == lv
+                                    && (
+                                        this.sideTables()
+                                        ? this.sideTableEntry(lvds.variableDeclarators[0]).localVariable
+                                        : lvds.variableDeclarators[0].localVariable
+                                    ) == lv
                                 ) {
                                     ArrayInitializerOrRvalue oi = lvds.variableDeclarators[0].optionalInitializer;
                                     if (oi instanceof Rvalue) return this.getConstantValue((Rvalue) oi);
@@ -6373,53 +7855,65 @@ class UnitCompiler {
      *   #leave(BlockStatement, IClass)} that require a specific operand stack state (e.g. an empty operand stack for
      *   JSR).
      * </p>
+     *
+     * @return Whether the code can complete normally (which is not the case if an inlined FINALLY clause can not
+     *         complete normally)
      */
-    private void
-    leave(BlockStatement bs, @Nullable final IClass optionalStackValueType) {
-        BlockStatementVisitor<Void, RuntimeException> bsv = new BlockStatementVisitor<Void, RuntimeException>() {
+    private boolean
+    leave(BlockStatement bs, @Nullable final IClass optionalStackValueType) throws CompileException {
+        BlockStatementVisitor<Boolean, CompileException>
+        bsv = new BlockStatementVisitor<Boolean, CompileException>() {
 
             // SUPPRESS CHECKSTYLE LineLengthCheck:23
-            @Override @Nullable public Void visitInitializer(Initializer i)                                                { UnitCompiler.this.leave2(i,    optionalStackValueType); return null; }
-            @Override @Nullable public Void visitFieldDeclaration(FieldDeclaration fd)                                     { UnitCompiler.this.leave2(fd,   optionalStackValueType); return null; }
-            @Override @Nullable public Void visitLabeledStatement(LabeledStatement ls)                                     { UnitCompiler.this.leave2(ls,   optionalStackValueType); return null; }
-            @Override @Nullable public Void visitBlock(Block b)                                                            { UnitCompiler.this.leave2(b,    optionalStackValueType); return null; }
-            @Override @Nullable public Void visitExpressionStatement(ExpressionStatement es)                               { UnitCompiler.this.leave2(es,   optionalStackValueType); return null; }
-            @Override @Nullable public Void visitIfStatement(IfStatement is)                                               { UnitCompiler.this.leave2(is,   optionalStackValueType); return null; }
-            @Override @Nullable public Void visitForStatement(ForStatement fs)                                             { UnitCompiler.this.leave2(fs,   optionalStackValueType); return null; }
-            @Override @Nullable public Void visitForEachStatement(ForEachStatement fes)                                    { UnitCompiler.this.leave2(fes,  optionalStackValueType); return null; }
-            @Override @Nullable public Void visitWhileStatement(WhileStatement ws)                                         { UnitCompiler.this.leave2(ws,   optionalStackValueType); return null; }
-            @Override @Nullable public Void visitTryStatement(TryStatement ts)                                             { UnitCompiler.this.leave2(ts,   optionalStackValueType); return null; }
-            @Override @Nullable public Void visitSwitchStatement(SwitchStatement ss)                                       { UnitCompiler.this.leave2(ss,   optionalStackValueType); return null; }
-            @Override @Nullable public Void visitSynchronizedStatement(SynchronizedStatement ss)                           { UnitCompiler.this.leave2(ss,   optionalStackValueType); return null; }
-            @Override @Nullable public Void visitDoStatement(DoStatement ds)                                               { UnitCompiler.this.leave2(ds,   optionalStackValueType); return null; }
-            @Override @Nullable public Void visitLocalVariableDeclarationStatement(LocalVariableDeclarationStatement lvds) { UnitCompiler.this.leave2(lvds, optionalStackValueType); return null; }
-            @Override @Nullable public Void visitReturnStatement(ReturnStatement rs)                                       { UnitCompiler.this.leave2(rs,   optionalStackValueType); return null; }
-            @Override @Nullable public Void visitThrowStatement(ThrowStatement ts)                                         { UnitCompiler.this.leave2(ts,   optionalStackValueType); return null; }
-            @Override @Nullable public Void visitBreakStatement(BreakStatement bs)                                         { UnitCompiler.this.leave2(bs,   optionalStackValueType); return null; }
-            @Override @Nullable public Void visitContinueStatement(ContinueStatement cs)                                   { UnitCompiler.this.leave2(cs,   optionalStackValueType); return null; }
-            @Override @Nullable public Void visitAssertStatement(AssertStatement as)                                       { UnitCompiler.this.leave2(as,   optionalStackValueType); return null; }
-            @Override @Nullable public Void visitEmptyStatement(EmptyStatement es)                                         { UnitCompiler.this.leave2(es,   optionalStackValueType); return null; }
-            @Override @Nullable public Void visitLocalClassDeclarationStatement(LocalClassDeclarationStatement lcds)       { UnitCompiler.this.leave2(lcds, optionalStackValueType); return null; }
-            @Override @Nullable public Void visitAlternateConstructorInvocation(AlternateConstructorInvocation aci)        { UnitCompiler.this.leave2(aci,  optionalStackValueType); return null; }
-            @Override @Nullable public Void visitSuperConstructorInvocation(SuperConstructorInvocation sci)                { UnitCompiler.this.leave2(sci,  optionalStackValueType); return null; }
+            @Override public Boolean visitInitializer(Initializer i)                                                                        { return UnitCompiler.this.leave2(i,    optionalStackValueType); }
+            @Override public Boolean visitFieldDeclaration(FieldDeclaration fd)                                                             { return UnitCompiler.this.leave2(fd,   optionalStackValueType); }
+            @Override public Boolean visitLabeledStatement(LabeledStatement ls)                                                             { return UnitCompiler.this.leave2(ls,   optionalStackValueType); }
+            @Override public Boolean visitBlock(Block b)                                                                                    { return UnitCompiler.this.leave2(b,    optionalStackValueType); }
+            @Override public Boolean visitExpressionStatement(ExpressionStatement es)                                                       { return UnitCompiler.this.leave2(es,   optionalStackValueType); }
+            @Override public Boolean visitIfStatement(IfStatement is)                                                                       { return UnitCompiler.this.leave2(is,   optionalStackValueType); }
+            @Override public Boolean visitForStatement(ForStatement fs)                                                                     { return UnitCompiler.this.leave2(fs,   optionalStackValueType); }
+            @Override public Boolean visitForEachStatement(ForEachStatement fes)                                                            { return UnitCompiler.this.leave2(fes,  optionalStackValueType); }
+            @Override public Boolean visitWhileStatement(WhileStatement ws)                                                                 { return UnitCompiler.this.leave2(ws,   optionalStackValueType); }
+            @Override public Boolean visitTryStatement(TryStatement ts)                                             throws CompileException { return UnitCompiler.this.leave2(ts,   optionalStackValueType); }
+            @Override public Boolean visitSwitchStatement(SwitchStatement ss)                                                               { return UnitCompiler.this.leave2(ss,   optionalStackValueType); }
+            @Override public Boolean visitSynchronizedStatement(SynchronizedStatement ss)                                                   { return UnitCompiler.this.leave2(ss,   optionalStackValueType); }
+            @Override public Boolean visitDoStatement(DoStatement ds)                                                                       { return UnitCompiler.this.leave2(ds,   optionalStackValueType); }
+            @Override public Boolean visitLocalVariableDeclarationStatement(LocalVariableDeclarationStatement lvds)                         { return UnitCompiler.this.leave2(lvds, optionalStackValueType); }
+            @Override public Boolean visitReturnStatement(ReturnStatement rs)                                                               { return UnitCompiler.this.leave2(rs,   optionalStackValueType); }
+            @Override public Boolean visitThrowStatement(ThrowStatement ts)                                                                 { return UnitCompiler.this.leave2(ts,   optionalStackValueType); }
+            @Override public Boolean visitBreakStatement(BreakStatement bs)                                                                 { return UnitCompiler.this.leave2(bs,   optionalStackValueType); }
+            @Override public Boolean visitContinueStatement(ContinueStatement cs)                                                           { return UnitCompiler.this.leave2(cs,   optionalStackValueType); }
+            @Override public Boolean visitAssertStatement(AssertStatement as)                                                               { return UnitCompiler.this.leave2(as,   optionalStackValueType); }
+            @Override public Boolean visitEmptyStatement(EmptyStatement es)                                                                 { return UnitCompiler.this.leave2(es,   optionalStackValueType); }
+            @Override public Boolean visitLocalClassDeclarationStatement(LocalClassDeclarationStatement lcds)                               { return UnitCompiler.this.leave2(lcds, optionalStackValueType); }
+            @Override public Boolean visitAlternateConstructorInvocation(AlternateConstructorInvocation aci)                                { return UnitCompiler.this.leave2(aci,  optionalStackValueType); }
+            @Override public Boolean visitSuperConstructorInvocation(SuperConstructorInvocation sci)                                        { return UnitCompiler.this.leave2(sci,  optionalStackValueType); }
         };
-        bs.accept(bsv);
+        Boolean result = (Boolean) bs.accept(bsv);
+
+        assert result != null;
+        return result;
     }
 
-    private void
-    leave2(BlockStatement bs, @Nullable IClass optionalStackValueType) {}
+    private boolean
+    leave2(BlockStatement bs, @Nullable IClass optionalStackValueType) { return true; }
 
-    private void
+    private boolean
     leave2(SynchronizedStatement ss, @Nullable IClass optionalStackValueType) {
-        this.load(ss, this.iClassLoader.TYPE_java_lang_Object, ss.monitorLvIndex);
+        this.load(ss, this.iClassLoader.TYPE_java_lang_Object, (
+            this.sideTables() ? this.sideTableEntry(ss).monitorLvIndex : ss.monitorLvIndex
+        ));
         this.writeOpcode(ss, Opcode.MONITOREXIT);
+        return true;
     }
 
-    private void
-    leave2(TryStatement ts, @Nullable IClass optionalStackValueType) {
+    private boolean
+    leave2(TryStatement ts, @Nullable IClass optionalStackValueType) throws CompileException {
+
+        if (!this.finallyAsSubroutine()) return this.leaveInlineFinally(ts, optionalStackValueType);
 
-        Offset fo = ts.finallyOffset;
-        if (fo == null) return;
+        Offset fo = this.getFinallyOffset(ts);
+        if (fo == null) return true;
 
         this.getCodeContext().saveLocalVariables();
         try {
@@ -6442,6 +7936,48 @@ class UnitCompiler {
         } finally {
             this.getCodeContext().restoreLocalVariables();
         }
+        return true;
+    }
+
+    /**
+     * Inlines the pending FINALLY clauses of the given TRY statement, innermost first.
+     *
+     * @return Whether the inlined FINALLY clauses can complete normally
+     */
+    private boolean
+    leaveInlineFinally(TryStatement ts, @Nullable IClass optionalStackValueType) throws CompileException {
+
+        List<TryLevel> levels = new ArrayList<TryLevel>();
+        for (int i = this.tryLevels.size() - 1; i >= 0; i--) {
+            TryLevel tl = (TryLevel) this.tryLevels.get(i);
+            if (tl.tryStatement == ts && tl.finallY != null && tl.finallyPending) levels.add(tl);
+        }
+        if (levels.isEmpty()) return true;
+
+        this.getCodeContext().saveLocalVariables();
+        try {
+            short sv = 0;
+
+            // The FINALLY clause must execute with an empty operand stack, because its exception handlers (if any)
+            // clear the operand stack.
+            if (optionalStackValueType != null) {
+                sv = this.getCodeContext().allocateLocalVariable(
+                    Descriptor.size(optionalStackValueType.getDescriptor())
+                );
+                this.store(ts, optionalStackValueType, sv);
+            }
+
+            for (TryLevel tl : levels) {
+                if (!this.inlineFinally(tl)) return false;
+            }
+
+            if (optionalStackValueType != null) {
+                this.load(ts, optionalStackValueType, sv);
+            }
+        } finally {
+            this.getCodeContext().restoreLocalVariables();
+        }
+        return true;
     }
 
     // ---------------- Lvalue.compileSet() -----------------
@@ -6921,9 +8457,16 @@ class UnitCompiler {
         return this.getIClass(tr);
     }
 
-    @SuppressWarnings("static-method") private IClass
+    private IClass
     getType2(LambdaExpression le) throws CompileException {
-        throw UnitCompiler.compileException(le, "Compilation of lambda expression NYI");
+        IClass result = (IClass) this.lambdaTargetTypes.get(le);
+        if (result == null) {
+            throw UnitCompiler.compileException(
+                le,
+                "Lambda expression is not in an assignment, invocation or casting context"
+            );
+        }
+        return result;
     }
 
     private IClass
@@ -6986,12 +8529,12 @@ class UnitCompiler {
             // JLS7 15.25, list 1, bullet 4, bullet 2: "b ? 127 : byte => byte"
             if (
                 (mhsType == IClass.BYTE || mhsType == IClass.SHORT || mhsType == IClass.CHAR)
-                && ce.rhs.constantValue != null
+                && this.getCachedConstantValue(ce.rhs) != null
                 && this.assignmentConversion(ce.rhs, this.getConstantValue(ce.rhs), mhsType) != null
             ) return mhsType;
             if (
                 (rhsType == IClass.BYTE || rhsType == IClass.SHORT || rhsType == IClass.CHAR)
-                && ce.mhs.constantValue != null
+                && this.getCachedConstantValue(ce.mhs) != null
                 && this.assignmentConversion(ce.mhs, this.getConstantValue(ce.mhs), rhsType) != null
             ) return rhsType;
 
@@ -7145,7 +8688,17 @@ class UnitCompiler {
 
     private IClass
     getType2(MethodInvocation mi) throws CompileException {
-        IMethod iMethod = mi.iMethod != null ? mi.iMethod : (mi.iMethod = this.findIMethod(mi));
+        SideTableEntry ste = this.sideTables() ? this.sideTableEntry(mi) : null;
+
+        IMethod iMethod = ste != null ? ste.iMethod : mi.iMethod;
+        if (iMethod == null) {
+            iMethod = this.findIMethod(mi);
+            if (ste != null) {
+                ste.iMethod = iMethod;
+            } else {
+                mi.iMethod = iMethod;
+            }
+        }
 
         return iMethod.getReturnType();
     }
@@ -7157,10 +8710,20 @@ class UnitCompiler {
 
     private IClass
     getType2(NewClassInstance nci) throws CompileException {
+        // "nci.iClass" is either set when the node is created, or when it is compiled without side tables.
         if (nci.iClass != null) return nci.iClass;
 
+        SideTableEntry ste = this.sideTables() ? this.sideTableEntry(nci) : null;
+        if (ste != null && ste.iClass != null) return ste.iClass;
+
         assert nci.type != null;
-        return (nci.iClass = this.getType(nci.type));
+        IClass result = this.getType(nci.type);
+        if (ste != null) {
+            ste.iClass = result;
+        } else {
+            nci.iClass = result;
+        }
+        return result;
     }
 
     private IClass
@@ -7550,7 +9113,7 @@ class UnitCompiler {
 
     private Rvalue
     toRvalueOrCompileException(final Atom a) throws CompileException {
-        Rvalue result = a.toRvalue();
+        Rvalue result = this.dereference(a).toRvalue();
         if (result == null) {
             this.compileError("Expression \"" + a.toString() + "\" is not an rvalue", a.getLocation());
             return new StringLiteral(a.getLocation(), "\"X\"");
@@ -7560,7 +9123,7 @@ class UnitCompiler {
 
     private Lvalue
     toLvalueOrCompileException(final Atom a) throws CompileException {
-        Lvalue result = a.toLvalue();
+        Lvalue result = this.dereference(a).toLvalue();
         if (result == null) {
             this.compileError("Expression \"" + a.toString() + "\" is not an lvalue", a.getLocation());
             return new Lvalue(a.getLocation()) {
@@ -7581,8 +9144,8 @@ class UnitCompiler {
      */
     void
     assignSyntheticParametersToSyntheticFields(ConstructorDeclarator cd) throws CompileException {
-        for (IClass.IField sf : cd.getDeclaringClass().syntheticFields.values()) {
-            LocalVariable syntheticParameter = (LocalVariable) cd.syntheticParameters.get(sf.getName());
+        for (IClass.IField sf : this.getSyntheticFields(cd.getDeclaringClass()).values()) {
+            LocalVariable syntheticParameter = (LocalVariable) this.getSyntheticParameters(cd).get(sf.getName());
             if (syntheticParameter == null) {
                 throw new InternalCompilerException(
                     "SNO: Synthetic parameter for synthetic field \""
@@ -7615,7 +9178,7 @@ class UnitCompiler {
     initializeInstanceVariablesAndInvokeInstanceInitializers(ConstructorDeclarator cd) throws CompileException {
 
         // Compilation of block statements can create synthetic variables, so we must not use an iterator.
-        List<BlockStatement> vdai = cd.getDeclaringClass().variableDeclaratorsAndInitializers;
+        List<BlockStatement> vdai = this.getVariableDeclaratorsAndInitializers(cd.getDeclaringClass());
         for (int i = 0; i < vdai.size(); i++) {
             BlockStatement bs = (BlockStatement) vdai.get(i);
 
@@ -7634,14 +9197,18 @@ class UnitCompiler {
      * Statements that jump out of blocks ({@code return}, {@code break}, {@code continue}) must call this method to
      * make sure that the {@code finally} clauses of all {@code try ... catch} and {@code synchronized} statements are
      * executed.
+     *
+     * @return Whether the code can complete normally (which is not the case if an inlined FINALLY clause can not
+     *         complete normally)
      */
-    private void
-    leaveStatements(Scope from, Scope to, @Nullable IClass optionalStackValueType) {
+    private boolean
+    leaveStatements(Scope from, Scope to, @Nullable IClass optionalStackValueType) throws CompileException {
         for (Scope s = from; s != to; s = s.getEnclosingScope()) {
             if (s instanceof BlockStatement) {
-                this.leave((BlockStatement) s, optionalStackValueType);
+                if (!this.leave((BlockStatement) s, optionalStackValueType)) return false;
             }
         }
+        return true;
     }
 
     /**
@@ -7871,9 +9438,6 @@ class UnitCompiler {
         Iterator<Rvalue> operands
     ) throws CompileException {
 
-        // Convert the first operand (which is already on the operand stack) to "String".
-        this.stringConversion(locatable, type);
-
         // Compute list of operands and merge consecutive constant operands.
         List<Rvalue> tmp = new ArrayList<Rvalue>();
         for (Rvalue nextOperand = secondOperand; nextOperand != null;) {
@@ -7919,6 +9483,15 @@ class UnitCompiler {
         // At this point "tmp" contains an optimized sequence of Strings (representing constant portions) and Rvalues
         // (non-constant portions).
 
+        // The INVOKEDYNAMIC instruction takes the first operand (which is already on the operand stack) as it is.
+        if (this.targetVersion >= 9) {
+            this.compileIndyStringConcatenation(locatable, type, tmp);
+            return this.iClassLoader.TYPE_java_lang_String;
+        }
+
+        // Convert the first operand to "String".
+        this.stringConversion(locatable, type);
+
         if (tmp.size() <= UnitCompiler.STRING_CONCAT_LIMIT - 1) {
 
             // String concatenation through "a.concat(b).concat(c)".
@@ -7963,6 +9536,111 @@ class UnitCompiler {
         return this.iClassLoader.TYPE_java_lang_String;
     }
 
+    /**
+     * Generates string concatenation through "{@code invokedynamic makeConcatWithConstants}", as described in the
+     * documentation of {@code java.lang.invoke.StringConcatFactory} (Java 9+). Constant operands become part of the
+     * "recipe", so the JVM can pre-size the result.
+     *
+     * @param firstOperandType The type of the first operand, which is already on the operand stack
+     */
+    private void
+    compileIndyStringConcatenation(Locatable locatable, IClass firstOperandType, List<Rvalue> operands)
+    throws CompileException {
+
+        StringBuilder recipe    = new StringBuilder().append(UnitCompiler.TAG_ARG);
+        StringBuilder md        = new StringBuilder("(").append(this.indyStringConcatArgumentFd(firstOperandType));
+        List<String>  constants = new ArrayList<String>();
+        int           slots     = Descriptor.size(firstOperandType.getDescriptor());
+
+        for (Rvalue operand : operands) {
+
+            Object cv = this.getConstantValue(operand);
+            if (cv != UnitCompiler.NOT_CONSTANT) {
+                String s = String.valueOf(cv);
+                if (
+                    s.indexOf(UnitCompiler.TAG_ARG) == -1
+                    && s.indexOf(UnitCompiler.TAG_CONST) == -1
+                    && recipe.length() + s.length() <= UnitCompiler.MAX_RECIPE_LENGTH
+                ) {
+                    recipe.append(s);
+                } else {
+                    recipe.append(UnitCompiler.TAG_CONST);
+                    constants.add(s);
+                }
+                continue;
+            }
+
+            // "StringConcatFactory" accepts at most 200 argument slots; concatenate in multiple steps, where the
+            // result of each step is the first argument of the next.
+            if (slots + 2 > UnitCompiler.MAX_INDY_CONCAT_ARG_SLOTS) {
+                this.invokeMakeConcatWithConstants(locatable, recipe.toString(), md.toString(), constants);
+                recipe.setLength(0);
+                recipe.append(UnitCompiler.TAG_ARG);
+                md.setLength(0);
+                md.append('(').append(Descriptor.JAVA_LANG_STRING);
+                constants.clear();
+                slots = 1;
+            }
+
+            IClass t = this.compileGetValue(operand);
+            recipe.append(UnitCompiler.TAG_ARG);
+            md.append(this.indyStringConcatArgumentFd(t));
+            slots += Descriptor.size(t.getDescriptor());
+        }
+
+        this.invokeMakeConcatWithConstants(locatable, recipe.toString(), md.toString(), constants);
+    }
+
+    private void
+    invokeMakeConcatWithConstants(Locatable locatable, String recipe, String parameterFds, List<String> constants) {
+        ClassFile cf = this.getCodeContext().getClassFile();
+
+        short[] bootstrapArguments = new short[1 + constants.size()];
+        bootstrapArguments[0] = cf.addConstantStringInfo(recipe);
+        for (int i = 0; i < constants.size(); i++) {
+            bootstrapArguments[1 + i] = cf.addConstantStringInfo((String) constants.get(i));
+        }
+
+        short bootstrapMethodAttrIndex = cf.addBootstrapMethod(
+            cf.addConstantMethodHandleInfo(                     // bootstrapMethodRef
+                ClassFile.ConstantMethodHandleInfo.REF_INVOKE_STATIC,
+                cf.addConstantMethodrefInfo(
+                    "Ljava/lang/invoke/StringConcatFactory;",
+                    "makeConcatWithConstants",
+                    (
+                        "("
+                        + "Ljava/lang/invoke/MethodHandles$Lookup;"
+                        + "Ljava/lang/String;"
+                        + "Ljava/lang/invoke/MethodType;"
+                        + "Ljava/lang/String;"
+                        + "[Ljava/lang/Object;"
+                        + ")Ljava/lang/invoke/CallSite;"
+                    )
+                )
+            ),
+            bootstrapArguments                                  // bootstrapArguments
+        );
+
+        this.writeOpcode(locatable, Opcode.INVOKEDYNAMIC);
+        this.writeShort(cf.addConstantInvokeDynamicInfo(
+            bootstrapMethodAttrIndex,                           // bootstrapMethodAttrIndex
+            "makeConcatWithConstants",                          // methodName
+            parameterFds + ")" + Descriptor.JAVA_LANG_STRING    // methodMd
+        ));
+        this.writeShort(0);
+    }
+
+    /**
+     * @return The descriptor of the INVOKEDYNAMIC parameter that passes an operand of the given type
+     */
+    private String
+    indyStringConcatArgumentFd(IClass type) {
+        if (type == IClass.BYTE || type == IClass.SHORT) return Descriptor.INT;
+        if (type == IClass.VOID) return Descriptor.JAVA_LANG_OBJECT; // The null type.
+        if (type.isPrimitive() || type == this.iClassLoader.TYPE_java_lang_String) return type.getDescriptor();
+        return Descriptor.JAVA_LANG_OBJECT;
+    }
+
     /**
      * Helper interface for string conversion.
      */
@@ -8018,6 +9696,8 @@ class UnitCompiler {
             scope          // contextScope
         );
 
+        this.checkAllowed(locatable, iConstructor, "<init>", targetClass);
+
         // Check exceptions that the constructor may throw.
         IClass[] thrownExceptions = iConstructor.getThrownExceptions();
         for (IClass te : thrownExceptions) {
@@ -8089,7 +9769,7 @@ class UnitCompiler {
             AbstractClassDeclaration scopeClassDeclaration = (AbstractClassDeclaration) scopeTypeDeclaration;
             for (IClass.IField sf : syntheticFields) {
                 if (!sf.getName().startsWith("val$")) continue;
-                IClass.IField eisf = (IClass.IField) scopeClassDeclaration.syntheticFields.get(sf.getName());
+                IClass.IField eisf = (IClass.IField) this.getSyntheticFields(scopeClassDeclaration).get(sf.getName());
                 if (eisf != null) {
                     if (scopeTbd instanceof MethodDeclarator) {
                         this.load(locatable, this.resolve(scopeClassDeclaration), 0);
@@ -8098,7 +9778,7 @@ class UnitCompiler {
                     if (scopeTbd instanceof ConstructorDeclarator) {
                         ConstructorDeclarator constructorDeclarator = (ConstructorDeclarator) scopeTbd;
                         LocalVariable         syntheticParameter    = (
-                            (LocalVariable) constructorDeclarator.syntheticParameters.get(sf.getName())
+                            (LocalVariable) this.getSyntheticParameters(constructorDeclarator).get(sf.getName())
                         );
                         if (syntheticParameter == null) {
                             this.compileError((
@@ -8216,6 +9896,7 @@ class UnitCompiler {
         }
 
         for (int i = 0; i < arguments.length; ++i) {
+            this.setLambdaTargetType(arguments[i], parameterTypes[i]);
             this.assignmentConversion(
                 locatable,                          // locatable
                 this.compileGetValue(arguments[i]), // sourceType
@@ -8369,9 +10050,36 @@ class UnitCompiler {
     private Atom
     reclassify(AmbiguousName an) throws CompileException {
 
-        if (an.reclassified != null) return an.reclassified;
+        {
+            Atom result = this.getReclassified(an);
+            if (result != null) return result;
+        }
 
-        return (an.reclassified = this.reclassifyName(an.getLocation(), an.getEnclosingScope(), an.identifiers, an.n));
+        Atom result = this.reclassifyName(an.getLocation(), an.getEnclosingScope(), an.identifiers, an.n);
+        if (this.sideTables()) {
+            this.sideTableEntry(an).reclassified = result;
+        } else {
+            an.reclassified = result;
+        }
+        return result;
+    }
+
+    /**
+     * With side tables, {@link AmbiguousName#toRvalue()} and {@link AmbiguousName#toLvalue()} cannot see the result of
+     * the reclassification; thus, replace a reclassified ambiguous name with its reclassification beforehand.
+     */
+    private Atom
+    dereference(Atom a) {
+        if (this.sideTables() && a instanceof AmbiguousName) {
+            Atom reclassified = this.getReclassified((AmbiguousName) a);
+            if (reclassified != null) return this.dereference(reclassified);
+        }
+        return a;
+    }
+
+    @Nullable private Atom
+    getReclassified(AmbiguousName an) {
+        return this.sideTables() ? this.sideTableEntry(an).reclassified : an.reclassified;
     }
 
     private IAnnotation[]
@@ -8596,7 +10304,7 @@ class UnitCompiler {
         if (res != null) return res;
 
         try {
-            return this.iClassLoader.loadIClass(Descriptor.fromClassName(className));
+            return this.loadIClass(Descriptor.fromClassName(className));
         } catch (ClassNotFoundException ex) {
             // SUPPRESS CHECKSTYLE AvoidHidingCause
             if (ex.getException() instanceof CompileException) throw (CompileException) ex.getException();
@@ -8640,7 +10348,7 @@ class UnitCompiler {
             Scope s = scope;
             if (s instanceof BlockStatement) {
                 BlockStatement bs = (BlockStatement) s;
-                LocalVariable  lv = bs.findLocalVariable(identifier);
+                LocalVariable  lv = this.findLocalVariable(bs, identifier);
                 if (lv != null) {
                     LocalVariableAccess lva = new LocalVariableAccess(location, lv);
                     lva.setEnclosingScope(bs);
@@ -8663,7 +10371,7 @@ class UnitCompiler {
                     s = s.getEnclosingScope().getEnclosingScope();
                 }
                 while (s instanceof BlockStatement) {
-                    LocalVariable lv = ((BlockStatement) s).findLocalVariable(identifier);
+                    LocalVariable lv = this.findLocalVariable((BlockStatement) s, identifier);
                     if (lv != null) {
                         if (!lv.finaL) {
                             this.compileError(
@@ -8678,7 +10386,7 @@ class UnitCompiler {
                             "val$" + identifier,
                             lvType
                         );
-                        icd.defineSyntheticField(iField);
+                        this.defineSyntheticField(icd, iField);
                         FieldAccess fa = new FieldAccess(
                             location,                                   // location
                             new QualifiedThisReference(                 // lhs
@@ -8933,7 +10641,12 @@ class UnitCompiler {
 
     private Rvalue
     determineValue(FieldAccessExpression fae) throws CompileException {
-        if (fae.value != null) return fae.value;
+        SideTableEntry ste = this.sideTables() ? this.sideTableEntry(fae) : null;
+
+        {
+            Rvalue result = ste != null ? ste.value : fae.value;
+            if (result != null) return result;
+        }
 
         IClass lhsType = this.getType(fae.lhs);
 
@@ -8969,7 +10682,12 @@ class UnitCompiler {
 
         value.setEnclosingScope(fae.getEnclosingScope());
 
-        return (fae.value = value);
+        if (ste != null) {
+            ste.value = value;
+        } else {
+            fae.value = value;
+        }
+        return value;
     }
 
     /**
@@ -8977,7 +10695,12 @@ class UnitCompiler {
      */
     private Rvalue
     determineValue(SuperclassFieldAccessExpression scfae) throws CompileException {
-        if (scfae.value != null) return scfae.value;
+        SideTableEntry ste = this.sideTables() ? this.sideTableEntry(scfae) : null;
+
+        {
+            Rvalue result = ste != null ? ste.value : scfae.value;
+            if (result != null) return result;
+        }
 
         Rvalue lhs;
         {
@@ -9021,7 +10744,12 @@ class UnitCompiler {
         }
         value.setEnclosingScope(scfae.getEnclosingScope());
 
-        return (scfae.value = value);
+        if (ste != null) {
+            ste.value = value;
+        } else {
+            scfae.value = value;
+        }
+        return value;
     }
 
     /**
@@ -9163,12 +10891,68 @@ class UnitCompiler {
         if (ms.size() == 0) return null;
 
         // Determine arguments' types, choose the most specific method.
-        return (IClass.IMethod) this.findMostSpecificIInvocable(
+        IClass.IMethod iMethod = (IClass.IMethod) this.findMostSpecificIInvocable(
             invocation,                                                   // locatable
             (IClass.IMethod[]) ms.toArray(new IClass.IMethod[ms.size()]), // iInvocables
             invocation.arguments,                                         // arguments
             invocation.getEnclosingScope()                                // contextScope
         );
+
+        this.checkAllowed(invocation, iMethod, iMethod.getName(), targetType);
+        return iMethod;
+    }
+
+    /**
+     * Reports a compile error iff an {@link #setAllowList(AllowList) allow list} is configured and allows neither the
+     * <var>member</var> of its declaring class, nor the <var>member</var> of the <var>optionalReferencingType</var>.
+     * Members of types that are declared in source code, of {@link Object} and of array types are always allowed.
+     */
+    private void
+    checkAllowed(
+        Locatable        locatable,
+        IClass.IMember   member,
+        String           memberName,
+        @Nullable IClass optionalReferencingType
+    ) throws CompileException {
+
+        AllowList al = this.allowList;
+        if (al == null || this.allowListExemptions.containsKey(locatable)) return;
+
+        IClass declaringType = member.getDeclaringIClass();
+        if (declaringType == this.iClassLoader.TYPE_java_lang_Object) return;
+        if (!UnitCompiler.isLoadedType(declaringType)) return;
+
+        String declaringClassName = Descriptor.toClassName(declaringType.getDescriptor());
+        if (al.isAllowed(declaringClassName, memberName)) return;
+
+        if (
+            optionalReferencingType != null
+            && optionalReferencingType != declaringType
+            && UnitCompiler.isLoadedType(optionalReferencingType)
+            && al.isAllowed(Descriptor.toClassName(optionalReferencingType.getDescriptor()), memberName)
+        ) return;
+
+        this.compileError(
+            "Access to \"" + declaringClassName + "." + memberName + "\" is not allowed",
+            locatable.getLocation()
+        );
+    }
+
+    /**
+     * @return Whether the <var>iClass</var> was loaded through an {@link IClassLoader}, as opposed to declared in the
+     *         source code that is being compiled
+     */
+    private static boolean
+    isLoadedType(IClass iClass) { return iClass instanceof ReflectionIClass || iClass instanceof ClassFileIClass; }
+
+    /**
+     * Marks the <var>rvalue</var>, which the compiler generates itself, as exempt from the {@link
+     * #setAllowList(AllowList) allow list}.
+     */
+    private Rvalue
+    exemptFromAllowList(Rvalue rvalue) {
+        this.allowListExemptions.put(rvalue, rvalue);
+        return rvalue;
     }
 
     private IMethod
@@ -9269,15 +11053,47 @@ class UnitCompiler {
     private IClass.IInvocable
     findMostSpecificIInvocable(
         Locatable          locatable,
-        final IInvocable[] iInvocables,
+        IInvocable[]       iInvocables,
         final Rvalue[]     arguments,
         Scope              contextScope
     ) throws CompileException {
 
-        // Determine arguments' types.
+        // Lambda expression arguments have no type of their own; instead, only those invocables are considered where
+        // each lambda expression argument is compatible with the respective parameter type (JLS8 15.12.2.1).
+        boolean hasLambdaArguments = false;
+        for (Rvalue argument : arguments) hasLambdaArguments |= UnitCompiler.isLambdaExpression(argument);
+        if (hasLambdaArguments) {
+            List<IInvocable> compatibleIInvocables = new ArrayList<IInvocable>();
+
+            NEXT_INVOCABLE:
+            for (IInvocable ii : iInvocables) {
+                IClass[] parameterTypes = ii.getParameterTypes();
+                for (int i = 0; i < arguments.length; ++i) {
+                    if (!UnitCompiler.isLambdaExpression(arguments[i])) continue;
+                    if (
+                        i >= parameterTypes.length
+                        || (ii.isVarargs() && i >= parameterTypes.length - 1)
+                        || !this.isLambdaCompatible(arguments[i], parameterTypes[i])
+                    ) continue NEXT_INVOCABLE;
+                }
+                compatibleIInvocables.add(ii);
+            }
+            if (compatibleIInvocables.isEmpty()) {
+                this.compileError(
+                    "No applicable constructor/method found for lambda expression argument; candidates are: \""
+                    + Arrays.toString(iInvocables)
+                    + "\"",
+                    locatable.getLocation()
+                );
+                return iInvocables[0];
+            }
+            iInvocables = (IInvocable[]) compatibleIInvocables.toArray(new IInvocable[compatibleIInvocables.size()]);
+        }
+
+        // Determine arguments' types; for lambda expression arguments, leave the type NULL.
         final IClass[] argumentTypes = new IClass[arguments.length];
         for (int i = 0; i < arguments.length; ++i) {
-            argumentTypes[i] = this.getType(arguments[i]);
+            if (!UnitCompiler.isLambdaExpression(arguments[i])) argumentTypes[i] = this.getType(arguments[i]);
         }
 
         // Determine most specific invocable WITHOUT boxing.
@@ -9422,10 +11238,13 @@ class UnitCompiler {
                         new Object[] { j, parameterTypes[j], argumentTypes[j] }
                     );
 
-                    // Is method invocation conversion possible (5.3)?
-                    if (!this.isMethodInvocationConvertible(argumentTypes[j], parameterTypes[j], boxingPermitted)) {
-                        continue NEXT_METHOD;
-                    }
+                    // Is method invocation conversion possible (5.3)? (Lambda expression arguments have a NULL type
+                    // and have been checked before.)
+                    IClass argumentType = argumentTypes[j];
+                    if (
+                        argumentType != null
+                        && !this.isMethodInvocationConvertible(argumentType, parameterTypes[j], boxingPermitted)
+                    ) continue NEXT_METHOD;
                 }
 
                 // Applicable!
@@ -9731,7 +11550,7 @@ class UnitCompiler {
                         if (caughtType.isAssignableFrom(type)) {
 
                             // This catch clause definitely catches the exception.
-                            cc.reachable = true;
+                            this.setReachable(cc, true);
                             return;
                         }
 
@@ -9750,7 +11569,7 @@ class UnitCompiler {
                             }
 
                             // This catch clause catches PART OF the actual exceptions.
-                            cc.reachable = true;
+                            this.setReachable(cc, true);
                         }
                     }
                 }
@@ -9781,10 +11600,21 @@ class UnitCompiler {
     private IClass
     getTargetIClass(QualifiedThisReference qtr) throws CompileException {
 
-        if (qtr.targetIClass != null) return qtr.targetIClass;
+        SideTableEntry ste = this.sideTables() ? this.sideTableEntry(qtr) : null;
+
+        {
+            IClass result = ste != null ? ste.targetIClass : qtr.targetIClass;
+            if (result != null) return result;
+        }
 
         // Determine target type.
-        return (qtr.targetIClass = this.getType(qtr.qualification));
+        IClass result = this.getType(qtr.qualification);
+        if (ste != null) {
+            ste.targetIClass = result;
+        } else {
+            qtr.targetIClass = result;
+        }
+        return result;
     }
 
     /**
@@ -9817,9 +11647,16 @@ class UnitCompiler {
 
         final AbstractTypeDeclaration atd = (AbstractTypeDeclaration) td;
 
-        if (atd.resolvedType != null) return atd.resolvedType;
+        final SideTableEntry ste = this.sideTables() ? this.sideTableEntry(atd) : null;
+
+        {
+            IClass result = ste != null ? ste.resolvedType : atd.resolvedType;
+            if (result != null) return result;
+        }
 
-        return (atd.resolvedType = new IClass() {
+        // The type declaration may be resolved concurrently by another thread (see "Compiler.setThreadCount()");
+        // publish only one IClass for it.
+        IClass result = new IClass() {
 
 //            final TypeParameter[] optionalTypeParameters = (
 //                atd instanceof NamedTypeDeclaration
@@ -9829,8 +11666,16 @@ class UnitCompiler {
 
             @Override protected IClass.IMethod[]
             getDeclaredIMethods2() {
-                List<IClass.IMethod> res = new ArrayList<IClass.IMethod>(atd.getMethodDeclarations().size());
-                for (MethodDeclarator md : atd.getMethodDeclarations()) {
+
+                // Copy the method declarations, because another thread may be compiling the type declaration, which
+                // may add (synthetic) methods.
+                List<MethodDeclarator> mds;
+                synchronized (atd) {
+                    mds = new ArrayList<MethodDeclarator>(UnitCompiler.this.getMethodDeclarations(atd));
+                }
+
+                List<IClass.IMethod> res = new ArrayList<IClass.IMethod>(mds.size());
+                for (MethodDeclarator md : mds) {
                     res.add(UnitCompiler.this.toIMethod(md));
                 }
 
@@ -9849,9 +11694,9 @@ class UnitCompiler {
 
                         @Override public IClass
                         getReturnType() {
-                            IClass rt = atd.resolvedType;
-                            assert rt != null;
-                            return rt.getArrayIClass(UnitCompiler.this.iClassLoader.TYPE_java_lang_Object);
+                            return UnitCompiler.this.resolve(atd).getArrayIClass(
+                                UnitCompiler.this.iClassLoader.TYPE_java_lang_Object
+                            );
                         }
                     });
 
@@ -9867,11 +11712,7 @@ class UnitCompiler {
                         @Override public IClass[]      getThrownExceptions2() { return new IClass[0]; }
 
                         @Override public IClass
-                        getReturnType() {
-                            IClass rt = atd.resolvedType;
-                            assert rt != null;
-                            return rt;
-                        }
+                        getReturnType() { return UnitCompiler.this.resolve(atd); }
                     });
                 }
 
@@ -9928,7 +11769,7 @@ class UnitCompiler {
             @Override protected IConstructor[]
             getDeclaredIConstructors2() {
                 if (atd instanceof AbstractClassDeclaration) {
-                    ConstructorDeclarator[] cs = ((AbstractClassDeclaration) atd).getConstructors();
+                    ConstructorDeclarator[] cs = UnitCompiler.this.getConstructors((AbstractClassDeclaration) atd);
 
                     IClass.IConstructor[] res = new IClass.IConstructor[cs.length];
                     for (int i = 0; i < cs.length; ++i) res[i] = UnitCompiler.this.toIConstructor(cs[i]);
@@ -9943,8 +11784,17 @@ class UnitCompiler {
                     AbstractClassDeclaration cd = (AbstractClassDeclaration) atd;
                     List<IClass.IField>      l  = new ArrayList<IClass.IField>();
 
+                    // Copy the field declarations, because another thread may be compiling the type declaration, which
+                    // may add (synthetic) fields.
+                    List<BlockStatement> vdois;
+                    synchronized (cd) {
+                        vdois = new ArrayList<BlockStatement>(
+                            UnitCompiler.this.getVariableDeclaratorsAndInitializers(cd)
+                        );
+                    }
+
                     // Determine variable declarators of type declaration.
-                    for (BlockStatement vdoi : cd.variableDeclaratorsAndInitializers) {
+                    for (BlockStatement vdoi : vdois) {
                         if (vdoi instanceof FieldDeclaration) {
                             FieldDeclaration fd   = (FieldDeclaration) vdoi;
                             IClass.IField[]  flds = UnitCompiler.this.compileFields(fd);
@@ -9976,8 +11826,13 @@ class UnitCompiler {
                     InterfaceDeclaration id = (InterfaceDeclaration) atd;
                     List<IClass.IField>  l  = new ArrayList<IClass.IField>();
 
+                    List<BlockStatement> cds;
+                    synchronized (id) {
+                        cds = new ArrayList<BlockStatement>(UnitCompiler.this.getConstantDeclarations(id));
+                    }
+
                     // Determine static fields.
-                    for (BlockStatement bs : id.constantDeclarations) {
+                    for (BlockStatement bs : cds) {
                         if (bs instanceof FieldDeclaration) {
                             FieldDeclaration fd   = (FieldDeclaration) bs;
                             IClass.IField[]  flds = UnitCompiler.this.compileFields(fd);
@@ -9996,7 +11851,9 @@ class UnitCompiler {
             @Override public IField[]
             getSyntheticIFields() {
                 if (atd instanceof AbstractClassDeclaration) {
-                    Collection<IClass.IField> c = ((AbstractClassDeclaration) atd).syntheticFields.values();
+                    Collection<IClass.IField> c = (
+                        UnitCompiler.this.getSyntheticFields((AbstractClassDeclaration) atd).values()
+                    );
                     return (IField[]) c.toArray(new IField[c.size()]);
                 }
                 return new IField[0];
@@ -10088,7 +11945,16 @@ class UnitCompiler {
 
             @Override public boolean
             isInterface() { return atd instanceof InterfaceDeclaration; }
-        });
+        };
+
+        synchronized (atd) {
+            if (ste != null) {
+                if (ste.resolvedType == null) ste.resolvedType = result;
+                return ste.resolvedType;
+            }
+            if (atd.resolvedType == null) atd.resolvedType = result;
+            return atd.resolvedType;
+        }
     }
 
     private void
@@ -10139,7 +12005,9 @@ class UnitCompiler {
                 (ConstructorDeclarator) declaringTypeBodyDeclaration
             );
             String        spn                = "this$" + (path.size() - 2);
-            LocalVariable syntheticParameter = (LocalVariable) constructorDeclarator.syntheticParameters.get(spn);
+            LocalVariable syntheticParameter = (
+                (LocalVariable) this.getSyntheticParameters(constructorDeclarator).get(spn)
+            );
             if (syntheticParameter == null) {
                 throw new InternalCompilerException("SNO: Synthetic parameter \"" + spn + "\" not found");
             }
@@ -10158,7 +12026,7 @@ class UnitCompiler {
                 "this$" + (path.size() - i - 2), // name
                 this.resolve(outer)              // type
             );
-            inner.defineSyntheticField(sf);
+            this.defineSyntheticField(inner, sf);
             this.getfield(locatable, sf);
         }
     }
@@ -10222,7 +12090,12 @@ class UnitCompiler {
     private IClass
     getIClass(ThisReference tr) throws CompileException {
 
-        if (tr.iClass != null) return tr.iClass;
+        SideTableEntry ste = this.sideTables() ? this.sideTableEntry(tr) : null;
+
+        {
+            IClass result = ste != null ? ste.iClass : tr.iClass;
+            if (result != null) return result;
+        }
 
         // Compile error if in static function context.
         Scope s;
@@ -10246,15 +12119,32 @@ class UnitCompiler {
             this.compileError("Only methods of classes can have a current instance", tr.getLocation());
         }
 
-        return (tr.iClass = this.resolve((AbstractClassDeclaration) s));
+        IClass result = this.resolve((AbstractClassDeclaration) s);
+        if (ste != null) {
+            ste.iClass = result;
+        } else {
+            tr.iClass = result;
+        }
+        return result;
     }
 
     private IClass
     getReturnType(FunctionDeclarator fd) throws CompileException {
 
-        if (fd.returnType != null) return fd.returnType;
+        SideTableEntry ste = this.sideTables() ? this.sideTableEntry(fd) : null;
+
+        {
+            IClass result = ste != null ? ste.returnType : fd.returnType;
+            if (result != null) return result;
+        }
 
-        return (fd.returnType = this.getType(fd.type));
+        IClass result = this.getType(fd.type);
+        if (ste != null) {
+            ste.returnType = result;
+        } else {
+            fd.returnType = result;
+        }
+        return result;
     }
 
     /**
@@ -10262,9 +12152,14 @@ class UnitCompiler {
      */
     IClass.IConstructor
     toIConstructor(final ConstructorDeclarator constructorDeclarator) {
-        if (constructorDeclarator.iConstructor != null) return constructorDeclarator.iConstructor;
+        final SideTableEntry ste = this.sideTables() ? this.sideTableEntry(constructorDeclarator) : null;
 
-        constructorDeclarator.iConstructor = this.resolve(constructorDeclarator.getDeclaringType()).new IConstructor() {
+        {
+            IClass.IConstructor result = ste != null ? ste.iConstructor : constructorDeclarator.iConstructor;
+            if (result != null) return result;
+        }
+
+        IClass.IConstructor result = this.resolve(constructorDeclarator.getDeclaringType()).new IConstructor() {
 
             @Nullable private IAnnotation[] ias;
 
@@ -10315,7 +12210,8 @@ class UnitCompiler {
                 if (outerClass != null) parameterFds.add(outerClass.getDescriptor());
 
                 // Convert synthetic fields into prepended constructor parameters.
-                for (IField sf : constructorDeclarator.getDeclaringClass().syntheticFields.values()) {
+                AbstractClassDeclaration dc = constructorDeclarator.getDeclaringClass();
+                for (IField sf : UnitCompiler.this.getSyntheticFields(dc).values()) {
                     if (sf.getName().startsWith("val$")) parameterFds.add(sf.getType().getDescriptor());
                 }
 
@@ -10376,7 +12272,16 @@ class UnitCompiler {
                 return sb.append(')').toString();
             }
         };
-        return constructorDeclarator.iConstructor;
+
+        // The declarator may be resolved concurrently by another thread; publish only one IConstructor for it.
+        synchronized (constructorDeclarator) {
+            if (ste != null) {
+                if (ste.iConstructor == null) ste.iConstructor = result;
+                return ste.iConstructor;
+            }
+            if (constructorDeclarator.iConstructor == null) constructorDeclarator.iConstructor = result;
+            return constructorDeclarator.iConstructor;
+        }
     }
 
     /**
@@ -10385,9 +12290,14 @@ class UnitCompiler {
     public IClass.IMethod
     toIMethod(final MethodDeclarator methodDeclarator) {
 
-        if (methodDeclarator.iMethod != null) return methodDeclarator.iMethod;
+        final SideTableEntry ste = this.sideTables() ? this.sideTableEntry(methodDeclarator) : null;
+
+        {
+            IClass.IMethod result = ste != null ? ste.iMethod : methodDeclarator.iMethod;
+            if (result != null) return result;
+        }
 
-        methodDeclarator.iMethod = this.resolve(methodDeclarator.getDeclaringType()).new IMethod() {
+        IClass.IMethod result = this.resolve(methodDeclarator.getDeclaringType()).new IMethod() {
 
             @Nullable IAnnotation[] ias;
 
@@ -10480,7 +12390,16 @@ class UnitCompiler {
             @Override public String
             getName() { return methodDeclarator.name; }
         };
-        return methodDeclarator.iMethod;
+
+        // The declarator may be resolved concurrently by another thread; publish only one IMethod for it.
+        synchronized (methodDeclarator) {
+            if (ste != null) {
+                if (ste.iMethod == null) ste.iMethod = result;
+                return ste.iMethod;
+            }
+            if (methodDeclarator.iMethod == null) methodDeclarator.iMethod = result;
+            return methodDeclarator.iMethod;
+        }
     }
 
     private IClass.IInvocable
@@ -10573,7 +12492,7 @@ class UnitCompiler {
     /**
      * To be used only by {@link #getSingleTypeImport(String, Location)}; {@code null} means "not yet initialized"
      */
-    @Nullable private Map<String /*simpleTypeName*/, String[] /*fullyQualifiedTypeName*/> singleTypeImports;
+    @Nullable private volatile Map<String /*simpleTypeName*/, String[] /*fullyQualifiedTypeName*/> singleTypeImports;
 
     /**
      * 6.5.2.BL1.B1.B5, 6.5.2.BL1.B1.B6 Type-import-on-demand.<br>
@@ -10636,12 +12555,13 @@ class UnitCompiler {
     /**
      * To be used only by {@link #importTypeOnDemand(String, Location)}; {@code null} means "not yet initialized.
      */
-    @Nullable private Collection<String[]> typeImportsOnDemand;
+    @Nullable private volatile Collection<String[]> typeImportsOnDemand;
 
     /**
      * To be used only by {@link #importTypeOnDemand(String, Location)}; cache for on-demand-imported types.
      */
-    private final Map<String /*simpleTypeName*/, IClass> onDemandImportableTypes = new HashMap<String, IClass>();
+    private final Map<String /*simpleTypeName*/, IClass>
+    onDemandImportableTypes = new ConcurrentHashMap<String, IClass>();
 
     private void
     declareClassDollarMethod(ClassLiteral cl) {
@@ -10675,6 +12595,7 @@ class UnitCompiler {
                 new AmbiguousName(loc, new String[] { "className" })
             }
         );
+        this.exemptFromAllowList(mi);
 
         IClass classNotFoundExceptionIClass;
         try {
@@ -10699,19 +12620,19 @@ class UnitCompiler {
         // catch (ClassNotFoundException e) {
         Block b = new Block(loc);
         // throw new NoClassDefFoundError(e.getMessage());
-        b.addStatement(new ThrowStatement(loc, new NewClassInstance(
+        b.addStatement(new ThrowStatement(loc, this.exemptFromAllowList(new NewClassInstance(
             loc,                                             // location
             (Rvalue) null,                                   // optionalQualification
             new SimpleType(loc, noClassDefFoundErrorIClass), // type
             new Rvalue[] {                                   // arguments
-                new MethodInvocation(
+                this.exemptFromAllowList(new MethodInvocation(
                     loc,                                           // location
                     new AmbiguousName(loc, new String[] { "ex" }), // optionalTarget
                     "getMessage",                                  // methodName
                     new Rvalue[0]                                  // arguments
-                )
+                ))
             }
-        )));
+        ))));
 
         CatchClause cc = new CatchClause(
             loc,                // location
@@ -10752,8 +12673,7 @@ class UnitCompiler {
             statements                                                             // optionalStatements
         );
 
-        declaringType.addDeclaredMethod(cdmd);
-        declaringType.invalidateMethodCaches();
+        this.addDeclaredMethod(declaringType, cdmd);
     }
 
     /**
@@ -11224,7 +13144,7 @@ class UnitCompiler {
             }
         } else
         if (targetType == IClass.CHAR) {
-            if (value instanceof Short) {
+            if (value instanceof Character) {
                 return value;
             } else
             if (value instanceof Byte || value instanceof Short || value instanceof Integer) {
@@ -11942,6 +13862,21 @@ class UnitCompiler {
         );
     }
 
+    /**
+     * Loads an {@link IClass} through the {@link #iClassLoader}, and records it in the {@link
+     * #referencedTypeDescriptors}.
+     */
+    @Nullable private IClass
+    loadIClass(String fieldDescriptor) throws ClassNotFoundException {
+        IClass result = this.iClassLoader.loadIClass(fieldDescriptor);
+        if (result != null) {
+            String fd = fieldDescriptor;
+            while (Descriptor.isArrayReference(fd)) fd = Descriptor.getComponentDescriptor(fd);
+            if (!Descriptor.isPrimitive(fd)) this.referencedTypeDescriptors.add(fd);
+        }
+        return result;
+    }
+
     /**
      * Attempts to load an {@link IClass} by fully-qualified name through {@link #iClassLoader}.
      *
@@ -12415,15 +14350,81 @@ class UnitCompiler {
     private CodeContext.Offset
     getWhereToBreak(BreakableStatement bs) {
 
-        if (bs.whereToBreak != null) return bs.whereToBreak;
+        Offset result = this.getWhereToBreakOrNull(bs);
+        if (result != null) return result;
+
+        result = this.getCodeContext().new Offset();
+        this.setWhereToBreak(bs, result);
+        return result;
+    }
+
+    @Nullable private Offset
+    getFinallyOffset(TryStatement ts) {
+        return this.sideTables() ? this.sideTableEntry(ts).finallyOffset : ts.finallyOffset;
+    }
+
+    private void
+    setFinallyOffset(TryStatement ts, @Nullable Offset finallyOffset) {
+        if (this.sideTables()) {
+            this.sideTableEntry(ts).finallyOffset = finallyOffset;
+        } else {
+            ts.finallyOffset = finallyOffset;
+        }
+    }
+
+    private boolean
+    isReachable(CatchClause cc) { return this.sideTables() ? this.sideTableEntry(cc).reachable : cc.reachable; }
+
+    private void
+    setReachable(CatchClause cc, boolean reachable) {
+        if (this.sideTables()) {
+            this.sideTableEntry(cc).reachable = reachable;
+        } else {
+            cc.reachable = reachable;
+        }
+    }
+
+    @Nullable private Offset
+    getWhereToBreakOrNull(BreakableStatement bs) {
+        return this.sideTables() ? this.sideTableEntry(bs).whereToBreak : bs.whereToBreak;
+    }
+
+    private void
+    setWhereToBreak(BreakableStatement bs, @Nullable Offset whereToBreak) {
+        if (this.sideTables()) {
+            this.sideTableEntry(bs).whereToBreak = whereToBreak;
+        } else {
+            bs.whereToBreak = whereToBreak;
+        }
+    }
+
+    @Nullable private Offset
+    getWhereToContinueOrNull(ContinuableStatement cs) {
+        return this.sideTables() ? this.sideTableEntry(cs).whereToContinue : cs.whereToContinue;
+    }
 
-        return (bs.whereToBreak = this.getCodeContext().new Offset());
+    private void
+    setWhereToContinue(ContinuableStatement cs, @Nullable Offset whereToContinue) {
+        if (this.sideTables()) {
+            this.sideTableEntry(cs).whereToContinue = whereToContinue;
+        } else {
+            cs.whereToContinue = whereToContinue;
+        }
     }
 
     private TypeBodyDeclaration
     getDeclaringTypeBodyDeclaration(QualifiedThisReference qtr) throws CompileException {
 
-        if (qtr.declaringTypeBodyDeclaration != null) return qtr.declaringTypeBodyDeclaration;
+        SideTableEntry ste = this.sideTables() ? this.sideTableEntry(qtr) : null;
+
+        {
+            TypeBodyDeclaration result = (
+                ste != null
+                ? ste.declaringTypeBodyDeclaration
+                : qtr.declaringTypeBodyDeclaration
+            );
+            if (result != null) return result;
+        }
 
         // Compile error if in static function context.
         Scope s;
@@ -12439,19 +14440,29 @@ class UnitCompiler {
         }
 
         // Determine declaring type.
-        qtr.declaringClass = (AbstractClassDeclaration) result.getDeclaringType();
-
-        return (qtr.declaringTypeBodyDeclaration = result);
+        AbstractClassDeclaration declaringClass = (AbstractClassDeclaration) result.getDeclaringType();
+        if (ste != null) {
+            ste.declaringClass               = declaringClass;
+            ste.declaringTypeBodyDeclaration = result;
+        } else {
+            qtr.declaringClass               = declaringClass;
+            qtr.declaringTypeBodyDeclaration = result;
+        }
+        return result;
     }
 
     private AbstractClassDeclaration
     getDeclaringClass(QualifiedThisReference qtr) throws CompileException {
 
-        if (qtr.declaringClass != null) return qtr.declaringClass;
-
         this.getDeclaringTypeBodyDeclaration(qtr);
-        assert qtr.declaringClass != null;
-        return qtr.declaringClass;
+
+        AbstractClassDeclaration result = (
+            this.sideTables()
+            ? this.sideTableEntry(qtr).declaringClass
+            : qtr.declaringClass
+        );
+        assert result != null;
+        return result;
     }
 
     private void
@@ -12638,10 +14649,24 @@ class UnitCompiler {
     // Used for elaborate warning handling.
     @Nullable private WarningHandler optionalWarningHandler;
 
+    // The members that the compiled code may use, and the compiler-generated references that are exempt from it.
+    @Nullable private AllowList          allowList;
+    private final Map<Locatable, Object> allowListExemptions = new IdentityHashMap<Locatable, Object>();
+
+    // Used to optimize the bytecode of each constructor/method.
+    @Nullable private PeepholeOptimizer peepholeOptimizer;
+
     private final CompilationUnit compilationUnit;
 
     private final IClassLoader iClassLoader;
 
+    /**
+     * @see #getReferencedTypeDescriptors()
+     */
+    private final Set<String /*fieldDescriptor*/> referencedTypeDescriptors = Collections.synchronizedSet(
+        new HashSet<String>()
+    );
+
     /**
      * Non-{@code null} while {@link #compileUnit(boolean, boolean, boolean)} is executing.
      */
@@ -12652,10 +14677,322 @@ class UnitCompiler {
     private boolean debugVars;
 
     private final Map<String /*staticMemberName*/, List<Object /*IField+IMethod+IClass*/>>
-    singleStaticImports = new HashMap<String, List<Object>>();
+    singleStaticImports = new ConcurrentHashMap<String, List<Object>>();
 
     private final Collection<IClass> staticImportsOnDemand = new ArrayList<IClass>();
 
+    /**
+     * The classes and interfaces compiled so far, including local and anonymous classes; used to determine common
+     * superclasses for the "StackMapTable" attributes.
+     */
+    private final Map<String /*fieldDescriptor*/, IClass> declaredTypes = new HashMap<String, IClass>();
+
+    /**
+     * The TRY statements that are currently being compiled, innermost last; only used when FINALLY clauses are inlined
+     * (see {@link #finallyAsSubroutine()}).
+     */
+    private final List<TryLevel> tryLevels = new ArrayList<TryLevel>();
+
+    /**
+     * The target types of the lambda expressions, as determined by their assignment, invocation or casting context
+     * (JLS8 15.27.3).
+     */
+    private final Map<LambdaExpression, IClass> lambdaTargetTypes = new HashMap<LambdaExpression, IClass>();
+
+    /**
+     * The synthetic methods that implement the lambda expressions compiled so far; a lambda expression may be compiled
+     * more than once, e.g. when it appears in an inlined FINALLY clause.
+     */
+    private final Map<LambdaExpression, MethodDeclarator>
+    lambdaImplementationMethods = new HashMap<LambdaExpression, MethodDeclarator>();
+
+    /**
+     * The statements of the blocks and method bodies compiled so far, with runs of statements replaced by invocations
+     * of synthetic "outline" methods; see {@link #setMethodSizeThreshold(int)}.
+     */
+    private final Map<Scope, List<? extends BlockStatement>>
+    outlinedStatements = new IdentityHashMap<Scope, List<? extends BlockStatement>>();
+
+    /**
+     * The bodies of the methods that were moved into spill classes, each of which invokes the moved copy of the
+     * method; see {@link #setClassSizeThreshold(int)}.
+     */
+    private final Map<FunctionDeclarator, List<BlockStatement>>
+    spilledMethods = new IdentityHashMap<FunctionDeclarator, List<BlockStatement>>();
+
+    /**
+     * @return The method declarations of the <var>td</var>, including the synthetic methods that were added during
+     *         compilation
+     */
+    private List<MethodDeclarator>
+    getMethodDeclarations(TypeDeclaration td) {
+
+        if (!this.sideTables()) return td.getMethodDeclarations();
+
+        SideTableEntry ste = this.sideTableEntry(td);
+        synchronized (td) {
+            List<MethodDeclarator> result = ste.declaredMethods;
+            if (result == null) {
+                result = new ArrayList<MethodDeclarator>(td.getMethodDeclarations());
+                ste.declaredMethods = result;
+            }
+            return result;
+        }
+    }
+
+    @Nullable private MethodDeclarator
+    getMethodDeclaration(TypeDeclaration td, String name) {
+        if (!this.sideTables()) return td.getMethodDeclaration(name);
+        for (MethodDeclarator md : this.getMethodDeclarations(td)) {
+            if (md.name.equals(name)) return md;
+        }
+        return null;
+    }
+
+    /**
+     * Adds a synthetic method to the <var>atd</var>, e.g. a "{@code class$}" method or the implementation of a lambda
+     * expression.
+     */
+    private void
+    addDeclaredMethod(AbstractTypeDeclaration atd, MethodDeclarator md) {
+
+        if (!this.sideTables()) {
+            atd.addDeclaredMethod(md);
+            atd.invalidateMethodCaches();
+            return;
+        }
+
+        md.setDeclaringType(atd);
+
+        List<MethodDeclarator> mds = this.getMethodDeclarations(atd);
+        synchronized (atd) {
+            mds.add(md);
+        }
+
+        IClass rt = this.sideTableEntry(atd).resolvedType;
+        if (rt != null) rt.invalidateMethodCaches();
+    }
+
+    /**
+     * @return The declared constructors (including synthetic constructors) of the <var>acd</var>, or its default
+     *         constructor
+     */
+    private ConstructorDeclarator[]
+    getConstructors(AbstractClassDeclaration acd) {
+        if (this.sideTables()) {
+            List<ConstructorDeclarator> cds = this.sideTableEntry(acd).constructors;
+            if (cds != null && !cds.isEmpty()) {
+                return (ConstructorDeclarator[]) cds.toArray(new ConstructorDeclarator[cds.size()]);
+            }
+        }
+        return acd.getConstructors();
+    }
+
+    private void
+    addConstructor(AbstractClassDeclaration acd, ConstructorDeclarator cd) {
+
+        if (!this.sideTables()) {
+            acd.addConstructor(cd);
+            return;
+        }
+
+        cd.setDeclaringType(acd);
+
+        SideTableEntry              ste = this.sideTableEntry(acd);
+        List<ConstructorDeclarator> cds = ste.constructors;
+        if (cds == null) ste.constructors = (cds = new ArrayList<ConstructorDeclarator>(acd.constructors));
+        cds.add(cd);
+    }
+
+    private void
+    removeLastConstructor(AbstractClassDeclaration acd) {
+        List<ConstructorDeclarator> cds = this.sideTables() ? this.sideTableEntry(acd).constructors : acd.constructors;
+        assert cds != null;
+        cds.remove(cds.size() - 1);
+    }
+
+    /**
+     * @return The field declarations and initializers of the <var>acd</var>, including the synthetic fields that were
+     *         added during compilation
+     */
+    private List<BlockStatement>
+    getVariableDeclaratorsAndInitializers(AbstractClassDeclaration acd) {
+
+        if (!this.sideTables()) return acd.variableDeclaratorsAndInitializers;
+
+        SideTableEntry ste = this.sideTableEntry(acd);
+        synchronized (acd) {
+            List<BlockStatement> result = ste.variableDeclaratorsAndInitializers;
+            if (result == null) {
+                result = new ArrayList<BlockStatement>(acd.variableDeclaratorsAndInitializers);
+                ste.variableDeclaratorsAndInitializers = result;
+            }
+            return result;
+        }
+    }
+
+    /**
+     * @return The constant declarations of the <var>id</var>, including the synthetic fields that were added during
+     *         compilation
+     */
+    private List<FieldDeclaration>
+    getConstantDeclarations(InterfaceDeclaration id) {
+
+        if (!this.sideTables()) return id.constantDeclarations;
+
+        SideTableEntry ste = this.sideTableEntry(id);
+        synchronized (id) {
+            List<FieldDeclaration> result = ste.constantDeclarations;
+            if (result == null) {
+                result = new ArrayList<FieldDeclaration>(id.constantDeclarations);
+                ste.constantDeclarations = result;
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Adds a synthetic field to the <var>atd</var>, e.g. a "{@code class$...}" or the "{@code ENUM$VALUES}" field.
+     */
+    private void
+    addFieldDeclaration(AbstractTypeDeclaration atd, FieldDeclaration fd) {
+
+        if (!this.sideTables()) {
+            if (atd instanceof AbstractClassDeclaration) {
+                ((AbstractClassDeclaration) atd).addFieldDeclaration(fd);
+            } else
+            if (atd instanceof InterfaceDeclaration) {
+                ((InterfaceDeclaration) atd).addConstantDeclaration(fd);
+            } else
+            {
+                throw new InternalCompilerException(
+                    "SNO: AbstractTypeDeclaration is neither ClassDeclaration nor InterfaceDeclaration"
+                );
+            }
+            return;
+        }
+
+        fd.setDeclaringType(atd);
+
+        if (atd instanceof AbstractClassDeclaration) {
+            List<BlockStatement> vdais = this.getVariableDeclaratorsAndInitializers((AbstractClassDeclaration) atd);
+            synchronized (atd) {
+                vdais.add(fd);
+            }
+        } else
+        if (atd instanceof InterfaceDeclaration) {
+            List<FieldDeclaration> cds = this.getConstantDeclarations((InterfaceDeclaration) atd);
+            synchronized (atd) {
+                cds.add(fd);
+            }
+        } else
+        {
+            throw new InternalCompilerException(
+                "SNO: AbstractTypeDeclaration is neither ClassDeclaration nor InterfaceDeclaration"
+            );
+        }
+
+        IClass rt = this.sideTableEntry(atd).resolvedType;
+        if (rt != null) rt.clearIFieldCaches();
+    }
+
+    /**
+     * @see InnerClassDeclaration#defineSyntheticField(IClass.IField)
+     */
+    private void
+    defineSyntheticField(InnerClassDeclaration icd, IClass.IField iField) throws CompileException {
+
+        if (!this.sideTables()) {
+            icd.defineSyntheticField(iField);
+            return;
+        }
+
+        SortedMap<String, IClass.IField> sfs = this.getSyntheticFields((AbstractClassDeclaration) icd);
+
+        IClass.IField if2 = (IClass.IField) sfs.get(iField.getName());
+        if (if2 != null) {
+            if (iField.getType() != if2.getType()) throw new InternalCompilerException();
+            return;
+        }
+        sfs.put(iField.getName(), iField);
+    }
+
+    private SortedMap<String, IClass.IField>
+    getSyntheticFields(AbstractClassDeclaration cd) {
+
+        if (!this.sideTables()) return cd.getSyntheticFields();
+
+        SideTableEntry                   ste    = this.sideTableEntry(cd);
+        SortedMap<String, IClass.IField> result = ste.syntheticFields;
+        if (result == null) ste.syntheticFields = (result = new TreeMap<String, IClass.IField>());
+        return result;
+    }
+
+    private Map<String, LocalVariable>
+    getSyntheticParameters(ConstructorDeclarator cd) {
+
+        if (!this.sideTables()) return cd.syntheticParameters;
+
+        SideTableEntry             ste    = this.sideTableEntry(cd);
+        Map<String, LocalVariable> result = ste.syntheticParameters;
+        if (result == null) ste.syntheticParameters = (result = new HashMap<String, LocalVariable>());
+        return result;
+    }
+
+    private boolean
+    sideTables() { return this.options.contains(JaninoOption.RESOLUTIONS_IN_SIDE_TABLES); }
+
+    /**
+     * @return The {@link SideTableEntry} for the given AST node, which is created on the first invocation
+     */
+    private SideTableEntry
+    sideTableEntry(Object node) {
+        synchronized (this.sideTable) {
+            SideTableEntry result = (SideTableEntry) this.sideTable.get(node);
+            if (result == null) this.sideTable.put(node, (result = new SideTableEntry()));
+            return result;
+        }
+    }
+
+    /**
+     * The compile-time state of the AST nodes, iff {@link JaninoOption#RESOLUTIONS_IN_SIDE_TABLES} is configured.
+     */
+    private final Map<Object /*node*/, SideTableEntry>
+    sideTable = Collections.synchronizedMap(new IdentityHashMap<Object, SideTableEntry>());
+
+    /**
+     * The compile-time state of one AST node, which this {@link UnitCompiler} keeps in its {@link #sideTable} rather
+     * than in the node itself iff {@link JaninoOption#RESOLUTIONS_IN_SIDE_TABLES} is configured. The fields are named
+     * after the AST fields that they replace.
+     */
+    private static final
+    class SideTableEntry {
+        @Nullable volatile IClass                   resolvedType;
+        @Nullable IClass                            returnType;
+        @Nullable volatile IClass.IConstructor      iConstructor;
+        @Nullable volatile IClass.IMethod           iMethod;
+        @Nullable Map<String, LocalVariable>        localVariables;
+        @Nullable LocalVariable                     localVariable;
+        @Nullable Map<String, LocalVariable>        syntheticParameters;
+        @Nullable Offset                            whereToBreak;
+        @Nullable Offset                            whereToContinue;
+        @Nullable Offset                            finallyOffset;
+        boolean                                     reachable;
+        short                                       monitorLvIndex = -1;
+        @Nullable Object                            constantValue  = Rvalue.CONSTANT_VALUE_UNKNOWN;
+        @Nullable Atom                              reclassified;
+        @Nullable IClass                            iClass;
+        @Nullable AbstractClassDeclaration          declaringClass;
+        @Nullable TypeBodyDeclaration               declaringTypeBodyDeclaration;
+        @Nullable IClass                            targetIClass;
+        @Nullable Rvalue                            value;
+        @Nullable SortedMap<String, IClass.IField>  syntheticFields;
+        @Nullable List<MethodDeclarator>            declaredMethods;
+        @Nullable List<ConstructorDeclarator>       constructors;
+        @Nullable List<BlockStatement>              variableDeclaratorsAndInitializers;
+        @Nullable List<FieldDeclaration>            constantDeclarations;
+    }
+
     /**
      * Loads a "{@code de.unkrig.jdisasm.Disassembler}" through reflection (to avoid a compile-time dependency) and
      * uses it to disassemble the given bytes to {@code System.out}.
@@ -0,0 +1,75 @@
+
+/*
+ * Janino - An embedded Java[TM] compiler
+ *
+ * Copyright (c) 2001-2010 Arno Unkrig. All rights reserved.
+ * Copyright (c) 2015-2016 TIBCO Software Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.codehaus.janino.util;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * An {@link InputStream} that reads the remaining bytes of a {@link ByteBuffer}. Unlike {@link
+ * java.io.ByteArrayInputStream}, it is not synchronized, and it does not require the data to be copied into a byte
+ * array first, which is relevant for direct and memory-mapped buffers.
+ * <p>
+ *   Reading advances the buffer's position.
+ * </p>
+ */
+public
+class ByteBufferInputStream extends InputStream {
+
+    private final ByteBuffer byteBuffer;
+
+    public
+    ByteBufferInputStream(ByteBuffer byteBuffer) { this.byteBuffer = byteBuffer; }
+
+    @Override public int
+    read() { return this.byteBuffer.hasRemaining() ? 0xff & this.byteBuffer.get() : -1; }
+
+    @Override public int
+    read(byte[] b, int off, int len) {
+        if (len == 0) return 0;
+
+        int remaining = this.byteBuffer.remaining();
+        if (remaining == 0) return -1;
+
+        if (len > remaining) len = remaining;
+        this.byteBuffer.get(b, off, len);
+        return len;
+    }
+
+    @Override public long
+    skip(long n) {
+        if (n <= 0) return 0;
+
+        int remaining = this.byteBuffer.remaining();
+        if (n > remaining) n = remaining;
+        this.byteBuffer.position(this.byteBuffer.position() + (int) n);
+        return n;
+    }
+
+    @Override public int
+    available() { return this.byteBuffer.remaining(); }
+}
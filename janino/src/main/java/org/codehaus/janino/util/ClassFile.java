@@ -30,10 +30,12 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.UTFDataFormatException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -87,13 +89,12 @@ class ClassFile implements Annotatable {
     public
     ClassFile(short accessFlags, String thisClassFd, @Nullable String superclassFd, String[] interfaceFds) {
 
-        // Must not set these to "..._1_7", because then the JVM insists on a StackMapTable (JVMS9 4.7.4), which
-        // JANINO currently does not produce:
+        // Must not default these to "..._1_7", because then the JVM insists on a StackMapTable (JVMS9 4.7.4):
         //
         //    java.lang.VerifyError: Expecting a stackmap frame at branch target 13
         //
-        // ("jre -noverify" removes that requirement, but we cannot force our users to run their JVMs with that
-        // option.)
+        // JANINO generates StackMapTables only iff a later version is configured through
+        // "UnitCompiler.setTargetVersion()", which then calls "setVersion()".
         this.majorVersion  = ClassFile.MAJOR_VERSION_JDK_1_6;
         this.minorVersion  = ClassFile.MINOR_VERSION_JDK_1_6;
 
@@ -178,7 +179,9 @@ class ClassFile implements Annotatable {
                 result = ai;
             }
         }
-        return result;
+        if (result == null) return null;
+
+        return ClassFile.decoded(result);
     }
 
     /**
@@ -195,6 +198,47 @@ class ClassFile implements Annotatable {
         ica.getEntries().add(entry);
     }
 
+    /**
+     * Finds the {@code BootstrapMethods} attribute of this class file.
+     *
+     * @return {@code null} if this class has no "BootstrapMethods" attribute
+     */
+    @Nullable public BootstrapMethodsAttribute
+    getBootstrapMethodsAttribute() {
+        return (BootstrapMethodsAttribute) this.findAttribute(this.attributes, "BootstrapMethods");
+    }
+
+    /**
+     * Creates a {@code BootstrapMethods} attribute if it does not exist, then adds an entry to it, unless an equal
+     * entry exists.
+     *
+     * @param bootstrapMethodRef The index of a {@link ConstantMethodHandleInfo}
+     * @param bootstrapArguments The indexes of loadable constant pool entries
+     * @return                   The index of the (new or existing) entry, for {@link
+     *                           #addConstantInvokeDynamicInfo(short, String, String)}
+     */
+    public short
+    addBootstrapMethod(short bootstrapMethodRef, short[] bootstrapArguments) {
+        BootstrapMethodsAttribute bma = this.getBootstrapMethodsAttribute();
+        if (bma == null) {
+            bma = new BootstrapMethodsAttribute(this.addConstantUtf8Info("BootstrapMethods"));
+            this.attributes.add(bma);
+        }
+
+        BootstrapMethodsAttribute.BootstrapMethod
+        bm = new BootstrapMethodsAttribute.BootstrapMethod(bootstrapMethodRef, bootstrapArguments);
+
+        List<BootstrapMethodsAttribute.BootstrapMethod> bms = bma.getBootstrapMethods();
+
+        int idx = bms.indexOf(bm);
+        if (idx == -1) {
+            idx = bms.size();
+            if (idx > 0xffff) throw new ClassFileException("Too many bootstrap methods");
+            bms.add(bm);
+        }
+        return (short) idx;
+    }
+
     /**
      * Finds the {@code Runtime[In]visibleAnnotations} attribute in the <var>attributes</var>.
      *
@@ -259,6 +303,32 @@ class ClassFile implements Annotatable {
         );
     }
 
+    /**
+     * Reads "class file" data from the remaining bytes of the <var>byteBuffer</var>, e.g. a view on a memory-mapped
+     * file, without copying them into a byte array first.
+     *
+     * @see #ClassFile(InputStream)
+     */
+    public
+    ClassFile(ByteBuffer byteBuffer) throws IOException { this(byteBuffer, false); }
+
+    /**
+     * Reads "class file" data from the remaining bytes of the <var>byteBuffer</var>, like {@link
+     * #ClassFile(ByteBuffer)}.
+     * <p>
+     *   Iff <var>lazyAttributes</var> is {@code true}, then the attributes of the class, its fields and its methods
+     *   are not decoded, but only recorded as views on the <var>byteBuffer</var>, and each is decoded when it is first
+     *   accessed (e.g. through {@link #getInnerClassesAttribute()}, {@link MethodInfo#getExceptionsAttribute()} or
+     *   {@link MethodInfo#getAttributes()}). That saves a lot of allocation when only the signatures of a class are
+     *   needed, e.g. when compiling against a library; particularly, the {@code Code} attributes of the methods are
+     *   then never decoded. The contents of the <var>byteBuffer</var> must not be modified afterwards.
+     * </p>
+     */
+    public
+    ClassFile(ByteBuffer byteBuffer, boolean lazyAttributes) throws IOException {
+        this(new ByteBufferInputStream(byteBuffer), lazyAttributes ? byteBuffer : null);
+    }
+
     /**
      * Reads "class file" data from the <var>inputStream</var> and construct a {@link ClassFile} object from it.
      * <p>
@@ -267,7 +337,14 @@ class ClassFile implements Annotatable {
      * </p>
      */
     public
-    ClassFile(InputStream inputStream) throws IOException {
+    ClassFile(InputStream inputStream) throws IOException { this(inputStream, null); }
+
+    /**
+     * @param lazyAttributeSource The buffer that backs the <var>inputStream</var>, iff the attributes are to be
+     *                            decoded lazily
+     */
+    private
+    ClassFile(InputStream inputStream, @Nullable ByteBuffer lazyAttributeSource) throws IOException {
         DataInputStream dis = (
             inputStream instanceof DataInputStream
             ? (DataInputStream) inputStream :
@@ -301,9 +378,10 @@ class ClassFile implements Annotatable {
         this.superclass   = dis.readShort();                                       // super_class
         this.interfaces   = ClassFile.readShortArray(dis);                         // interfaces_count, interfaces
 
-        this.fieldInfos  = Collections.unmodifiableList(this.loadFields(dis));     // fields_count, fields
-        this.methodInfos = Collections.unmodifiableList(this.loadMethods(dis));    // methods_count, methods
-        this.attributes  = Collections.unmodifiableList(this.loadAttributes(dis)); // attributes_count, attributes
+        // fields_count, fields; methods_count, methods; attributes_count, attributes
+        this.fieldInfos  = Collections.unmodifiableList(this.loadFields(dis, lazyAttributeSource));
+        this.methodInfos = Collections.unmodifiableList(this.loadMethods(dis, lazyAttributeSource));
+        this.attributes  = Collections.unmodifiableList(this.loadAttributes(dis, lazyAttributeSource));
     }
 
     /**
@@ -455,6 +533,38 @@ class ClassFile implements Annotatable {
         return this.addToConstantPool(new ConstantDoubleInfo(value));
     }
 
+    /**
+     * Adds a "CONSTANT_MethodHandle_info" structure to the class file (JVMS8 4.4.8).
+     *
+     * @param referenceKind  One of the {@code REF_...} constants declared in {@link ConstantMethodHandleInfo}
+     * @param referenceIndex The index of the field or method reference
+     */
+    public short
+    addConstantMethodHandleInfo(byte referenceKind, short referenceIndex) {
+        return this.addToConstantPool(new ConstantMethodHandleInfo(referenceKind, referenceIndex));
+    }
+
+    /**
+     * Adds a "CONSTANT_MethodType_info" structure to the class file (JVMS8 4.4.9).
+     */
+    public short
+    addConstantMethodTypeInfo(String methodMd) {
+        return this.addToConstantPool(new ConstantMethodTypeInfo(this.addConstantUtf8Info(methodMd)));
+    }
+
+    /**
+     * Adds a "CONSTANT_InvokeDynamic_info" structure to the class file (JVMS8 4.4.10).
+     *
+     * @param bootstrapMethodAttrIndex See {@link #addBootstrapMethod(short, short[])}
+     */
+    public short
+    addConstantInvokeDynamicInfo(short bootstrapMethodAttrIndex, String methodName, String methodMd) {
+        return this.addToConstantPool(new ConstantInvokeDynamicInfo(
+            bootstrapMethodAttrIndex,
+            this.addConstantNameAndTypeInfo(methodName, methodMd)
+        ));
+    }
+
     /**
      * Adds a "CONSTANT_NameAndType_info" structure to the class file.
      *
@@ -556,6 +666,16 @@ class ClassFile implements Annotatable {
         String           fieldTypeFd,
         @Nullable Object optionalConstantValue
     ) {
+
+        // JVMS8 4.1: "fields_count" is a u2.
+        if (this.fieldInfos.size() >= 0xFFFF) {
+            throw new ClassFileException(
+                "Number of fields of class "
+                + this.getThisClassName()
+                + " has grown past JVM limit of 0xFFFF"
+            );
+        }
+
         List<AttributeInfo> attributes = new ArrayList<AttributeInfo>();
         if (optionalConstantValue != null) {
             attributes.add(new ConstantValueAttribute(
@@ -595,6 +715,15 @@ class ClassFile implements Annotatable {
             ));
         }
 
+        // JVMS8 4.1: "methods_count" is a u2.
+        if (this.methodInfos.size() >= 0xFFFF) {
+            throw new ClassFileException(
+                "Number of methods of class "
+                + this.getThisClassName()
+                + " has grown past JVM limit of 0xFFFF"
+            );
+        }
+
         MethodInfo mi = new MethodInfo(
             accessFlags,                                   // accessFlags
             this.addConstantUtf8Info(methodName),          // nameIndex
@@ -733,7 +862,7 @@ class ClassFile implements Annotatable {
      * u2 fields_count, fields[fields_count]
      */
     private List<FieldInfo>
-    loadFields(DataInputStream dis) throws IOException {
+    loadFields(DataInputStream dis, @Nullable ByteBuffer lazyAttributeSource) throws IOException {
 
         List<FieldInfo> result = new ArrayList<FieldInfo>();
 
@@ -742,7 +871,7 @@ class ClassFile implements Annotatable {
                 dis.readShort(),         // access_flags
                 dis.readShort(),         // name_index
                 dis.readShort(),         // descriptor_index
-                this.loadAttributes(dis) // attributes_count, attributes[attributes_count]
+                this.loadAttributes(dis, lazyAttributeSource) // attributes_count, attributes[attributes_count]
             ));
         }
 
@@ -753,10 +882,10 @@ class ClassFile implements Annotatable {
      * u2 methods_count, methods[methods_count]
      */
     private List<MethodInfo>
-    loadMethods(DataInputStream dis) throws IOException {
+    loadMethods(DataInputStream dis, @Nullable ByteBuffer lazyAttributeSource) throws IOException {
         int              methodsCount = dis.readUnsignedShort();
         List<MethodInfo> methods      = new ArrayList<MethodInfo>(methodsCount);
-        for (int i = 0; i < methodsCount; ++i) methods.add(this.loadMethodInfo(dis));
+        for (int i = 0; i < methodsCount; ++i) methods.add(this.loadMethodInfo(dis, lazyAttributeSource));
         return methods;
     }
 
@@ -764,10 +893,10 @@ class ClassFile implements Annotatable {
      * u2 attributes_count, attributes[attributes_count]
      */
     private List<AttributeInfo>
-    loadAttributes(DataInputStream dis) throws IOException {
+    loadAttributes(DataInputStream dis, @Nullable ByteBuffer lazyAttributeSource) throws IOException {
         int                 attributesCount = dis.readUnsignedShort();
         List<AttributeInfo> attributes      = new ArrayList<AttributeInfo>(attributesCount);
-        for (int i = 0; i < attributesCount; ++i) attributes.add(this.loadAttribute(dis));
+        for (int i = 0; i < attributesCount; ++i) attributes.add(this.loadAttribute(dis, lazyAttributeSource));
         return attributes;
     }
 
@@ -927,6 +1056,10 @@ class ClassFile implements Annotatable {
     public static final short MAJOR_VERSION_JDK_1_8 = 52;
     /** Minor version number of a class file that was generated by a Java 1.8-compliant compiler. */
     public static final short MINOR_VERSION_JDK_1_8 = 0;
+    /** Major version number of a class file that was generated by a Java 9-compliant compiler. */
+    public static final short MAJOR_VERSION_JDK_9 = 53;
+    /** Minor version number of a class file that was generated by a Java 9-compliant compiler. */
+    public static final short MINOR_VERSION_JDK_9 = 0;
 
     private short                        majorVersion;
     private short                        minorVersion;
@@ -1529,6 +1662,17 @@ class ClassFile implements Annotatable {
     public static
     class ConstantMethodHandleInfo extends ConstantPoolInfo {
 
+        // SUPPRESS CHECKSTYLE JavadocVariable:9
+        public static final byte REF_GET_FIELD          = 1;
+        public static final byte REF_GET_STATIC         = 2;
+        public static final byte REF_PUT_FIELD          = 3;
+        public static final byte REF_PUT_STATIC         = 4;
+        public static final byte REF_INVOKE_VIRTUAL     = 5;
+        public static final byte REF_INVOKE_STATIC      = 6;
+        public static final byte REF_INVOKE_SPECIAL     = 7;
+        public static final byte REF_NEW_INVOKE_SPECIAL = 8;
+        public static final byte REF_INVOKE_INTERFACE   = 9;
+
         private final byte  referenceKind;
         private final short referenceIndex;
 
@@ -1713,8 +1857,14 @@ class ClassFile implements Annotatable {
          * @return The attributes of this method
          */
         public AttributeInfo[]
-        getAttributes() {
-            return (AttributeInfo[]) this.attributes.toArray(new AttributeInfo[this.attributes.size()]);
+        getAttributes() { return ClassFile.decoded(this.attributes); }
+
+        /**
+         * @return {@code null} iff this method has no {@code Exceptions} attribute
+         */
+        @Nullable public ExceptionsAttribute
+        getExceptionsAttribute() {
+            return (ExceptionsAttribute) ClassFile.this.findAttribute(this.attributes, "Exceptions");
         }
 
         /**
@@ -1750,12 +1900,12 @@ class ClassFile implements Annotatable {
     }
 
     private MethodInfo
-    loadMethodInfo(DataInputStream dis) throws IOException {
+    loadMethodInfo(DataInputStream dis, @Nullable ByteBuffer lazyAttributeSource) throws IOException {
         return new MethodInfo(
-            dis.readShort(),         // access_flags
-            dis.readShort(),         // name_index
-            dis.readShort(),         // descriptor_index
-            this.loadAttributes(dis) // attributes_count, attributes[attributes_count]
+            dis.readShort(),                              // access_flags
+            dis.readShort(),                              // name_index
+            dis.readShort(),                              // descriptor_index
+            this.loadAttributes(dis, lazyAttributeSource) // attributes_count, attributes[attributes_count]
         );
     }
 
@@ -1811,8 +1961,14 @@ class ClassFile implements Annotatable {
          * @return The attributes of this field
          */
         public AttributeInfo[]
-        getAttributes() {
-            return (AttributeInfo[]) this.attributes.toArray(new AttributeInfo[this.attributes.size()]);
+        getAttributes() { return ClassFile.decoded(this.attributes); }
+
+        /**
+         * @return {@code null} iff this field has no {@code ConstantValue} attribute
+         */
+        @Nullable public ConstantValueAttribute
+        getConstantValueAttribute() {
+            return (ConstantValueAttribute) ClassFile.this.findAttribute(this.attributes, "ConstantValue");
         }
 
         /**
@@ -1891,13 +2047,35 @@ class ClassFile implements Annotatable {
      * SourceFileAttribute}.
      */
     private AttributeInfo
-    loadAttribute(DataInputStream dis) throws IOException {
+    loadAttribute(DataInputStream dis, @Nullable ByteBuffer lazyAttributeSource) throws IOException {
 
         short attributeNameIndex = dis.readShort(); // attribute_name_index
         int   attributeLength    = dis.readInt();   // attribute_length
 
+        if (lazyAttributeSource != null) {
+
+            // Record a view on the attribute body, and skip it.
+            if (attributeLength < 0 || attributeLength > lazyAttributeSource.remaining()) throw new EOFException();
+            // Notice: The (seemingly redundant) casts of "slice()" and "duplicate()" allow JANINO to compile itself
+            // on JRE 9+, where reflection also reports the bridge methods "Buffer.slice()" and "Buffer.duplicate()".
+            ByteBuffer body = (ByteBuffer) lazyAttributeSource.slice();
+            body.limit(attributeLength);
+            lazyAttributeSource.position(lazyAttributeSource.position() + attributeLength);
+            return new UndecodedAttribute(attributeNameIndex, body);
+        }
+
         final byte[] ba = new byte[attributeLength];
         dis.readFully(ba);
+
+        return this.decodeAttribute(attributeNameIndex, ba);
+    }
+
+    /**
+     * Decodes the body of one class file attribute.
+     */
+    private AttributeInfo
+    decodeAttribute(short attributeNameIndex, final byte[] ba) throws IOException {
+
         ByteArrayInputStream bais = new ByteArrayInputStream(ba);
         DataInputStream      bdis = new DataInputStream(bais);
 
@@ -1939,6 +2117,9 @@ class ClassFile implements Annotatable {
         if ("RuntimeInvisibleAnnotations".equals(attributeName)) {
             result = AnnotationsAttribute.loadBody(attributeNameIndex, bdis);
         } else
+        if ("BootstrapMethods".equals(attributeName)) {
+            result = BootstrapMethodsAttribute.loadBody(attributeNameIndex, bdis);
+        } else
         {
             return new AttributeInfo(attributeNameIndex) {
                 @Override protected void storeBody(DataOutputStream dos) throws IOException { dos.write(ba); }
@@ -1957,6 +2138,72 @@ class ClassFile implements Annotatable {
         return result;
     }
 
+    /**
+     * An attribute that was read with {@link ClassFile#ClassFile(ByteBuffer, boolean) lazyAttributes}, and whose
+     * body is decoded only when it is first needed.
+     */
+    private
+    class UndecodedAttribute extends AttributeInfo {
+
+        private final short             attributeNameIndex;
+        private final ByteBuffer        body;
+        @Nullable private AttributeInfo decoded;
+
+        UndecodedAttribute(short attributeNameIndex, ByteBuffer body) {
+            super(attributeNameIndex);
+            this.attributeNameIndex = attributeNameIndex;
+            this.body               = body;
+        }
+
+        synchronized AttributeInfo
+        decode() {
+
+            AttributeInfo result = this.decoded;
+            if (result != null) return result;
+
+            byte[] ba = new byte[this.body.remaining()];
+            ((ByteBuffer) this.body.duplicate()).get(ba);
+            try {
+                result = ClassFile.this.decodeAttribute(this.attributeNameIndex, ba);
+            } catch (IOException ioe) {
+                throw new ClassFileException(
+                    "Decoding attribute \"" + ClassFile.this.getConstantUtf8(this.attributeNameIndex) + "\"",
+                    ioe
+                );
+            }
+
+            return (this.decoded = result);
+        }
+
+        @Override protected void
+        storeBody(DataOutputStream dos) throws IOException {
+
+            // Store the decoded attribute, because it may have been modified in the meantime.
+            AttributeInfo d;
+            synchronized (this) { d = this.decoded; }
+            if (d != null) {
+                d.storeBody(dos);
+                return;
+            }
+
+            byte[] ba = new byte[this.body.remaining()];
+            ((ByteBuffer) this.body.duplicate()).get(ba);
+            dos.write(ba);
+        }
+    }
+
+    private static AttributeInfo
+    decoded(AttributeInfo attribute) {
+        return attribute instanceof UndecodedAttribute ? ((UndecodedAttribute) attribute).decode() : attribute;
+    }
+
+    private static AttributeInfo[]
+    decoded(List<AttributeInfo> attributes) {
+        AttributeInfo[] result = new AttributeInfo[attributes.size()];
+        for (int i = 0; i < result.length; i++) result[i] = ClassFile.decoded((AttributeInfo) attributes.get(i));
+        return result;
+    }
+
     /**
      * Representation of a {@code ConstantValue} attribute (see JVMS 4.7.2).
      */
@@ -2197,6 +2444,90 @@ class ClassFile implements Annotatable {
         }
     }
 
+    /**
+     * Representation of a {@code BootstrapMethods} attribute (see JVMS8 4.7.23).
+     */
+    public static
+    class BootstrapMethodsAttribute extends AttributeInfo {
+
+        private final List<BootstrapMethod> bootstrapMethods;
+
+        BootstrapMethodsAttribute(short attributeNameIndex) {
+            super(attributeNameIndex);
+            this.bootstrapMethods = new ArrayList<BootstrapMethod>();
+        }
+        BootstrapMethodsAttribute(short attributeNameIndex, BootstrapMethod[] bootstrapMethods) {
+            super(attributeNameIndex);
+            this.bootstrapMethods = new ArrayList<BootstrapMethod>(Arrays.asList(bootstrapMethods));
+        }
+
+        /**
+         * @return The {@link BootstrapMethod}s contained in this {@link BootstrapMethodsAttribute}
+         */
+        public List<BootstrapMethod>
+        getBootstrapMethods() { return this.bootstrapMethods; }
+
+        private static AttributeInfo
+        loadBody(short attributeNameIndex, DataInputStream dis) throws IOException {
+
+            BootstrapMethod[] bms = new BootstrapMethod[dis.readUnsignedShort()]; // num_bootstrap_methods
+            for (int i = 0; i < bms.length; ++i) {                              // bootstrap_methods
+                short   bootstrapMethodRef = dis.readShort();
+                short[] bootstrapArguments = new short[dis.readUnsignedShort()];
+                for (int j = 0; j < bootstrapArguments.length; ++j) bootstrapArguments[j] = dis.readShort();
+                bms[i] = new BootstrapMethod(bootstrapMethodRef, bootstrapArguments);
+            }
+            return new BootstrapMethodsAttribute(attributeNameIndex, bms);
+        }
+
+        // Implement "AttributeInfo".
+        @Override protected void
+        storeBody(DataOutputStream dos) throws IOException {
+
+            dos.writeShort(this.bootstrapMethods.size());
+            for (BootstrapMethod bm : this.bootstrapMethods) {
+                dos.writeShort(bm.bootstrapMethodRef);
+                dos.writeShort(bm.bootstrapArguments.length);
+                for (short ba : bm.bootstrapArguments) dos.writeShort(ba);
+            }
+        }
+
+        /**
+         * The structure of the {@code bootstrap_methods} array as described in JVMS8 4.7.23.
+         */
+        public static
+        class BootstrapMethod {
+
+            /**
+             * The index of the {@link ConstantMethodHandleInfo} of the bootstrap method.
+             */
+            public final short bootstrapMethodRef;
+
+            /**
+             * The indexes of the static arguments of the bootstrap method.
+             */
+            public final short[] bootstrapArguments;
+
+            public
+            BootstrapMethod(short bootstrapMethodRef, short[] bootstrapArguments) {
+                this.bootstrapMethodRef = bootstrapMethodRef;
+                this.bootstrapArguments = bootstrapArguments;
+            }
+
+            @Override public boolean
+            equals(@Nullable Object o) {
+                return (
+                    o instanceof BootstrapMethod
+                    && ((BootstrapMethod) o).bootstrapMethodRef == this.bootstrapMethodRef
+                    && Arrays.equals(((BootstrapMethod) o).bootstrapArguments, this.bootstrapArguments)
+                );
+            }
+
+            @Override public int
+            hashCode() { return this.bootstrapMethodRef + 31 * Arrays.hashCode(this.bootstrapArguments); }
+        }
+    }
+
     /**
      * Representation of a {@code SourceFile} attribute (see JVMS 4.7.7).
      */
@@ -2446,7 +2777,7 @@ class ClassFile implements Annotatable {
 
             AttributeInfo[] attributes = new AttributeInfo[dis.readUnsignedShort()];       // attributes_count
             for (int i = 0; i < attributes.length; ++i) {                                  // attributes
-                attributes[i] = classFile.loadAttribute(dis);
+                attributes[i] = classFile.loadAttribute(dis, null);
             }
 
             return new CodeAttribute(
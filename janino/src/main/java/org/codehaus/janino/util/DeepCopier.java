@@ -32,6 +32,7 @@ import java.util.List;
 
 import org.codehaus.commons.compiler.CompileException;
 import org.codehaus.commons.nullanalysis.Nullable;
+import org.codehaus.janino.IClass;
 import org.codehaus.janino.InternalCompilerException;
 import org.codehaus.janino.Java;
 import org.codehaus.janino.Java.AlternateConstructorInvocation;
@@ -358,20 +359,20 @@ class DeepCopier {
     // ------------------------------ "copy*()" methods on abstract types
 
     // SUPPRESS CHECKSTYLE LineLengthCheck:14
-    public ImportDeclaration     copyImportDeclaration(ImportDeclaration subject)         throws CompileException { return DeepCopier.assertNotNull(subject.accept(this.importCopier));                }
-    public TypeDeclaration       copyTypeDeclaration(TypeDeclaration subject)             throws CompileException { return DeepCopier.assertNotNull(subject.accept(this.typeDeclarationCopier));       }
-    public TypeBodyDeclaration   copyTypeBodyDeclaration(TypeBodyDeclaration subject)     throws CompileException { return DeepCopier.assertNotNull(subject.accept(this.typeBodyDeclarationCopier));   }
-    public FunctionDeclarator    copyFunctionDeclarator(FunctionDeclarator subject)       throws CompileException { return DeepCopier.assertNotNull(subject.accept(this.functionDeclaratorCopier));    }
-    public BlockStatement        copyBlockStatement(BlockStatement subject)               throws CompileException { return DeepCopier.assertNotNull(subject.accept(this.blockStatementCopier));        }
-    public Resource              copyResource(Resource subject)                           throws CompileException { return DeepCopier.assertNotNull(subject.accept(this.resourceCopier));              }
-    public TypeArgument          copyTypeArgument(TypeArgument subject)                   throws CompileException { return DeepCopier.assertNotNull(subject.accept(this.typeArgumentCopier));          }
-    public ConstructorInvocation copyConstructorInvocation(ConstructorInvocation subject) throws CompileException { return DeepCopier.assertNotNull(subject.accept(this.constructorInvocationCopier)); }
-    public ElementValue          copyElementValue(ElementValue subject)                   throws CompileException { return DeepCopier.assertNotNull(subject.accept(this.elementValueCopier));          }
-    public Annotation            copyAnnotation(Annotation subject)                       throws CompileException { return DeepCopier.assertNotNull(subject.accept(this.annotationCopier));            }
-    public Rvalue                copyRvalue(Rvalue subject)                               throws CompileException { return DeepCopier.assertNotNull(subject.accept(this.rvalueCopier));                }
-    public Lvalue                copyLvalue(Lvalue subject)                               throws CompileException { return DeepCopier.assertNotNull(subject.accept(this.lvalueCopier));                }
-    public Type                  copyType(Type subject)                                   throws CompileException { return DeepCopier.assertNotNull(subject.accept(this.typeCopier));                  }
-    public Atom                  copyAtom(Atom subject)                                   throws CompileException { return DeepCopier.assertNotNull(subject.accept(this.atomCopier));                  }
+    public ImportDeclaration     copyImportDeclaration(ImportDeclaration subject)         throws CompileException { return (ImportDeclaration) DeepCopier.assertNotNull(subject.accept(this.importCopier));                    }
+    public TypeDeclaration       copyTypeDeclaration(TypeDeclaration subject)             throws CompileException { return (TypeDeclaration) DeepCopier.assertNotNull(subject.accept(this.typeDeclarationCopier));             }
+    public TypeBodyDeclaration   copyTypeBodyDeclaration(TypeBodyDeclaration subject)     throws CompileException { return (TypeBodyDeclaration) DeepCopier.assertNotNull(subject.accept(this.typeBodyDeclarationCopier));     }
+    public FunctionDeclarator    copyFunctionDeclarator(FunctionDeclarator subject)       throws CompileException { return (FunctionDeclarator) DeepCopier.assertNotNull(subject.accept(this.functionDeclaratorCopier));       }
+    public BlockStatement        copyBlockStatement(BlockStatement subject)               throws CompileException { return (BlockStatement) DeepCopier.assertNotNull(subject.accept(this.blockStatementCopier));               }
+    public Resource              copyResource(Resource subject)                           throws CompileException { return (Resource) DeepCopier.assertNotNull(subject.accept(this.resourceCopier));                           }
+    public TypeArgument          copyTypeArgument(TypeArgument subject)                   throws CompileException { return (TypeArgument) DeepCopier.assertNotNull(subject.accept(this.typeArgumentCopier));                   }
+    public ConstructorInvocation copyConstructorInvocation(ConstructorInvocation subject) throws CompileException { return (ConstructorInvocation) DeepCopier.assertNotNull(subject.accept(this.constructorInvocationCopier)); }
+    public ElementValue          copyElementValue(ElementValue subject)                   throws CompileException { return (ElementValue) DeepCopier.assertNotNull(subject.accept(this.elementValueCopier));                   }
+    public Annotation            copyAnnotation(Annotation subject)                       throws CompileException { return (Annotation) DeepCopier.assertNotNull(subject.accept(this.annotationCopier));                       }
+    public Rvalue                copyRvalue(Rvalue subject)                               throws CompileException { return (Rvalue) DeepCopier.assertNotNull(subject.accept(this.rvalueCopier));                               }
+    public Lvalue                copyLvalue(Lvalue subject)                               throws CompileException { return (Lvalue) DeepCopier.assertNotNull(subject.accept(this.lvalueCopier));                               }
+    public Type                  copyType(Type subject)                                   throws CompileException { return (Type) DeepCopier.assertNotNull(subject.accept(this.typeCopier));                                   }
+    public Atom                  copyAtom(Atom subject)                                   throws CompileException { return (Atom) DeepCopier.assertNotNull(subject.accept(this.atomCopier));                                   }
 
     // SUPPRESS CHECKSTYLE LineLengthCheck:3
     public PackageMemberTypeDeclaration copyPackageMemberTypeDeclaration(PackageMemberTypeDeclaration subject) throws CompileException { return (PackageMemberTypeDeclaration) this.copyTypeDeclaration(subject); }
@@ -414,8 +415,8 @@ class DeepCopier {
     public TypeParameter[]            copyTypeParameters(TypeParameter[] subject)                       throws CompileException { TypeParameter[]            result = new TypeParameter[subject.length];              for (int i = 0; i < subject.length; i++) result[i] = this.copyTypeParameter(subject[i]);                    return result; }
 
     // SUPPRESS CHECKSTYLE LineLengthCheck:2
-    public Annotation[] copyAnnotations(Annotation[] subject) throws CompileException { return this.copyAnnotations(Arrays.asList(subject)).toArray(new Annotation[0]); }
-    public Rvalue[]     copyRvalues(Rvalue[] subject)         throws CompileException { return this.copyRvalues(Arrays.asList(subject)).toArray(new Rvalue[0]);         }
+    public Annotation[] copyAnnotations(Annotation[] subject) throws CompileException { return (Annotation[]) this.copyAnnotations(Arrays.asList(subject)).toArray(new Annotation[0]); }
+    public Rvalue[]     copyRvalues(Rvalue[] subject)         throws CompileException { return (Rvalue[]) this.copyRvalues(Arrays.asList(subject)).toArray(new Rvalue[0]);             }
 
     public FormalParameters
     copyFormalParameters(FunctionDeclarator.FormalParameters subject) throws CompileException {
@@ -466,22 +467,34 @@ class DeepCopier {
 
     public ImportDeclaration
     copySingleTypeImportDeclaration(CompilationUnit.SingleTypeImportDeclaration stid) throws CompileException {
-        return new CompilationUnit.SingleTypeImportDeclaration(stid.getLocation(), stid.identifiers.clone());
+        return new CompilationUnit.SingleTypeImportDeclaration(
+            stid.getLocation(),
+            (String[]) stid.identifiers.clone()
+        );
     }
 
     public ImportDeclaration
     copyTypeImportOnDemandDeclaration(CompilationUnit.TypeImportOnDemandDeclaration tiodd) throws CompileException {
-        return new CompilationUnit.TypeImportOnDemandDeclaration(tiodd.getLocation(), tiodd.identifiers.clone());
+        return new CompilationUnit.TypeImportOnDemandDeclaration(
+            tiodd.getLocation(),
+            (String[]) tiodd.identifiers.clone()
+        );
     }
 
     public ImportDeclaration
     copySingleStaticImportDeclaration(CompilationUnit.SingleStaticImportDeclaration stid) throws CompileException {
-        return new CompilationUnit.SingleStaticImportDeclaration(stid.getLocation(), stid.identifiers.clone());
+        return new CompilationUnit.SingleStaticImportDeclaration(
+            stid.getLocation(),
+            (String[]) stid.identifiers.clone()
+        );
     }
 
     public ImportDeclaration
     copyStaticImportOnDemandDeclaration(CompilationUnit.StaticImportOnDemandDeclaration siodd) throws CompileException {
-        return new CompilationUnit.StaticImportOnDemandDeclaration(siodd.getLocation(), siodd.identifiers.clone());
+        return new CompilationUnit.StaticImportOnDemandDeclaration(
+            siodd.getLocation(),
+            (String[]) siodd.identifiers.clone()
+        );
     }
 
     public AnonymousClassDeclaration
@@ -646,7 +659,9 @@ class DeepCopier {
             this.copyFormalParameters(subject.formalParameters),
             this.copyTypes(subject.thrownExceptions),
             this.copyOptionalConstructorInvocation(subject.optionalConstructorInvocation),
-            this.copyBlockStatements(DeepCopier.assertNotNull(subject.optionalStatements))
+            this.copyBlockStatements(
+                (List<? extends BlockStatement>) DeepCopier.assertNotNull(subject.optionalStatements)
+            )
         );
     }
 
@@ -1034,13 +1049,13 @@ class DeepCopier {
             ? new NewClassInstance(
                 subject.getLocation(),
                 this.copyOptionalRvalue(subject.optionalQualification),
-                this.copyType(DeepCopier.assertNotNull(subject.type)),
+                this.copyType((Type) DeepCopier.assertNotNull(subject.type)),
                 this.copyRvalues(subject.arguments)
             )
             : new NewClassInstance(
                 subject.getLocation(),
                 this.copyOptionalRvalue(subject.optionalQualification),
-                DeepCopier.assertNotNull(subject.iClass),
+                (IClass) DeepCopier.assertNotNull(subject.iClass),
                 this.copyRvalues(subject.arguments)
             )
         );
@@ -1107,7 +1122,7 @@ class DeepCopier {
 
     public Lvalue
     copyAmbiguousName(AmbiguousName subject) throws CompileException {
-        return new AmbiguousName(subject.getLocation(), Arrays.copyOf(subject.identifiers, subject.n));
+        return new AmbiguousName(subject.getLocation(), (String[]) Arrays.copyOf(subject.identifiers, subject.n));
     }
 
     public Lvalue
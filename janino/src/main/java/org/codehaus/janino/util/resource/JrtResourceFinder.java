@@ -0,0 +1,322 @@
+
+/*
+ * Janino - An embedded Java[TM] compiler
+ *
+ * Copyright (c) 2001-2010 Arno Unkrig. All rights reserved.
+ * Copyright (c) 2015-2016 TIBCO Software Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.codehaus.janino.util.resource;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Array;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.codehaus.commons.nullanalysis.Nullable;
+
+/**
+ * Finds the class files (and other resources) of the Java platform modules through the "{@code jrt:/}" file system
+ * of Java 9+, where the "sun.boot.class.path" system property (and thus the "rt.jar" file) no longer exists.
+ * <p>
+ *   The file system has a "{@code /packages/}<var>package</var>{@code /}<var>module</var>" directory structure; this
+ *   class uses it to map each package (lazily, and only once) to the module(s) that contain it, so finding a resource
+ *   is one hash lookup plus one file access.
+ * </p>
+ * <p>
+ *   Because JANINO itself must run on Java 6, the NIO file system API is accessed through reflection.
+ * </p>
+ * <p>
+ *   This class is thread-safe.
+ * </p>
+ *
+ * @see #isAvailable()
+ */
+public
+class JrtResourceFinder extends ResourceFinder {
+
+    private static final String[] NO_MODULES = new String[0];
+
+    /**
+     * The "{@code jrt:/}" file system and the reflective accessors, or {@code null} iff the running JVM does not
+     * provide that file system.
+     */
+    @Nullable private static final Jrt JRT = JrtResourceFinder.loadJrt();
+
+    private final Map<String /*packageName*/, String[] /*moduleNames*/>
+    packageIndex = new ConcurrentHashMap<String, String[]>();
+
+    /**
+     * @return Whether the running JVM provides the "{@code jrt:/}" file system, i.e. whether {@link
+     *         #JrtResourceFinder()} can be invoked
+     */
+    public static boolean
+    isAvailable() { return JrtResourceFinder.JRT != null; }
+
+    /**
+     * @throws UnsupportedOperationException The running JVM does not provide the "{@code jrt:/}" file system
+     * @see                                  #isAvailable()
+     */
+    public
+    JrtResourceFinder() {
+        if (JrtResourceFinder.JRT == null) {
+            throw new UnsupportedOperationException("The \"jrt:/\" file system is not available (pre-Java-9 JVM?)");
+        }
+    }
+
+    @Override public String
+    toString() { return "jrt:/"; }
+
+    // Implement ResourceFinder.
+
+    @Override @Nullable public final Resource
+    findResource(final String resourceName) {
+        final Jrt jrt = JrtResourceFinder.JRT;
+        assert jrt != null;
+
+        int idx = resourceName.lastIndexOf('/');
+        if (idx == -1) return null; // The platform modules have no resources in the unnamed package.
+        String packageName = resourceName.substring(0, idx).replace('/', '.');
+
+        try {
+            for (final String moduleName : this.getModuleNames(packageName)) {
+                final Object /*Path*/ path = jrt.getPath("/modules/" + moduleName + '/' + resourceName);
+                if (!jrt.isRegularFile(path)) continue;
+
+                return new ByteBufferResource() {
+
+                    @Override public ByteBuffer
+                    getByteBuffer() throws IOException { return ByteBuffer.wrap(jrt.readAllBytes(path)); }
+
+                    @Override public InputStream
+                    open() throws IOException { return new ByteArrayInputStream(jrt.readAllBytes(path)); }
+
+                    @Override public String
+                    getFileName() { return "jrt:/" + moduleName + '/' + resourceName; }
+
+                    @Override public long
+                    lastModified() {
+                        try {
+                            return jrt.getLastModifiedTime(path);
+                        } catch (IOException ioe) {
+                            return 0L;
+                        }
+                    }
+
+                    @Override public String
+                    toString() { return this.getFileName(); }
+                };
+            }
+        } catch (IOException ioe) {
+            return null;
+        }
+        return null;
+    }
+
+    /**
+     * @return The names of the modules that contain the given package, typically zero or one
+     */
+    private String[]
+    getModuleNames(String packageName) throws IOException {
+
+        String[] result = (String[]) this.packageIndex.get(packageName);
+        if (result != null) return result;
+
+        Jrt jrt = JrtResourceFinder.JRT;
+        assert jrt != null;
+
+        Object /*Path*/ packageDirectory = jrt.getPath("/packages/" + packageName);
+        if (!jrt.isDirectory(packageDirectory)) {
+            result = JrtResourceFinder.NO_MODULES;
+        } else {
+            List<String> moduleNames = new ArrayList<String>();
+            for (Object /*Path*/ moduleLink : jrt.list(packageDirectory)) {
+                String s = moduleLink.toString();
+                moduleNames.add(s.substring(s.lastIndexOf('/') + 1));
+            }
+            result = (String[]) moduleNames.toArray(new String[moduleNames.size()]);
+        }
+
+        this.packageIndex.put(packageName, result);
+        return result;
+    }
+
+    @Nullable private static Jrt
+    loadJrt() {
+        try {
+            return new Jrt();
+        } catch (Exception e) {
+            return null;
+        } catch (LinkageError le) {
+            return null;
+        }
+    }
+
+    /**
+     * Pre-Java-7-compatible facade for the "{@code jrt:/}" {@code java.nio.file.FileSystem}.
+     */
+    private static final
+    class Jrt {
+
+        private final /*java.nio.file.FileSystem*/ Object fileSystem;
+        private final /*java.nio.file.LinkOption[]*/ Object noLinkOptions;
+
+        // SUPPRESS CHECKSTYLE MemberName:7
+        private final Method java_nio_file_FileSystem_getPath;
+        private final Method java_nio_file_Files_isRegularFile;
+        private final Method java_nio_file_Files_isDirectory;
+        private final Method java_nio_file_Files_readAllBytes;
+        private final Method java_nio_file_Files_newDirectoryStream;
+        private final Method java_nio_file_Files_getLastModifiedTime;
+        private final Method java_nio_file_attribute_FileTime_toMillis;
+
+        Jrt() throws Exception {
+            ClassLoader cl = ClassLoader.getSystemClassLoader();
+
+            Class<?> fileSystemsClass = cl.loadClass("java.nio.file.FileSystems");
+            Class<?> fileSystemClass  = cl.loadClass("java.nio.file.FileSystem");
+            Class<?> filesClass       = cl.loadClass("java.nio.file.Files");
+            Class<?> pathClass        = cl.loadClass("java.nio.file.Path");
+            Class<?> linkOptionClass  = cl.loadClass("java.nio.file.LinkOption");
+            Class<?> fileTimeClass    = cl.loadClass("java.nio.file.attribute.FileTime");
+
+            Class<?> linkOptionArrayClass = Array.newInstance(linkOptionClass, 0).getClass();
+
+//          this.fileSystem = FileSystems.getFileSystem(URI.create("jrt:/"));
+            this.fileSystem = fileSystemsClass.getMethod("getFileSystem", URI.class).invoke(
+                null,
+                new Object[] { URI.create("jrt:/") }
+            );
+            this.noLinkOptions = Array.newInstance(linkOptionClass, 0);
+
+            this.java_nio_file_FileSystem_getPath = fileSystemClass.getMethod(
+                "getPath",
+                new Class<?>[] { String.class, String[].class }
+            );
+            this.java_nio_file_Files_isRegularFile = filesClass.getMethod(
+                "isRegularFile",
+                new Class<?>[] { pathClass, linkOptionArrayClass }
+            );
+            this.java_nio_file_Files_isDirectory = filesClass.getMethod(
+                "isDirectory",
+                new Class<?>[] { pathClass, linkOptionArrayClass }
+            );
+            this.java_nio_file_Files_readAllBytes = filesClass.getMethod(
+                "readAllBytes",
+                new Class<?>[] { pathClass }
+            );
+            this.java_nio_file_Files_newDirectoryStream = filesClass.getMethod(
+                "newDirectoryStream",
+                new Class<?>[] { pathClass }
+            );
+            this.java_nio_file_Files_getLastModifiedTime = filesClass.getMethod(
+                "getLastModifiedTime",
+                new Class<?>[] { pathClass, linkOptionArrayClass }
+            );
+            this.java_nio_file_attribute_FileTime_toMillis = fileTimeClass.getMethod("toMillis", new Class<?>[0]);
+        }
+
+        /*java.nio.file.Path*/ Object
+        getPath(String path) throws IOException {
+            return Jrt.invoke(this.java_nio_file_FileSystem_getPath, this.fileSystem, new Object[] {
+                path,
+                new String[0],
+            });
+        }
+
+        boolean
+        isRegularFile(/*java.nio.file.Path*/ Object path) throws IOException {
+            return Boolean.TRUE.equals(Jrt.invoke(this.java_nio_file_Files_isRegularFile, null, new Object[] {
+                path,
+                this.noLinkOptions,
+            }));
+        }
+
+        boolean
+        isDirectory(/*java.nio.file.Path*/ Object path) throws IOException {
+            return Boolean.TRUE.equals(Jrt.invoke(this.java_nio_file_Files_isDirectory, null, new Object[] {
+                path,
+                this.noLinkOptions,
+            }));
+        }
+
+        byte[]
+        readAllBytes(/*java.nio.file.Path*/ Object path) throws IOException {
+            return (byte[]) Jrt.invoke(this.java_nio_file_Files_readAllBytes, null, new Object[] { path });
+        }
+
+        long
+        getLastModifiedTime(/*java.nio.file.Path*/ Object path) throws IOException {
+            Object /*FileTime*/ fileTime = Jrt.invoke(
+                this.java_nio_file_Files_getLastModifiedTime,
+                null,
+                new Object[] { path, this.noLinkOptions }
+            );
+            Object /*Long*/ millis = Jrt.invoke(
+                this.java_nio_file_attribute_FileTime_toMillis,
+                fileTime,
+                new Object[0]
+            );
+            return ((Long) millis).longValue();
+        }
+
+        /**
+         * @return The entries of the given directory
+         */
+        List</*java.nio.file.Path*/ Object>
+        list(/*java.nio.file.Path*/ Object directory) throws IOException {
+
+//          DirectoryStream<Path> ds = Files.newDirectoryStream(directory);
+            Object ds = Jrt.invoke(this.java_nio_file_Files_newDirectoryStream, null, new Object[] { directory });
+            try {
+                List<Object> result = new ArrayList<Object>();
+                for (Object path : (Iterable<?>) ds) result.add(path);
+                return result;
+            } finally {
+                try { ((Closeable) ds).close(); } catch (IOException e) {}
+            }
+        }
+
+        private static Object
+        invoke(Method method, @Nullable Object target, Object[] arguments) throws IOException {
+            try {
+                return method.invoke(target, arguments);
+            } catch (InvocationTargetException ite) {
+                Throwable te = ite.getTargetException();
+                if (te instanceof IOException) throw (IOException) te;
+                if (te instanceof RuntimeException) throw (RuntimeException) te;
+                if (te instanceof Error) throw (Error) te;
+                throw new AssertionError(ite);
+            } catch (IllegalAccessException iae) {
+                throw new AssertionError(iae);
+            }
+        }
+    }
+}
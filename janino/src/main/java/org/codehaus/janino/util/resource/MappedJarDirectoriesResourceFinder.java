@@ -0,0 +1,82 @@
+
+/*
+ * Janino - An embedded Java[TM] compiler
+ *
+ * Copyright (c) 2001-2010 Arno Unkrig. All rights reserved.
+ * Copyright (c) 2015-2016 TIBCO Software Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.codehaus.janino.util.resource;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.codehaus.commons.nullanalysis.Nullable;
+
+/**
+ * Finds resources in any of the "*.jar" files that exist in a given set of directories, like {@link
+ * JarDirectoriesResourceFinder}, but through one memory-mapped index; see {@link MappedZipFilesResourceFinder}.
+ * <p>
+ *   Notice that, unlike {@link JarDirectoriesResourceFinder}, this class lists the directories eagerly, i.e. JAR files
+ *   that are added later are not found.
+ * </p>
+ */
+public
+class MappedJarDirectoriesResourceFinder extends MappedZipFilesResourceFinder {
+
+    /**
+     * @param directories       The set of directories to search for JAR files
+     * @param optionalIndexFile Where the index is persisted, or {@code null}
+     */
+    public
+    MappedJarDirectoriesResourceFinder(File[] directories, @Nullable File optionalIndexFile) {
+        super(MappedJarDirectoriesResourceFinder.listJarFiles(directories), optionalIndexFile);
+    }
+
+    /**
+     * @return The "*.jar" files in the <var>directories</var>, sorted by name within each directory
+     */
+    private static File[]
+    listJarFiles(File[] directories) {
+        List<File> result = new ArrayList<File>();
+        for (File directory : directories) {
+
+            File[] jarFiles = directory.listFiles(new FilenameFilter() {
+
+                @Override public boolean
+                accept(@Nullable File dir, @Nullable String name) {
+                    assert dir != null;
+                    assert name != null;
+                    return name.endsWith(".jar");
+                }
+            });
+            if (jarFiles == null) continue;
+
+            // Sort the JAR files, so that the order (and thus the persisted index) is reproducible.
+            Arrays.sort(jarFiles);
+            result.addAll(Arrays.asList(jarFiles));
+        }
+        return (File[]) result.toArray(new File[result.size()]);
+    }
+}
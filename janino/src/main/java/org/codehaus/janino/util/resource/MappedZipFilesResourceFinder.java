@@ -0,0 +1,604 @@
+
+/*
+ * Janino - An embedded Java[TM] compiler
+ *
+ * Copyright (c) 2001-2010 Arno Unkrig. All rights reserved.
+ * Copyright (c) 2015-2016 TIBCO Software Inc. All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without modification, are permitted provided that the
+ * following conditions are met:
+ *
+ *    1. Redistributions of source code must retain the above copyright notice, this list of conditions and the
+ *       following disclaimer.
+ *    2. Redistributions in binary form must reproduce the above copyright notice, this list of conditions and the
+ *       following disclaimer in the documentation and/or other materials provided with the distribution.
+ *    3. Neither the name of the copyright holder nor the names of its contributors may be used to endorse or promote
+ *       products derived from this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES,
+ * INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE
+ * DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+ * SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR
+ * SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY,
+ * WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE
+ * OF THIS SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package org.codehaus.janino.util.resource;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Calendar;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipFile;
+
+import org.codehaus.commons.nullanalysis.Nullable;
+import org.codehaus.janino.util.ByteBufferInputStream;
+
+/**
+ * A {@link ResourceFinder} that finds resources in a sequence of ZIP (e.g. JAR) files, like a {@link
+ * MultiResourceFinder} of {@link ZipFileResourceFinder}s, but much more efficiently for long class paths:
+ * <ul>
+ *   <li>
+ *     One hash index maps the entry names of all ZIP files to their locations, so finding a resource is one hash
+ *     lookup, no matter how many ZIP files there are. (As with a class path, the first ZIP file that has an entry with
+ *     a particular name wins.)
+ *   </li>
+ *   <li>
+ *     The ZIP files are memory-mapped. The resources are {@link ByteBufferResource}s; the contents of "stored"
+ *     entries are views on the mapped memory, and "deflated" entries are inflated in one go. Thus, class files can be
+ *     parsed without any stream and buffer churn (see {@link
+ *     org.codehaus.janino.util.ClassFile#ClassFile(ByteBuffer)}).
+ *   </li>
+ *   <li>
+ *     Optionally, the index is persisted in a file. As long as the ZIP files are unchanged (same paths, sizes and
+ *     modification times), the next instance reads that file instead of the central directories of all ZIP files.
+ *   </li>
+ * </ul>
+ * <p>
+ *   ZIP files that this class cannot map and parse itself (e.g. ZIP64 files, or files larger than 2 GB), and entries
+ *   that are neither stored nor deflated, or are encrypted, are transparently read through {@link ZipFile}.
+ * </p>
+ * <p>
+ *   When the resource finder is no longer needed (e.g. on a webapp redeployment), {@link #close()} it, so that it
+ *   releases the ZIP files.
+ * </p>
+ * <p>
+ *   This class is thread-safe.
+ * </p>
+ */
+public
+class MappedZipFilesResourceFinder extends ResourceFinder implements Closeable {
+
+    private static final Logger LOGGER = Logger.getLogger(MappedZipFilesResourceFinder.class.getName());
+
+    /**
+     * Identifies the format of the index file; change it whenever the format changes.
+     */
+    private static final int MAGIC = 0x4a5a4901; // "JZI\01"
+
+    private static final int EOCD_SIGNATURE = 0x06054b50;
+    private static final int CEN_SIGNATURE  = 0x02014b50;
+    private static final int LOC_SIGNATURE  = 0x04034b50;
+
+    private static final int STORED   = 0;
+    private static final int DEFLATED = 8;
+
+    /**
+     * The pseudo compression method of entries that are read through {@link ZipFile}.
+     */
+    private static final int VIA_ZIP_FILE = -1;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final File[] zipFiles;
+
+    private final Map<String /*entryName*/, Entry> index;
+
+    /**
+     * Lazily mapped contents of the {@link #zipFiles}, in little-endian byte order.
+     */
+    private final ByteBuffer[] mappedZipFiles;
+
+    /**
+     * Lazily opened {@link #zipFiles}, for the entries that are read {@link #VIA_ZIP_FILE}.
+     */
+    private final ZipFile[] openedZipFiles;
+
+    private boolean closed;
+
+    private static
+    class Entry {
+
+        final int zipFileIndex;
+        final int method;
+        final int dosTime;
+        final int localHeaderOffset;
+        final int compressedSize;
+        final int size;
+
+        Entry(int zipFileIndex, int method, int dosTime, int localHeaderOffset, int compressedSize, int size) {
+            this.zipFileIndex      = zipFileIndex;
+            this.method            = method;
+            this.dosTime           = dosTime;
+            this.localHeaderOffset = localHeaderOffset;
+            this.compressedSize    = compressedSize;
+            this.size              = size;
+        }
+    }
+
+    /**
+     * Indicates that a ZIP file cannot be processed by this class, but possibly by {@link ZipFile}.
+     */
+    private static
+    class UnsupportedZipFileException extends ZipException {
+
+        private static final long serialVersionUID = 1L;
+
+        UnsupportedZipFileException(String message) { super(message); }
+    }
+
+    /**
+     * Equivalent with {@link #MappedZipFilesResourceFinder(File[], File) MappedZipFilesResourceFinder}{@code
+     * (zipFiles, null)}.
+     */
+    public
+    MappedZipFilesResourceFinder(File[] zipFiles) { this(zipFiles, null); }
+
+    /**
+     * Reads the central directories of the <var>zipFiles</var> (or the <var>optionalIndexFile</var>) and builds the
+     * index. Non-existent and unreadable ZIP files are silently ignored, like on a class path.
+     *
+     * @param optionalIndexFile Where the index is persisted, or {@code null}
+     */
+    public
+    MappedZipFilesResourceFinder(File[] zipFiles, @Nullable File optionalIndexFile) {
+        this.zipFiles       = (File[]) zipFiles.clone();
+        this.mappedZipFiles = new ByteBuffer[zipFiles.length];
+        this.openedZipFiles = new ZipFile[zipFiles.length];
+
+        Map<String, Entry> index = optionalIndexFile == null ? null : this.readIndex(optionalIndexFile);
+        if (index == null) {
+            index = this.buildIndex();
+            if (optionalIndexFile != null) this.writeIndex(optionalIndexFile, index);
+        }
+        this.index = index;
+    }
+
+    @Override public String
+    toString() { return "mapped:" + this.zipFiles.length + " ZIP files"; }
+
+    /**
+     * Closes the {@link ZipFile}s that were opened for the entries that this class cannot read itself, and drops the
+     * memory mappings of the ZIP files. Afterwards, reading the contents of any resource throws an {@link
+     * IOException}.
+     * <p>
+     *   Notice that the JRE unmaps a ZIP file (and thus releases it, which matters e.g. for deleting it on MS
+     *   Windows) only when the garbage collector reclaims the mapping, <em>and</em> all byte buffers of previously
+     *   found resources.
+     * </p>
+     */
+    @Override public synchronized void
+    close() throws IOException {
+
+        this.closed = true;
+
+        IOException result = null;
+        for (int i = 0; i < this.zipFiles.length; i++) {
+            this.mappedZipFiles[i] = null;
+
+            ZipFile zf = this.openedZipFiles[i];
+            if (zf == null) continue;
+            this.openedZipFiles[i] = null;
+            try {
+                zf.close();
+            } catch (IOException ioe) {
+                if (result == null) result = ioe;
+            }
+        }
+        if (result != null) throw result;
+    }
+
+    // Implement ResourceFinder.
+
+    @Override @Nullable public final Resource
+    findResource(final String resourceName) {
+        final Entry entry = (Entry) this.index.get(resourceName);
+        if (entry == null) return null;
+
+        return new ByteBufferResource() {
+
+            @Override public ByteBuffer
+            getByteBuffer() throws IOException {
+                return MappedZipFilesResourceFinder.this.getContents(resourceName, entry);
+            }
+
+            @Override public InputStream
+            open() throws IOException { return new ByteBufferInputStream(this.getByteBuffer()); }
+
+            @Override public String
+            getFileName() {
+                return MappedZipFilesResourceFinder.this.zipFiles[entry.zipFileIndex].getPath() + ':' + resourceName;
+            }
+
+            @Override public long
+            lastModified() {
+                if (entry.method != MappedZipFilesResourceFinder.VIA_ZIP_FILE) {
+                    return MappedZipFilesResourceFinder.dosToJavaTime(entry.dosTime);
+                }
+                try {
+                    ZipEntry ze = MappedZipFilesResourceFinder.this.openZipFile(entry.zipFileIndex).getEntry(
+                        resourceName
+                    );
+                    long l = ze == null ? -1L : ze.getTime();
+                    return l == -1L ? 0L : l;
+                } catch (IOException ioe) {
+                    return 0L;
+                }
+            }
+
+            @Override public String
+            toString() { return this.getFileName(); }
+        };
+    }
+
+    private ByteBuffer
+    getContents(String entryName, Entry entry) throws IOException {
+
+        if (entry.method == MappedZipFilesResourceFinder.VIA_ZIP_FILE) {
+            ZipFile  zf = this.openZipFile(entry.zipFileIndex);
+            ZipEntry ze = zf.getEntry(entryName);
+            if (ze == null) throw new ZipException("Entry \"" + entryName + "\" has disappeared from \"" + zf + "\"");
+
+            ByteArrayOutputStream baos   = new ByteArrayOutputStream(ze.getSize() > 0 ? (int) ze.getSize() : 4096);
+            byte[]                buffer = new byte[4096];
+            InputStream           is     = zf.getInputStream(ze);
+            try {
+                for (;;) {
+                    int n = is.read(buffer);
+                    if (n == -1) break;
+                    baos.write(buffer, 0, n);
+                }
+            } finally {
+                try { is.close(); } catch (IOException e) {}
+            }
+            return ByteBuffer.wrap(baos.toByteArray());
+        }
+
+        // Notice: The (seemingly redundant) casts of "duplicate()" and "slice()" allow JANINO to compile itself on
+        // JRE 9+, where reflection also reports the bridge methods "Buffer.duplicate()" and "Buffer.slice()".
+        ByteBuffer zip = ((ByteBuffer) this.mapZipFile(entry.zipFileIndex).duplicate()).order(ByteOrder.LITTLE_ENDIAN);
+
+        // Skip the local file header, whose "extra field" may differ from that in the central directory.
+        int loh = entry.localHeaderOffset;
+        if (loh + 30 > zip.limit() || zip.getInt(loh) != MappedZipFilesResourceFinder.LOC_SIGNATURE) {
+            throw new ZipException("Invalid local file header for \"" + entryName + "\"");
+        }
+        int dataOffset = loh + 30 + (0xffff & zip.getShort(loh + 26)) + (0xffff & zip.getShort(loh + 28));
+        if (dataOffset + entry.compressedSize > zip.limit()) {
+            throw new ZipException("Truncated entry \"" + entryName + "\"");
+        }
+        zip.limit(dataOffset + entry.compressedSize);
+        zip.position(dataOffset);
+
+        if (entry.method == MappedZipFilesResourceFinder.STORED) return (ByteBuffer) zip.slice();
+
+        // Notice: With the "nowrap" option, the inflater requires an extra "dummy" input byte.
+        byte[] input = new byte[entry.compressedSize + 1];
+        zip.get(input, 0, entry.compressedSize);
+
+        byte[]   output   = new byte[entry.size];
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(input);
+            for (int n = 0; n < output.length;) {
+                int count = inflater.inflate(output, n, output.length - n);
+                if (count == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new ZipException("Truncated deflated entry \"" + entryName + "\"");
+                }
+                n += count;
+            }
+        } catch (DataFormatException dfe) {
+            throw new ZipException("Entry \"" + entryName + "\": " + dfe.getMessage());
+        } finally {
+            inflater.end();
+        }
+        return ByteBuffer.wrap(output);
+    }
+
+    private synchronized ByteBuffer
+    mapZipFile(int zipFileIndex) throws IOException {
+
+        if (this.closed) throw new IOException("\"" + this + "\" is closed");
+
+        ByteBuffer result = this.mappedZipFiles[zipFileIndex];
+        if (result != null) return result;
+
+        // Notice: The mapping remains valid after the channel is closed.
+        RandomAccessFile raf = new RandomAccessFile(this.zipFiles[zipFileIndex], "r");
+        try {
+            FileChannel fc   = raf.getChannel();
+            long        size = fc.size();
+            if (size > Integer.MAX_VALUE) throw new UnsupportedZipFileException("ZIP file too large to map");
+            result = fc.map(FileChannel.MapMode.READ_ONLY, 0, size).order(ByteOrder.LITTLE_ENDIAN);
+        } finally {
+            try { raf.close(); } catch (IOException e) {}
+        }
+
+        return (this.mappedZipFiles[zipFileIndex] = result);
+    }
+
+    private synchronized ZipFile
+    openZipFile(int zipFileIndex) throws IOException {
+
+        if (this.closed) throw new IOException("\"" + this + "\" is closed");
+
+        ZipFile result = this.openedZipFiles[zipFileIndex];
+        if (result != null) return result;
+
+        return (this.openedZipFiles[zipFileIndex] = new ZipFile(this.zipFiles[zipFileIndex]));
+    }
+
+    private Map<String, Entry>
+    buildIndex() {
+        Map<String, Entry> result = new HashMap<String, Entry>();
+        for (int i = 0; i < this.zipFiles.length; i++) {
+            File zipFile = this.zipFiles[i];
+            if (!zipFile.isFile()) continue;
+
+            try {
+                this.indexMappedZipFile(i, result);
+            } catch (UnsupportedZipFileException uzfe) {
+                MappedZipFilesResourceFinder.LOGGER.log(
+                    Level.FINE,
+                    "Falling back to ZipFile for \"" + zipFile + "\"",
+                    uzfe
+                );
+                try {
+                    this.indexZipFile(i, result);
+                } catch (IOException ioe) {
+                    MappedZipFilesResourceFinder.LOGGER.log(Level.FINE, "Ignoring \"" + zipFile + "\"", ioe);
+                }
+            } catch (IOException ioe) {
+                MappedZipFilesResourceFinder.LOGGER.log(Level.FINE, "Ignoring \"" + zipFile + "\"", ioe);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Parses the central directory of the memory-mapped ZIP file and adds its entries to the <var>index</var>.
+     */
+    private void
+    indexMappedZipFile(int zipFileIndex, Map<String, Entry> index) throws IOException {
+
+        ByteBuffer zip  = ((ByteBuffer) this.mapZipFile(zipFileIndex).duplicate()).order(ByteOrder.LITTLE_ENDIAN);
+        int        size = zip.limit();
+
+        // Locate the "end of central directory record", which is followed by a comment of up to 65535 bytes.
+        int eocd = -1;
+        for (int p = size - 22, min = Math.max(0, size - 22 - 0xffff); p >= min; p--) {
+            if (zip.getInt(p) == MappedZipFilesResourceFinder.EOCD_SIGNATURE) {
+                eocd = p;
+                break;
+            }
+        }
+        if (eocd == -1) throw new UnsupportedZipFileException("End of central directory record not found");
+
+        int  count    = 0xffff & zip.getShort(eocd + 10);
+        long cdOffset = 0xffffffffL & zip.getInt(eocd + 16);
+        if (count == 0xffff || cdOffset == 0xffffffffL) throw new UnsupportedZipFileException("ZIP64");
+
+        // Read all entries first, so that a ZIP file that fails half-way does not leave entries in the index.
+        Map<String, Entry> entries = new HashMap<String, Entry>();
+        int                p       = (int) cdOffset;
+        for (int i = 0; i < count; i++) {
+            if (p + 46 > size || zip.getInt(p) != MappedZipFilesResourceFinder.CEN_SIGNATURE) {
+                throw new UnsupportedZipFileException("Invalid central directory");
+            }
+
+            int  flags             = 0xffff & zip.getShort(p + 8);
+            int  method            = 0xffff & zip.getShort(p + 10);
+            int  dosTime           = zip.getInt(p + 12);
+            long compressedSize    = 0xffffffffL & zip.getInt(p + 20);
+            long uncompressedSize  = 0xffffffffL & zip.getInt(p + 24);
+            int  nameLength        = 0xffff & zip.getShort(p + 28);
+            int  extraLength       = 0xffff & zip.getShort(p + 30);
+            int  commentLength     = 0xffff & zip.getShort(p + 32);
+            long localHeaderOffset = 0xffffffffL & zip.getInt(p + 42);
+
+            if (
+                compressedSize == 0xffffffffL
+                || uncompressedSize == 0xffffffffL
+                || localHeaderOffset == 0xffffffffL
+            ) throw new UnsupportedZipFileException("ZIP64");
+
+            byte[] nameBytes = new byte[nameLength];
+            zip.position(p + 46);
+            zip.get(nameBytes);
+            String name = new String(nameBytes, MappedZipFilesResourceFinder.UTF_8);
+
+            if (!name.endsWith("/") && !entries.containsKey(name)) {
+                if (
+                    (flags & 1) != 0 // encrypted
+                    || (
+                        method != MappedZipFilesResourceFinder.STORED
+                        && method != MappedZipFilesResourceFinder.DEFLATED
+                    )
+                ) method = MappedZipFilesResourceFinder.VIA_ZIP_FILE;
+                entries.put(name, new Entry(
+                    zipFileIndex,
+                    method,
+                    dosTime,
+                    (int) localHeaderOffset,
+                    (int) compressedSize,
+                    (int) uncompressedSize
+                ));
+            }
+
+            p += 46 + nameLength + extraLength + commentLength;
+        }
+
+        for (Map.Entry<String, Entry> e : entries.entrySet()) {
+            if (!index.containsKey(e.getKey())) index.put(e.getKey(), e.getValue());
+        }
+    }
+
+    /**
+     * Adds the entries of the ZIP file to the <var>index</var> such that they are read {@link #VIA_ZIP_FILE}.
+     */
+    private void
+    indexZipFile(int zipFileIndex, Map<String, Entry> index) throws IOException {
+        for (Enumeration<? extends ZipEntry> en = this.openZipFile(zipFileIndex).entries(); en.hasMoreElements();) {
+            ZipEntry ze   = (ZipEntry) en.nextElement();
+            String   name = ze.getName();
+            if (!ze.isDirectory() && !index.containsKey(name)) {
+                index.put(name, new Entry(zipFileIndex, MappedZipFilesResourceFinder.VIA_ZIP_FILE, 0, 0, 0, 0));
+            }
+        }
+    }
+
+    /**
+     * @return {@code null} iff the index file does not exist, is corrupt, or does not match the {@link #zipFiles}
+     */
+    @Nullable private Map<String, Entry>
+    readIndex(File indexFile) {
+        if (!indexFile.isFile()) return null;
+
+        try {
+            DataInputStream dis = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+            try {
+                if (dis.readInt() != MappedZipFilesResourceFinder.MAGIC) return null;
+
+                if (dis.readInt() != this.zipFiles.length) return null;
+                for (File zipFile : this.zipFiles) {
+                    if (!dis.readUTF().equals(zipFile.getAbsolutePath())) return null;
+                    if (dis.readLong() != zipFile.length()) return null;
+                    if (dis.readLong() != zipFile.lastModified()) return null;
+                }
+
+                int                count  = dis.readInt();
+                Map<String, Entry> result = new HashMap<String, Entry>(2 * count);
+                for (int i = 0; i < count; i++) {
+                    String name         = dis.readUTF();
+                    int    zipFileIndex = dis.readInt();
+                    if (zipFileIndex < 0 || zipFileIndex >= this.zipFiles.length) return null;
+                    result.put(name, new Entry(
+                        zipFileIndex,
+                        dis.readInt(), // method
+                        dis.readInt(), // dosTime
+                        dis.readInt(), // localHeaderOffset
+                        dis.readInt(), // compressedSize
+                        dis.readInt()  // size
+                    ));
+                }
+                return result;
+            } finally {
+                try { dis.close(); } catch (IOException e) {}
+            }
+        } catch (IOException ioe) {
+            MappedZipFilesResourceFinder.LOGGER.log(Level.FINE, "Reading \"" + indexFile + "\"", ioe);
+            return null;
+        }
+    }
+
+    /**
+     * Writes the <var>index</var> to the <var>indexFile</var>. I/O errors are logged and otherwise ignored, because
+     * they only affect the performance of future instances.
+     */
+    private void
+    writeIndex(File indexFile, Map<String, Entry> index) {
+
+        File tmpFile = null;
+        try {
+            File directory = indexFile.getAbsoluteFile().getParentFile();
+            if (directory != null && !directory.isDirectory() && !directory.mkdirs() && !directory.isDirectory()) {
+                throw new IOException("Cannot create directory \"" + directory + "\"");
+            }
+
+            tmpFile = File.createTempFile(indexFile.getName(), ".tmp", directory);
+
+            DataOutputStream dos = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)));
+            try {
+                dos.writeInt(MappedZipFilesResourceFinder.MAGIC);
+
+                dos.writeInt(this.zipFiles.length);
+                for (File zipFile : this.zipFiles) {
+                    dos.writeUTF(zipFile.getAbsolutePath());
+                    dos.writeLong(zipFile.length());
+                    dos.writeLong(zipFile.lastModified());
+                }
+
+                dos.writeInt(index.size());
+                for (Map.Entry<String, Entry> me : index.entrySet()) {
+                    Entry e = (Entry) me.getValue();
+                    dos.writeUTF((String) me.getKey());
+                    dos.writeInt(e.zipFileIndex);
+                    dos.writeInt(e.method);
+                    dos.writeInt(e.dosTime);
+                    dos.writeInt(e.localHeaderOffset);
+                    dos.writeInt(e.compressedSize);
+                    dos.writeInt(e.size);
+                }
+                dos.close();
+                dos = null;
+            } finally {
+                if (dos != null) try { dos.close(); } catch (IOException e) {}
+            }
+
+            // Replace any existing index file atomically; on some platforms, "renameTo()" fails if the target exists.
+            if (!tmpFile.renameTo(indexFile)) {
+                indexFile.delete();
+                if (!tmpFile.renameTo(indexFile)) {
+                    throw new IOException("Cannot rename \"" + tmpFile + "\" to \"" + indexFile + "\"");
+                }
+            }
+            tmpFile = null;
+        } catch (IOException ioe) {
+            MappedZipFilesResourceFinder.LOGGER.log(Level.WARNING, "Writing \"" + indexFile + "\"", ioe);
+        } finally {
+            if (tmpFile != null) tmpFile.delete();
+        }
+    }
+
+    /**
+     * Converts an MS-DOS date and time, as stored in ZIP files, into milliseconds since 1970, in the local time zone
+     * (like {@link ZipEntry#getTime()}).
+     */
+    private static long
+    dosToJavaTime(int dosTime) {
+        Calendar c = Calendar.getInstance();
+        c.clear();
+        c.set(
+            ((dosTime >> 25) & 0x7f) + 1980, // year
+            ((dosTime >> 21) & 0x0f) - 1,    // month
+            (dosTime >> 16) & 0x1f,          // date
+            (dosTime >> 11) & 0x1f,          // hourOfDay
+            (dosTime >> 5) & 0x3f,           // minute
+            (dosTime << 1) & 0x3e            // second
+        );
+        return c.getTimeInMillis();
+    }
+}
@@ -26,13 +26,21 @@
 
 package org.codehaus.janino.tests;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -40,34 +48,50 @@ import java.util.Map;
 import java.util.logging.Handler;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import org.codehaus.commons.compiler.CompileException;
+import org.codehaus.commons.compiler.Cookable;
 import org.codehaus.commons.compiler.ErrorHandler;
 import org.codehaus.commons.compiler.ICookable;
 import org.codehaus.commons.compiler.ISimpleCompiler;
 import org.codehaus.commons.compiler.Location;
 import org.codehaus.commons.nullanalysis.Nullable;
 import org.codehaus.janino.ByteArrayClassLoader;
+import org.codehaus.janino.CachingJavaSourceClassLoader;
 import org.codehaus.janino.ClassLoaderIClassLoader;
 import org.codehaus.janino.Compiler;
 import org.codehaus.janino.IClassLoader;
 import org.codehaus.janino.Java;
 import org.codehaus.janino.Java.CompilationUnit;
+import org.codehaus.janino.JaninoOption;
+import org.codehaus.janino.JavaSourceClassLoader;
+import org.codehaus.janino.ParseCache;
 import org.codehaus.janino.Parser;
+import org.codehaus.janino.ResourceFinderIClassLoader;
 import org.codehaus.janino.Scanner;
 import org.codehaus.janino.SimpleCompiler;
+import org.codehaus.janino.Token;
+import org.codehaus.janino.TokenType;
 import org.codehaus.janino.UnitCompiler;
 import org.codehaus.janino.util.Benchmark;
 import org.codehaus.janino.util.ClassFile;
 import org.codehaus.janino.util.ResourceFinderClassLoader;
+import org.codehaus.janino.util.resource.ByteBufferResource;
+import org.codehaus.janino.util.resource.DirectoryResourceCreator;
 import org.codehaus.janino.util.resource.DirectoryResourceFinder;
+import org.codehaus.janino.util.resource.JrtResourceFinder;
 import org.codehaus.janino.util.resource.MapResourceCreator;
 import org.codehaus.janino.util.resource.MapResourceFinder;
+import org.codehaus.janino.util.resource.MappedZipFilesResourceFinder;
 import org.codehaus.janino.util.resource.MultiResourceFinder;
 import org.codehaus.janino.util.resource.Resource;
 import org.codehaus.janino.util.resource.ResourceCreator;
 import org.codehaus.janino.util.resource.ResourceFinder;
 import org.junit.Assert;
+import org.junit.Assume;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
@@ -133,6 +157,43 @@ class CompilerTest {
         if (ex[0] != null) throw new AssertionError(ex[0]);
     }
 
+    @Test public void
+    testSelfCompileConcurrently() throws Exception {
+
+        ClassLoader bootstrapClassLoader = ICookable.BOOT_CLASS_LOADER;
+        File[]      sourceFiles          = {
+            new File(CompilerTest.JANINO_SRC + "/org/codehaus/janino/Compiler.java"),
+            new File(CompilerTest.COMMONS_COMPILER_SRC + "/org/codehaus/commons/compiler/samples/ExpressionDemo.java"),
+            new File(CompilerTest.JANINO_SRC + "/org/codehaus/janino/ClassLoaderIClassLoader.java"),
+            new File(CompilerTest.JANINO_SRC + "/org/codehaus/janino/util/resource/MapResourceCreator.java"),
+        };
+        ResourceFinder sourceFinder = new MultiResourceFinder(Arrays.asList(new ResourceFinder[] {
+            new DirectoryResourceFinder(new File(CompilerTest.JANINO_SRC)),
+            new DirectoryResourceFinder(new File(CompilerTest.COMMONS_COMPILER_SRC)),
+        }));
+
+        Map<String, byte[]> sequential = null;
+        for (int threadCount : new int[] { 1, 4 }) {
+            MapResourceCreator classFileResources = new MapResourceCreator();
+
+            Compiler c = new Compiler(sourceFinder, new ClassLoaderIClassLoader(bootstrapClassLoader));
+            c.setClassFileCreator(classFileResources);
+            c.setThreadCount(threadCount);
+            c.compile(sourceFiles);
+
+            if (sequential == null) {
+                sequential = classFileResources.getMap();
+                continue;
+            }
+
+            Map<String, byte[]> concurrent = classFileResources.getMap();
+            Assert.assertEquals(sequential.keySet(), concurrent.keySet());
+            for (Map.Entry<String, byte[]> e : sequential.entrySet()) {
+                Assert.assertArrayEquals(e.getKey(), e.getValue(), concurrent.get(e.getKey()));
+            }
+        }
+    }
+
     @Test public void
     testSelfCompile() throws Exception {
 
@@ -440,6 +501,555 @@ class CompilerTest {
         s.getClassLoader().loadClass("a.TestLocalVarTable");
     }
 
+    @Test public void
+    testTargetVersion8() throws Exception {
+        Java.CompilationUnit cu = new Parser(new Scanner(null, new StringReader(
+            ""
+            + "package pkg;\n"
+            + "public class A {\n"
+            + "    final int f;\n"
+            + "    A(int f) { this.f = f > 0 ? f : -f; }\n"
+            + "    static String loop(int n) {\n"
+            + "        StringBuilder sb = new StringBuilder();\n"
+            + "        for (int i = 0; i < n; i++) {\n"
+            + "            try {\n"
+            + "                if (i == 3) continue;\n"
+            + "                if (i == 7) break;\n"
+            + "                sb.append(i);\n"
+            + "            } catch (RuntimeException re) {\n"
+            + "                return \"x\";\n"
+            + "            } finally {\n"
+            + "                sb.append(',');\n"
+            + "            }\n"
+            + "        }\n"
+            + "        Object o = n > 2 ? (Object) new java.util.ArrayList() : (Object) new java.util.LinkedList();\n"
+            + "        long l = n;\n"
+            + "        synchronized (sb) {\n"
+            + "            try {\n"
+            + "                return sb.toString() + o.getClass().getSimpleName() + l;\n"
+            + "            } finally {\n"
+            + "                sb.setLength(0);\n"
+            + "            }\n"
+            + "        }\n"
+            + "    }\n"
+            + "    static int parse(String s) {\n"
+            + "        try {\n"
+            + "            return Integer.parseInt(s);\n"
+            + "        } catch (NumberFormatException nfe) {\n"
+            + "            return -1;\n"
+            + "        } finally {\n"
+            + "            if (s == null) return 42;\n"
+            + "        }\n"
+            + "    }\n"
+            + "    public static String run() {\n"
+            + "        return loop(10) + '|' + parse(\"5\") + parse(\"z\") + parse(null) + new A(-3).f;\n"
+            + "    }\n"
+            + "}\n"
+        ))).parseCompilationUnit();
+
+        UnitCompiler uc = new UnitCompiler(cu, new ClassLoaderIClassLoader(CompilerTest.class.getClassLoader()));
+        uc.setTargetVersion(8);
+
+        Map<String, byte[]> classes = new HashMap<String, byte[]>();
+        for (ClassFile cf : uc.compileUnit(false, false, false)) {
+            Assert.assertEquals(ClassFile.MAJOR_VERSION_JDK_1_8, cf.getMajorVersion());
+            classes.put(cf.getThisClassName(), cf.toByteArray());
+        }
+
+        Assert.assertEquals(
+            "0,1,2,,4,5,6,,ArrayList10|5-1423",
+            new ByteArrayClassLoader(classes).loadClass("pkg.A").getMethod("run").invoke(null)
+        );
+    }
+
+    @Test public void
+    testIndyStringConcatenation() throws Exception {
+        Java.CompilationUnit cu = new Parser(new Scanner(null, new StringReader(
+            ""
+            + "package pkg;\n"
+            + "public class B {\n"
+            + "    public static String run(int i, long l, char c, Object o, String s) {\n"
+            + "        String n = null;\n"
+            + "        return s + i + \"-\" + l + c + o + n + \"\\u0001\" + (i > 0 ? \"pos\" : \"neg\");\n"
+            + "    }\n"
+            + "    public static String firstNotString(int i, long l, char c, Object o) {\n"
+            + "        String a = i + \"!\", b = l + \"/\" + l, d = c + \"?\", e = o + \"#\" + i;\n"
+            + "        return a + b + d + e;\n"
+            + "    }\n"
+            + "}\n"
+        ))).parseCompilationUnit();
+
+        UnitCompiler uc = new UnitCompiler(cu, new ClassLoaderIClassLoader(CompilerTest.class.getClassLoader()));
+        uc.setTargetVersion(9);
+
+        ClassFile[] cfs = uc.compileUnit(false, false, false);
+        Assert.assertEquals(1, cfs.length);
+        Assert.assertEquals(ClassFile.MAJOR_VERSION_JDK_9, cfs[0].getMajorVersion());
+
+        // Notice: The BootstrapMethods attribute is only generated by INVOKEDYNAMIC.
+        ClassFile cf = new ClassFile(new ByteArrayInputStream(cfs[0].toByteArray()));
+        Assert.assertNotNull(cf.getBootstrapMethodsAttribute());
+        Assert.assertEquals(6, cf.getBootstrapMethodsAttribute().getBootstrapMethods().size());
+
+        // Execute the code only if the running JVM supports it.
+        try {
+            Class.forName("java.lang.invoke.StringConcatFactory");
+        } catch (ClassNotFoundException cnfe) {
+            return;
+        }
+        Map<String, byte[]> classes = new HashMap<String, byte[]>();
+        classes.put(cf.getThisClassName(), cf.toByteArray());
+        Assert.assertEquals(
+            "S3-4z[]null\u0001pos",
+            new ByteArrayClassLoader(classes)
+            .loadClass("pkg.B")
+            .getMethod("run", int.class, long.class, char.class, Object.class, String.class)
+            .invoke(null, 3, 4L, 'z', new ArrayList<Object>(), "S")
+        );
+        Assert.assertEquals(
+            "3!4/4z?[]#3",
+            new ByteArrayClassLoader(classes)
+            .loadClass("pkg.B")
+            .getMethod("firstNotString", int.class, long.class, char.class, Object.class)
+            .invoke(null, 3, 4L, 'z', new ArrayList<Object>())
+        );
+    }
+
+    @Test public void
+    testLambdaExpressions() throws Exception {
+        Java.CompilationUnit cu = new Parser(new Scanner(null, new StringReader(
+            ""
+            + "package pkg;\n"
+            + "import java.util.*;\n"
+            + "public class C {\n"
+            + "    interface IntOp { int apply(int a, int b); }\n"
+            + "    private int base = 100;\n"
+            + "    static int op(IntOp o)     { return o.apply(7, 3); }\n"
+            + "    static int op(Runnable r)  { r.run(); return -1; }\n"
+            + "    public String run(final int k) throws Exception {\n"
+            + "        int   local = 10;\n"
+            + "        IntOp add   = (a, b) -> a + b + local + base + k;\n"
+            + "        List  l     = new ArrayList(Arrays.asList(new String[] { \"ccc\", \"a\", \"bb\" }));\n"
+            + "        Collections.sort(l, (Object x, Object y) -> ((String) x).length() - ((String) y).length());\n"
+            + "        final StringBuilder sb = new StringBuilder();\n"
+            + "        Runnable r = () -> { IntOp mul = (x, y) -> x * y * local; sb.append(mul.apply(2, 3)); };\n"
+            + "        r.run();\n"
+            + "        boolean                       flag = k > 0;\n"
+            + "        java.util.concurrent.Callable c    = flag ? () -> 1 : () -> 2;\n"
+            + "        java.util.concurrent.Callable d    = (!flag ? (() -> 3) : (() -> 4));\n"
+            + "        return (\n"
+            + "            add.apply(1, 2) + \" \" + l + \" \" + sb\n"
+            + "            + \" \" + op((a, b) -> a - b) + \" \" + op(() -> {})\n"
+            + "            + \" \" + c.call() + \" \" + d.call()\n"
+            + "        );\n"
+            + "    }\n"
+            + "}\n"
+        ))).parseCompilationUnit();
+
+        UnitCompiler uc = new UnitCompiler(cu, new ClassLoaderIClassLoader(CompilerTest.class.getClassLoader()));
+        uc.setTargetVersion(8);
+
+        // Notice: The lambda bodies are compiled into synthetic methods of the declaring class, not into extra classes.
+        ClassFile[] cfs = uc.compileUnit(false, false, false);
+        Assert.assertEquals(2, cfs.length);
+
+        Map<String, byte[]> classes = new HashMap<String, byte[]>();
+        for (ClassFile cf : cfs) classes.put(cf.getThisClassName(), cf.toByteArray());
+        Class<?> c = new ByteArrayClassLoader(classes).loadClass("pkg.C");
+        Assert.assertEquals(
+            "1113 [a, bb, ccc] 60 4 -1 1 4",
+            c.getMethod("run", int.class).invoke(c.newInstance(), 1000)
+        );
+    }
+
+    @Test public void
+    testResolutionsInSideTables() throws Exception {
+        final Java.CompilationUnit cu = new Parser(new Scanner(null, new StringReader(
+            ""
+            + "package pkg;\n"
+            + "public class D {\n"
+            + "    enum Color { RED, GREEN }\n"
+            + "    interface IntOp { int apply(int a); }\n"
+            + "    public static String run() {\n"
+            + "        final int     k  = 3;\n"
+            + "        IntOp         op = a -> a * k;\n"
+            + "        StringBuilder sb = new StringBuilder();\n"
+            + "        for (Color c : Color.values()) {\n"
+            + "            if (c == Color.GREEN) continue;\n"
+            + "            sb.append(c).append(c.ordinal());\n"
+            + "        }\n"
+            + "        Object o = new Object() { public String toString() { return \"anon\" + k; } };\n"
+            + "        try {\n"
+            + "            return sb + \" \" + op.apply(4) + \" \" + o + \" \" + D.class.getSimpleName();\n"
+            + "        } finally {\n"
+            + "            sb.setLength(0);\n"
+            + "        }\n"
+            + "    }\n"
+            + "}\n"
+        ))).parseCompilationUnit();
+
+        // Compile the SAME compilation unit several times, concurrently, and against different IClassLoaders.
+        final List<Map<String, byte[]>> results = new ArrayList<Map<String, byte[]>>();
+        final List<Throwable>           errors  = new ArrayList<Throwable>();
+        Thread[]                        threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+
+                @Override public void
+                run() {
+                    try {
+                        UnitCompiler uc = new UnitCompiler(
+                            cu,
+                            new ClassLoaderIClassLoader(CompilerTest.class.getClassLoader())
+                        );
+                        uc.setTargetVersion(8);
+                        uc.options(EnumSet.of(JaninoOption.RESOLUTIONS_IN_SIDE_TABLES));
+
+                        Map<String, byte[]> classes = new HashMap<String, byte[]>();
+                        for (ClassFile cf : uc.compileUnit(false, false, false)) {
+                            classes.put(cf.getThisClassName(), cf.toByteArray());
+                        }
+                        synchronized (results) { results.add(classes); }
+                    } catch (Throwable t) { // SUPPRESS CHECKSTYLE IllegalCatch
+                        synchronized (errors) { errors.add(t); }
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (Thread t : threads) t.join();
+        if (!errors.isEmpty()) throw new AssertionError(errors.get(0));
+
+        Map<String, byte[]> first = results.get(0);
+        for (Map<String, byte[]> classes : results) {
+            Assert.assertEquals(first.keySet(), classes.keySet());
+            for (Map.Entry<String, byte[]> e : first.entrySet()) {
+                Assert.assertArrayEquals(e.getKey(), e.getValue(), classes.get(e.getKey()));
+            }
+            Assert.assertEquals(
+                "RED0 12 anon3 D",
+                new ByteArrayClassLoader(classes).loadClass("pkg.D").getMethod("run").invoke(null)
+            );
+        }
+    }
+
+    @Test public void
+    testParseCache() throws Exception {
+        MapResourceFinder sourceFinder = new MapResourceFinder();
+        sourceFinder.setLastModified(1000L);
+        sourceFinder.addResource("pkg/A.java", (
+            "package pkg; public class A { public static String run() { return B.NAME + new B().x; } }"
+        ));
+        sourceFinder.addResource("pkg/B.java", (
+            "package pkg; public class B { static String NAME = \"B1\"; int x = 1; }"
+        ));
+
+        ParseCache pc = new ParseCache();
+        for (int i = 0; i < 3; i++) {
+            JavaSourceClassLoader jscl = new JavaSourceClassLoader(
+                CompilerTest.class.getClassLoader(), // parentClassLoader
+                sourceFinder,                        // sourceFinder
+                null                                 // optionalCharacterEncoding
+            );
+            jscl.setParseCache(pc);
+            Assert.assertEquals("B11", jscl.loadClass("pkg.A").getMethod("run").invoke(null));
+        }
+        Assert.assertEquals(2, pc.size());
+        Assert.assertEquals(2, pc.getMissCount());
+        Assert.assertEquals(4, pc.getHitCount());
+
+        // Modified source files must be parsed again.
+        sourceFinder.setLastModified(2000L);
+        sourceFinder.addResource("pkg/B.java", (
+            "package pkg; public class B { static String NAME = \"B2\"; int x = 2; }"
+        ));
+        JavaSourceClassLoader jscl = new JavaSourceClassLoader(CompilerTest.class.getClassLoader(), sourceFinder, null);
+        jscl.setParseCache(pc);
+        Assert.assertEquals("B22", jscl.loadClass("pkg.A").getMethod("run").invoke(null));
+        Assert.assertEquals(2, pc.size());
+        Assert.assertEquals(4, pc.getMissCount());
+        Assert.assertEquals(4, pc.getHitCount());
+    }
+
+    @Test public void
+    testCachingJavaSourceClassLoaderDependencies() throws Exception {
+        MapResourceFinder sourceFinder = new MapResourceFinder();
+        sourceFinder.setLastModified(1000L);
+        sourceFinder.addResource("pkg/A.java", (
+            "package pkg; public class A { public static int run() { return B.X; } }"
+        ));
+        sourceFinder.addResource("pkg/B.java", "package pkg; public class B { public static final int X = 1; }");
+        sourceFinder.addResource("pkg/C.java", "package pkg; public class C { public static int run() { return 3; } }");
+
+        File cacheDir = File.createTempFile("cjscl", "");
+        Assert.assertTrue(cacheDir.delete());
+        try {
+            ClassLoader cl1 = new CachingJavaSourceClassLoader(
+                CompilerTest.class.getClassLoader(),    // parentClassLoader
+                sourceFinder,                           // sourceFinder
+                null,                                   // optionalCharacterEncoding
+                new DirectoryResourceFinder(cacheDir),  // classFileCacheResourceFinder
+                new DirectoryResourceCreator(cacheDir)  // classFileCacheResourceCreator
+            );
+            Assert.assertEquals(1, cl1.loadClass("pkg.A").getMethod("run").invoke(null));
+            Assert.assertEquals(3, cl1.loadClass("pkg.C").getMethod("run").invoke(null));
+            File cClassFile    = new File(cacheDir, "pkg/C.class");
+            long cLastModified = cClassFile.lastModified();
+            Assert.assertTrue(cClassFile.exists());
+
+            // Modify "B.X". "A" inlined the constant, so it must be recompiled, but "C" must not.
+            final byte[] newB = "package pkg; public class B { public static final int X = 2; }".getBytes();
+            sourceFinder.addResource(new Resource() {
+                @Override public InputStream open()         { return new ByteArrayInputStream(newB);     }
+                @Override public String      getFileName()  { return "pkg/B.java";                      }
+                @Override public long        lastModified() { return System.currentTimeMillis() + 60000; }
+            });
+
+            ClassLoader cl2 = new CachingJavaSourceClassLoader(
+                CompilerTest.class.getClassLoader(),
+                sourceFinder,
+                null,
+                new DirectoryResourceFinder(cacheDir),
+                new DirectoryResourceCreator(cacheDir)
+            );
+            Assert.assertEquals(2, cl2.loadClass("pkg.A").getMethod("run").invoke(null));
+            Assert.assertEquals(3, cl2.loadClass("pkg.C").getMethod("run").invoke(null));
+            Assert.assertEquals(cLastModified, cClassFile.lastModified());
+        } finally {
+            File[] files = new File(cacheDir, "pkg").listFiles();
+            if (files != null) for (File f : files) f.delete();
+            new File(cacheDir, "pkg").delete();
+            cacheDir.delete();
+        }
+    }
+
+    @Test public void
+    testMappedZipFilesResourceFinder() throws Exception {
+        byte[] classFileBytes;
+        {
+            InputStream is = CompilerTest.class.getClassLoader().getResourceAsStream(
+                "org/codehaus/janino/util/ClassFile.class"
+            );
+            Assert.assertNotNull(is);
+            try {
+                ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                for (int b = is.read(); b != -1; b = is.read()) baos.write(b);
+                classFileBytes = baos.toByteArray();
+            } finally {
+                is.close();
+            }
+        }
+
+        File tmpDir = File.createTempFile("mzfrf", "");
+        Assert.assertTrue(tmpDir.delete());
+        Assert.assertTrue(tmpDir.mkdir());
+        File jar1      = new File(tmpDir, "1.jar");
+        File jar2      = new File(tmpDir, "2.jar");
+        File indexFile = new File(tmpDir, "index");
+        try {
+
+            // "1.jar" has "stored" entries, "2.jar" has "deflated" entries; "a.txt" is in both.
+            CompilerTest.writeZipFile(jar1, ZipEntry.STORED, new Object[] {
+                "org/codehaus/janino/util/ClassFile.class", classFileBytes,
+                "a.txt",                                    "one".getBytes(),
+            });
+            CompilerTest.writeZipFile(jar2, ZipEntry.DEFLATED, new Object[] {
+                "a.txt",     "two".getBytes(),
+                "b/b.class", classFileBytes,
+            });
+
+            for (int i = 0; i < 2; i++) {
+
+                // The first iteration creates the index file, the second reads it.
+                Assert.assertEquals(i == 1, indexFile.exists());
+                MappedZipFilesResourceFinder rf = new MappedZipFilesResourceFinder(
+                    new File[] { jar1, jar2 },
+                    indexFile
+                );
+
+                Assert.assertNull(rf.findResource("c.txt"));
+                Assert.assertNull(rf.findResource("b/"));
+                Assert.assertEquals("one", new String(CompilerTest.contents(rf, "a.txt")));
+                Assert.assertArrayEquals(classFileBytes, CompilerTest.contents(rf, "b/b.class"));
+                Assert.assertArrayEquals(
+                    classFileBytes,
+                    CompilerTest.contents(rf, "org/codehaus/janino/util/ClassFile.class")
+                );
+                Assert.assertTrue(rf.findResource("a.txt") instanceof ByteBufferResource);
+                Assert.assertTrue(rf.findResource("a.txt").lastModified() > 0);
+
+                // Parse class files directly from the (mapped or inflated) buffers.
+                for (String resourceName : new String[] { "org/codehaus/janino/util/ClassFile.class", "b/b.class" }) {
+                    ClassFile cf = new ClassFile(((ByteBufferResource) rf.findResource(resourceName)).getByteBuffer());
+                    Assert.assertEquals(ClassFile.class.getName(), cf.getThisClassName());
+                }
+
+                // After closing, the resources can no longer be read.
+                rf.close();
+                try {
+                    CompilerTest.contents(rf, "a.txt");
+                    Assert.fail("IOException expected");
+                } catch (IOException ioe) {
+                    ;
+                }
+            }
+        } finally {
+            jar1.delete();
+            jar2.delete();
+            indexFile.delete();
+            tmpDir.delete();
+        }
+    }
+
+    @Test public void
+    testLazyClassFileAttributes() throws Exception {
+        byte[] classFileBytes;
+        {
+            InputStream is = CompilerTest.class.getClassLoader().getResourceAsStream(
+                "org/codehaus/janino/util/ClassFile.class"
+            );
+            Assert.assertNotNull(is);
+            try {
+                ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                for (int b = is.read(); b != -1; b = is.read()) baos.write(b);
+                classFileBytes = baos.toByteArray();
+            } finally {
+                is.close();
+            }
+        }
+
+        ClassFile eager = new ClassFile(new ByteArrayInputStream(classFileBytes));
+        ClassFile lazy  = new ClassFile(ByteBuffer.wrap(classFileBytes), true);
+        Assert.assertEquals(eager.getThisClassName(), lazy.getThisClassName());
+        Assert.assertEquals(eager.methodInfos.size(), lazy.methodInfos.size());
+
+        // Storing an undecoded class file must reproduce the original attributes.
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        lazy.store(baos);
+        Assert.assertArrayEquals(classFileBytes, baos.toByteArray());
+
+        for (int i = 0; i < eager.methodInfos.size(); i++) {
+            ClassFile.MethodInfo emi = (ClassFile.MethodInfo) eager.methodInfos.get(i);
+            ClassFile.MethodInfo lmi = (ClassFile.MethodInfo) lazy.methodInfos.get(i);
+            Assert.assertEquals(emi.getName(), lmi.getName());
+
+            ClassFile.ExceptionsAttribute eea = emi.getExceptionsAttribute();
+            ClassFile.ExceptionsAttribute lea = lmi.getExceptionsAttribute();
+            Assert.assertEquals(emi.getName(), eea == null, lea == null);
+            if (eea != null && lea != null) {
+                Assert.assertEquals(eea.getExceptions(eager).length, lea.getExceptions(lazy).length);
+            }
+
+            // Decoding on demand yields the same attribute types.
+            ClassFile.AttributeInfo[] eais = emi.getAttributes();
+            ClassFile.AttributeInfo[] lais = lmi.getAttributes();
+            Assert.assertEquals(eais.length, lais.length);
+            for (int j = 0; j < eais.length; j++) Assert.assertSame(eais[j].getClass(), lais[j].getClass());
+        }
+        Assert.assertNotNull(lazy.getInnerClassesAttribute());
+
+        // After decoding, storing still reproduces the original bytes.
+        baos = new ByteArrayOutputStream();
+        lazy.store(baos);
+        Assert.assertArrayEquals(classFileBytes, baos.toByteArray());
+    }
+
+    @Test public void
+    testJrtResourceFinder() throws Exception {
+
+        // The "jrt:/" file system exists only in Java 9+.
+        Assume.assumeTrue(JrtResourceFinder.isAvailable());
+
+        ResourceFinder rf = new JrtResourceFinder();
+        Assert.assertNull(rf.findResource("java/lang/NoSuchClass.class"));
+        Assert.assertNull(rf.findResource("no/such/pkg/A.class"));
+
+        Resource r = rf.findResource("java/lang/Object.class");
+        Assert.assertNotNull(r);
+        Assert.assertEquals("jrt:/java.base/java/lang/Object.class", r.getFileName());
+        Assert.assertEquals(
+            "java.lang.Object",
+            new ClassFile(((ByteBufferResource) r).getByteBuffer()).getThisClassName()
+        );
+
+        // "java.sql" is not in "java.base".
+        IClassLoader icl = new ResourceFinderIClassLoader(rf, null);
+        Assert.assertEquals("Ljava/sql/Connection;", icl.loadIClass("Ljava/sql/Connection;").getDescriptor());
+    }
+
+    /**
+     * @param namesAndContents Pairs of entry name and {@code byte[]} contents
+     */
+    private static void
+    writeZipFile(File file, int method, Object[] namesAndContents) throws IOException {
+        ZipOutputStream zos = new ZipOutputStream(new FileOutputStream(file));
+        try {
+            for (int i = 0; i < namesAndContents.length; i += 2) {
+                byte[]   contents = (byte[]) namesAndContents[i + 1];
+                ZipEntry ze       = new ZipEntry((String) namesAndContents[i]);
+                ze.setMethod(method);
+                if (method == ZipEntry.STORED) {
+                    CRC32 crc = new CRC32();
+                    crc.update(contents);
+                    ze.setSize(contents.length);
+                    ze.setCompressedSize(contents.length);
+                    ze.setCrc(crc.getValue());
+                }
+                zos.putNextEntry(ze);
+                zos.write(contents);
+                zos.closeEntry();
+            }
+        } finally {
+            zos.close();
+        }
+    }
+
+    private static byte[]
+    contents(ResourceFinder resourceFinder, String resourceName) throws IOException {
+        Resource r = resourceFinder.findResource(resourceName);
+        Assert.assertNotNull(resourceName, r);
+        ByteBuffer bb     = ((ByteBufferResource) r).getByteBuffer();
+        byte[]     result = new byte[bb.remaining()];
+        bb.get(result);
+        return result;
+    }
+
+    @Test public void
+    testCharArrayScanner() throws Exception {
+
+        // Notice: "UnitCompiler.java" contains unicode escapes, so the character array scanner falls back to reading
+        // through a "Reader".
+        for (String fileName : new String[] { "Parser.java", "UnitCompiler.java" }) {
+            String source;
+            {
+                FileReader r = new FileReader(CompilerTest.JANINO_SRC + "/org/codehaus/janino/" + fileName);
+                try {
+                    source = Cookable.readString(r);
+                } finally {
+                    r.close();
+                }
+            }
+
+            Scanner readerScanner    = new Scanner(fileName, new StringReader(source));
+            Scanner charArrayScanner = new Scanner(fileName, source.toCharArray());
+            for (;;) {
+                Token t1 = readerScanner.produce();
+                Token t2 = charArrayScanner.produce();
+                Assert.assertEquals(
+                    t1.getLocation().toString(),
+                    t1.getLocation().toString(),
+                    t2.getLocation().toString()
+                );
+                Assert.assertEquals(t1.getLocation().toString(), t1.type, t2.type);
+                Assert.assertEquals(t1.getLocation().toString(), t1.value, t2.value);
+                if (t1.type == TokenType.KEYWORD || t1.type == TokenType.OPERATOR) {
+                    Assert.assertSame(t1.getLocation().toString(), t1.value, t2.value);
+                }
+                if (t1.type == TokenType.END_OF_INPUT) break;
+            }
+        }
+    }
+
     public static List<ClassFile>
     doCompile(
         boolean   debugSource,
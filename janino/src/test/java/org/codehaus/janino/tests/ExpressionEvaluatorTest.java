@@ -26,15 +26,23 @@
 
 package org.codehaus.janino.tests;
 
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.StringReader;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.codehaus.commons.compiler.IExpressionEvaluator;
+import org.codehaus.janino.ClassLoaderIClassLoader;
+import org.codehaus.janino.CompilerFactory;
+import org.codehaus.janino.CookCache;
 import org.codehaus.janino.ExpressionEvaluator;
+import org.codehaus.janino.PersistentCookCache;
 import org.codehaus.janino.Scanner;
 import org.codehaus.janino.ScriptEvaluator;
+import org.codehaus.janino.SharedIClassRepository;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -103,4 +111,201 @@ class ExpressionEvaluatorTest {
         ee.setStaticMethod(new boolean[] { false, false });
         ee.cook("9*3;7+1".split(";"));
     }
+
+    @Test public void
+    testSharedIClassLoader() throws Exception {
+        ClassLoader cl = ExpressionEvaluatorTest.class.getClassLoader();
+
+        Assert.assertSame(ClassLoaderIClassLoader.getShared(cl), ClassLoaderIClassLoader.getShared(cl));
+
+        ClassLoaderIClassLoader released = ClassLoaderIClassLoader.getShared(cl);
+        ClassLoaderIClassLoader.release(cl);
+        Assert.assertNotSame(released, ClassLoaderIClassLoader.getShared(cl));
+
+        for (int i = 0; i < 3; i++) {
+            ExpressionEvaluator ee = new ExpressionEvaluator();
+            ee.setParentClassLoader(cl);
+            ee.setShareIClassLoader(true);
+            ee.setParameters(new String[] { "a" }, new Class<?>[] { int.class });
+            ee.setExpressionType(String.class);
+            ee.cook("\"x\" + (a * " + i + ")");
+            Assert.assertEquals("x" + (7 * i), ee.evaluate(new Object[] { 7 }));
+        }
+    }
+
+    @Test public void
+    testSharedIClassRepository() throws Exception {
+        ClassLoader            shared = new ClassLoader(ExpressionEvaluatorTest.class.getClassLoader()) {};
+        SharedIClassRepository sicr   = new SharedIClassRepository(shared);
+
+        sicr.preload(new String[] { "java.util.Map", "java.util.Map$Entry" });
+        int preloadedTypeCount = sicr.getLoadedTypeCount();
+        Assert.assertTrue(sicr.getResolvedMemberCount() > 0);
+        Assert.assertTrue(sicr.getEstimatedSize() > 0);
+
+        // Each "tenant" has its own class loader, but the shared types are taken from the repository.
+        for (int i = 0; i < 3; i++) {
+            ClassLoader tenant = new ClassLoader(shared) {};
+
+            Assert.assertSame(
+                sicr.getIClassLoader().loadIClass("Ljava/util/Map;"),
+                sicr.newTenantIClassLoader(tenant).loadIClass("Ljava/util/Map;")
+            );
+
+            ExpressionEvaluator ee = new ExpressionEvaluator();
+            ee.setParentClassLoader(tenant);
+            ee.setSharedIClassRepository(sicr);
+            ee.setParameters(new String[] { "m" }, new Class<?>[] { java.util.Map.class });
+            ee.setExpressionType(int.class);
+            ee.cook("m.size() + " + i);
+            Assert.assertEquals(1 + i, ee.evaluate(new Object[] { java.util.Collections.singletonMap("a", "b") }));
+        }
+
+        // The types that the expressions needed were loaded once, into the repository, so yet another tenant loads
+        // no more types.
+        int typeCount = sicr.getLoadedTypeCount();
+        Assert.assertTrue(typeCount >= preloadedTypeCount);
+        ExpressionEvaluator ee = new ExpressionEvaluator();
+        ee.setParentClassLoader(new ClassLoader(shared) {});
+        ee.setSharedIClassRepository(sicr);
+        ee.setParameters(new String[] { "m" }, new Class<?>[] { java.util.Map.class });
+        ee.setExpressionType(int.class);
+        ee.cook("m.size() + 7");
+        Assert.assertEquals(typeCount, sicr.getLoadedTypeCount());
+    }
+
+    @Test public void
+    testSharedIClassLoaderConcurrently() throws Exception {
+        final ClassLoader                cl    = new ClassLoader(ExpressionEvaluatorTest.class.getClassLoader()) {};
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            final int n = i;
+            threads[i] = new Thread() {
+
+                @Override public void
+                run() {
+                    try {
+                        ExpressionEvaluator ee = new ExpressionEvaluator();
+                        ee.setParentClassLoader(cl);
+                        ee.setShareIClassLoader(true);
+                        ee.setExpressionType(String.class);
+                        ee.cook("java.util.Arrays.asList(new Integer[] { " + n + " }).toString()");
+                        Assert.assertEquals("[" + n + "]", ee.evaluate(null));
+                    } catch (Throwable t) { // SUPPRESS CHECKSTYLE IllegalCatch
+                        error.compareAndSet(null, t);
+                    }
+                }
+            };
+        }
+        for (Thread t : threads) t.start();
+        for (Thread t : threads) t.join();
+
+        if (error.get() != null) throw new AssertionError(error.get());
+    }
+
+    @Test public void
+    testCookCache() throws Exception {
+        CookCache       cache = new CookCache(2);
+        CompilerFactory cf    = new CompilerFactory();
+        cf.setCookCache(cache);
+
+        IExpressionEvaluator ee1 = cf.newExpressionEvaluator();
+        ee1.setParameters(new String[] { "a" }, new Class<?>[] { int.class });
+        ee1.cook("a + 1");
+        Assert.assertEquals(8, ee1.evaluate(new Object[] { 7 }));
+
+        // Same expression and configuration => cache hit.
+        IExpressionEvaluator ee2 = cf.newExpressionEvaluator();
+        ee2.setParameters(new String[] { "a" }, new Class<?>[] { int.class });
+        ee2.cook("a + 1");
+        Assert.assertEquals(8, ee2.evaluate(new Object[] { 7 }));
+        Assert.assertSame(ee1.getMethod().getDeclaringClass(), ee2.getMethod().getDeclaringClass());
+        Assert.assertEquals(1, cache.getHitCount());
+        Assert.assertEquals(1, cache.getMissCount());
+
+        // Different parameter type => cache miss.
+        IExpressionEvaluator ee3 = cf.newExpressionEvaluator();
+        ee3.setParameters(new String[] { "a" }, new Class<?>[] { long.class });
+        ee3.cook("a + 1");
+        Assert.assertEquals(8L, ee3.evaluate(new Object[] { 7L }));
+        Assert.assertNotSame(ee1.getMethod().getDeclaringClass(), ee3.getMethod().getDeclaringClass());
+        Assert.assertEquals(2, cache.getMissCount());
+
+        // Exceed the maximum size => eviction.
+        IExpressionEvaluator ee4 = cf.newExpressionEvaluator();
+        ee4.cook("\"x\"");
+        Assert.assertEquals("x", ee4.evaluate(null));
+        Assert.assertEquals(2, cache.size());
+        Assert.assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test public void
+    testPersistentCookCache() throws Exception {
+        File dir = File.createTempFile("pcc", "");
+        Assert.assertTrue(dir.delete());
+        try {
+
+            // Cold cache.
+            PersistentCookCache pcc1 = new PersistentCookCache(dir);
+            ExpressionEvaluator ee1  = new ExpressionEvaluator();
+            ee1.setPersistentCookCache(pcc1);
+            ee1.setParameters(new String[] { "a" }, new Class<?>[] { int.class });
+            ee1.cook("a * 2");
+            Assert.assertEquals(14, ee1.evaluate(new Object[] { 7 }));
+            Assert.assertEquals(1, pcc1.getMissCount());
+
+            // Warm cache, e.g. after a JVM restart.
+            PersistentCookCache pcc2 = new PersistentCookCache(dir);
+            ExpressionEvaluator ee2  = new ExpressionEvaluator();
+            ee2.setPersistentCookCache(pcc2);
+            ee2.setParameters(new String[] { "a" }, new Class<?>[] { int.class });
+            ee2.cook("a * 2");
+            Assert.assertEquals(14, ee2.evaluate(new Object[] { 7 }));
+            Assert.assertEquals(1, pcc2.getHitCount());
+
+            // Corrupt the entry file; must be detected and treated as a miss.
+            File[] files = dir.listFiles();
+            Assert.assertEquals(1, files.length);
+            FileOutputStream fos = new FileOutputStream(files[0], true);
+            fos.write(99);
+            fos.close();
+            ExpressionEvaluator ee3 = new ExpressionEvaluator();
+            ee3.setPersistentCookCache(pcc2);
+            ee3.setParameters(new String[] { "a" }, new Class<?>[] { int.class });
+            ee3.cook("a * 2");
+            Assert.assertEquals(14, ee3.evaluate(new Object[] { 7 }));
+            Assert.assertEquals(1, pcc2.getCorruptionCount());
+        } finally {
+            new PersistentCookCache(dir).clear();
+            dir.delete();
+        }
+    }
+
+    public
+    interface IntBinaryOperator { int applyAsInt(int a, int b); }
+
+    @Test public void
+    testCreateFastEvaluators() throws Exception {
+
+        // Many more expressions than fit into one class.
+        String[] expressions = new String[5000];
+        for (int i = 0; i < expressions.length; i++) expressions[i] = "a * " + i + " + b";
+
+        Object[] fes = new ExpressionEvaluator().createFastEvaluators(
+            expressions,
+            IntBinaryOperator.class,
+            new String[] { "a", "b" }
+        );
+        Assert.assertEquals(expressions.length, fes.length);
+
+        Set<Class<?>> classes = new HashSet<Class<?>>();
+        for (int i = 0; i < fes.length; i++) {
+            Assert.assertEquals(2 * i + 3, ((IntBinaryOperator) fes[i]).applyAsInt(2, 3));
+            classes.add(fes[i].getClass());
+        }
+        Assert.assertTrue(classes.size() > 1);
+        Assert.assertTrue(classes.size() < 10);
+    }
 }
@@ -26,11 +26,15 @@
 
 package org.codehaus.janino.tests;
 
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
 import java.util.EnumSet;
 
 import org.codehaus.commons.compiler.CompileException;
 import org.codehaus.commons.compiler.IScriptEvaluator;
+import org.codehaus.janino.AllowList;
 import org.codehaus.janino.JaninoOption;
+import org.codehaus.janino.PeepholeOptimizer;
 import org.codehaus.janino.ScriptEvaluator;
 import org.junit.Assert;
 import org.junit.Test;
@@ -107,4 +111,304 @@ class ScriptEvaluatorTest {
             Assert.assertTrue(ce.getMessage().contains("Private member cannot be accessed"));
         }
     }
+
+    @Test public void
+    testInvoker() throws Exception {
+        ScriptEvaluator se = new ScriptEvaluator();
+        se.setReturnTypes(new Class<?>[] { int.class, void.class, String.class, long.class });
+        se.setParameters(
+            new String[][] { { "x", "y" }, {}, { "s" }, { "l" } },
+            new Class<?>[][] { { int.class, int.class }, {}, { String.class }, { long.class } }
+        );
+        se.setThrownExceptions(new Class<?>[][] { {}, {}, { IOException.class }, {} });
+        se.cook(new String[] {
+            "return x + y;",
+            "",
+            "if (s == null) throw new java.io.IOException(\"null\"); return s + s;",
+            "return 2 * l;"
+        });
+
+        // The first evaluations are reflective; after that, an invoker is generated.
+        for (int i = 0; i < 100; i++) Assert.assertEquals(3, se.evaluate(0, new Object[] { 1, 2 }));
+
+        Assert.assertEquals(7, se.evaluateInt(0, new Object[] { 3, 4 }));
+        Assert.assertNull(se.evaluate(1, null));
+        Assert.assertEquals("abab", se.evaluate(2, new Object[] { "ab" }));
+        try {
+            se.evaluate(2, new Object[] { null });
+            Assert.fail("InvocationTargetException expected");
+        } catch (InvocationTargetException ite) {
+            Assert.assertTrue(ite.getCause() instanceof IOException);
+        }
+
+        // Widening conversion of an argument (through reflection).
+        Assert.assertEquals(14L, se.evaluateLong(3, new Object[] { 7 }));
+
+        // Invalid arguments.
+        try {
+            se.evaluate(0, new Object[] { 1 });
+            Assert.fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException iae) {
+            ;
+        }
+        try {
+            se.evaluate(0, new Object[] { 1, "two" });
+            Assert.fail("IllegalArgumentException expected");
+        } catch (IllegalArgumentException iae) {
+            ;
+        }
+    }
+
+    @Test public void
+    testAllowList() throws Exception {
+        AllowList al = new AllowList();
+        al.allowClass("java.lang.Math");
+        al.allowPackage("java.util");
+        al.allowMember("java.lang.Integer", "parseInt");
+        al.allowMember("java.lang.Thread", "<init>");
+
+        // Allowed members, members of "Object", and compiler-generated references.
+        ScriptEvaluator se = new ScriptEvaluator();
+        se.setAllowList(al);
+        se.setReturnType(String.class);
+        se.cook(
+            ""
+            + "java.util.List<Object> l = new java.util.ArrayList<Object>();\n"
+            + "l.add(Math.max(Integer.parseInt(\"3\"), 7));\n"
+            + "assert !l.isEmpty() : \"empty\";\n"
+            + "String result = \"\";\n"
+            + "for (Object o : l) result += o.toString() + Integer.MAX_VALUE;\n"
+            + "return result;\n"
+        );
+        Assert.assertEquals("72147483647", se.evaluate(null));
+
+        ScriptEvaluatorTest.assertNotAllowed(al, "System.exit(1);", "java.lang.System.exit");
+        ScriptEvaluatorTest.assertNotAllowed(al, "Object o = System.out;", "java.lang.System.out");
+        ScriptEvaluatorTest.assertNotAllowed(al, "new java.io.File(\"x\");", "java.io.File.<init>");
+        ScriptEvaluatorTest.assertNotAllowed(al, "Integer.valueOf(3);", "java.lang.Integer.valueOf");
+        ScriptEvaluatorTest.assertNotAllowed(
+            al,
+            "class T extends Thread {} new T().start();",
+            "java.lang.Thread.start"
+        );
+    }
+
+    @Test public void
+    testMethodSizeThreshold() throws Exception {
+
+        // Compiled without outlining, the script's method would exceed 64 KB.
+        StringBuilder sb = new StringBuilder("int[] a = new int[10];\nint n = 0;\ntry {\n");
+        for (int i = 0; i < 5000; i++) {
+            sb.append("if (a[" + i % 10 + "] >= 0) { a[" + (i + 1) % 10 + "] += " + i + " * x; }\n");
+            if (i % 500 == 0) {
+                sb.append("n++;\n");
+                sb.append("LOOP: for (int j = 0; j < 5; j++) {\n");
+                sb.append("    if (j == 1) continue LOOP;\n    if (j == 3) break;\n    a[j] ^= n;\n}\n");
+                sb.append("if (x < 0) throw new java.io.IOException();\n");
+            }
+        }
+        sb.append("} catch (java.io.IOException ioe) {\n    return -1;\n}\n");
+        sb.append("long sum = n;\nfor (int i = 0; i < a.length; i++) sum += a[i];\nreturn sum;\n");
+
+        ScriptEvaluator se = new ScriptEvaluator();
+        se.setMethodSizeThreshold(8000);
+        se.setReturnType(long.class);
+        se.setParameters(new String[] { "x" }, new Class<?>[] { int.class });
+        se.cook(sb.toString());
+
+        for (int x : new int[] { 3, -1 }) {
+            int[] a = new int[10];
+            int   n = 0;
+            long  expected;
+            COMPUTE: {
+                for (int i = 0; i < 5000; i++) {
+                    if (a[i % 10] >= 0) a[(i + 1) % 10] += i * x;
+                    if (i % 500 == 0) {
+                        n++;
+                        for (int j = 0; j < 5; j++) {
+                            if (j == 1) continue;
+                            if (j == 3) break;
+                            a[j] ^= n;
+                        }
+                        if (x < 0) {
+                            expected = -1;
+                            break COMPUTE;
+                        }
+                    }
+                }
+                expected = n;
+                for (int v : a) expected += v;
+            }
+            Assert.assertEquals(expected, se.evaluate(new Object[] { x }));
+        }
+    }
+
+    @Test public void
+    testMethodSizeThresholdWithLocalClass() throws Exception {
+
+        // The local class is not in scope in an outline method, so the statements that use it must stay in place.
+        StringBuilder sb = new StringBuilder("class L { int v = 1; }\nStringBuilder sb = new StringBuilder();\n");
+        for (int i = 0; i < 40; i++) sb.append("sb.append(new L().v + " + i + ");\n");
+        sb.append("if (sb.length() > 0) {\n");
+        for (int i = 0; i < 40; i++) sb.append("    sb.append((L) null == null ? " + i + " : -1);\n");
+        sb.append("}\nreturn sb.toString();\n");
+
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 40; i++) expected.append(1 + i);
+        for (int i = 0; i < 40; i++) expected.append(i);
+
+        ScriptEvaluator se = new ScriptEvaluator();
+        se.setMethodSizeThreshold(100);
+        se.setReturnType(String.class);
+        se.cook(sb.toString());
+        Assert.assertEquals(expected.toString(), se.evaluate(null));
+    }
+
+    @Test public void
+    testLargeSwitchMethod() throws Exception {
+
+        // The method exceeds 32 KB, so branches across it are widened, which shifts the nested SWITCH instructions
+        // and requires their padding to be adjusted.
+        final int     n  = 500;
+        StringBuilder sb = new StringBuilder("int state = 0, acc = 0;\n");
+        sb.append("for (int step = 0; step < 10000; step++) {\n    switch (state) {\n");
+        for (int i = 0; i < n; i++) {
+            sb.append("    case " + i + ":\n");
+            sb.append("        switch (acc & 3) { case 0: acc += " + i + "; break; case 1: acc ^= " + i + "; break; ");
+            sb.append("default: acc--; }\n");
+            sb.append("        state = acc > " + i * 7 + " ? " + (i * 31 + 7) % n + " : " + (i + 1) % n + ";\n");
+            sb.append("        break;\n");
+        }
+        sb.append("    }\n}\nreturn acc;\n");
+
+        ScriptEvaluator se = new ScriptEvaluator();
+        se.setReturnType(int.class);
+        se.cook(sb.toString());
+
+        int state = 0, acc = 0;
+        for (int step = 0; step < 10000; step++) {
+            switch (acc & 3) {
+            case 0:  acc += state; break;
+            case 1:  acc ^= state; break;
+            default: acc--;
+            }
+            state = acc > state * 7 ? (state * 31 + 7) % n : (state + 1) % n;
+        }
+        Assert.assertEquals(acc, se.evaluate(null));
+    }
+
+    @Test public void
+    testClassSizeThreshold() throws Exception {
+
+        // Compiled into one class, the script's methods would exceed the constant pool limit.
+        StringBuilder sb = new StringBuilder("long sum = 0;\n");
+        sb.append("for (int i = 0; i < 10; i++) sum += m0(i) + m11999(i);\nreturn sum;\n");
+        for (int i = 0; i < 12000; i++) {
+            sb.append("static long m" + i + "(int x) { ");
+            sb.append("return x + \"a" + i + "\".length() + \"b" + i + "\".length() + " + i + "L; }\n");
+        }
+
+        ScriptEvaluator se = new ScriptEvaluator();
+        se.setReturnType(long.class);
+        try {
+            se.cook(sb.toString());
+            Assert.fail("CompileException expected");
+        } catch (CompileException ce) {
+            Assert.assertTrue(ce.getMessage(), ce.getMessage().contains("grown past JVM limit of 0xFFFF"));
+        }
+
+        se = new ScriptEvaluator();
+        se.setClassSizeThreshold(20000);
+        se.setReturnType(long.class);
+        se.cook(sb.toString());
+        Assert.assertEquals(45L + 40 + 45 + 10 * (6 + 6 + 11999), se.evaluate(null));
+    }
+
+    @Test public void
+    testClassSizeThresholdWithNestedScopes() throws Exception {
+
+        // With a tiny threshold, the compiler attempts to spill each and every static method.
+        ScriptEvaluator se = new ScriptEvaluator();
+        se.setClassSizeThreshold(1);
+        se.setReturnType(String.class);
+        se.cook(
+            ""
+            + "final int[] closed = new int[1];\n"
+            + "class MyCloseable implements java.io.Closeable {\n"
+            + "    public void close() { closed[0]++; }\n"
+            + "}\n"
+            + "try (MyCloseable mc = new MyCloseable()) {\n"
+            + "    System.currentTimeMillis();\n"
+            + "}\n"
+            + "return closed[0] + twr() + local(3) + anonymous(4) + plain(5);\n"
+            + "static String twr() {\n"
+            + "    try (java.io.StringReader r = new java.io.StringReader(\"x\")) {\n"
+            + "        return \"t\";\n"
+            + "    }\n"
+            + "}\n"
+            + "static String local(final int n) {\n"
+            + "    class T { int twice() { return 2 * n; } }\n"
+            + "    return \"\" + new T().twice();\n"
+            + "}\n"
+            + "static String anonymous(final int n) {\n"
+            + "    return new Object() { public String toString() { return \"a\" + n; } }.toString();\n"
+            + "}\n"
+            + "static String plain(int n) { return \"p\" + n; }\n"
+        );
+        Assert.assertEquals("1t6a4p5", se.evaluate(null));
+    }
+
+    @Test public void
+    testPeepholeOptimizer() throws Exception {
+        String script = (
+            ""
+            + "int sum = 0;\n"
+            + "for (int i = 0; i < n; i++) {\n"
+            + "    if (i % 3 == 0) continue;\n"
+            + "    if (i > 50) break;\n"
+            + "    Integer boxed = i;\n"
+            + "    int a = i, b = 2, c = 3, d = a * b;\n"
+            + "    if (d > c) sum += d; else sum += (Integer) boxed;\n"
+            + "}\n"
+            + "return sum;\n"
+        );
+
+        int expected = 0;
+        for (int i = 0; i < 100; i++) {
+            if (i % 3 == 0) continue;
+            if (i > 50) break;
+            expected += i * 2 > 3 ? i * 2 : i;
+        }
+
+        ScriptEvaluator plain = new ScriptEvaluator();
+        plain.setReturnType(int.class);
+        plain.setParameters(new String[] { "n" }, new Class[] { int.class });
+        plain.cook(script);
+        Assert.assertEquals(expected, plain.evaluate(new Object[] { 100 }));
+
+        PeepholeOptimizer po = new PeepholeOptimizer();
+
+        ScriptEvaluator optimized = new ScriptEvaluator();
+        optimized.setPeepholeOptimizer(po);
+        optimized.setReturnType(int.class);
+        optimized.setParameters(new String[] { "n" }, new Class[] { int.class });
+        optimized.cook(script);
+        Assert.assertEquals(expected, optimized.evaluate(new Object[] { 100 }));
+
+        Assert.assertTrue(po.toString(), po.getCount(PeepholeOptimizer.Rewrite.INVERTED_BRANCH) > 0);
+        Assert.assertTrue(po.toString(), po.getCount(PeepholeOptimizer.Rewrite.STORE_LOAD) > 0);
+        Assert.assertTrue(po.toString(), po.getSavedByteCount() > 0);
+    }
+
+    private static void
+    assertNotAllowed(AllowList allowList, String script, String member) throws Exception {
+        ScriptEvaluator se = new ScriptEvaluator();
+        se.setAllowList(allowList);
+        try {
+            se.cook(script);
+            Assert.fail("CompileException expected");
+        } catch (CompileException ce) {
+            Assert.assertTrue(ce.getMessage(), ce.getMessage().contains("\"" + member + "\" is not allowed"));
+        }
+    }
 }